@@ -0,0 +1,54 @@
+package com.intellij.entity;
+
+import java.io.Serializable;
+
+/**
+ * 编译诊断信息实体类，每一条编译错误、警告都对应一个诊断信息
+ */
+public class CompileDiagnostic implements Serializable {
+    public enum Kind { ERROR, WARNING, NOTE }
+
+    private final String file;     //出错的源文件，与具体文件无关的诊断信息为null
+    private final long line;       //行号，从1开始，未知时为-1
+    private final long column;     //列号，从1开始，未知时为-1
+    private final Kind kind;
+    private final String message;
+
+    public CompileDiagnostic(String file, long line, long column, Kind kind, String message) {
+        this.file = file;
+        this.line = line;
+        this.column = column;
+        this.kind = kind;
+        this.message = message;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public long getColumn() {
+        return column;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * 转换为和javac命令行输出一致的格式
+     */
+    @Override
+    public String toString() {
+        String type = kind == Kind.ERROR ? "error" : (kind == Kind.WARNING ? "warning" : "note");
+        if(file == null) return type + ": " + message;
+        return file + ":" + line + ": " + type + ": " + message;
+    }
+}
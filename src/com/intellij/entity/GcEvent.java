@@ -0,0 +1,59 @@
+package com.intellij.entity;
+
+/**
+ * GC事件实体类，对应GC日志中的一次停顿（比如G1的一次Young GC，或者ZGC的一次Pause Mark Start）
+ */
+public class GcEvent {
+    private final int gcId;              //日志中的GC编号，同一轮GC的多次停顿编号相同
+    private final double uptimeSeconds;  //JVM启动之后的时间
+    private final String name;           //停顿类型和原因，如 Pause Young (Normal) (G1 Evacuation Pause)
+    private final double pauseMillis;
+    private final long heapBeforeKb;     //GC前的堆使用量，日志中没有时为-1
+    private final long heapAfterKb;      //GC后的堆使用量，日志中没有时为-1
+    private final long heapCapacityKb;   //当前的堆容量，日志中没有时为-1
+    private final double allocationRate; //距离上一次GC期间的分配速率（MB/s），无法计算时为-1
+
+    public GcEvent(int gcId, double uptimeSeconds, String name, double pauseMillis,
+                   long heapBeforeKb, long heapAfterKb, long heapCapacityKb, double allocationRate) {
+        this.gcId = gcId;
+        this.uptimeSeconds = uptimeSeconds;
+        this.name = name;
+        this.pauseMillis = pauseMillis;
+        this.heapBeforeKb = heapBeforeKb;
+        this.heapAfterKb = heapAfterKb;
+        this.heapCapacityKb = heapCapacityKb;
+        this.allocationRate = allocationRate;
+    }
+
+    public int getGcId() {
+        return gcId;
+    }
+
+    public double getUptimeSeconds() {
+        return uptimeSeconds;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getPauseMillis() {
+        return pauseMillis;
+    }
+
+    public long getHeapBeforeKb() {
+        return heapBeforeKb;
+    }
+
+    public long getHeapAfterKb() {
+        return heapAfterKb;
+    }
+
+    public long getHeapCapacityKb() {
+        return heapCapacityKb;
+    }
+
+    public double getAllocationRate() {
+        return allocationRate;
+    }
+}
@@ -0,0 +1,51 @@
+package com.intellij.entity;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 控制台输出片段实体类，标准输出和错误输出由不同的线程并发读取，
+ * 每个片段在读取到的时候都会分配一个全局递增的序号，控制台按序号排序后再展示，保证交错顺序正确。
+ */
+public class OutputChunk {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    /**
+     * 片段的来源
+     */
+    public enum Kind { OUTPUT, ERROR, INPUT, SYSTEM }
+
+    private final long sequence;
+    private final Kind kind;
+    private final String text;
+
+    public OutputChunk(Kind kind, String text) {
+        this(SEQUENCE.incrementAndGet(), kind, text);
+    }
+
+    private OutputChunk(long sequence, Kind kind, String text) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.text = text;
+    }
+
+    /**
+     * 截取片段的后半部分，序号保持不变
+     * @param beginIndex 起始位置
+     * @return 新的片段
+     */
+    public OutputChunk substring(int beginIndex) {
+        return new OutputChunk(sequence, kind, text.substring(beginIndex));
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
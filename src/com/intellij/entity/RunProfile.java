@@ -0,0 +1,68 @@
+package com.intellij.entity;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行配置实体类，一个项目可以有多个运行配置，每个配置有自己的JVM参数、程序参数、环境变量和工作目录，
+ * 方便对比不同的堆大小、GC等参数对程序的影响
+ */
+public class RunProfile implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final String jvmOptions;          //JVM参数，比如 -Xmx512m -XX:+UseG1GC
+    private final String programArguments;    //传给main方法的参数
+    private final Map<String, String> environment;   //额外的环境变量，其余的继承自IDE
+    private final String workingDirectory;    //工作目录，为空时使用项目根目录
+    private final boolean gcLogging;          //是否记录GC日志，旧版本保存的配置中没有这一项，读出来是false
+
+    public RunProfile(String name, String jvmOptions, String programArguments,
+                      Map<String, String> environment, String workingDirectory, boolean gcLogging) {
+        this.name = name;
+        this.jvmOptions = jvmOptions;
+        this.programArguments = programArguments;
+        this.environment = new LinkedHashMap<>(environment);
+        this.workingDirectory = workingDirectory;
+        this.gcLogging = gcLogging;
+    }
+
+    /**
+     * 创建一个什么参数都没有的默认运行配置
+     * @param name 名称
+     * @return 运行配置
+     */
+    public static RunProfile empty(String name){
+        return new RunProfile(name, "", "", new LinkedHashMap<>(), "", false);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getJvmOptions() {
+        return jvmOptions;
+    }
+
+    public String getProgramArguments() {
+        return programArguments;
+    }
+
+    public Map<String, String> getEnvironment() {
+        return environment;
+    }
+
+    public String getWorkingDirectory() {
+        return workingDirectory;
+    }
+
+    public boolean isGcLogging() {
+        return gcLogging;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
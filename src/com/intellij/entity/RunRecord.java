@@ -0,0 +1,53 @@
+package com.intellij.entity;
+
+/**
+ * 运行记录实体类，记录一次运行的资源消耗，用于对比不同运行配置的效果
+ */
+public class RunRecord {
+    private final String profileName;
+    private final String mainClass;
+    private final long startTime;
+    private final long wallMillis;     //墙钟时间（包含JVM启动时间）
+    private final long cpuMillis;      //所有线程消耗的CPU时间，无法获取时为-1
+    private final long peakRssKb;      //峰值常驻内存，无法获取时为-1
+    private final int exitCode;
+
+    public RunRecord(String profileName, String mainClass, long startTime, long wallMillis,
+                     long cpuMillis, long peakRssKb, int exitCode) {
+        this.profileName = profileName;
+        this.mainClass = mainClass;
+        this.startTime = startTime;
+        this.wallMillis = wallMillis;
+        this.cpuMillis = cpuMillis;
+        this.peakRssKb = peakRssKb;
+        this.exitCode = exitCode;
+    }
+
+    public String getProfileName() {
+        return profileName;
+    }
+
+    public String getMainClass() {
+        return mainClass;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    public long getCpuMillis() {
+        return cpuMillis;
+    }
+
+    public long getPeakRssKb() {
+        return peakRssKb;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+}
@@ -0,0 +1,42 @@
+package com.intellij.entity;
+
+import com.intellij.entity.enums.TestCaseStatus;
+
+/**
+ * 测试用例运行结果实体类
+ */
+public class TestCaseResult {
+    private final String name;        //用例名称（输入文件去掉扩展名）
+    private final TestCaseStatus status;
+    private final long wallMillis;    //从启动进程到进程结束的时间，包含JVM启动时间
+    private final int exitCode;
+    private final String detail;      //差异或者错误信息，通过时为空
+
+    public TestCaseResult(String name, TestCaseStatus status, long wallMillis, int exitCode, String detail) {
+        this.name = name;
+        this.status = status;
+        this.wallMillis = wallMillis;
+        this.exitCode = exitCode;
+        this.detail = detail;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TestCaseStatus getStatus() {
+        return status;
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+}
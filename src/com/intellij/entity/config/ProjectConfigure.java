@@ -1,17 +1,41 @@
 package com.intellij.entity.config;
 
+import com.intellij.entity.RunProfile;
+import com.intellij.entity.enums.CompileMode;
+import com.intellij.entity.enums.RunMode;
+
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 项目配置实体类
  */
 public class ProjectConfigure implements Serializable {
+    //固定序列化版本号（与最初版本一致），这样后续新增配置项时，旧项目的.idea文件依然可以正常读取
+    private static final long serialVersionUID = 5252142742915972396L;
+
     private final String mainClass;
     private final String javaCommand;
+    private final CompileMode compileMode;
+    //以下是运行相关的可选配置，旧版本的配置文件中没有，读出来是默认零值，所以获取时需要处理一下
+    private RunMode runMode;
+    private int workerPoolSize;        //预热JVM池中保持的空闲JVM数量
+    private int workerMaxIdleSeconds;  //空闲JVM的最长存活时间，超过之后会被回收并重新启动
+    private String testCaseDirectory;  //测试用例目录，相对于项目根目录
+    private int testTimeLimitMillis;   //每个测试用例的时间限制
+    private int testMemoryLimitMb;     //每个测试用例的内存限制（JVM最大堆）
+    private List<RunProfile> runProfiles;   //所有的运行配置（JVM参数、程序参数等）
+    private String activeProfile;           //当前使用的运行配置名称
 
     public ProjectConfigure(String mainClass, String javaCommand) {
+        this(mainClass, javaCommand, CompileMode.IN_PROCESS);
+    }
+
+    public ProjectConfigure(String mainClass, String javaCommand, CompileMode compileMode) {
         this.mainClass = mainClass;
         this.javaCommand = javaCommand;
+        this.compileMode = compileMode;
     }
 
     public String getJavaCommand() {
@@ -21,4 +45,90 @@ public class ProjectConfigure implements Serializable {
     public String getMainClass() {
         return mainClass;
     }
+
+    public CompileMode getCompileMode() {
+        //旧版本的配置文件中没有这一项，读出来是null，按默认值处理
+        return compileMode == null ? CompileMode.IN_PROCESS : compileMode;
+    }
+
+    public RunMode getRunMode() {
+        return runMode == null ? RunMode.PROCESS : runMode;
+    }
+
+    public void setRunMode(RunMode runMode) {
+        this.runMode = runMode;
+    }
+
+    public int getWorkerPoolSize() {
+        return workerPoolSize <= 0 ? 2 : workerPoolSize;
+    }
+
+    public void setWorkerPoolSize(int workerPoolSize) {
+        this.workerPoolSize = workerPoolSize;
+    }
+
+    public int getWorkerMaxIdleSeconds() {
+        return workerMaxIdleSeconds <= 0 ? 600 : workerMaxIdleSeconds;
+    }
+
+    public void setWorkerMaxIdleSeconds(int workerMaxIdleSeconds) {
+        this.workerMaxIdleSeconds = workerMaxIdleSeconds;
+    }
+
+    public String getTestCaseDirectory() {
+        return testCaseDirectory == null || testCaseDirectory.isEmpty() ? "tests" : testCaseDirectory;
+    }
+
+    public void setTestCaseDirectory(String testCaseDirectory) {
+        this.testCaseDirectory = testCaseDirectory;
+    }
+
+    public int getTestTimeLimitMillis() {
+        return testTimeLimitMillis <= 0 ? 2000 : testTimeLimitMillis;
+    }
+
+    public void setTestTimeLimitMillis(int testTimeLimitMillis) {
+        this.testTimeLimitMillis = testTimeLimitMillis;
+    }
+
+    public int getTestMemoryLimitMb() {
+        return testMemoryLimitMb <= 0 ? 256 : testMemoryLimitMb;
+    }
+
+    public void setTestMemoryLimitMb(int testMemoryLimitMb) {
+        this.testMemoryLimitMb = testMemoryLimitMb;
+    }
+
+    /**
+     * 获取所有的运行配置，至少会有一个默认配置
+     * @return 运行配置列表
+     */
+    public List<RunProfile> getRunProfiles() {
+        if(runProfiles == null || runProfiles.isEmpty()) {
+            List<RunProfile> profiles = new ArrayList<>();
+            profiles.add(RunProfile.empty("默认"));
+            return profiles;
+        }
+        return runProfiles;
+    }
+
+    public void setRunProfiles(List<RunProfile> runProfiles) {
+        this.runProfiles = new ArrayList<>(runProfiles);
+    }
+
+    /**
+     * 获取当前使用的运行配置，找不到时使用第一个
+     * @return 运行配置
+     */
+    public RunProfile getActiveProfile() {
+        List<RunProfile> profiles = this.getRunProfiles();
+        return profiles.stream()
+                .filter(profile -> profile.getName().equals(activeProfile))
+                .findFirst()
+                .orElse(profiles.get(0));
+    }
+
+    public void setActiveProfile(String activeProfile) {
+        this.activeProfile = activeProfile;
+    }
 }
@@ -0,0 +1,21 @@
+package com.intellij.entity.enums;
+
+/**
+ * 项目的编译模式，决定ProcessExecuteEngine使用哪种方式编译源代码
+ */
+public enum CompileMode {
+    INCREMENTAL("增量编译（仅编译改动的文件）"),    //在进程内编译的基础上，只重新编译改动过的源文件以及依赖它们的源文件
+    IN_PROCESS("内置编译器（IDE进程内）"),    //直接在IDE的JVM中调用javac，重复构建时编译器已经预热
+    PROCESS("外部javac进程"),       //每次构建都启动一个新的javac进程，作为备用方案
+    MEMORY("内存编译（不写入磁盘）");   //编译结果保存在内存中，运行时直接在IDE内通过隔离的类加载器启动主类
+
+    private final String displayName;
+    CompileMode(String displayName){
+        this.displayName = displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
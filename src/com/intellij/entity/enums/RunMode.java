@@ -0,0 +1,19 @@
+package com.intellij.entity.enums;
+
+/**
+ * 项目的运行模式，决定ProcessExecuteEngine如何启动用户程序
+ */
+public enum RunMode {
+    PROCESS("每次启动新的JVM"),          //每次运行都通过java命令启动一个新的JVM
+    WORKER_POOL("预热JVM池");           //从预先启动好的空闲JVM中取一个来运行，省掉JVM启动时间
+
+    private final String displayName;
+    RunMode(String displayName){
+        this.displayName = displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,23 @@
+package com.intellij.entity.enums;
+
+/**
+ * 测试用例的运行结果
+ */
+public enum TestCaseStatus {
+    PASSED("通过"),
+    WRONG_ANSWER("答案错误"),
+    TIME_LIMIT_EXCEEDED("超时"),
+    MEMORY_LIMIT_EXCEEDED("超内存"),
+    RUNTIME_ERROR("运行错误"),
+    NO_ANSWER("无期望输出");      //只有输入文件，没有对应的期望输出，只运行不比较
+
+    private final String displayName;
+    TestCaseStatus(String displayName){
+        this.displayName = displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
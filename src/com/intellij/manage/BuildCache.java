@@ -0,0 +1,158 @@
+package com.intellij.manage;
+
+import com.intellij.entity.CompileDiagnostic;
+import com.intellij.entity.ProcessResult;
+import com.intellij.entity.enums.CompileMode;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 构建缓存，以src目录的指纹（所有源文件的路径、大小和内容摘要）作为key，记录上一次构建的结果。
+ * 如果再次构建时指纹没有变化，就直接返回上次的结果（包括编译失败的结果），完全跳过编译。
+ * 缓存保存在项目根目录下的.build-cache文件中（和.idea放在一起），IDE重启之后依然有效。
+ */
+public class BuildCache {
+    private static final String CACHE_FILE = ".build-cache";
+    private static final int MAX_DIAGNOSTICS = 1000;   //最多缓存的诊断信息数量
+    //已经加载的缓存，避免每次构建都读一遍文件
+    private static final Map<String, CacheState> STATES = new ConcurrentHashMap<>();
+
+    private BuildCache(){}
+
+    /**
+     * 带缓存的构建，指纹没有变化时直接返回上次的构建结果，否则执行真正的构建并记录结果
+     * @param projectPath 项目根目录
+     * @param mode 编译模式，编译模式不同时缓存不能复用
+     * @param listener 诊断信息监听器，命中缓存时会按原来的顺序重放缓存的诊断信息
+     * @param build 真正的构建操作
+     * @return 构建结果
+     */
+    public static ProcessResult cached(String projectPath, CompileMode mode, Consumer<CompileDiagnostic> listener,
+                                       Function<DiagnosticSink, ProcessResult> build){
+        //一边转发诊断信息，一边记录下来（最多记录MAX_DIAGNOSTICS条）用于之后重放
+        List<CompileDiagnostic> diagnostics = new ArrayList<>();
+        DiagnosticSink sink = new DiagnosticSink(diagnostic -> {
+            if(diagnostics.size() < MAX_DIAGNOSTICS) diagnostics.add(diagnostic);
+            if(listener != null) listener.accept(diagnostic);
+        });
+        CacheState state = STATES.computeIfAbsent(projectPath, BuildCache::load);
+        synchronized (state) {     //同一个项目的构建需要排队进行
+            String fingerprint;
+            try {
+                fingerprint = state.fingerprint(projectPath);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return build.apply(sink);
+            }
+            if(fingerprint.equals(state.fingerprint) && mode == state.mode && outputPresent(projectPath, mode, state.exitCode)) {
+                if(listener != null && state.diagnostics != null) state.diagnostics.forEach(listener);
+                return new ProcessResult(state.exitCode, state.output);
+            }
+            ProcessResult result = build.apply(sink);
+            if(result.getExitCode() < 0) {    //编译器自身出错时不缓存，下次重新尝试
+                state.fingerprint = null;
+            } else {
+                state.fingerprint = fingerprint;
+                state.mode = mode;
+                state.exitCode = result.getExitCode();
+                state.output = result.getOutput();
+                state.diagnostics = diagnostics;
+            }
+            save(projectPath, state);
+            return result;
+        }
+    }
+
+    /**
+     * 编译成功的缓存只有在编译产物还在的时候才能复用，比如out目录被手动删掉了就必须重新编译
+     */
+    private static boolean outputPresent(String projectPath, CompileMode mode, int exitCode){
+        if(exitCode != 0) return true;
+        if(mode == CompileMode.MEMORY) return MemoryClassStore.get(projectPath) != null;
+        return InProcessCompiler.listSources(projectPath).isEmpty() || Files.isDirectory(Paths.get(projectPath, "out"));
+    }
+
+    private static CacheState load(String projectPath){
+        File file = new File(projectPath, CACHE_FILE);
+        if(!file.exists()) return new CacheState();
+        try (ObjectInputStream stream = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            return (CacheState) stream.readObject();
+        } catch (Exception e) {
+            e.printStackTrace();   //缓存文件损坏的话，直接丢弃就行
+            return new CacheState();
+        }
+    }
+
+    private static void save(String projectPath, CacheState state){
+        try (ObjectOutputStream stream = new ObjectOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(Paths.get(projectPath, CACHE_FILE))))) {
+            stream.writeObject(state);
+            stream.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 单个源文件的状态，修改时间和大小都没变的文件不需要重新计算摘要
+     */
+    private static class FileStamp implements Serializable {
+        private final long lastModified;
+        private final long size;
+        private final String hash;
+
+        FileStamp(long lastModified, long size, String hash) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+
+    private static class CacheState implements Serializable {
+        private Map<String, FileStamp> stamps = new HashMap<>();
+        private String fingerprint;
+        private CompileMode mode;
+        private int exitCode;
+        private String output;
+        private List<CompileDiagnostic> diagnostics;
+
+        /**
+         * 计算src目录的指纹，顺便更新每个文件的状态
+         */
+        String fingerprint(String projectPath) throws IOException {
+            Path src = Paths.get(projectPath, "src");
+            List<File> sources = InProcessCompiler.listSources(projectPath);
+            Map<String, FileStamp> current = new TreeMap<>();   //按路径排序，保证指纹稳定
+            for (File file : sources) {
+                String relative = src.relativize(file.toPath()).toString().replace('\\', '/');
+                FileStamp stamp = stamps.get(relative);
+                if(stamp == null || stamp.lastModified != file.lastModified() || stamp.size != file.length())
+                    stamp = new FileStamp(file.lastModified(), file.length(), FileDigest.sha256(file.toPath()));
+                current.put(relative, stamp);
+            }
+            MessageDigest digest = FileDigest.newDigest();
+            for (Map.Entry<String, FileStamp> entry : current.entrySet()) {
+                digest.update(entry.getKey().getBytes("UTF-8"));
+                digest.update((byte) 0);
+                digest.update(Long.toString(entry.getValue().size).getBytes("UTF-8"));
+                digest.update((byte) 0);
+                digest.update(entry.getValue().hash.getBytes("UTF-8"));
+                digest.update((byte) '\n');
+            }
+            stamps = new HashMap<>(current);
+            return FileDigest.toHex(digest.digest());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.intellij.manage;
+
+import com.intellij.manage.classfile.ClassDisassembly;
+import com.intellij.manage.classfile.ClassFileReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 最近打开过的.class文件的反汇编结果，按文件路径缓存，最多保留若干个，超过时淘汰最久没有访问的（LRU）。
+ * 文件的修改时间或者大小发生变化（重新编译过了）时缓存失效，重新解析。
+ * 缓存的是解析结果以及已经反汇编过的方法，来回切换文件时不需要重新解析，展开过的方法也不需要重新反汇编。
+ */
+public class ClassFileCache {
+    private static final int MAX_ENTRIES = 64;
+    private static final Map<String, Entry> CACHE = new LinkedHashMap<String, Entry>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private ClassFileCache(){}
+
+    /**
+     * 获取.class文件的反汇编结果，缓存中没有或者已经过期时重新解析文件
+     * @param file .class文件
+     * @return 反汇编结果
+     * @throws IOException 文件无法读取或者不是有效的.class文件
+     */
+    public static synchronized ClassDisassembly get(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        long lastModified = file.lastModified(), length = file.length();
+        Entry entry = CACHE.get(key);
+        if(entry != null && entry.lastModified == lastModified && entry.length == length) return entry.disassembly;
+        ClassDisassembly disassembly = new ClassDisassembly(ClassFileReader.read(file.toPath()));
+        CACHE.put(key, new Entry(lastModified, length, disassembly));
+        return disassembly;
+    }
+
+    private static class Entry {
+        private final long lastModified;
+        private final long length;
+        private final ClassDisassembly disassembly;
+
+        Entry(long lastModified, long length, ClassDisassembly disassembly) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.disassembly = disassembly;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.intellij.manage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 外部命令，所有外部进程都通过它启动。命令和参数以数组的形式直接交给ProcessBuilder，
+ * 不经过shell，所以不会多启动一个bash进程，路径中有空格等特殊字符也不会出问题。
+ * 支持指定工作目录、修改环境变量以及标准流的重定向。
+ */
+public class CommandLine {
+    private final List<String> command = new ArrayList<>();
+    private final Map<String, String> environment = new LinkedHashMap<>();
+    private File directory;
+    private ProcessBuilder.Redirect input = ProcessBuilder.Redirect.PIPE;
+    private ProcessBuilder.Redirect output = ProcessBuilder.Redirect.PIPE;
+    private ProcessBuilder.Redirect error = ProcessBuilder.Redirect.PIPE;
+    private Path argumentFile;
+
+    /**
+     * 创建一个外部命令
+     * @param command 可执行文件以及参数
+     */
+    public CommandLine(String... command) {
+        this.command.addAll(Arrays.asList(command));
+    }
+
+    /**
+     * 按照项目配置的java命令创建外部命令。配置中可以带上JVM参数（比如 java -Xmx512m），
+     * 拆分之后第一个作为可执行文件，其余的作为JVM参数放在最前面，配置为空时使用java
+     * @param javaCommand 配置的java命令
+     * @return 命令
+     */
+    public static CommandLine java(String javaCommand){
+        List<String> parts = split(javaCommand == null ? "" : javaCommand);
+        return parts.isEmpty() ? new CommandLine("java") : new CommandLine().arguments(parts);
+    }
+
+    /**
+     * 追加参数
+     * @param arguments 参数
+     * @return 当前命令
+     */
+    public CommandLine arguments(String... arguments){
+        command.addAll(Arrays.asList(arguments));
+        return this;
+    }
+
+    /**
+     * 追加参数
+     * @param arguments 参数
+     * @return 当前命令
+     */
+    public CommandLine arguments(Collection<String> arguments){
+        command.addAll(arguments);
+        return this;
+    }
+
+    /**
+     * 将参数写入一个临时的参数文件（@argfile，javac、java等JDK工具都支持），参数再多也不会超过命令行长度的限制，
+     * 临时文件会在进程结束之后由cleanup删除
+     * @param arguments 参数
+     * @return 当前命令
+     */
+    public CommandLine argumentFile(Collection<String> arguments) throws IOException {
+        argumentFile = Files.createTempFile("args-", ".txt");
+        try (Writer writer = Files.newBufferedWriter(argumentFile, StandardCharsets.UTF_8)) {
+            for (String argument : arguments) {
+                //参数文件中用双引号包裹每一个参数，反斜杠需要转义
+                writer.write('"' + argument.replace("\\", "\\\\").replace("\"", "\\\"") + '"');
+                writer.write('\n');
+            }
+        }
+        command.add("@" + argumentFile.toAbsolutePath());
+        return this;
+    }
+
+    /**
+     * 指定工作目录，不指定时使用IDE的工作目录
+     * @param directory 工作目录
+     * @return 当前命令
+     */
+    public CommandLine directory(File directory){
+        this.directory = directory;
+        return this;
+    }
+
+    /**
+     * 设定环境变量，其余环境变量继承自IDE
+     * @param name 名称
+     * @param value 值，为null时表示删除这个环境变量
+     * @return 当前命令
+     */
+    public CommandLine environment(String name, String value){
+        environment.put(name, value);
+        return this;
+    }
+
+    public CommandLine redirectInput(ProcessBuilder.Redirect input){
+        this.input = input;
+        return this;
+    }
+
+    public CommandLine redirectOutput(ProcessBuilder.Redirect output){
+        this.output = output;
+        return this;
+    }
+
+    public CommandLine redirectError(ProcessBuilder.Redirect error){
+        this.error = error;
+        return this;
+    }
+
+    /**
+     * 按照空白字符将一行参数拆分成参数数组，单引号或双引号包裹的部分作为一个整体（引号本身会被去掉），
+     * 双引号中可以用反斜杠转义引号。这里只是拆分参数，不会像shell那样展开变量或者通配符
+     * @param line 参数
+     * @return 参数数组
+     */
+    public static List<String> split(String line){
+        List<String> arguments = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inArgument = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if(quote != 0) {
+                if(c == quote) {
+                    quote = 0;
+                } else if(c == '\\' && quote == '"' && i + 1 < line.length() && (line.charAt(i + 1) == '"' || line.charAt(i + 1) == '\\')) {
+                    current.append(line.charAt(++i));
+                } else {
+                    current.append(c);
+                }
+            } else if(c == '"' || c == '\'') {
+                quote = c;
+                inArgument = true;
+            } else if(Character.isWhitespace(c)) {
+                if(inArgument) arguments.add(current.toString());
+                current.setLength(0);
+                inArgument = false;
+            } else {
+                current.append(c);
+                inArgument = true;
+            }
+        }
+        if(inArgument) arguments.add(current.toString());
+        return arguments;
+    }
+
+    /**
+     * 启动进程
+     * @return 进程
+     */
+    public Process start() throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectInput(input)
+                .redirectOutput(output)
+                .redirectError(error);
+        if(directory != null) builder.directory(directory);
+        Map<String, String> env = builder.environment();
+        environment.forEach((name, value) -> {
+            if(value == null) {
+                env.remove(name);
+            } else {
+                env.put(name, value);
+            }
+        });
+        try {
+            return builder.start();
+        } catch (IOException e) {
+            this.cleanup();
+            throw e;
+        }
+    }
+
+    /**
+     * 删除临时的参数文件，进程结束之后调用
+     */
+    public void cleanup(){
+        if(argumentFile == null) return;
+        try {
+            Files.deleteIfExists(argumentFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.join(" ", command);
+    }
+}
@@ -0,0 +1,212 @@
+package com.intellij.manage;
+
+import com.intellij.entity.CompileDiagnostic;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 后台编译调度器，用于编辑时的实时错误检查（保存即编译）：
+ * - 编辑操作会被防抖，连续输入时只有停顿下来之后才会开始编译
+ * - 编译在后台线程中进行，结果只保存在内存中，不会影响out目录
+ * - 编译过程中如果又有新的编辑，正在进行的编译会被立即取消，然后重新开始
+ * 同时记录排队数量和编译耗时等指标，方便在界面上展示。
+ */
+public class CompileScheduler {
+    private static final long DEBOUNCE_MILLIS = 400;
+
+    private final String projectPath;
+    private final Consumer<CheckResult> publisher;
+    private final ScheduledExecutorService executor;
+    private final StandardJavaFileManager fileManager;
+
+    private ScheduledFuture<?> pending;            //正在等待防抖结束或者正在进行的编译
+    private CancelToken current;                   //最近一次安排的编译的取消标记，在schedule时就已经创建好
+    private final AtomicInteger queueDepth = new AtomicInteger();   //尚未处理的编辑请求数量
+    private final AtomicLong lastLatency = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicInteger compileCount = new AtomicInteger();
+    private final AtomicInteger cancelledCount = new AtomicInteger();
+
+    /**
+     * 创建一个后台编译调度器
+     * @param projectPath 项目根目录
+     * @param publisher 编译结果发布，会在后台线程中调用
+     */
+    public CompileScheduler(String projectPath, Consumer<CheckResult> publisher) {
+        this.projectPath = projectPath;
+        this.publisher = publisher;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "compile-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //后台检查使用自己独立的文件管理器，不和构建操作抢锁
+        this.fileManager = InProcessCompiler.isAvailable() ?
+                InProcessCompiler.compiler().getStandardFileManager(null, null, null) : null;
+    }
+
+    public boolean isAvailable(){
+        return fileManager != null;
+    }
+
+    /**
+     * 有新的编辑，安排一次后台编译
+     * @param editedFile 正在编辑的文件，为null时直接从磁盘读取所有源文件
+     * @param content 获取正在编辑的文件的最新内容，会在后台线程中调用（一般直接返回文档的快照）
+     */
+    public synchronized void schedule(File editedFile, Supplier<? extends CharSequence> content){
+        if(!isAvailable()) return;
+        queueDepth.incrementAndGet();
+        if(pending != null) pending.cancel(false);
+        //取消上一次安排的编译，反正结果也已经过期了。标记在这里就创建好，即使那次编译刚刚开始也一定能取消掉
+        if(current != null) current.cancelled = true;
+        CancelToken token = current = new CancelToken();
+        pending = executor.schedule(() -> this.check(token, editedFile, content), DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 关闭调度器，项目关闭时调用
+     */
+    public synchronized void shutdown(){
+        if(pending != null) pending.cancel(false);
+        if(current != null) current.cancelled = true;
+        executor.shutdownNow();
+        if(fileManager != null) {
+            try {
+                fileManager.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void check(CancelToken token, File editedFile, Supplier<? extends CharSequence> content){
+        queueDepth.set(0);
+        long start = System.nanoTime();
+        List<CompileDiagnostic> diagnostics = Collections.synchronizedList(new ArrayList<>());
+        try {
+            if(token.cancelled) return;
+            List<JavaFileObject> units = new ArrayList<>();
+            String editedPath = editedFile == null ? null : editedFile.getAbsolutePath();
+            for (File file : InProcessCompiler.listSources(projectPath)) {
+                if(file.getAbsolutePath().equals(editedPath)) continue;
+                fileManager.getJavaFileObjects(file).forEach(units::add);
+            }
+            if(editedPath != null && editedPath.endsWith(".java"))
+                units.add(new EditorSource(editedFile, content.get()));
+            if(units.isEmpty()) return;
+            MemoryCompiler.MemoryFileManager memoryManager = new MemoryCompiler.MemoryFileManager(fileManager);
+            DiagnosticSink sink = new DiagnosticSink(diagnostics::add);
+            JavaCompiler.CompilationTask task = InProcessCompiler.compiler().getTask(new StringWriter(), memoryManager, sink,
+                    Arrays.asList("-proc:none", "-implicit:none", "-Xlint:none"), null, units);
+            ((JavacTask) task).addTaskListener(new TaskListener() {
+                @Override
+                public void started(TaskEvent e) {
+                    if(token.cancelled) throw new CancellationException();
+                }
+
+                @Override
+                public void finished(TaskEvent e) {
+                    if(token.cancelled) throw new CancellationException();
+                }
+            });
+            task.call();
+        } catch (RuntimeException e) {
+            if(!token.cancelled) e.printStackTrace();
+        }
+        if(token.cancelled) {
+            cancelledCount.incrementAndGet();
+            return;
+        }
+        long latency = (System.nanoTime() - start) / 1000000;
+        lastLatency.set(latency);
+        totalLatency.addAndGet(latency);
+        compileCount.incrementAndGet();
+        publisher.accept(new CheckResult(new ArrayList<>(diagnostics), latency));
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public long getLastLatencyMillis() {
+        return lastLatency.get();
+    }
+
+    public long getAverageLatencyMillis() {
+        int count = compileCount.get();
+        return count == 0 ? 0 : totalLatency.get() / count;
+    }
+
+    public int getCompileCount() {
+        return compileCount.get();
+    }
+
+    public int getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    private static class CancelToken {
+        private volatile boolean cancelled = false;
+    }
+
+    /**
+     * 编辑框中尚未（或者正在）保存的源文件，内容直接取自编辑框
+     */
+    private static class EditorSource extends SimpleJavaFileObject {
+        private final CharSequence content;
+
+        EditorSource(File file, CharSequence content) {
+            super(file.toURI(), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+    /**
+     * 一次后台编译的结果
+     */
+    public static class CheckResult {
+        private final List<CompileDiagnostic> diagnostics;
+        private final long latencyMillis;
+
+        CheckResult(List<CompileDiagnostic> diagnostics, long latencyMillis) {
+            this.diagnostics = diagnostics;
+            this.latencyMillis = latencyMillis;
+        }
+
+        public List<CompileDiagnostic> getDiagnostics() {
+            return diagnostics;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public long getErrorCount() {
+            return diagnostics.stream().filter(d -> d.getKind() == CompileDiagnostic.Kind.ERROR).count();
+        }
+    }
+}
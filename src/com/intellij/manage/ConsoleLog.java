@@ -0,0 +1,194 @@
+package com.intellij.manage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 控制台日志，一次运行的全部输出都会追加写入到一个临时文件中（UTF-8编码），同时建立稀疏的行偏移索引。
+ * 控制台本身只保留最近的若干行，更早的输出可以通过这里按行分页读取或者搜索，
+ * 读取时通过内存映射访问日志文件，不需要把整个文件读进内存，所以不管程序输出多少，IDE的内存占用都是稳定的。
+ * 读取和搜索只在开始时短暂持有锁，记下当时已经写入的长度，之后的扫描不持有锁，不会阻塞程序输出的追加。
+ */
+public class ConsoleLog implements Closeable {
+    private static final long MAP_CHUNK = 64L * 1024 * 1024;    //每次映射的最大长度
+
+    private final Path file;
+    private final OutputStream output;
+    private final FileChannel channel;
+    private final LineOffsetIndex index = new LineOffsetIndex();
+    private long size = 0;              //已经写入的字节数
+    private volatile boolean closed = false;
+
+    private ConsoleLog(Path file) throws IOException {
+        this.file = file;
+        this.output = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND), 64 * 1024);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    /**
+     * 创建一个新的控制台日志，日志保存在临时目录中，关闭时删除
+     * @return 控制台日志
+     */
+    public static ConsoleLog create() throws IOException {
+        Path file = Files.createTempFile("console-", ".log");
+        file.toFile().deleteOnExit();
+        return new ConsoleLog(file);
+    }
+
+    /**
+     * 追加一段输出
+     * @param text 输出内容
+     */
+    public synchronized void append(String text) throws IOException {
+        if(closed) return;
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++)
+            if(bytes[i] == '\n') index.lineStarted(size + i + 1);
+        output.write(bytes);
+        size += bytes.length;
+    }
+
+    /**
+     * 日志中的总行数（最后一行可能还没有结束）
+     * @return 行数
+     */
+    public synchronized long getLineCount(){
+        return index.getLineCount();
+    }
+
+    /**
+     * 读取从指定行开始的若干行
+     * @param from 起始行号（从0开始）
+     * @param count 最多读取的行数
+     * @return 读取到的行，不包含换行符
+     */
+    public List<String> readLines(long from, int count) throws IOException {
+        List<String> lines = new ArrayList<>();
+        Range range = this.range(from);
+        if(range == null || from >= range.lineCount) return lines;
+        long line = range.line;
+        MappedReader reader = new MappedReader(range.start, range.end);
+        ByteArrayOutputStream current = new ByteArrayOutputStream();
+        while (lines.size() < count && reader.hasNext()) {
+            byte b = reader.next();
+            if(b != '\n') {
+                if(line >= from) current.write(b);
+                continue;
+            }
+            if(line >= from) lines.add(decode(current));
+            line++;
+        }
+        if(lines.size() < count && line >= from && line < range.lineCount)
+            lines.add(decode(current));    //最后一行还没有结束
+        return lines;
+    }
+
+    /**
+     * 从指定行开始向后搜索包含指定内容的行，只搜索开始搜索时已经写入的内容。
+     * 日志可能很大，搜索应该放在后台任务中进行，任务被取消（线程被中断）时会尽快结束
+     * @param query 搜索内容
+     * @param from 起始行号（包含）
+     * @return 第一个匹配的行号，找不到时返回-1
+     */
+    public long find(String query, long from) throws IOException, InterruptedException {
+        if(query.isEmpty()) return -1;
+        Range range = this.range(from);
+        if(range == null) return -1;
+        long line = range.line;
+        MappedReader reader = new MappedReader(range.start, range.end);
+        ByteArrayOutputStream current = new ByteArrayOutputStream();
+        while (reader.hasNext()) {
+            byte b = reader.next();
+            if(b != '\n') {
+                if(line >= from) current.write(b);
+                continue;
+            }
+            if(line >= from && decode(current).contains(query)) return line;
+            current.reset();
+            line++;
+            if(Thread.currentThread().isInterrupted()) throw new InterruptedException();
+        }
+        return line >= from && decode(current).contains(query) ? line : -1;
+    }
+
+    /**
+     * 在锁内确定一次读取的范围：起始行之前最近的索引行、它的偏移，以及目前已经写入的长度。
+     * 之后的扫描在锁外进行，文件只会追加，这个范围内的内容不会再变化
+     * @param from 起始行号
+     * @return 读取范围，日志已经关闭时返回null
+     */
+    private synchronized Range range(long from) throws IOException {
+        if(closed) return null;
+        output.flush();
+        long line = index.indexedLineBefore(from);
+        return new Range(line, index.offsetOfIndexedLine(line), size, index.getLineCount());
+    }
+
+    private static String decode(ByteArrayOutputStream bytes){
+        String line = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        bytes.reset();
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+
+    /**
+     * 关闭日志并删除日志文件
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed) return;
+        closed = true;
+        output.close();
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    private static class Range {
+        private final long line;        //起始的索引行
+        private final long start;       //索引行的偏移
+        private final long end;         //当时已经写入的长度
+        private final long lineCount;   //当时的总行数
+
+        Range(long line, long start, long end, long lineCount) {
+            this.line = line;
+            this.start = start;
+            this.end = end;
+            this.lineCount = lineCount;
+        }
+    }
+
+    /**
+     * 通过内存映射顺序读取日志文件，文件很大的时候分块映射
+     */
+    private class MappedReader {
+        private final long end;
+        private long position;
+        private MappedByteBuffer buffer;
+
+        MappedReader(long start, long end) {
+            this.position = start;
+            this.end = end;
+        }
+
+        boolean hasNext(){
+            return position < end;
+        }
+
+        byte next() throws IOException {
+            if(buffer == null || !buffer.hasRemaining())
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_CHUNK, end - position));
+            position++;
+            return buffer.get();
+        }
+    }
+}
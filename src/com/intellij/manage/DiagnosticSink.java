@@ -0,0 +1,128 @@
+package com.intellij.manage;
+
+import com.intellij.entity.CompileDiagnostic;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 编译诊断信息的接收器，编译器每产生一条诊断信息，就立即转换为CompileDiagnostic并通知监听器，
+ * 同时只保留有限长度的文本作为最终的编译结果，即使项目错误非常多，占用的内存也是有上限的。
+ */
+public class DiagnosticSink implements DiagnosticListener<JavaFileObject> {
+    private static final int MAX_REPORT_LENGTH = 64 * 1024;    //最终结果文本最多保留64KB
+    //javac命令行输出的诊断信息头，如：/a/b/Main.java:12: error: ';' expected
+    private static final Pattern HEADER = Pattern.compile("^(.+\\.java):(\\d+): (error|warning|错误|警告): (.*)$");
+
+    private final Consumer<CompileDiagnostic> listener;
+    private final StringBuilder report = new StringBuilder();
+    private int errorCount = 0;
+    private int totalCount = 0;
+
+    public DiagnosticSink(Consumer<CompileDiagnostic> listener) {
+        this.listener = listener == null ? diagnostic -> {} : listener;
+    }
+
+    /**
+     * 接收进程内编译器产生的诊断信息
+     */
+    @Override
+    public void report(Diagnostic<? extends JavaFileObject> diagnostic) {
+        String file = diagnostic.getSource() == null ? null : diagnostic.getSource().getName();
+        CompileDiagnostic.Kind kind;
+        switch (diagnostic.getKind()) {
+            case ERROR:
+                kind = CompileDiagnostic.Kind.ERROR;
+                break;
+            case WARNING:
+            case MANDATORY_WARNING:
+                kind = CompileDiagnostic.Kind.WARNING;
+                break;
+            default:
+                kind = CompileDiagnostic.Kind.NOTE;
+        }
+        this.accept(new CompileDiagnostic(file, diagnostic.getLineNumber(), diagnostic.getColumnNumber(),
+                kind, diagnostic.getMessage(Locale.getDefault())));
+    }
+
+    /**
+     * 接收一条诊断信息
+     * @param diagnostic 诊断信息
+     */
+    public synchronized void accept(CompileDiagnostic diagnostic) {
+        totalCount++;
+        if(diagnostic.getKind() == CompileDiagnostic.Kind.ERROR) errorCount++;
+        if(report.length() < MAX_REPORT_LENGTH)
+            report.append(diagnostic).append('\n');
+        listener.accept(diagnostic);
+    }
+
+    /**
+     * 逐行解析外部javac进程的错误输出，边读边产生诊断信息，不需要等进程结束
+     * 每条诊断信息在读到下一条的开头（或者输出结束）时才会发出，因为后面可能还跟着symbol、location等补充说明
+     * @param stream javac进程的错误输出流
+     */
+    public void parseJavacOutput(InputStream stream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+        String line, file = null, kind = null;
+        StringBuilder message = new StringBuilder();
+        long lineNumber = -1, column = -1;
+        boolean sourceLineSeen = false;
+        while ((line = reader.readLine()) != null) {
+            Matcher matcher = HEADER.matcher(line);
+            if(matcher.matches()) {
+                if(file != null) this.accept(parsed(file, lineNumber, column, kind, message.toString()));
+                file = matcher.group(1);
+                lineNumber = Long.parseLong(matcher.group(2));
+                column = -1;
+                kind = matcher.group(3);
+                message.setLength(0);
+                message.append(matcher.group(4));
+                sourceLineSeen = false;
+            } else if(file != null && !sourceLineSeen) {
+                sourceLineSeen = true;    //诊断信息头后面的第一行是出错的源代码
+            } else if(file != null && column < 0 && line.trim().equals("^")) {
+                column = line.indexOf('^') + 1;    //第二行是指向出错位置的^，以此计算列号
+            } else if(file != null && !line.isEmpty() && Character.isWhitespace(line.charAt(0))) {
+                message.append('\n').append(line.trim());    //补充说明，如 symbol: class Foo
+            } else if(!line.isEmpty() && !line.matches("^\\d+ (errors?|warnings?|个错误|个警告)$")) {
+                if(file != null) this.accept(parsed(file, lineNumber, column, kind, message.toString()));
+                file = null;
+                this.accept(new CompileDiagnostic(null, -1, -1, CompileDiagnostic.Kind.NOTE, line));
+            }
+        }
+        if(file != null) this.accept(parsed(file, lineNumber, column, kind, message.toString()));
+    }
+
+    private static CompileDiagnostic parsed(String file, long line, long column, String kind, String message){
+        CompileDiagnostic.Kind type = ("error".equals(kind) || "错误".equals(kind)) ?
+                CompileDiagnostic.Kind.ERROR : CompileDiagnostic.Kind.WARNING;
+        return new CompileDiagnostic(file, line, column, type, message);
+    }
+
+    public synchronized int getErrorCount() {
+        return errorCount;
+    }
+
+    public synchronized int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 获取有限长度的诊断信息文本，作为编译结果的输出
+     * @return 文本
+     */
+    public synchronized String getReport() {
+        if(report.length() < MAX_REPORT_LENGTH) return report.toString();
+        return report + "...（共 " + totalCount + " 条诊断信息，只显示前面一部分）\n";
+    }
+}
@@ -0,0 +1,119 @@
+package com.intellij.manage;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.BiConsumer;
+
+/**
+ * 由TaskExecutor执行的一个后台任务，支持进度汇报、取消以及完成回调
+ * @param <T> 任务结果类型
+ */
+public class EngineTask<T> implements TaskProgress {
+    /**
+     * 任务的具体内容
+     */
+    public interface Work<T> {
+        T run(EngineTask<T> task) throws Exception;
+    }
+
+    private final String name;
+    private final FutureTask<T> future;
+    private final List<BiConsumer<T, Throwable>> callbacks = new CopyOnWriteArrayList<>();
+    private final Runnable changed;
+    private volatile double progress = -1;
+    private volatile String message = "";
+    //取消任务时需要额外执行的操作，任务中的各个步骤（比如编译之后再运行）可以分别注册自己的
+    private final List<Runnable> cancelHandlers = new CopyOnWriteArrayList<>();
+
+    EngineTask(String name, Work<T> work, Runnable changed) {
+        this.name = name;
+        this.changed = changed;
+        this.future = new FutureTask<T>(() -> work.run(this)) {
+            @Override
+            protected void done() {
+                EngineTask.this.complete();
+            }
+        };
+    }
+
+    FutureTask<T> future() {
+        return future;
+    }
+
+    @Override
+    public void report(double fraction, String message) {
+        this.progress = fraction;
+        if(message != null) this.message = message;
+        changed.run();
+    }
+
+    /**
+     * 添加取消任务时需要额外执行的操作（比如结束正在运行的进程），默认只会中断任务线程。
+     * 之前注册的操作不受影响，取消时全部执行。
+     * @param cancelHandler 取消操作
+     * @return 撤销这次注册的操作，比如注册的进程已经结束了，就不需要再在取消时结束它
+     */
+    public Runnable onCancel(Runnable cancelHandler) {
+        cancelHandlers.add(cancelHandler);
+        if(future.isCancelled() && cancelHandlers.remove(cancelHandler)) cancelHandler.run();
+        return () -> cancelHandlers.remove(cancelHandler);
+    }
+
+    /**
+     * 取消任务
+     */
+    public void cancel() {
+        if(future.cancel(true)) {
+            for (Runnable handler : cancelHandlers)
+                if(cancelHandlers.remove(handler)) handler.run();
+        }
+    }
+
+    /**
+     * 任务完成（包括成功、失败和取消）后执行回调，回调在任务线程中执行，如果任务已经完成则立即执行。
+     * 取消的任务，回调收到的异常是CancellationException。
+     * @param callback 回调，参数分别是结果和异常
+     */
+    public void whenComplete(BiConsumer<T, Throwable> callback) {
+        callbacks.add(callback);
+        if(future.isDone() && callbacks.remove(callback)) invoke(callback);
+    }
+
+    private void complete() {
+        changed.run();
+        for (BiConsumer<T, Throwable> callback : callbacks)
+            if(callbacks.remove(callback)) invoke(callback);
+    }
+
+    private void invoke(BiConsumer<T, Throwable> callback) {
+        try {
+            callback.accept(future.get(), null);
+        } catch (ExecutionException e) {
+            callback.accept(null, e.getCause());
+        } catch (Exception e) {    //包括CancellationException和InterruptedException
+            callback.accept(null, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getProgress() {
+        return progress;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+}
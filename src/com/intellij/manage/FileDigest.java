@@ -0,0 +1,50 @@
+package com.intellij.manage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 文件内容摘要工具，用于判断源文件内容是否真的发生了变化
+ */
+public class FileDigest {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private FileDigest(){}
+
+    /**
+     * 计算文件内容的SHA-256摘要
+     * @param path 文件路径
+     * @return 十六进制形式的摘要
+     */
+    public static String sha256(Path path) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream stream = Files.newInputStream(path)) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = stream.read(buffer)) > 0)
+                digest.update(buffer, 0, len);
+        }
+        return toHex(digest.digest());
+    }
+
+    static MessageDigest newDigest(){
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前运行环境不支持SHA-256！", e);
+        }
+    }
+
+    static String toHex(byte[] bytes){
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
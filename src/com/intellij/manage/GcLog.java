@@ -0,0 +1,250 @@
+package com.intellij.manage;
+
+import com.intellij.entity.GcEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 一次运行的GC日志（-Xlog:gc*），程序运行期间每半秒读取一次日志文件新增的部分并解析，不会重复读取已经读过的内容。
+ * 日志行的格式为 [0.345s][info][gc          ] GC(0) Pause Young (Normal) (G1 Evacuation Pause) 24M->2M(256M) 4.123ms，
+ * 这里只关心以Pause开头的停顿记录：Serial、Parallel、G1的停顿在gc标签下，并带有GC前后的堆使用量；
+ * ZGC、Shenandoah的停顿在gc,phases或者gc标签下，只有停顿时间。
+ * 分配速率由两次GC之间堆使用量的增长计算：本次GC前的使用量 - 上次GC后的使用量 = 期间分配的内存。
+ */
+public class GcLog {
+    private static final String LOG_DIRECTORY = ".gclogs";
+    private static final int MAX_LOG_FILES = 20;
+    private static final long READ_MILLIS = 500;
+    private static final int MAX_EVENTS = 5000;      //只保留最近的事件明细，统计数据包含全部事件
+    private static final Pattern LINE = Pattern.compile("^\\[([\\d.]+)s]\\[\\w+\\s*]\\[([\\w,]+)\\s*] (.*)$");
+    private static final Pattern PAUSE = Pattern.compile(
+            "^GC\\((\\d+)\\) (Pause .*?)(?: (\\d+)([KMG])->(\\d+)([KMG])\\((\\d+)([KMG])\\))? ([\\d.]+)ms$");
+    private static final Pattern USING = Pattern.compile("^Using (.+)$");
+    /** 停顿时间分布的区间上限（毫秒），最后一个区间是500ms以上 */
+    public static final double[] BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500};
+    private static final ScheduledExecutorService READER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gc-log-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path file;
+    private final ScheduledFuture<?> reading;
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();   //还没有读到换行符的半行
+    private final List<GcEvent> events = new ArrayList<>();
+    private final long[] histogram = new long[BUCKETS.length + 1];
+    private long position = 0;
+    private String collector = "";
+    private long pauseCount = 0;
+    private double totalPauseMillis = 0;
+    private double maxPauseMillis = 0;
+    private long allocatedKb = 0;
+    private double lastAllocationUptime = 0;
+    private long lastHeapAfterKb = 0;
+
+    private GcLog(Path file) {
+        this.file = file;
+        this.reading = READER.scheduleWithFixedDelay(this::read, READ_MILLIS, READ_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 在项目的.gclogs目录中为一次运行创建日志文件名，目录中只保留最近的若干个日志
+     * @param projectPath 项目根目录
+     * @param name 运行的名称（主类和会话编号）
+     * @return 日志文件路径，目录无法创建时返回null
+     */
+    static Path createFile(String projectPath, String name){
+        Path directory = Paths.get(projectPath, LOG_DIRECTORY);
+        try {
+            Files.createDirectories(directory);
+            List<Path> logs;
+            try (Stream<Path> stream = Files.list(directory)) {
+                logs = stream.filter(path -> path.toString().endsWith(".log"))
+                        .sorted(Comparator.comparing(path -> path.toFile().lastModified()))
+                        .collect(Collectors.toList());
+            }
+            for (int i = 0; i <= logs.size() - MAX_LOG_FILES; i++) Files.deleteIfExists(logs.get(i));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        String time = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        return directory.resolve(name + "-" + time + ".log").toAbsolutePath();
+    }
+
+    /**
+     * 开始跟踪一个GC日志文件，文件还不存在也没关系（JVM启动之后才会创建）
+     * @param file 日志文件
+     * @return GC日志
+     */
+    static GcLog start(Path file){
+        return new GcLog(file);
+    }
+
+    /**
+     * 停止跟踪，进程结束时调用，停止之前还会把剩下的内容读完
+     */
+    void stop(){
+        reading.cancel(false);
+        READER.execute(this::read);
+    }
+
+    /**
+     * 读取文件新增的内容，只处理完整的行，最后不完整的半行留到下一次
+     */
+    private void read(){
+        if(!Files.isRegularFile(file)) return;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if(channel.size() < position) position = 0;    //文件被截断（重新创建）了，从头读起
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            int len;
+            while ((len = channel.read(buffer, position)) > 0) {
+                position += len;
+                byte[] bytes = buffer.array();
+                int lineStart = 0;
+                for (int i = 0; i < len; i++) {
+                    if(bytes[i] != '\n') continue;
+                    partial.write(bytes, lineStart, i - lineStart);
+                    this.parseLine(partial.toString(StandardCharsets.UTF_8).trim());
+                    partial.reset();
+                    lineStart = i + 1;
+                }
+                partial.write(bytes, lineStart, len - lineStart);
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void parseLine(String line){
+        Matcher matcher = LINE.matcher(line);
+        if(!matcher.matches()) return;
+        double uptime = Double.parseDouble(matcher.group(1));
+        String tags = matcher.group(2), message = matcher.group(3);
+        if(!tags.equals("gc") && !tags.equals("gc,phases")) return;
+        Matcher using = USING.matcher(message);
+        if(using.matches()) {
+            synchronized (this) {
+                collector = using.group(1);
+            }
+            return;
+        }
+        Matcher pause = PAUSE.matcher(message);
+        if(pause.matches()) this.addPause(uptime, pause);
+    }
+
+    private synchronized void addPause(double uptime, Matcher pause){
+        double millis = Double.parseDouble(pause.group(9));
+        long before = -1, after = -1, capacity = -1;
+        double rate = -1;
+        if(pause.group(3) != null) {
+            before = toKb(pause.group(3), pause.group(4));
+            after = toKb(pause.group(5), pause.group(6));
+            capacity = toKb(pause.group(7), pause.group(8));
+            long allocated = Math.max(0, before - lastHeapAfterKb);
+            allocatedKb += allocated;
+            if(uptime > lastAllocationUptime) rate = allocated / 1024.0 / (uptime - lastAllocationUptime);
+            lastHeapAfterKb = after;
+            lastAllocationUptime = uptime;
+        }
+        events.add(new GcEvent(Integer.parseInt(pause.group(1)), uptime, pause.group(2), millis, before, after, capacity, rate));
+        if(events.size() > MAX_EVENTS) events.subList(0, events.size() - MAX_EVENTS).clear();
+        pauseCount++;
+        totalPauseMillis += millis;
+        maxPauseMillis = Math.max(maxPauseMillis, millis);
+        histogram[bucketOf(millis)]++;
+    }
+
+    private static long toKb(String value, String unit){
+        long number = Long.parseLong(value);
+        switch (unit) {
+            case "G": return number * 1024 * 1024;
+            case "M": return number * 1024;
+            default: return number;
+        }
+    }
+
+    private static int bucketOf(double millis){
+        for (int i = 0; i < BUCKETS.length; i++)
+            if(millis < BUCKETS[i]) return i;
+        return BUCKETS.length;
+    }
+
+    /**
+     * 停顿时间分布区间的名称，如 2~5ms
+     * @param bucket 区间位置
+     * @return 名称
+     */
+    public static String bucketName(int bucket){
+        if(bucket == 0) return "<" + (int) BUCKETS[0] + "ms";
+        if(bucket == BUCKETS.length) return "≥" + (int) BUCKETS[bucket - 1] + "ms";
+        return (int) BUCKETS[bucket - 1] + "~" + (int) BUCKETS[bucket] + "ms";
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 复制最近的GC事件
+     * @param fromIndex 从第几个事件开始（用于增量获取，超过保留数量的早期事件已经被丢弃了）
+     * @return GC事件
+     */
+    public synchronized List<GcEvent> events(int fromIndex){
+        long dropped = pauseCount - events.size();
+        int start = (int) Math.max(0, fromIndex - dropped);
+        return start >= events.size() ? List.of() : new ArrayList<>(events.subList(start, events.size()));
+    }
+
+    /**
+     * 停顿时间分布，每个区间的停顿次数
+     */
+    public synchronized long[] histogram(){
+        return histogram.clone();
+    }
+
+    public synchronized String getCollector() {
+        return collector;
+    }
+
+    public synchronized long getPauseCount() {
+        return pauseCount;
+    }
+
+    public synchronized double getTotalPauseMillis() {
+        return totalPauseMillis;
+    }
+
+    public synchronized double getMaxPauseMillis() {
+        return maxPauseMillis;
+    }
+
+    /**
+     * 整个运行期间的平均分配速率（MB/s），还没有带堆使用量的GC时为-1
+     */
+    public synchronized double getAverageAllocationRate() {
+        return lastAllocationUptime <= 0 ? -1 : allocatedKb / 1024.0 / lastAllocationUptime;
+    }
+}
@@ -0,0 +1,325 @@
+package com.intellij.manage;
+
+import com.intellij.entity.OutputChunk;
+import com.intellij.entity.ProcessResult;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.security.Permission;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 内存模式下的程序运行器，直接在IDE的JVM中，通过一次性的隔离类加载器运行主类，
+ * 省掉了启动新JVM的开销。每次运行都拥有自己的线程组，程序创建的线程也都归属于这个线程组，
+ * System.in/out/err会根据当前线程所属的线程组，路由到对应运行的控制台，IDE自身的输出不受影响。
+ * 程序调用System.exit时需要通过SecurityManager拦截，否则整个IDE都会退出，JDK 18开始默认不允许安装SecurityManager，
+ * 这种情况下isAvailable返回false，内存模式的运行会被拒绝，调用方应该改为在新的JVM中运行。
+ */
+public class InMemoryRunner {
+    private static final ThreadGroup ROOT_GROUP = new ThreadGroup("in-memory-runs");
+    //线程组与运行实例的对应关系，用于标准流的路由
+    private static final Map<ThreadGroup, InMemoryRunner> RUNNERS = new ConcurrentHashMap<>();
+    private static boolean streamsInstalled = false;
+    private static Boolean exitTrapped = null;     //是否成功安装了拦截System.exit的SecurityManager，null表示还没有尝试过
+
+    private final ThreadGroup group;
+    private final ClassLoader loader;
+    private final String mainClass;
+    private final PrintStream out;
+    private final PrintStream err;
+    private final PipedOutputStream stdinWriter = new PipedOutputStream();
+    private final PipedInputStream stdin;
+    private volatile Integer exitCode = null;
+    private volatile boolean stopped = false;
+
+    public InMemoryRunner(ClassLoader loader, String mainClass, Consumer<OutputChunk> redirect) throws IOException {
+        this.group = new ThreadGroup(ROOT_GROUP, "run-" + mainClass);
+        this.loader = loader;
+        this.mainClass = mainClass;
+        this.stdin = new PipedInputStream(stdinWriter, 64 * 1024);
+        this.out = new PrintStream(new ChunkOutputStream(OutputChunk.Kind.OUTPUT, redirect), true);
+        this.err = new PrintStream(new ChunkOutputStream(OutputChunk.Kind.ERROR, redirect), true);
+    }
+
+    /**
+     * 当前JDK是否支持内存模式运行，也就是能否安装拦截System.exit的SecurityManager（第一次调用时尝试安装）
+     * @return 是否支持
+     */
+    public static synchronized boolean isAvailable(){
+        if(exitTrapped == null) exitTrapped = installExitTrap();
+        return exitTrapped;
+    }
+
+    /**
+     * 运行主类，直到程序的所有非守护线程结束，或者是被强制停止
+     * @return 运行结果，格式与外部进程保持一致，标准输出和错误输出都已经实时转发过了
+     */
+    public ProcessResult run(){
+        //没法拦截System.exit的时候，程序一退出就会把IDE带走，宁可不运行
+        if(!isAvailable())
+            return new ProcessResult(-1, "当前JDK不允许安装SecurityManager，无法拦截System.exit，请改为在新的JVM中运行");
+        installStreams();
+        RUNNERS.put(group, this);
+        try {
+            Method main = Class.forName(mainClass, true, loader).getMethod("main", String[].class);
+            if(!Modifier.isStatic(main.getModifiers()))
+                return new ProcessResult(1, "错误: 主类 " + mainClass + " 中的main方法不是静态方法");
+            Thread thread = new Thread(group, () -> invokeMain(main), "main");
+            thread.setContextClassLoader(loader);
+            thread.start();
+            thread.join();
+            //和真正的JVM一样，主线程结束之后还要等待其他所有非守护线程结束
+            while (!stopped && exitCode == null && hasLiveThreads())
+                Thread.sleep(50);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return new ProcessResult(1, "错误: 找不到或无法加载主类 " + mainClass);
+        } catch (InterruptedException e) {
+            stop();
+        } finally {
+            if(hasLiveThreads()) killThreads();
+            RUNNERS.remove(group);
+            try {
+                stdinWriter.close();
+            } catch (IOException ignored) {}
+        }
+        return new ProcessResult(exitCode != null ? exitCode : (stopped ? 137 : 0), "");
+    }
+
+    private void invokeMain(Method main){
+        try {
+            main.invoke(null, (Object) new String[0]);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof ExitTrappedException) return;
+            if(stopped) return;
+            err.print("Exception in thread \"main\" ");
+            cause.printStackTrace(err);
+            if(exitCode == null) exitCode = 1;
+        } catch (IllegalAccessException e) {
+            err.println("错误: 无法访问主类中的main方法，请确认它是public的");
+            exitCode = 1;
+        }
+    }
+
+    /**
+     * 将输入内容写入到程序的标准输入中
+     * @param bytes 输入内容
+     */
+    public void writeInput(byte[] bytes) throws IOException {
+        this.writeInput(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 将输入内容写入到程序的标准输入中
+     * @param bytes 输入内容
+     * @param off 起始位置
+     * @param len 长度
+     */
+    public void writeInput(byte[] bytes, int off, int len) throws IOException {
+        stdinWriter.write(bytes, off, len);
+        stdinWriter.flush();
+    }
+
+    /**
+     * 结束输入，程序会读到EOF
+     */
+    public void endInput(){
+        try {
+            stdinWriter.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * 停止运行，先中断程序的所有线程，如果它们依然不结束，再强制终止
+     */
+    public void stop(){
+        stopped = true;
+        group.interrupt();
+        try {
+            stdinWriter.close();
+        } catch (IOException ignored) {}
+    }
+
+    private boolean hasLiveThreads(){
+        Thread[] threads = new Thread[group.activeCount() + 8];
+        int count = group.enumerate(threads, true);
+        for (int i = 0; i < count; i++)
+            if(!threads[i].isDaemon() && threads[i].isAlive()) return true;
+        return false;
+    }
+
+    @SuppressWarnings({"deprecation", "removal"})
+    private void killThreads(){
+        group.interrupt();
+        Thread[] threads = new Thread[group.activeCount() + 8];
+        int count = group.enumerate(threads, true);
+        for (int i = 0; i < count; i++) {
+            try {
+                threads[i].join(200);
+                if(threads[i].isAlive()) threads[i].stop();
+            } catch (InterruptedException | UnsupportedOperationException ignored) {
+                //新版本的JDK已经不支持强制停止线程，这种情况下只能等它自己响应中断
+            }
+        }
+    }
+
+    /**
+     * 找到当前线程所属的运行实例，如果当前线程不属于任何运行，返回null
+     */
+    private static InMemoryRunner current(){
+        if(RUNNERS.isEmpty()) return null;
+        ThreadGroup group = Thread.currentThread().getThreadGroup();
+        while (group != null && group != ROOT_GROUP) {
+            InMemoryRunner runner = RUNNERS.get(group);
+            if(runner != null) return runner;
+            group = group.getParent();
+        }
+        return null;
+    }
+
+    /**
+     * 全局只安装一次标准流路由
+     */
+    private static synchronized void installStreams(){
+        if(streamsInstalled) return;
+        streamsInstalled = true;
+        PrintStream systemOut = System.out, systemErr = System.err;
+        InputStream systemIn = System.in;
+        System.setOut(new PrintStream(new RoutingOutputStream(systemOut, false), true));
+        System.setErr(new PrintStream(new RoutingOutputStream(systemErr, true), true));
+        System.setIn(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                InMemoryRunner runner = current();
+                return runner == null ? systemIn.read() : runner.stdin.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                InMemoryRunner runner = current();
+                return runner == null ? systemIn.read(b, off, len) : runner.stdin.read(b, off, len);
+            }
+
+            @Override
+            public int available() throws IOException {
+                InMemoryRunner runner = current();
+                return runner == null ? systemIn.available() : runner.stdin.available();
+            }
+        });
+    }
+
+    /**
+     * 安装SecurityManager拦截程序中的System.exit调用，防止整个IDE被退出
+     * @return 是否安装成功
+     */
+    @SuppressWarnings("removal")
+    private static boolean installExitTrap(){
+        try {
+            System.setSecurityManager(new SecurityManager() {
+                @Override
+                public void checkPermission(Permission perm) {}
+
+                @Override
+                public void checkPermission(Permission perm, Object context) {}
+
+                @Override
+                public void checkExit(int status) {
+                    InMemoryRunner runner = current();
+                    if(runner == null) return;
+                    runner.exitCode = status;
+                    runner.stop();
+                    throw new ExitTrappedException();
+                }
+            });
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 把程序写出的字节解码成文字转发到控制台。每个流有自己的解码器，
+     * 一个字符的字节被拆到两次write中时，不完整的部分会留到下一次write再解码，不会出现乱码
+     */
+    private static class ChunkOutputStream extends OutputStream {
+        private final OutputChunk.Kind kind;
+        private final Consumer<OutputChunk> redirect;
+        private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer leftover = ByteBuffer.allocate(0);    //上一次没有解码完的字节
+
+        ChunkOutputStream(OutputChunk.Kind kind, Consumer<OutputChunk> redirect) {
+            this.kind = kind;
+            this.redirect = redirect;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            ByteBuffer input = ByteBuffer.wrap(b, off, len);
+            if(leftover.hasRemaining()) {
+                input = ByteBuffer.allocate(leftover.remaining() + len).put(leftover).put(input);
+                input.flip();
+            }
+            CharBuffer chars = CharBuffer.allocate((int) (input.remaining() * decoder.maxCharsPerByte()) + 1);
+            decoder.decode(input, chars, false);
+            leftover = input.hasRemaining() ? ByteBuffer.allocate(input.remaining()).put(input).flip() : ByteBuffer.allocate(0);
+            chars.flip();
+            if(chars.hasRemaining()) redirect.accept(new OutputChunk(kind, chars.toString()));
+        }
+    }
+
+    private static class RoutingOutputStream extends OutputStream {
+        private final PrintStream fallback;
+        private final boolean error;
+
+        RoutingOutputStream(PrintStream fallback, boolean error) {
+            this.fallback = fallback;
+            this.error = error;
+        }
+
+        private PrintStream target(){
+            InMemoryRunner runner = current();
+            if(runner == null) return fallback;
+            return error ? runner.err : runner.out;
+        }
+
+        @Override
+        public void write(int b) {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            target().flush();
+        }
+    }
+
+    /**
+     * 程序调用System.exit时抛出，用于结束调用线程
+     */
+    private static class ExitTrappedException extends SecurityException {
+        ExitTrappedException() {
+            super("System.exit() 已被IDE拦截");
+        }
+    }
+}
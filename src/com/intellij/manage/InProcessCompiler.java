@@ -0,0 +1,182 @@
+package com.intellij.manage;
+
+import com.intellij.entity.ProcessResult;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 进程内编译器，直接在IDE自己的JVM中调用javac（javax.tools）完成编译。
+ * 相比每次都启动一个新的javac进程，这里省掉了启动shell、find和冷启动JVM的开销，
+ * 并且每个项目都会保留一个StandardJavaFileManager，重复构建时javac已经被JIT预热过了。
+ */
+public class InProcessCompiler {
+
+    //系统自带的编译器，如果IDE运行在JRE上，这里会是null
+    private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+    //每个项目对应一个常驻的文件管理器，key是项目根目录
+    private static final Map<String, StandardJavaFileManager> FILE_MANAGERS = new ConcurrentHashMap<>();
+
+    private InProcessCompiler(){}
+
+    /**
+     * 当前运行环境是否支持进程内编译
+     * @return 是否可用
+     */
+    public static boolean isAvailable(){
+        return COMPILER != null;
+    }
+
+    /**
+     * 编译项目src目录下的全部源代码，并将结果输出到out目录下
+     * @param projectPath 项目根目录
+     * @param sink 诊断信息接收器，编译器每产生一条诊断信息都会立即通知它
+     * @return 编译结果，和外部javac进程的返回格式保持一致
+     */
+    public static ProcessResult compile(String projectPath, DiagnosticSink sink){
+        if(!isAvailable()) return new ProcessResult(-1, "当前运行环境中没有可用的Java编译器！");
+        List<File> sources = listSources(projectPath);
+        if(sources.isEmpty()) return new ProcessResult(0, "");
+        File out = new File(projectPath + "/out");
+        if(!out.exists() && !out.mkdirs()) return new ProcessResult(-1, "无法创建输出目录！");
+        StandardJavaFileManager fileManager = fileManager(projectPath);
+        synchronized (fileManager) {    //文件管理器本身不是线程安全的，同一个项目的编译需要排队进行
+            StringWriter writer = new StringWriter();
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(sources);
+            //完整编译时所有源文件都在编译单元中，类路径上不放out目录，否则源文件已经删除的类还能从旧的.class文件中找到，
+            //编译结果就和javac不一致了
+            List<String> options = Arrays.asList("-s", projectPath, "-d", out.getAbsolutePath());
+            try {
+                useClassPath(fileManager);
+                JavaCompiler.CompilationTask task = COMPILER.getTask(writer, fileManager, sink, options, null, units);
+                boolean success = monitor(task, sources.size()).call();
+                return success ? new ProcessResult(0, "") : new ProcessResult(1, sink.getReport() + writer);
+            } catch (RuntimeException e) {
+                if(Thread.currentThread().isInterrupted()) return cancelled();
+                e.printStackTrace();
+                return new ProcessResult(-1, "编译器内部错误：" + e);
+            } finally {
+                try {
+                    fileManager.flush();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 监控编译任务：每分析完一个类就汇报一次进度，并且在任务被取消（线程被中断）时尽快停止编译
+     * @param task 编译任务
+     * @param units 编译单元数量，用于估算进度
+     * @return 编译任务本身
+     */
+    static JavaCompiler.CompilationTask monitor(JavaCompiler.CompilationTask task, int units){
+        TaskProgress progress = TaskExecutor.currentProgress();
+        AtomicInteger analyzed = new AtomicInteger();
+        ((JavacTask) task).addTaskListener(new TaskListener() {
+            @Override
+            public void started(TaskEvent e) {
+                if(Thread.currentThread().isInterrupted()) throw new CancellationException();
+            }
+
+            @Override
+            public void finished(TaskEvent e) {
+                if(Thread.currentThread().isInterrupted()) throw new CancellationException();
+                if(e.getKind() == TaskEvent.Kind.ANALYZE) {
+                    int count = Math.min(analyzed.incrementAndGet(), units);
+                    progress.report(units == 0 ? -1 : (double) count / units, "正在编译 " + count + "/" + units);
+                }
+            }
+        });
+        return task;
+    }
+
+    /**
+     * 编译被取消时返回的结果，退出代码小于0，所以不会被构建缓存记录下来
+     */
+    static ProcessResult cancelled(){
+        return new ProcessResult(-1, "编译已取消");
+    }
+
+    static JavaCompiler compiler(){
+        return COMPILER;
+    }
+
+    /**
+     * 设定编译使用的类路径。文件管理器是常驻的，通过-classpath参数设定的类路径会一直保留在它上面，
+     * 所以每次编译之前都要明确地设定一次，不能沿用上一次（比如增量编译）留下的
+     * @param fileManager 文件管理器
+     * @param entries 类路径，为空时表示没有类路径
+     */
+    static void useClassPath(StandardJavaFileManager fileManager, File... entries) {
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_PATH, Arrays.asList(entries));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 获取项目对应的常驻文件管理器，如果还没有就创建一个，使用时需要对其加锁
+     * @param projectPath 项目根目录
+     * @return 文件管理器
+     */
+    static StandardJavaFileManager fileManager(String projectPath){
+        return FILE_MANAGERS.computeIfAbsent(projectPath, path -> COMPILER.getStandardFileManager(null, null, null));
+    }
+
+    /**
+     * 释放项目对应的文件管理器，项目窗口关闭时调用
+     * @param projectPath 项目根目录
+     */
+    public static void release(String projectPath){
+        StandardJavaFileManager fileManager = FILE_MANAGERS.remove(projectPath);
+        if(fileManager == null) return;
+        try {
+            fileManager.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 列出项目src目录下的全部Java源文件
+     * @param projectPath 项目根目录
+     * @return 源文件列表
+     */
+    static List<File> listSources(String projectPath){
+        Path src = Paths.get(projectPath, "src");
+        if(!Files.isDirectory(src)) return List.of();
+        try (Stream<Path> stream = Files.walk(src)) {
+            return stream.filter(path -> path.toString().endsWith(".java"))
+                    .filter(Files::isRegularFile)
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.intellij.manage;
+
+import com.intellij.entity.CompileDiagnostic;
+import com.intellij.entity.ProcessResult;
+import com.intellij.manage.classfile.ClassFile;
+import com.intellij.manage.classfile.ClassFileReader;
+import com.intellij.manage.classfile.FieldInfo;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * 增量编译器，基于进程内编译器实现，只重新编译发生变化的源文件以及依赖它们的源文件：
+ * - 通过文件修改时间和大小快速筛选，只有两者变化时才计算内容摘要，确认内容是否真的发生了变化
+ * - 编译完成后解析生成的.class文件常量池，记录每个源文件引用了哪些类，作为依赖关系
+ * - 已删除的源文件，其生成的.class文件也会一并删除
+ * 所有的状态信息都保存在out/.incremental文件中，out目录被删除后会自动进行一次完整编译。
+ * 限制：编译期常量（static final的基本类型或字符串字段）会被javac直接内联到使用它的类中，
+ * 使用方的常量池里不会留下对定义方的引用，依赖关系无法发现这种使用。所以每次编译后还会记录各个类的常量值，
+ * 一旦某个常量的值发生了变化（或者定义常量的源文件被删除），就退回到一次完整编译。
+ */
+public class IncrementalCompiler {
+
+    private static final String STATE_FILE = ".incremental";
+
+    private IncrementalCompiler(){}
+
+    /**
+     * 增量编译项目src目录下的源代码，并将结果输出到out目录下
+     * @param projectPath 项目根目录
+     * @param sink 诊断信息接收器
+     * @return 编译结果
+     */
+    public static ProcessResult compile(String projectPath, DiagnosticSink sink){
+        if(!InProcessCompiler.isAvailable()) return new ProcessResult(-1, "当前运行环境中没有可用的Java编译器！");
+        File out = new File(projectPath + "/out");
+        if(!out.exists() && !out.mkdirs()) return new ProcessResult(-1, "无法创建输出目录！");
+        StandardJavaFileManager fileManager = InProcessCompiler.fileManager(projectPath);
+        synchronized (fileManager) {
+            try {
+                return compile(projectPath, out, fileManager, sink, false);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return new ProcessResult(-1, "增量编译失败：" + e);
+            }
+        }
+    }
+
+    /**
+     * @param full 是否重新编译全部源文件（常量值发生变化时使用）
+     */
+    private static ProcessResult compile(String projectPath, File out, StandardJavaFileManager fileManager,
+                                         DiagnosticSink sink, boolean full) throws IOException {
+        BuildState state = BuildState.load(out);
+        Map<String, File> sources = new LinkedHashMap<>();
+        for (File file : InProcessCompiler.listSources(projectPath))
+            sources.put(file.getAbsolutePath(), file);
+
+        //首先找出内容发生变化的源文件，以及已经被删除的源文件
+        Set<String> dirty = new LinkedHashSet<>();
+        for (Map.Entry<String, File> entry : sources.entrySet()) {
+            SourceRecord record = state.records.get(entry.getKey());
+            File file = entry.getValue();
+            if(record == null || full) {
+                dirty.add(entry.getKey());
+            } else if(record.lastModified != file.lastModified() || record.size != file.length()) {
+                String hash = FileDigest.sha256(file.toPath());
+                if(hash.equals(record.hash)) {   //只是修改时间变了，内容没变，更新一下记录就行
+                    record.lastModified = file.lastModified();
+                    record.size = file.length();
+                } else {
+                    dirty.add(entry.getKey());
+                }
+            }
+        }
+        Set<String> affectedClasses = new HashSet<>();
+        boolean constantsRemoved = false;
+        for (Iterator<Map.Entry<String, SourceRecord>> it = state.records.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, SourceRecord> entry = it.next();
+            if(sources.containsKey(entry.getKey())) continue;
+            affectedClasses.addAll(entry.getValue().classes);
+            constantsRemoved |= !entry.getValue().constants.isEmpty();
+            deleteClasses(out, entry.getValue().classes, sink);   //源文件已经删除，对应的.class文件也要删除
+            it.remove();
+        }
+        //被删除的常量可能已经内联到了其他类中，它们不会因为找不到这个类而编译失败，只能全部重新编译
+        if(constantsRemoved && !full) {
+            state.save(out);
+            return compile(projectPath, out, fileManager, sink, true);
+        }
+        for (String source : dirty) {
+            SourceRecord record = state.records.get(source);
+            if(record != null) affectedClasses.addAll(record.classes);
+        }
+
+        //然后根据依赖关系找出所有引用了受影响类的源文件，它们也需要重新编译
+        if(!affectedClasses.isEmpty()) {
+            for (Map.Entry<String, SourceRecord> entry : state.records.entrySet()) {
+                if(dirty.contains(entry.getKey())) continue;
+                for (String reference : entry.getValue().references) {
+                    if(affectedClasses.contains(reference)) {
+                        dirty.add(entry.getKey());
+                        break;
+                    }
+                }
+            }
+        }
+        if(dirty.isEmpty()) {
+            state.save(out);
+            return new ProcessResult(0, "");
+        }
+
+        //重新编译之前先清理掉这些源文件之前生成的.class文件，防止残留已经不存在的内部类
+        List<File> units = new ArrayList<>();
+        Map<String, Map<String, String>> previousConstants = new HashMap<>();
+        for (String source : dirty) {
+            SourceRecord record = state.records.remove(source);
+            if(record != null) {
+                deleteClasses(out, record.classes, sink);
+                previousConstants.put(source, record.constants);
+            }
+            units.add(sources.get(source));
+        }
+        OutputRecorder recorder = new OutputRecorder(fileManager);
+        StringWriter writer = new StringWriter();
+        //只编译一部分源文件，其余的类要从out目录中之前的编译结果里找
+        List<String> options = Arrays.asList("-s", projectPath, "-d", out.getAbsolutePath(), "-implicit:none");
+        boolean success;
+        try {
+            InProcessCompiler.useClassPath(fileManager, out);
+            success = InProcessCompiler.monitor(InProcessCompiler.compiler().getTask(writer, recorder, sink, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(units)), units.size()).call();
+        } catch (RuntimeException e) {
+            state.save(out);
+            if(Thread.currentThread().isInterrupted()) return InProcessCompiler.cancelled();
+            e.printStackTrace();
+            return new ProcessResult(-1, "编译器内部错误：" + e);
+        } finally {
+            fileManager.flush();
+        }
+        if(!success) {    //编译失败时不记录这些源文件，下次构建时它们依然会被当作需要编译的文件
+            state.save(out);
+            return new ProcessResult(1, sink.getReport() + writer);
+        }
+
+        //编译成功，记录每个源文件生成了哪些类，这些类引用了哪些其他类，以及定义了哪些常量
+        boolean constantsChanged = false;
+        for (String source : dirty) {
+            File file = sources.get(source);
+            SourceRecord record = new SourceRecord(file.lastModified(), file.length(), FileDigest.sha256(file.toPath()));
+            for (String className : recorder.outputs.getOrDefault(source, Collections.emptyList())) {
+                String internalName = className.replace('.', '/');
+                record.classes.add(internalName);
+                Path classFile = Paths.get(out.getAbsolutePath(), internalName + ".class");
+                if(!Files.exists(classFile)) continue;
+                ClassFile parsed = ClassFileReader.read(classFile);
+                record.references.addAll(parsed.referencedClasses());
+                for (FieldInfo field : parsed.getFields())
+                    if(field.getConstantValue() != null)
+                        record.constants.put(internalName + "." + field.getName(), field.getConstantValue());
+            }
+            record.references.removeAll(record.classes);
+            state.records.put(source, record);
+            Map<String, String> previous = previousConstants.get(source);
+            if(previous != null && !previous.equals(record.constants)) constantsChanged = true;
+        }
+        state.save(out);
+        //常量值变了，之前内联了旧值的类在依赖关系中找不到，只能全部重新编译一次
+        if(constantsChanged && !full && dirty.size() < sources.size())
+            return compile(projectPath, out, fileManager, sink, true);
+        return new ProcessResult(0, "");
+    }
+
+    /**
+     * 删除过期的.class文件，删除失败时作为一条警告报告出来，和其他诊断信息一起展示
+     */
+    private static void deleteClasses(File out, Collection<String> classes, DiagnosticSink sink){
+        for (String name : classes) {
+            File file = new File(out, name + ".class");
+            if(file.exists() && !file.delete())
+                sink.accept(new CompileDiagnostic(file.getAbsolutePath(), 0, 0, CompileDiagnostic.Kind.WARNING,
+                        "无法删除过期的.class文件，运行时可能会加载到旧的类"));
+        }
+    }
+
+    /**
+     * 包装文件管理器，记录每个源文件编译后输出了哪些类
+     */
+    private static class OutputRecorder extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, List<String>> outputs = new HashMap<>();
+
+        OutputRecorder(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+            if(kind == JavaFileObject.Kind.CLASS && sibling != null && "file".equals(sibling.toUri().getScheme())) {
+                String source = new File(sibling.toUri()).getAbsolutePath();
+                outputs.computeIfAbsent(source, key -> new ArrayList<>()).add(className);
+            }
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+    }
+
+    /**
+     * 单个源文件的编译记录
+     */
+    private static class SourceRecord implements Serializable {
+        private long lastModified;
+        private long size;
+        private final String hash;
+        private final List<String> classes = new ArrayList<>();      //此源文件生成的全部类
+        private final Set<String> references = new HashSet<>();      //这些类引用到的其他类
+        private final Map<String, String> constants = new HashMap<>();   //这些类定义的编译期常量（类名.字段名 -> 常量值）
+
+        SourceRecord(long lastModified, long size, String hash) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * 整个项目的增量编译状态
+     */
+    private static class BuildState implements Serializable {
+        private final Map<String, SourceRecord> records = new HashMap<>();
+
+        static BuildState load(File out){
+            File file = new File(out, STATE_FILE);
+            if(!file.exists()) return new BuildState();
+            try (ObjectInputStream stream = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+                return (BuildState) stream.readObject();
+            } catch (Exception e) {
+                e.printStackTrace();    //状态文件损坏时，直接进行一次完整编译就好
+                return new BuildState();
+            }
+        }
+
+        void save(File out){
+            try (ObjectOutputStream stream = new ObjectOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(new File(out, STATE_FILE).toPath())))) {
+                stream.writeObject(this);
+                stream.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.intellij.manage;
+
+import com.intellij.manage.classfile.ClassDisassembly;
+import com.intellij.manage.classfile.ClassFile;
+import com.intellij.manage.classfile.ClassFileReader;
+import com.intellij.manage.classfile.MethodInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * 把JIT编译报告和项目自己的.class文件对应起来：编译日志里只有方法和字节码位置，
+ * 借助.class文件中的行号表就能知道它们在源代码中的哪一行，从而在源代码和字节码中直接标注出来：
+ * - 方法被编译到了哪一层，字节码大小是否超过了内联阈值
+ * - 哪些调用没有被内联，以及原因
+ * - 哪里发生了去优化
+ * 只分析项目自己的类，JDK中的类不在out目录里，不会出现在结果中。
+ */
+public class JitInsight {
+    private final JitReport report;
+    private final String sourceRoot;
+    private final Map<String, ClassFile> classes = new TreeMap<>();    //类名（如com.test.Main） -> 类文件
+
+    private JitInsight(JitReport report, String projectPath) {
+        this.report = report;
+        this.sourceRoot = Paths.get(projectPath, "src").toAbsolutePath().toString();
+    }
+
+    /**
+     * 读取项目out目录下的全部.class文件，和JIT编译报告对应起来
+     * @param projectPath 项目根目录
+     * @param report JIT编译报告
+     * @return 分析结果
+     */
+    static JitInsight of(String projectPath, JitReport report) throws IOException {
+        JitInsight insight = new JitInsight(report, projectPath);
+        Path out = Paths.get(projectPath, "out");
+        if(!Files.isDirectory(out)) return insight;
+        try (Stream<Path> stream = Files.walk(out)) {
+            for (Path path : (Iterable<Path>) stream.filter(p -> p.toString().endsWith(".class"))::iterator) {
+                ClassFile classFile = ClassFileReader.read(path);
+                insight.classes.put(classFile.getThisClass().replace('/', '.'), classFile);
+            }
+        }
+        return insight;
+    }
+
+    public JitReport getReport() {
+        return report;
+    }
+
+    /**
+     * 项目中所有方法的概况，按类名和方法在类文件中的顺序排列
+     * @return 方法概况
+     */
+    public List<MethodNote> getMethodNotes(){
+        List<MethodNote> notes = new ArrayList<>();
+        classes.forEach((className, classFile) -> {
+            for (MethodInfo method : classFile.getMethods()) {
+                if(method.getCodeLength() < 0) continue;
+                String name = method.getName(), descriptor = method.getDescriptor();
+                int failures = 0;
+                for (JitReport.InlineDecision decision : report.getDecisions(className, name, descriptor))
+                    if(!decision.isInlined()) failures++;
+                notes.add(new MethodNote(className, method, report.getCompiledMethod(className, name, descriptor),
+                        report.sizeNote(method.getCodeLength()), failures,
+                        report.getDeoptimizations(className, name, descriptor).size()));
+            }
+        });
+        return notes;
+    }
+
+    /**
+     * 项目代码中所有调用点的内联决策，包括被内联的JDK方法
+     * @return 调用点
+     */
+    public List<CallNote> getCallNotes(){
+        List<CallNote> notes = new ArrayList<>();
+        classes.forEach((className, classFile) -> {
+            for (MethodInfo method : classFile.getMethods())
+                for (JitReport.InlineDecision decision : report.getDecisions(className, method.getName(), method.getDescriptor()))
+                    notes.add(new CallNote(className, method, decision));
+        });
+        return notes;
+    }
+
+    /**
+     * 生成源文件中各行的标注，源文件对应的类通过包名和类文件中的SourceFile属性找到（包括内部类）
+     * @param sourceFile 源文件
+     * @return 行号 -> 标注
+     */
+    public Map<Integer, LineNote> sourceNotes(File sourceFile){
+        Map<Integer, LineNote> notes = new TreeMap<>();
+        String parent = sourceFile.getAbsoluteFile().getParent();
+        if(parent == null || !(parent + File.separator).startsWith(sourceRoot + File.separator)) return notes;
+        String packageName = parent.substring(sourceRoot.length()).replace(File.separatorChar, '.');
+        if(packageName.startsWith(".")) packageName = packageName.substring(1);
+        for (Map.Entry<String, ClassFile> entry : classes.entrySet()) {
+            String className = entry.getKey();
+            int dot = className.lastIndexOf('.');
+            if(!sourceFile.getName().equals(entry.getValue().getSourceFile())
+                    || !packageName.equals(dot < 0 ? "" : className.substring(0, dot))) continue;
+            for (MethodInfo method : entry.getValue().getMethods())
+                this.addSourceNotes(notes, className, method);
+        }
+        return notes;
+    }
+
+    private void addSourceNotes(Map<Integer, LineNote> notes, String className, MethodInfo method){
+        String name = method.getName(), descriptor = method.getDescriptor();
+        String display = displayName(method);
+        JitReport.CompiledMethod compiled = report.getCompiledMethod(className, name, descriptor);
+        String sizeNote = method.getCodeLength() < 0 ? null : report.sizeNote(method.getCodeLength());
+        int firstLine = method.firstLine();
+        if(firstLine > 0 && compiled != null)
+            note(notes, firstLine, false).messages.add(display + " 已被JIT编译：" + compiled.getTierText());
+        if(firstLine > 0 && sizeNote != null)
+            note(notes, firstLine, true).messages.add(display + " " + sizeNote);
+        for (JitReport.InlineDecision decision : report.getDecisions(className, name, descriptor)) {
+            int line = method.lineOf(decision.getBci());
+            if(decision.isInlined() || line <= 0) continue;
+            note(notes, line, true).messages.add("调用 " + JitReport.displayName(decision.getCallee()) + " 没有被内联（"
+                    + JitReport.tierName(decision.getLevel()) + "）：" + decision.getReasonText());
+        }
+        for (JitReport.Deoptimization deoptimization : report.getDeoptimizations(className, name, descriptor)) {
+            int line = method.lineOf(deoptimization.getBci());
+            if(line > 0) note(notes, line, true).messages.add("发生去优化：" + deoptimization.getReason()
+                    + "（" + deoptimization.getAction() + "）");
+        }
+    }
+
+    private static LineNote note(Map<Integer, LineNote> notes, int line, boolean warning){
+        LineNote note = notes.computeIfAbsent(line, key -> new LineNote());
+        note.warning |= warning;
+        return note;
+    }
+
+    /**
+     * 创建反汇编时使用的标注：方法声明之后标注方法的编译情况，调用指令后面注明内联决策
+     * @param classFile 要反汇编的类文件
+     * @return 标注
+     */
+    public ClassDisassembly.Annotator bytecodeAnnotator(ClassFile classFile){
+        String className = classFile.getThisClass().replace('/', '.');
+        return new ClassDisassembly.Annotator() {
+            //每个方法的内联决策按字节码位置分组，方法每次展开都会重新生成文本，分组只需要做一次
+            private final Map<MethodInfo, Map<Integer, List<JitReport.InlineDecision>>> calls = new HashMap<>();
+
+            @Override
+            public List<String> methodNotes(MethodInfo method) {
+                String name = method.getName(), descriptor = method.getDescriptor();
+                List<String> notes = new ArrayList<>();
+                JitReport.CompiledMethod compiled = report.getCompiledMethod(className, name, descriptor);
+                notes.add("[JIT] " + (compiled == null ? "没有被JIT编译" : "编译层级：" + compiled.getTierText()));
+                String sizeNote = method.getCodeLength() < 0 ? null : report.sizeNote(method.getCodeLength());
+                if(sizeNote != null) notes.add("[JIT] " + sizeNote);
+                for (JitReport.Deoptimization deoptimization : report.getDeoptimizations(className, name, descriptor))
+                    notes.add("[JIT] 位置" + deoptimization.getBci() + "发生去优化：" + deoptimization.getReason());
+                return notes;
+            }
+
+            @Override
+            public List<String> instructionNotes(MethodInfo method, int bci) {
+                Map<Integer, List<JitReport.InlineDecision>> decisions = calls.computeIfAbsent(method, key -> {
+                    Map<Integer, List<JitReport.InlineDecision>> byBci = new HashMap<>();
+                    for (JitReport.InlineDecision decision : report.getDecisions(className, key.getName(), key.getDescriptor()))
+                        byBci.computeIfAbsent(decision.getBci(), position -> new ArrayList<>()).add(decision);
+                    return byBci;
+                });
+                List<String> notes = new ArrayList<>();
+                for (JitReport.InlineDecision decision : decisions.getOrDefault(bci, List.of()))
+                    notes.add("[JIT] " + (decision.isInlined() ? "已内联" : "未内联：" + decision.getReasonText()));
+                return notes;
+            }
+        };
+    }
+
+    private static String displayName(MethodInfo method){
+        return method.getName() + "(" + String.join(", ", MethodInfo.parameterTypes(method.getDescriptor())) + ")";
+    }
+
+    /**
+     * 源代码中一行的标注
+     */
+    public static class LineNote {
+        private final List<String> messages = new ArrayList<>();
+        private boolean warning = false;
+
+        public List<String> getMessages() {
+            return messages;
+        }
+
+        /**
+         * 是否包含需要注意的问题（没有内联、超过阈值、去优化），只是编译信息的行不需要特别标记
+         */
+        public boolean isWarning() {
+            return warning;
+        }
+    }
+
+    /**
+     * 一个方法的概况
+     */
+    public static class MethodNote {
+        private final String className;
+        private final MethodInfo method;
+        private final JitReport.CompiledMethod compiled;
+        private final String sizeNote;
+        private final int inlineFailures;
+        private final int deoptimizations;
+
+        MethodNote(String className, MethodInfo method, JitReport.CompiledMethod compiled,
+                   String sizeNote, int inlineFailures, int deoptimizations) {
+            this.className = className;
+            this.method = method;
+            this.compiled = compiled;
+            this.sizeNote = sizeNote;
+            this.inlineFailures = inlineFailures;
+            this.deoptimizations = deoptimizations;
+        }
+
+        public String getMethod() {
+            return className + "." + displayName(method);
+        }
+
+        public int getLine() {
+            return method.firstLine();
+        }
+
+        public int getCodeLength() {
+            return method.getCodeLength();
+        }
+
+        /**
+         * 编译层级，没有被编译时为“解释执行”
+         */
+        public String getTierText() {
+            return compiled == null ? "解释执行" : compiled.getTierText();
+        }
+
+        public String getSizeNote() {
+            return sizeNote;
+        }
+
+        public int getInlineFailures() {
+            return inlineFailures;
+        }
+
+        public int getDeoptimizations() {
+            return deoptimizations;
+        }
+    }
+
+    /**
+     * 一个调用点的内联决策
+     */
+    public static class CallNote {
+        private final String className;
+        private final MethodInfo method;
+        private final JitReport.InlineDecision decision;
+
+        CallNote(String className, MethodInfo method, JitReport.InlineDecision decision) {
+            this.className = className;
+            this.method = method;
+            this.decision = decision;
+        }
+
+        /**
+         * 调用位置，如 com.test.Main.main(java.lang.String[]):12
+         */
+        public String getLocation() {
+            int line = method.lineOf(decision.getBci());
+            return className + "." + displayName(method) + (line > 0 ? ":" + line : " @" + decision.getBci());
+        }
+
+        public String getCallee() {
+            return JitReport.displayName(decision.getCallee());
+        }
+
+        public boolean isInlined() {
+            return decision.isInlined();
+        }
+
+        public String getReasonText() {
+            return decision.getReasonText();
+        }
+
+        public String getTier() {
+            return JitReport.tierName(decision.getLevel());
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.intellij.manage;
+
+import com.intellij.manage.classfile.MethodInfo;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JIT编译报告，由HotSpot的编译日志（-XX:+LogCompilation输出的XML）生成，包括：
+ * - 每个方法被编译到了哪些层级（C1的1~3层、C2的第4层）
+ * - 编译时每个调用点的内联决策，以及没有内联的原因
+ * - 程序运行过程中发生的去优化（编译后的代码中的假设不成立，退回解释执行）
+ * 编译日志可能有几十MB，这里使用SAX逐个读取元素，不会把整个文件读进内存。
+ * 日志中的方法统一表示为“类名 方法名 描述符”的形式（比如 java.lang.String hashCode ()I），这里也用它作为方法的键。
+ */
+public class JitReport {
+    private static final Pattern INT_FLAG = Pattern.compile("-XX:(MaxInlineSize|FreqInlineSize|HugeMethodLimit)=(\\d+)");
+    private static final Map<String, String> REASONS = new HashMap<>();
+    static {
+        REASONS.put("callee is too large", "被调用方法的字节码超过MaxInlineSize，并且这个调用不够热");
+        REASONS.put("too big", "被调用方法的字节码超过内联大小限制");
+        REASONS.put("hot method too big", "被调用方法的字节码超过FreqInlineSize，热点调用也不会内联");
+        REASONS.put("already compiled into a big method", "被调用方法已经被编译成较大的本地代码（超过InlineSmallCode）");
+        REASONS.put("no static binding", "虚方法调用无法在编译时确定目标（C1不会根据类型统计做推测）");
+        REASONS.put("not inlineable", "方法不能内联（比如类还没有加载）");
+        REASONS.put("native method", "本地方法不能内联");
+        REASONS.put("inlining too deep", "内联层次超过MaxInlineLevel");
+        REASONS.put("recursive inlining is too deep", "递归调用的内联层次超过MaxRecursiveInlineLevel");
+        REASONS.put("size > DesiredMethodLimit", "内联之后调用方的字节码总量超过DesiredMethodLimit");
+        REASONS.put("callee uses too much stack", "被调用方法使用的栈空间太大");
+        REASONS.put("call site not reached", "运行期间这个调用点从来没有执行过");
+        REASONS.put("NodeCountInliningCutoff", "编译中间表示的结点数已经达到上限");
+        REASONS.put("don't inline Throwable constructors", "异常的构造方法不会被内联");
+    }
+
+    private final Map<String, CompiledMethod> methods = new HashMap<>();
+    private final Map<String, Map<String, InlineDecision>> decisions = new HashMap<>();   //调用方 -> (位置+被调用方 -> 决策)
+    private final Map<String, List<Deoptimization>> deoptimizations = new HashMap<>();
+    private int maxInlineSize = 35;
+    private int freqInlineSize = 325;
+    private int hugeMethodLimit = 8000;
+    private boolean complete = true;
+
+    private JitReport(){}
+
+    /**
+     * 解析编译日志。程序被强制停止时日志可能不完整（编译线程的日志是在JVM退出时才合并进来的），
+     * 这种情况下保留已经读到的内容，并通过isComplete标记出来
+     * @param log 编译日志文件
+     * @return JIT编译报告
+     */
+    public static JitReport parse(Path log) throws IOException {
+        JitReport report = new JitReport();
+        try {
+            SAXParserFactory.newInstance().newSAXParser().parse(log.toFile(), report.new LogHandler());
+        } catch (SAXParseException e) {
+            report.complete = false;
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("无法解析编译日志：" + e.getMessage(), e);
+        }
+        return report;
+    }
+
+    /**
+     * 编译日志的SAX处理器。编译任务（task）中的类、类型和方法都以编号的形式出现，编号只在当前任务内有效；
+     * 任务中的parse元素可以嵌套，表示正在解析的方法（被内联的方法会嵌套在调用方里面），
+     * 每个调用点依次出现bc（字节码位置）、call（被调用方法）和inline_success/inline_fail（内联决策）。
+     */
+    private class LogHandler extends DefaultHandler {
+        private final Map<String, String> types = new HashMap<>();     //编号 -> 类型描述符
+        private final Map<String, String> klasses = new HashMap<>();   //编号 -> 类名
+        private final Map<String, String> taskMethods = new HashMap<>();   //编号 -> 方法键
+        private final Deque<String> parsing = new ArrayDeque<>();
+        private StringBuilder args;
+        private int level;
+        private int bci;
+        private String callee;
+        private Attributes trap;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (qName) {
+                case "args":
+                    args = new StringBuilder();
+                    break;
+                case "nmethod":
+                    this.compiled(attributes);
+                    break;
+                case "uncommon_trap":
+                    //带有thread属性的是运行期间真正发生的去优化，编译任务中的只是编译器插入的陷阱
+                    if(attributes.getValue("thread") != null) trap = new AttributesImpl(attributes);
+                    break;
+                case "jvms":
+                    if(trap == null) break;
+                    //第一个jvms就是去优化发生的位置（可能在某个被内联的方法里）
+                    String method = attributes.getValue("method");
+                    deoptimizations.computeIfAbsent(method, key -> new ArrayList<>()).add(new Deoptimization(
+                            method, parseInt(attributes.getValue("bci"), -1),
+                            trap.getValue("reason"), trap.getValue("action")));
+                    trap = null;
+                    break;
+                case "task":
+                    types.clear();
+                    klasses.clear();
+                    taskMethods.clear();
+                    parsing.clear();
+                    callee = null;
+                    level = parseInt(attributes.getValue("level"), 4);    //C2的任务没有level属性
+                    break;
+                case "type":
+                    types.put(attributes.getValue("id"), primitiveDescriptor(attributes.getValue("name")));
+                    break;
+                case "klass":
+                    klasses.put(attributes.getValue("id"), attributes.getValue("name"));
+                    break;
+                case "method":
+                    taskMethods.put(attributes.getValue("id"), this.methodKey(attributes));
+                    break;
+                case "parse":
+                    parsing.push(taskMethods.getOrDefault(attributes.getValue("method"), ""));
+                    break;
+                case "bc":
+                    bci = parseInt(attributes.getValue("bci"), -1);
+                    break;
+                case "call":
+                    callee = taskMethods.get(attributes.getValue("method"));
+                    break;
+                case "inline_success":
+                case "inline_fail":
+                    if(callee == null || parsing.isEmpty()) break;
+                    decide(parsing.peek(), bci, callee, qName.equals("inline_success"),
+                            attributes.getValue("reason"), level);
+                    callee = null;
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (qName) {
+                case "args":
+                    Matcher matcher = INT_FLAG.matcher(args);
+                    while (matcher.find()) {
+                        int value = Integer.parseInt(matcher.group(2));
+                        switch (matcher.group(1)) {
+                            case "MaxInlineSize": maxInlineSize = value; break;
+                            case "FreqInlineSize": freqInlineSize = value; break;
+                            case "HugeMethodLimit": hugeMethodLimit = value; break;
+                        }
+                    }
+                    if(args.indexOf("-XX:-DontCompileHugeMethods") >= 0) hugeMethodLimit = Integer.MAX_VALUE;
+                    args = null;
+                    break;
+                case "parse":
+                    if(!parsing.isEmpty()) parsing.pop();
+                    break;
+                case "uncommon_trap":
+                    trap = null;
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if(args != null) args.append(ch, start, length);
+        }
+
+        /**
+         * 记录一次编译完成，本地方法的包装代码（compile_kind为c2n）不算
+         */
+        private void compiled(Attributes attributes){
+            String method = attributes.getValue("method");
+            if(method == null || "c2n".equals(attributes.getValue("compile_kind"))) return;
+            CompiledMethod compiled = methods.computeIfAbsent(method, CompiledMethod::new);
+            compiled.levels.add(parseInt(attributes.getValue("level"), 0));
+            compiled.bytes = parseInt(attributes.getValue("bytes"), compiled.bytes);
+            if("osr".equals(attributes.getValue("compile_kind"))) compiled.osr = true;
+        }
+
+        /**
+         * 由method元素生成方法键，参数和返回值类型都是编号，需要转换回描述符
+         */
+        private String methodKey(Attributes attributes){
+            StringBuilder descriptor = new StringBuilder("(");
+            String arguments = attributes.getValue("arguments");
+            if(arguments != null)
+                for (String id : arguments.trim().split("\\s+"))
+                    descriptor.append(this.typeDescriptor(id));
+            descriptor.append(')').append(this.typeDescriptor(attributes.getValue("return")));
+            return klasses.getOrDefault(attributes.getValue("holder"), "?") + " "
+                    + attributes.getValue("name") + " " + descriptor;
+        }
+
+        private String typeDescriptor(String id){
+            String primitive = types.get(id);
+            if(primitive != null) return primitive;
+            String klass = klasses.getOrDefault(id, "java.lang.Object");
+            return klass.startsWith("[") ? klass.replace('.', '/') : "L" + klass.replace('.', '/') + ";";
+        }
+    }
+
+    private static String primitiveDescriptor(String name){
+        switch (name) {
+            case "byte": return "B";
+            case "char": return "C";
+            case "double": return "D";
+            case "float": return "F";
+            case "int": return "I";
+            case "long": return "J";
+            case "short": return "S";
+            case "boolean": return "Z";
+            default: return "V";
+        }
+    }
+
+    private static int parseInt(String value, int defaultValue){
+        if(value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 记录一个内联决策。同一个调用点在C1和C2中各会编译一次，甚至会因为去优化编译多次，
+     * 这里只保留层级最高的那次编译的决策（同一层级保留最后一次），也就是最终在运行的代码中的情况
+     */
+    private void decide(String caller, int bci, String callee, boolean inlined, String reason, int level){
+        Map<String, InlineDecision> map = decisions.computeIfAbsent(caller, key -> new LinkedHashMap<>());
+        String key = bci + " " + callee;
+        InlineDecision old = map.get(key);
+        if(old == null || old.level <= level) map.put(key, new InlineDecision(caller, bci, callee, inlined, reason, level));
+    }
+
+    /**
+     * 获取方法的编译情况
+     * @param className 类名（如com.test.Main）
+     * @param name 方法名
+     * @param descriptor 方法描述符
+     * @return 编译情况，没有被编译过时返回null
+     */
+    public CompiledMethod getCompiledMethod(String className, String name, String descriptor){
+        return methods.get(methodKey(className, name, descriptor));
+    }
+
+    /**
+     * 获取方法中各个调用点的内联决策。方法被更高层级重新编译之后，低层级编译留下的决策就不再有意义了
+     * （比如C2根据运行统计把从来没有执行过的分支编译成了陷阱，里面的调用根本不会出现在C2的日志中），
+     * 所以只返回最高层级那次编译的决策
+     * @return 内联决策，按字节码位置排列
+     */
+    public List<InlineDecision> getDecisions(String className, String name, String descriptor){
+        Collection<InlineDecision> all = decisions.getOrDefault(methodKey(className, name, descriptor), Map.of()).values();
+        int highest = 0;
+        for (InlineDecision decision : all) highest = Math.max(highest, decision.level);
+        List<InlineDecision> list = new ArrayList<>();
+        for (InlineDecision decision : all)
+            if(decision.level == highest) list.add(decision);
+        list.sort(Comparator.comparingInt(InlineDecision::getBci));
+        return list;
+    }
+
+    /**
+     * 获取发生在方法中的去优化
+     */
+    public List<Deoptimization> getDeoptimizations(String className, String name, String descriptor){
+        return deoptimizations.getOrDefault(methodKey(className, name, descriptor), List.of());
+    }
+
+    public int getCompiledMethodCount(){
+        return methods.size();
+    }
+
+    /**
+     * 根据方法的字节码大小给出内联相关的提示（阈值取自HotSpot的默认值，运行时通过-XX指定了的话以指定的为准）：
+     * - 超过MaxInlineSize（35字节）的方法，只有调用足够频繁时才会被内联
+     * - 超过FreqInlineSize（325字节）的方法，调用再频繁也不会被内联
+     * - 超过HugeMethodLimit（8000字节）的方法，根本不会被JIT编译
+     * @param codeLength 字节码大小
+     * @return 提示，没有超过任何阈值时返回null
+     */
+    public String sizeNote(int codeLength){
+        if(codeLength > hugeMethodLimit)
+            return "字节码" + codeLength + "字节，超过HugeMethodLimit(" + hugeMethodLimit + ")，不会被JIT编译，只能解释执行";
+        if(codeLength > freqInlineSize)
+            return "字节码" + codeLength + "字节，超过FreqInlineSize(" + freqInlineSize + ")，调用再频繁也不会被内联";
+        if(codeLength > maxInlineSize)
+            return "字节码" + codeLength + "字节，超过MaxInlineSize(" + maxInlineSize + ")，只有热点调用才会被内联";
+        return null;
+    }
+
+    /**
+     * 编译日志是否完整，程序被强制停止时编译线程的日志会丢失
+     */
+    public boolean isComplete(){
+        return complete;
+    }
+
+    static String methodKey(String className, String name, String descriptor){
+        return className + " " + name + " " + descriptor;
+    }
+
+    /**
+     * 把方法键转换为便于阅读的形式，如 java.lang.String.charAt(int)
+     * @param key 方法键
+     * @return 方法名称
+     */
+    public static String displayName(String key){
+        String[] parts = key.split(" ", 3);
+        if(parts.length < 3) return key;
+        return parts[0] + "." + parts[1] + "(" + String.join(", ", MethodInfo.parameterTypes(parts[2])) + ")";
+    }
+
+    /**
+     * 把编译层级转换为文字，1~3层由C1编译，4层由C2编译
+     */
+    public static String tierName(int level){
+        return level == 4 ? "C2" : level == 0 ? "解释器" : "C1第" + level + "层";
+    }
+
+    /**
+     * 一个方法的编译情况
+     */
+    public static class CompiledMethod {
+        private final String method;
+        private final SortedSet<Integer> levels = new TreeSet<>();
+        private int bytes = -1;
+        private boolean osr = false;
+
+        CompiledMethod(String method) {
+            this.method = method;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public SortedSet<Integer> getLevels() {
+            return levels;
+        }
+
+        public int getHighestLevel() {
+            return levels.isEmpty() ? 0 : levels.last();
+        }
+
+        /**
+         * 编译过程，比如“C1第3层 → C2”，包含栈上替换（OSR，在循环执行过程中切换到编译后的代码）时会额外注明
+         */
+        public String getTierText() {
+            StringJoiner joiner = new StringJoiner(" → ");
+            levels.forEach(level -> joiner.add(tierName(level)));
+            return joiner + (osr ? "（含OSR）" : "");
+        }
+
+        public int getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * 一个调用点的内联决策
+     */
+    public static class InlineDecision {
+        private final String caller;
+        private final int bci;
+        private final String callee;
+        private final boolean inlined;
+        private final String reason;
+        private final int level;
+
+        InlineDecision(String caller, int bci, String callee, boolean inlined, String reason, int level) {
+            this.caller = caller;
+            this.bci = bci;
+            this.callee = callee;
+            this.inlined = inlined;
+            this.reason = reason == null ? "" : reason;
+            this.level = level;
+        }
+
+        public String getCaller() {
+            return caller;
+        }
+
+        public int getBci() {
+            return bci;
+        }
+
+        public String getCallee() {
+            return callee;
+        }
+
+        public boolean isInlined() {
+            return inlined;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * 原因的说明，常见的原因会附上中文解释
+         */
+        public String getReasonText() {
+            String explanation = REASONS.get(reason);
+            return explanation == null ? reason : reason + "（" + explanation + "）";
+        }
+
+        public int getLevel() {
+            return level;
+        }
+    }
+
+    /**
+     * 一次去优化
+     */
+    public static class Deoptimization {
+        private final String method;
+        private final int bci;
+        private final String reason;
+        private final String action;
+
+        Deoptimization(String method, int bci, String reason, String action) {
+            this.method = method;
+            this.bci = bci;
+            this.reason = reason;
+            this.action = action;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public int getBci() {
+            return bci;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public String getAction() {
+            return action;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.intellij.manage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预热JVM池中工作进程的启动类，运行在独立的子JVM中（不是IDE进程内）。
+ * 工作进程启动后会在标准输入上等待一行任务描述：“类路径\t主类\n”，
+ * 收到之后通过新的类加载器加载用户的主类并运行，之后标准输入/输出/错误都直接属于用户程序，
+ * 所以IDE这边的控制台桥接方式和普通进程完全一样。每个工作进程只服务一次运行。
+ * 注意：这个类只能依赖JDK自带的类。
+ */
+public class JvmWorker {
+    public static void main(String[] args) throws Exception {
+        warmUp();
+        String header = readHeader(System.in);
+        if(header == null) return;    //IDE关闭或者回收了当前工作进程
+        int split = header.indexOf('\t');
+        String classpath = header.substring(0, split), mainClass = header.substring(split + 1);
+
+        List<URL> urls = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator))
+            if(!entry.isEmpty()) urls.add(new File(entry).toURI().toURL());
+        ClassLoader loader = new URLClassLoader(urls.toArray(new URL[0]), ClassLoader.getPlatformClassLoader());
+        System.setProperty("java.class.path", classpath);
+        Thread.currentThread().setContextClassLoader(loader);
+
+        Method main;
+        try {
+            main = Class.forName(mainClass, true, loader).getMethod("main", String[].class);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            System.err.println("错误: 找不到或无法加载主类 " + mainClass);
+            System.exit(1);
+            return;
+        }
+        try {
+            main.invoke(null, (Object) new String[0]);
+        } catch (InvocationTargetException e) {
+            //和java命令的行为保持一致，主线程抛出未捕获的异常时，打印异常并以1退出
+            System.err.print("Exception in thread \"main\" ");
+            e.getCause().printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 逐字节读取任务描述，不能多读，剩下的内容都是用户程序的标准输入
+     */
+    private static String readHeader(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if(b < 0) return null;
+            buffer.write(b);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 在等待任务期间，提前把运行用户程序时一定会用到的类加载和初始化好
+     */
+    private static void warmUp() throws Exception {
+        URLClassLoader loader = new URLClassLoader(new URL[0], ClassLoader.getPlatformClassLoader());
+        loader.close();
+        JvmWorker.class.getMethod("main", String[].class);
+    }
+}
@@ -0,0 +1,177 @@
+package com.intellij.manage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * 预热JVM池，提前启动若干个空闲的工作JVM（见JvmWorker），运行程序时直接取一个已经启动好的，
+ * 对于很小的程序来说，可以省掉大部分JVM启动时间。
+ * 回收策略：
+ * - 每个工作进程只服务一次运行，运行结束后进程退出，池子会立即补充新的工作进程
+ * - 空闲时间超过上限的工作进程会被销毁并重新启动，避免长期占用资源或者状态过期
+ * 工作进程以项目根目录作为工作目录启动，和普通运行一样，程序中的相对路径都是相对于项目的，
+ * 所以每个项目（以及每个java命令）都有自己的池子，项目关闭时池子随之销毁。
+ */
+public class JvmWorkerPool {
+    //每个（java命令，项目根目录）对应一个池子
+    private static final Map<List<String>, JvmWorkerPool> POOLS = new ConcurrentHashMap<>();
+    //补充和回收工作进程都在这个后台线程中进行，不影响界面和运行
+    private static final ScheduledExecutorService MAINTAINER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jvm-worker-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> POOLS.values().forEach(JvmWorkerPool::shutdown)));
+    }
+
+    private final String javaCommand;
+    private final String projectPath;
+    private final BlockingDeque<Worker> idle = new LinkedBlockingDeque<>();
+    private volatile int size;
+    private volatile long maxIdleMillis;
+    private volatile boolean closed = false;
+    private ScheduledFuture<?> reaper;
+
+    private JvmWorkerPool(String javaCommand, String projectPath) {
+        this.javaCommand = javaCommand;
+        this.projectPath = projectPath;
+    }
+
+    /**
+     * 获取项目和java命令对应的池子，并按照最新的配置调整池子大小和回收策略。
+     * 项目改用了别的java命令时，之前的池子就用不上了，会被直接销毁
+     * @param javaCommand java命令
+     * @param projectPath 项目根目录，工作进程的工作目录
+     * @param size 池子中保持的空闲进程数量
+     * @param maxIdleSeconds 空闲进程的最长存活时间（秒）
+     * @return 池子
+     */
+    public static JvmWorkerPool get(String javaCommand, String projectPath, int size, int maxIdleSeconds){
+        List<String> key = Arrays.asList(javaCommand, projectPath);
+        POOLS.entrySet().removeIf(entry -> {
+            if(!entry.getKey().get(1).equals(projectPath) || entry.getKey().equals(key)) return false;
+            entry.getValue().shutdown();
+            return true;
+        });
+        JvmWorkerPool pool = POOLS.computeIfAbsent(key, k -> new JvmWorkerPool(javaCommand, projectPath));
+        pool.configure(size, maxIdleSeconds);
+        return pool;
+    }
+
+    /**
+     * 销毁项目的所有池子，项目关闭时调用
+     * @param projectPath 项目根目录
+     */
+    public static void release(String projectPath){
+        POOLS.entrySet().removeIf(entry -> {
+            if(!entry.getKey().get(1).equals(projectPath)) return false;
+            entry.getValue().shutdown();
+            return true;
+        });
+    }
+
+    private synchronized void configure(int size, int maxIdleSeconds){
+        this.size = size;
+        this.maxIdleMillis = maxIdleSeconds * 1000L;
+        if(reaper == null)
+            reaper = MAINTAINER.scheduleWithFixedDelay(this::recycleExpired, 5, 5, TimeUnit.SECONDS);
+        MAINTAINER.execute(this::refill);
+    }
+
+    /**
+     * 从池子中取出一个工作进程，并让它开始运行指定的主类，池子中没有可用进程时会直接冷启动一个
+     * @param classpath 用户程序的类路径
+     * @param mainClass 主类
+     * @return 正在运行用户程序的进程
+     */
+    public Process acquire(String classpath, String mainClass) throws IOException {
+        Worker worker;
+        while ((worker = idle.pollFirst()) != null) {
+            if(worker.process.isAlive() && !worker.isExpired()) break;
+            worker.process.destroyForcibly();
+        }
+        if(worker == null) worker = spawn();
+        MAINTAINER.execute(this::refill);
+        OutputStream stdin = worker.process.getOutputStream();
+        stdin.write((classpath + "\t" + mainClass + "\n").getBytes(StandardCharsets.UTF_8));
+        stdin.flush();
+        return worker.process;
+    }
+
+    private void refill(){
+        if(closed) return;
+        try {
+            while (!closed && idle.size() < size) {
+                Worker worker = spawn();
+                synchronized (this) {    //启动的过程中池子可能已经被销毁了
+                    if(closed) worker.process.destroyForcibly();
+                    else idle.offerLast(worker);
+                }
+            }
+            while (idle.size() > size) {    //池子被调小了，多余的直接销毁
+                Worker worker = idle.pollLast();
+                if(worker != null) worker.process.destroyForcibly();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void recycleExpired(){
+        idle.removeIf(worker -> {
+            if(worker.process.isAlive() && !worker.isExpired()) return false;
+            worker.process.destroyForcibly();
+            return true;
+        });
+        refill();
+    }
+
+    private synchronized void shutdown(){
+        closed = true;
+        if(reaper != null) reaper.cancel(false);
+        Worker worker;
+        while ((worker = idle.pollFirst()) != null)
+            worker.process.destroyForcibly();
+    }
+
+    private Worker spawn() throws IOException {
+        //配置的java命令中可能带有JVM参数，拆分之后再和工作进程的参数拼在一起
+        return new Worker(CommandLine.java(javaCommand)
+                .arguments("-cp", workerClasspath(), JvmWorker.class.getName())
+                .directory(new File(projectPath))
+                .start());
+    }
+
+    /**
+     * 工作进程只需要能加载到JvmWorker这一个类就行了，不需要IDE的完整类路径
+     */
+    private static String workerClasspath(){
+        try {
+            return new File(JvmWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+        } catch (URISyntaxException | NullPointerException e) {
+            return System.getProperty("java.class.path");
+        }
+    }
+
+    private class Worker {
+        private final Process process;
+        private final long createTime = System.currentTimeMillis();
+
+        Worker(Process process) {
+            this.process = process;
+        }
+
+        boolean isExpired(){
+            return maxIdleMillis > 0 && System.currentTimeMillis() - createTime > maxIdleMillis;
+        }
+    }
+}
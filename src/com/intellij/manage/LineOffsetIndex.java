@@ -0,0 +1,55 @@
+package com.intellij.manage;
+
+import java.util.Arrays;
+
+/**
+ * 稀疏的行偏移索引，只记录每隔INTERVAL行的那一行的起始偏移量，查找某一行时先找到它之前最近的记录，
+ * 再从记录的位置往后扫描几行就行了。这样即使有上千万行，索引也只占很少的内存。
+ * 行号从0开始，第0行的起始偏移量固定为0。
+ */
+public class LineOffsetIndex {
+    public static final int INTERVAL = 64;
+
+    private long[] offsets = new long[256];
+    private int size = 1;           //offsets[0]是第0行的偏移量，也就是0
+    private long lineCount = 1;     //已经开始的行数，最后一行可能还没有结束
+
+    /**
+     * 记录新的一行从指定的偏移量开始（也就是在offset - 1处遇到了换行符），必须按顺序调用
+     * @param offset 新的一行的起始偏移量
+     */
+    public void lineStarted(long offset){
+        if(lineCount % INTERVAL == 0) {
+            if(size == offsets.length) offsets = Arrays.copyOf(offsets, size * 2);
+            offsets[size++] = offset;
+        }
+        lineCount++;
+    }
+
+    /**
+     * 已经开始的行数（包括最后一行尚未结束的行）
+     * @return 行数
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * 找到指定行之前（包括它自己）最近的一条索引记录所在的行号
+     * @param line 行号
+     * @return 索引记录对应的行号，它的偏移量可以通过offsetOfIndexedLine获取
+     */
+    public long indexedLineBefore(long line){
+        long slot = Math.min(Math.max(line, 0) / INTERVAL, size - 1);
+        return slot * INTERVAL;
+    }
+
+    /**
+     * 获取索引记录所在行的起始偏移量
+     * @param indexedLine 必须是indexedLineBefore返回的行号
+     * @return 起始偏移量
+     */
+    public long offsetOfIndexedLine(long indexedLine){
+        return offsets[(int) (indexedLine / INTERVAL)];
+    }
+}
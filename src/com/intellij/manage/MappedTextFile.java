@@ -0,0 +1,205 @@
+package com.intellij.manage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 以内存映射方式只读访问的大文本文件，用于查看几百MB甚至更大的日志、数据文件：
+ * - 文件整体映射到内存中（按1GB分段），内容由操作系统按需调入，不会读进Java堆
+ * - 行偏移索引在后台任务中建立，建立的过程中已经扫描过的行就可以访问了
+ * - 读取和搜索都直接在映射的字节上进行，只有需要展示的那几行才会解码成字符串
+ * 文件按照平台默认编码解码（和编辑框一样），要求是兼容ASCII的编码，这样换行符可以直接按字节查找。
+ */
+public class MappedTextFile implements Closeable {
+    private static final int CHUNK_BITS = 30;                  //每一段映射的长度是2^30字节
+    private static final int SCAN_BLOCK = 1 << 20;             //建立索引时每扫描这么多字节汇报一次进度
+    private static final int MAX_LINE_BYTES = 16 * 1024;       //单行最多解码这么多字节，超长的行截断展示
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+    private final Charset charset = Charset.defaultCharset();
+    private final LineOffsetIndex index = new LineOffsetIndex();
+    private volatile long indexedBytes = 0;
+    private volatile boolean indexed = false;
+
+    private MappedTextFile(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+        this.chunks = new MappedByteBuffer[(int) ((size + (1L << CHUNK_BITS) - 1) >>> CHUNK_BITS)];
+        for (int i = 0; i < chunks.length; i++) {
+            long start = (long) i << CHUNK_BITS;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << CHUNK_BITS, size - start));
+        }
+    }
+
+    /**
+     * 映射一个文件，之后需要调用buildIndex建立行索引
+     * @param file 文件
+     * @return 映射的文件
+     */
+    public static MappedTextFile open(File file) throws IOException {
+        return new MappedTextFile(file);
+    }
+
+    /**
+     * 扫描整个文件建立行偏移索引，比较耗时，需要在后台任务中执行，任务取消（线程中断）时提前结束
+     */
+    public void buildIndex() throws InterruptedException {
+        TaskProgress progress = TaskExecutor.currentProgress();
+        long[] starts = new long[1024];
+        for (long block = 0; block < size; block += SCAN_BLOCK) {
+            if(Thread.currentThread().isInterrupted()) throw new InterruptedException();
+            long end = Math.min(size, block + SCAN_BLOCK);
+            int count = 0;
+            for (long position = block; position < end; position++) {
+                if(this.byteAt(position) != '\n') continue;
+                if(count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+                starts[count++] = position + 1;
+            }
+            //每一块扫描完之后统一加入索引，读取的线程不会频繁地和扫描线程争抢锁
+            synchronized (index) {
+                for (int i = 0; i < count; i++) index.lineStarted(starts[i]);
+            }
+            indexedBytes = end;
+            progress.report((double) end / size, "已扫描 " + (end >> 20) + "MB / " + (size >> 20) + "MB");
+        }
+        indexed = true;
+    }
+
+    /**
+     * 当前已知的行数，索引还没有建立完成时只包括已经扫描过的部分
+     * @return 行数
+     */
+    public long getLineCount(){
+        synchronized (index) {
+            //最后一个换行符之后没有内容时，不算作单独的一行
+            long count = index.getLineCount();
+            return indexed && count > 1 && size > 0 && this.byteAt(size - 1) == '\n' ? count - 1 : count;
+        }
+    }
+
+    /**
+     * 读取从指定行开始的若干行，只能读取已经扫描过的行
+     * @param from 起始行号（从0开始）
+     * @param count 最多读取的行数
+     * @return 读取到的行，不包含换行符
+     */
+    public List<String> readLines(long from, int count){
+        List<String> lines = new ArrayList<>();
+        long position;
+        long lineCount;
+        synchronized (index) {
+            lineCount = this.getLineCount();
+            if(from < 0 || from >= lineCount) return lines;
+            long line = index.indexedLineBefore(from);
+            position = index.offsetOfIndexedLine(line);
+            //从索引记录的行往后跳过几行，最多跳过LineOffsetIndex.INTERVAL行
+            for (; line < from; position++)
+                if(this.byteAt(position) == '\n') line++;
+        }
+        ByteArrayOutputStream current = new ByteArrayOutputStream();
+        for (long line = from; line < lineCount && lines.size() < count && position <= size; line++) {
+            long end = this.lineEnd(position);
+            long length = Math.min(end - position, MAX_LINE_BYTES);
+            for (long i = 0; i < length; i++) current.write(this.byteAt(position + i));
+            String text = this.decode(current);
+            lines.add(end - position > MAX_LINE_BYTES ? text + " …（该行共 " + (end - position) + " 字节，已截断）" : text);
+            position = end + 1;
+        }
+        return lines;
+    }
+
+    /**
+     * 从指定行开始向后搜索，直接在映射的字节上匹配，不需要解码，可以在后台任务中取消
+     * @param query 搜索内容
+     * @param from 起始行号（包含）
+     * @return 第一个匹配所在的行号，找不到时返回-1
+     */
+    public long find(String query, long from) throws InterruptedException {
+        if(query.isEmpty()) return -1;
+        byte[] pattern = query.getBytes(charset);
+        long line, position;
+        synchronized (index) {
+            line = index.indexedLineBefore(from);
+            position = index.offsetOfIndexedLine(line);
+        }
+        TaskProgress progress = TaskExecutor.currentProgress();
+        long limit = size - pattern.length;
+        for (; position <= limit; position++) {
+            if((position & (SCAN_BLOCK - 1)) == 0) {
+                if(Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                progress.report((double) position / size, null);
+            }
+            byte b = this.byteAt(position);
+            if(b == '\n') line++;
+            else if(b == pattern[0] && line >= from && this.matches(position, pattern)) return line;
+        }
+        return -1;
+    }
+
+    private boolean matches(long position, byte[] pattern){
+        for (int i = 1; i < pattern.length; i++)
+            if(this.byteAt(position + i) != pattern[i]) return false;
+        return true;
+    }
+
+    /**
+     * 找到从position开始的这一行的结束位置（换行符的位置，或者文件末尾）
+     */
+    private long lineEnd(long position){
+        while (position < size && this.byteAt(position) != '\n') position++;
+        return position;
+    }
+
+    private byte byteAt(long position){
+        return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & ((1L << CHUNK_BITS) - 1)));
+    }
+
+    private String decode(ByteArrayOutputStream bytes){
+        String line = new String(bytes.toByteArray(), charset);
+        bytes.reset();
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 行索引是否已经建立完成
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * 建立行索引的进度（0~1）
+     */
+    public double getIndexProgress() {
+        return size == 0 ? 1 : (double) indexedBytes / size;
+    }
+
+    /**
+     * 关闭文件，映射的内存在被回收之后释放
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,95 @@
+package com.intellij.manage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存中的字节码仓库，内存编译模式下，编译生成的.class文件内容全部保存在这里，而不是写入out目录。
+ * 只有在用户主动要求时才会写出到磁盘上。
+ */
+public class MemoryClassStore {
+    //每个项目对应一个仓库，key是项目根目录
+    private static final Map<String, MemoryClassStore> STORES = new ConcurrentHashMap<>();
+
+    //key是类的全限定名（如com.test.Main），value是字节码
+    private volatile Map<String, byte[]> classes = new ConcurrentHashMap<>();
+
+    private MemoryClassStore(){}
+
+    /**
+     * 获取项目对应的字节码仓库，不存在时返回null
+     * @param projectPath 项目根目录
+     * @return 字节码仓库
+     */
+    public static MemoryClassStore get(String projectPath){
+        return STORES.get(projectPath);
+    }
+
+    static MemoryClassStore getOrCreate(String projectPath){
+        return STORES.computeIfAbsent(projectPath, path -> new MemoryClassStore());
+    }
+
+    static void release(String projectPath){
+        STORES.remove(projectPath);
+    }
+
+    /**
+     * 用新一轮编译的结果整体替换仓库内容
+     * @param compiled 新的字节码
+     */
+    void replace(Map<String, byte[]> compiled){
+        this.classes = new ConcurrentHashMap<>(compiled);
+    }
+
+    public boolean isEmpty(){
+        return classes.isEmpty();
+    }
+
+    public int size(){
+        return classes.size();
+    }
+
+    /**
+     * 创建一个一次性的、相互隔离的类加载器，它只能看到当前仓库中的类和JDK平台类，
+     * 看不到IDE自身的类，每次运行都用一个新的，运行结束后随着程序一起被回收。
+     * @return 类加载器
+     */
+    public ClassLoader newClassLoader(){
+        return new MemoryClassLoader(classes);
+    }
+
+    /**
+     * 将仓库中的全部字节码写出到指定目录下
+     * @param out 输出目录（一般是项目的out目录）
+     * @return 写出的类文件数量
+     */
+    public int flushTo(File out) throws IOException {
+        Map<String, byte[]> snapshot = classes;
+        for (Map.Entry<String, byte[]> entry : snapshot.entrySet()) {
+            Path path = out.toPath().resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(path.getParent());
+            Files.write(path, entry.getValue());
+        }
+        return snapshot.size();
+    }
+
+    private static class MemoryClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        MemoryClassLoader(Map<String, byte[]> classes) {
+            super("memory", ClassLoader.getPlatformClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if(bytes == null) throw new ClassNotFoundException(name);
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
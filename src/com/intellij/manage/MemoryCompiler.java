@@ -0,0 +1,104 @@
+package com.intellij.manage;
+
+import com.intellij.entity.ProcessResult;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存编译器，编译结果不写入磁盘，而是保存到项目对应的MemoryClassStore中
+ */
+public class MemoryCompiler {
+
+    private MemoryCompiler(){}
+
+    /**
+     * 编译项目src目录下的全部源代码，结果保存在内存中
+     * @param projectPath 项目根目录
+     * @param sink 诊断信息接收器
+     * @return 编译结果
+     */
+    public static ProcessResult compile(String projectPath, DiagnosticSink sink){
+        if(!InProcessCompiler.isAvailable()) return new ProcessResult(-1, "当前运行环境中没有可用的Java编译器！");
+        List<File> sources = InProcessCompiler.listSources(projectPath);
+        StandardJavaFileManager fileManager = InProcessCompiler.fileManager(projectPath);
+        synchronized (fileManager) {
+            MemoryFileManager memoryManager = new MemoryFileManager(fileManager);
+            if(!sources.isEmpty()) {
+                StringWriter writer = new StringWriter();
+                //-proc:none 避免注解处理器向磁盘写入生成的源文件
+                List<String> options = Arrays.asList("-proc:none", "-implicit:none");
+                try {
+                    InProcessCompiler.useClassPath(fileManager);    //不能用到其他编译模式留在out目录中的类
+                    boolean success = InProcessCompiler.monitor(InProcessCompiler.compiler().getTask(writer, memoryManager, sink,
+                            options, null, fileManager.getJavaFileObjectsFromFiles(sources)), sources.size()).call();
+                    if(!success) return new ProcessResult(1, sink.getReport() + writer);
+                } catch (RuntimeException e) {
+                    if(Thread.currentThread().isInterrupted()) return InProcessCompiler.cancelled();
+                    e.printStackTrace();
+                    return new ProcessResult(-1, "编译器内部错误：" + e);
+                }
+            }
+            MemoryClassStore.getOrCreate(projectPath).replace(memoryManager.compiled);
+            return new ProcessResult(0, "");
+        }
+    }
+
+    /**
+     * 将所有class输出重定向到内存中的文件管理器
+     */
+    static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> compiled = new ConcurrentHashMap<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        Map<String, byte[]> getCompiled() {
+            return compiled;
+        }
+
+        @Override
+        public Iterable<JavaFileObject> list(JavaFileManager.Location location, String packageName,
+                                             Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+            //内存模式下不使用任何用户类路径，防止源代码误引用到IDE自身或者out目录中残留的类
+            if(location == StandardLocation.CLASS_PATH) return Collections.emptyList();
+            return super.list(location, packageName, kinds, recurse);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+            if(kind != JavaFileObject.Kind.CLASS)
+                return super.getJavaFileForOutput(location, className, kind, sibling);
+            return new SimpleJavaFileObject(URI.create("memory:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            compiled.put(className, this.toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
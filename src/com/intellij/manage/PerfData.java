@@ -0,0 +1,106 @@
+package com.intellij.manage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * HotSpot性能计数器读取工具。HotSpot JVM默认会把GC次数、GC耗时、各个内存区域的使用量、线程数等计数器
+ * 放在一块共享内存里（临时目录下的hsperfdata_用户名/进程号文件，jstat就是读的这个），并且自己持续更新。
+ * 这里直接以只读方式映射这个文件读取计数器，不需要连接目标JVM，也不会在目标JVM中加载任何东西，
+ * 所以对被监控的程序没有任何影响。目标JVM使用了-XX:-UsePerfData时就读不到了。
+ * 文件格式参见HotSpot源码中的perfMemory.hpp（固定32字节的文件头，后面是计数器条目）。
+ */
+class PerfData {
+    private static final int MAGIC = 0xcafec0c0;
+    private static final int PROLOGUE_SIZE = 32;
+    private static final byte TYPE_LONG = 'J';
+
+    private final MappedByteBuffer buffer;
+    private final Map<String, Integer> offsets = new HashMap<>();   //计数器名称对应的数值位置
+    private int scannedEntries = 0;
+
+    private PerfData(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * 打开指定进程的性能计数器
+     * @param pid 进程号
+     * @return 性能计数器，文件不存在（JVM还没有初始化完成或者关闭了性能计数器）或者格式不对时返回null
+     */
+    static PerfData open(long pid){
+        //Linux上HotSpot固定使用/tmp，其他系统使用系统的临时目录（和java.io.tmpdir的默认值一致）
+        String temp = System.getProperty("os.name").startsWith("Linux") ? "/tmp" : System.getProperty("java.io.tmpdir");
+        File file = new File(temp,
+                "hsperfdata_" + System.getProperty("user.name") + File.separator + pid);
+        if(!file.isFile()) return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            //映射在通道关闭之后依然有效，目标JVM退出删除文件之后也可以继续读取最后的数值
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.capacity() < PROLOGUE_SIZE || buffer.order(ByteOrder.BIG_ENDIAN).getInt(0) != MAGIC) return null;
+            buffer.order(buffer.get(4) == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+            PerfData data = new PerfData(buffer);
+            data.scan();
+            return data;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 扫描计数器条目，目标JVM运行过程中还会新增计数器，条目数量变化时需要重新扫描
+     */
+    private void scan(){
+        int entries = buffer.getInt(28);
+        if(entries == scannedEntries) return;
+        int offset = buffer.getInt(24);
+        for (int i = 0; i < entries && offset + 20 <= buffer.capacity(); i++) {
+            int length = buffer.getInt(offset);
+            if(length <= 0) break;
+            if(i >= scannedEntries && buffer.get(offset + 12) == TYPE_LONG && buffer.getInt(offset + 8) == 0)
+                offsets.put(readName(offset + buffer.getInt(offset + 4)), offset + buffer.getInt(offset + 16));
+            offset += length;
+        }
+        scannedEntries = entries;
+    }
+
+    private String readName(int position){
+        StringBuilder name = new StringBuilder();
+        byte b;
+        while (position < buffer.capacity() && (b = buffer.get(position++)) != 0) name.append((char) b);
+        return name.toString();
+    }
+
+    /**
+     * 读取一个计数器的当前值
+     * @param name 计数器名称，比如sun.gc.collector.0.invocations
+     * @return 当前值，计数器不存在时返回-1
+     */
+    synchronized long get(String name){
+        this.scan();
+        Integer offset = offsets.get(name);
+        return offset == null ? -1 : buffer.getLong(offset);
+    }
+
+    /**
+     * 对名称匹配的所有计数器求和
+     * @param pattern 名称规则
+     * @return 总和，没有匹配的计数器时返回-1
+     */
+    synchronized long sum(Pattern pattern){
+        this.scan();
+        long total = -1;
+        for (Map.Entry<String, Integer> entry : offsets.entrySet()) {
+            if(!pattern.matcher(entry.getKey()).matches()) continue;
+            total = Math.max(total, 0) + buffer.getLong(entry.getValue());
+        }
+        return total;
+    }
+}
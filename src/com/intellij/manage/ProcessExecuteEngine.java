@@ -1,175 +1,512 @@
 package com.intellij.manage;
 
+import com.intellij.entity.CompileDiagnostic;
+import com.intellij.entity.OutputChunk;
 import com.intellij.entity.ProcessResult;
+import com.intellij.entity.RunProfile;
+import com.intellij.entity.RunRecord;
+import com.intellij.entity.TestCaseResult;
+import com.intellij.entity.enums.CompileMode;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * 这是进程执行引擎，包括使用javac、javap、java命令实现对项目的：
  * - 编译源代码操作
  * - 反编译.class文件操作
  * - 执行程序操作
- * 所有跟项目相关的操作都使用此执行引擎完成。
+ * 所有跟项目相关的操作都使用此执行引擎完成，外部进程都通过CommandLine直接启动，不经过shell。
+ * 这里的方法都是阻塞的，界面中需要通过TaskExecutor在后台线程中调用，在任务中调用时会自动汇报进度并支持取消。
  */
 public class ProcessExecuteEngine {
-
-    private enum OS { Windows, Linux, MacOS }
+    private static final long STOP_GRACE_MILLIS = 3000;     //性能分析、JIT日志运行停止时，等待JVM写出记录的时间
+    private static final int PROFILE_STACK_DEPTH = 256;     //性能分析时记录的调用栈深度
 
     /**
-     * 执行命令主体
-     * @param commands 多个命令
-     * @return 最后一条命令启动的进程
+     * 启动外部命令
+     * @param command 命令
+     * @return 启动的进程，启动失败时返回null
      */
-    private static Process runCommand(String... commands){
+    private static Process launch(CommandLine command){
         try {
-            Runtime runtime = Runtime.getRuntime();
-            OS os = osType();   //不同操作系统执行的命令不同
-            Process process = null;
-            for (String command : commands) {
-                if(os == OS.Linux || os == OS.MacOS) {
-                    process = runtime.exec(new String[]{"/bin/bash", "-c", command});
-                }else {
-                    process = runtime.exec(command);
-                }
-            }
-            return process;
+            return command.start();
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    private static OS osType() {
-        switch (System.getProperty("os.name")) {
-            case "Mac OS X":
-                return OS.MacOS;
-            case "Linux":
-                return OS.Linux;
-            case "Windows 11":
-            case "Windows 10":
-            case "Windows 7":
-            case "Windows 8":
-            case "Windows 8.1":
-                return OS.Windows;
-            default:
-                throw new IllegalStateException("未知的操作系统类型！");
-        }
+    /**
+     * 按照指定的编译模式编译Java源代码，并将代码生成到out目录下
+     * 如果源代码和上次构建时完全一样，会直接返回上次的构建结果（见BuildCache）
+     * @param projectPath 项目根目录
+     * @param mode 编译模式
+     */
+    public static ProcessResult buildProject(String projectPath, CompileMode mode){
+        return buildProject(projectPath, mode, null);
     }
 
     /**
-     * 编译Java源代码，并将代码生成到out目录下
+     * 按照指定的编译模式编译Java源代码，编译过程中产生的每一条诊断信息都会立即通知给监听器
      * @param projectPath 项目根目录
+     * @param mode 编译模式
+     * @param listener 诊断信息监听器，会在编译线程中被调用
      */
-    public static ProcessResult buildProject(String projectPath){
-        OS os = osType();
+    public static ProcessResult buildProject(String projectPath, CompileMode mode, Consumer<CompileDiagnostic> listener){
+        return BuildCache.cached(projectPath, mode, listener, sink -> compileProject(projectPath, mode, sink));
+    }
+
+    /**
+     * 按照指定的编译模式编译Java源代码，不使用构建缓存
+     * 如果当前运行环境不支持进程内编译（比如运行在JRE上），会自动退回到外部javac进程
+     * @param projectPath 项目根目录
+     * @param mode 编译模式
+     * @param sink 诊断信息接收器
+     */
+    private static ProcessResult compileProject(String projectPath, CompileMode mode, DiagnosticSink sink){
+        if(mode == CompileMode.MEMORY && InProcessCompiler.isAvailable())
+            return MemoryCompiler.compile(projectPath, sink);
+        if(mode == CompileMode.INCREMENTAL && InProcessCompiler.isAvailable())
+            return IncrementalCompiler.compile(projectPath, sink);
+        if(mode == CompileMode.IN_PROCESS && InProcessCompiler.isAvailable())
+            return InProcessCompiler.compile(projectPath, sink);
+        return buildProject(projectPath, sink);
+    }
+
+    /**
+     * 使用外部javac进程编译Java源代码，并将代码生成到out目录下
+     * javac的错误输出会在编译过程中逐行解析为诊断信息，不需要等到进程结束
+     * @param projectPath 项目根目录
+     * @param sink 诊断信息接收器
+     */
+    private static ProcessResult buildProject(String projectPath, DiagnosticSink sink){
+        List<File> sources = InProcessCompiler.listSources(projectPath);
+        if(sources.isEmpty()) return new ProcessResult(0, "");
+        //源文件列表通过参数文件传给javac，不需要shell帮忙查找文件，也不用担心命令行太长
+        CommandLine command = new CommandLine("javac", "-s", projectPath, "-d", projectPath + "/out")
+                .directory(new File(projectPath));
         Process process;
-        if(os == OS.Linux || os == OS.MacOS) {
-            process = runCommand("javac -s "+projectPath+" -d "+projectPath+"/out $(find '"+projectPath+"/src' -name '*.java')");
-        } else {
-            process = runCommand("cmd /C cd "+projectPath+" & dir *.java/s/b > "+projectPath+"/.list",
-                    "javac -s "+projectPath+" -d "+projectPath+"/out @"+projectPath+"/.list");
+        try {
+            command.argumentFile(sources.stream().map(File::getAbsolutePath).collect(Collectors.toList()));
+            process = command.start();
+        } catch (IOException e) {
+            e.printStackTrace();
+            command.cleanup();
+            return new ProcessResult(-1, "无法启动javac：" + e.getMessage());
         }
-        if(process == null) return new ProcessResult(-1, "未知错误");
+        //javac结束之后撤销注册，运行任务中先前注册的结束程序的操作依然有效
+        Runnable unregister = TaskExecutor.cancelWith(process::destroyForcibly);
+        TaskExecutor.currentProgress().report(-1, "正在使用javac编译");
         try {
+            //标准输出由后台线程读取，错误输出在这里边读边解析，两个流都不会因为没人读而把javac卡住
+            StringBuilder output = new StringBuilder();
+            Thread outputReader = StreamDrainer.collectAsync(process.getInputStream(), output, 64 * 1024);
+            sink.parseJavacOutput(process.getErrorStream());
             int exitCode = process.waitFor();
-            runCommand("cmd /C cd "+projectPath+" & del .list");
+            outputReader.join();
+            if(Thread.currentThread().isInterrupted()) return new ProcessResult(-1, "编译已取消");
             return exitCode == 0 ? new ProcessResult(0, "")
-                    : new ProcessResult(exitCode, streamToString(process.getErrorStream()));
+                    : new ProcessResult(exitCode, sink.getReport() + output);
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            return new ProcessResult(-1, "编译已取消");
         } catch (Exception e) {
             e.printStackTrace();
             return new ProcessResult(-1, "未知错误");
+        } finally {
+            unregister.run();
+            command.cleanup();
         }
     }
 
     /**
-     * 运行项目
+     * 创建一个新的运行会话，每次运行项目都对应一个会话，多个会话可以同时运行
      * @param projectPath 项目根目录
+     * @param name 会话名称
+     * @return 运行会话
+     */
+    public static RunSession newSession(String projectPath, String name){
+        return ProcessRegistry.create(projectPath, name);
+    }
+
+    /**
+     * 使用指定的运行配置运行项目，运行结束后会记录这次运行的墙钟时间、CPU时间和峰值内存（见RunHistory）
+     * @param session 运行会话
+     * @param javaCommand java可执行文件
+     * @param mainClass 主类
+     * @param profile 运行配置，包括JVM参数、程序参数、环境变量和工作目录
+     */
+    public static ProcessResult startProcess(RunSession session, String javaCommand, String mainClass,
+                                             RunProfile profile, Consumer<OutputChunk> redirect){
+        return startProcess(session, javaCommand, mainClass, profile, redirect, new String[0]);
+    }
+
+    /**
+     * 使用JDK Flight Recorder运行项目，程序结束时JFR会把记录写入指定的文件，之后可以通过analyzeRecording生成性能分析报告。
+     * 停止这个会话时会先正常结束进程，给JFR写出记录的时间，超过宽限时间还没有退出才会强制结束（强制结束时不会生成记录）。
+     * @param session 运行会话
+     * @param javaCommand java可执行文件
      * @param mainClass 主类
+     * @param profile 运行配置
+     * @param recording 记录文件
      */
-    public static ProcessResult startProcess(String projectPath, String javaCommand, String mainClass, Consumer<String> redirect){
+    public static ProcessResult startProfiledProcess(RunSession session, String javaCommand, String mainClass,
+                                                     RunProfile profile, File recording, Consumer<OutputChunk> redirect){
+        //profile配置每10毫秒采样一次调用栈，开销一般在2%以内；关掉JFR启动时打印的提示，免得混进程序的输出
+        //默认只记录64层调用栈，递归比较深的程序很容易被截断，这里加大一些
+        session.setStopGracePeriod(STOP_GRACE_MILLIS);
+        return startProcess(session, javaCommand, mainClass, profile, redirect,
+                "-XX:StartFlightRecording=filename=" + recording.getAbsolutePath() + ",settings=profile,dumponexit=true",
+                "-XX:FlightRecorderOptions=stackdepth=" + PROFILE_STACK_DEPTH,
+                "-Xlog:jfr+startup=error");
+    }
+
+    /**
+     * 解析JFR记录文件，生成性能分析报告
+     * @param recording 记录文件
+     * @return 性能分析报告
+     */
+    public static ProfileReport analyzeRecording(File recording) throws IOException {
+        return ProfileReport.parse(recording.toPath());
+    }
+
+    /**
+     * 记录JIT编译日志运行项目，JVM会把每次编译（层级、内联决策）和运行期间的去优化写入指定的日志文件，
+     * 之后可以通过analyzeJitLog把它和项目的.class文件对应起来。编译线程的日志在JVM退出时才会合并进来，
+     * 所以停止这个会话时和性能分析一样，先正常结束进程，超过宽限时间才强制结束（强制结束时日志是不完整的）。
+     * @param session 运行会话
+     * @param javaCommand java可执行文件
+     * @param mainClass 主类
+     * @param profile 运行配置
+     * @param log 日志文件
+     */
+    public static ProcessResult startJitLoggedProcess(RunSession session, String javaCommand, String mainClass,
+                                                      RunProfile profile, File log, Consumer<OutputChunk> redirect){
+        //LogCompilation包含了PrintCompilation和PrintInlining的全部信息，并且是结构化的XML；
+        //关掉DisplayVMOutput，免得JVM的诊断输出混进程序的输出
+        session.setStopGracePeriod(STOP_GRACE_MILLIS);
+        return startProcess(session, javaCommand, mainClass, profile, redirect,
+                "-XX:+UnlockDiagnosticVMOptions", "-XX:+LogCompilation",
+                "-XX:LogFile=" + log.getAbsolutePath(), "-XX:-DisplayVMOutput");
+    }
+
+    /**
+     * 解析JIT编译日志，并和项目out目录中的.class文件对应起来
+     * @param projectPath 项目根目录
+     * @param log 日志文件
+     * @return JIT分析结果
+     */
+    public static JitInsight analyzeJitLog(String projectPath, File log) throws IOException {
+        return JitInsight.of(projectPath, JitReport.parse(log.toPath()));
+    }
+
+    private static ProcessResult startProcess(RunSession session, String javaCommand, String mainClass,
+                                              RunProfile profile, Consumer<OutputChunk> redirect, String... extraOptions){
+        String projectPath = session.getProjectPath();
+        List<String> jvmOptions = new ArrayList<>(CommandLine.split(profile.getJvmOptions()));
+        jvmOptions.addAll(Arrays.asList(extraOptions));
+        if(profile.isGcLogging()) {
+            //GC日志按会话保存在项目的.gclogs目录中，运行期间由GcLog增量读取；关闭日志轮转，免得读到一半文件被改名
+            Path gcLogFile = GcLog.createFile(projectPath, mainClass.substring(mainClass.lastIndexOf('.') + 1) + "-" + session.getId());
+            if(gcLogFile != null) {
+                jvmOptions.add("-Xlog:gc*:file=\"" + gcLogFile + "\":uptime,level,tags:filecount=0");
+                session.setGcLog(GcLog.start(gcLogFile));
+            }
+        }
+        CommandLine command = javaCommandLine(projectPath, javaCommand, mainClass, jvmOptions.toArray(new String[0]))
+                .arguments(CommandLine.split(profile.getProgramArguments()));
+        profile.getEnvironment().forEach(command::environment);
+        if(!profile.getWorkingDirectory().isEmpty()) {
+            File directory = new File(profile.getWorkingDirectory());
+            command.directory(directory.isAbsolute() ? directory : new File(projectPath, profile.getWorkingDirectory()));
+        }
+        Process process = launch(command);
+        if(process == null) return watchProcess(session, null, redirect);
+        ProcessMeter meter = ProcessMeter.start(process);
+        ProcessResult result = watchProcess(session, process, redirect);
+        RunRecord record = meter.stop(profile.getName(), mainClass, result.getExitCode());
+        session.setRecord(record);
+        RunHistory.add(projectPath, record);
+        return result;
+    }
+
+    /**
+     * 运行项目主类的java命令，以out目录作为类路径，项目根目录作为工作目录
+     * @param projectPath 项目根目录
+     * @param javaCommand java命令，可以带有JVM参数（见CommandLine.java）
+     * @param mainClass 主类
+     * @param jvmOptions 额外的JVM参数
+     * @return 命令
+     */
+    private static CommandLine javaCommandLine(String projectPath, String javaCommand, String mainClass, String... jvmOptions){
+        return CommandLine.java(javaCommand)
+                .arguments(jvmOptions)
+                .arguments("-cp", projectPath + "/out", mainClass)
+                .directory(new File(projectPath));
+    }
+
+    /**
+     * 获取项目最近的运行记录
+     * @param projectPath 项目根目录
+     * @return 运行记录，从早到晚排列
+     */
+    public static List<RunRecord> runHistory(String projectPath){
+        return RunHistory.records(projectPath);
+    }
+
+    /**
+     * 找出用例目录中的所有测试用例
+     * @param caseDirectory 用例目录
+     * @return 用例列表
+     */
+    public static List<TestCaseRunner.TestCase> findTestCases(File caseDirectory){
+        return TestCaseRunner.findCases(caseDirectory);
+    }
+
+    /**
+     * 使用测试用例批量运行项目（需要先构建到out目录），多个用例并行运行，阻塞直到全部完成
+     * @param projectPath 项目根目录
+     * @param javaCommand java可执行文件
+     * @param mainClass 主类
+     * @param cases 测试用例
+     * @param timeLimitMillis 每个用例的时间限制
+     * @param memoryLimitMb 每个用例的内存限制（JVM最大堆）
+     * @param listener 每完成一个用例就通知一次，会在不同的线程中调用
+     * @return 所有用例的结果，任务被取消时返回null
+     */
+    public static List<TestCaseResult> runTestCases(String projectPath, String javaCommand, String mainClass,
+                                                    List<TestCaseRunner.TestCase> cases, long timeLimitMillis,
+                                                    int memoryLimitMb, Consumer<TestCaseResult> listener){
+        //多个JVM同时运行，使用串行GC，免得每个JVM都按CPU核心数启动一堆GC线程互相抢占
+        TestCaseRunner runner = new TestCaseRunner(() -> javaCommandLine(projectPath, javaCommand, mainClass,
+                "-Xmx" + memoryLimitMb + "m", "-XX:+UseSerialGC"), timeLimitMillis);
         try {
-            currentProcess = runCommand(javaCommand+" -cp " + projectPath + "/out " + mainClass);
-            if(currentProcess == null) return new ProcessResult(-1, "未知错误");
-            InputStreamReader reader = new InputStreamReader(currentProcess.getInputStream());
-            char[] chars = new char[1024];
-            int len;
-            while ((len = reader.read(chars)) > 0)
-                redirect.accept(new String(chars, 0, len));
-            int code = currentProcess.waitFor();
-            return new ProcessResult(code, streamToString(currentProcess.getErrorStream()));
-        } catch (Exception e){
+            return runner.run(cases, listener);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * 使用预热JVM池运行项目，从池中取出一个已经启动好的JVM来运行主类
+     * @param session 运行会话
+     * @param javaCommand java可执行文件
+     * @param mainClass 主类
+     * @param poolSize 池中保持的空闲JVM数量
+     * @param maxIdleSeconds 空闲JVM的最长存活时间
+     */
+    public static ProcessResult startPooledProcess(RunSession session, String javaCommand, String mainClass,
+                                                   int poolSize, int maxIdleSeconds, Consumer<OutputChunk> redirect){
+        Process process;
+        try {
+            process = JvmWorkerPool.get(javaCommand, session.getProjectPath(), poolSize, maxIdleSeconds)
+                    .acquire(new File(session.getProjectPath() + "/out").getAbsolutePath(), mainClass);
+        } catch (IOException e) {
             e.printStackTrace();
+            session.finish();
+            return new ProcessResult(-1, "无法从预热JVM池中获取进程：" + e.getMessage());
+        }
+        return watchProcess(session, process, redirect);
+    }
+
+    /**
+     * 提前启动预热JVM池，打开项目或者修改配置时调用，这样第一次运行时就能直接用上
+     * @param javaCommand java可执行文件
+     * @param projectPath 项目根目录
+     * @param poolSize 池中保持的空闲JVM数量
+     * @param maxIdleSeconds 空闲JVM的最长存活时间
+     */
+    public static void prepareWorkerPool(String javaCommand, String projectPath, int poolSize, int maxIdleSeconds){
+        JvmWorkerPool.get(javaCommand, projectPath, poolSize, maxIdleSeconds);
+    }
+
+    /**
+     * 持续将会话中进程的输出重定向到指定位置，直到进程结束，结束后会话会从注册表中移除
+     * 标准输出和错误输出会被同时读取，错误输出也会实时转发，而不是等到进程结束之后
+     * @param session 运行会话
+     * @param process 会话中运行的进程
+     * @param redirect 输出重定向，会在两个不同的读取线程中调用
+     * @return 运行结果，输出内容已经全部转发过了，所以结果中只有退出代码
+     */
+    private static ProcessResult watchProcess(RunSession session, Process process, Consumer<OutputChunk> redirect){
+        try {
+            if(process == null) return new ProcessResult(-1, "未知错误");
+            session.attach(process);
+            StreamDrainer.drain(process, redirect);
+            return new ProcessResult(process.waitFor(), "");
+        } catch (InterruptedException e) {
+            session.stop();
+            return new ProcessResult(137, "");
         } finally {
-            synchronized (ProcessExecuteEngine.class) {    //多线程控制，防止并发修改
-                currentProcess = null;
-            }
+            session.finish();
         }
-        return new ProcessResult(-1, "未知错误");
     }
 
-    private static Process currentProcess = null;
+    /**
+     * 当前JDK是否支持在IDE进程内运行项目（需要能拦截程序中的System.exit），不支持时应该改为启动新的JVM
+     * @return 是否支持
+     */
+    public static boolean isInMemoryRunAvailable(){
+        return InMemoryRunner.isAvailable();
+    }
 
     /**
-     * 如果当前正在运行进程，停止当前正在运行的进程
+     * 以内存模式运行项目，主类从内存中的字节码仓库加载，直接在IDE进程内运行
+     * @param session 运行会话
+     * @param mainClass 主类
      */
-    public static void stopProcess(){
-        synchronized (ProcessExecuteEngine.class) {   //多线程控制，防止并发修改
-            if(currentProcess != null)
-                currentProcess.destroyForcibly();
+    public static ProcessResult startInMemory(RunSession session, String mainClass, Consumer<OutputChunk> redirect){
+        try {
+            MemoryClassStore store = MemoryClassStore.get(session.getProjectPath());
+            if(store == null) return new ProcessResult(-1, "内存中没有编译结果，请先构建项目！");
+            InMemoryRunner runner = new InMemoryRunner(store.newClassLoader(), mainClass, redirect);
+            session.attach(runner);
+            return runner.run();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ProcessResult(-1, "未知错误");
+        } finally {
+            session.finish();
         }
     }
 
+    /**
+     * 将内存中的编译结果写出到项目的out目录下
+     * @param projectPath 项目根目录
+     * @return 写出的类文件数量，如果内存中没有编译结果，返回-1
+     */
+    public static int flushMemoryOutput(String projectPath) throws IOException {
+        MemoryClassStore store = MemoryClassStore.get(projectPath);
+        if(store == null) return -1;
+        return store.flushTo(new File(projectPath + "/out"));
+    }
+
+    /**
+     * 停止项目中所有正在运行的会话，其他项目的会话不受影响
+     * @param projectPath 项目根目录
+     */
+    public static void stopProject(String projectPath){
+        ProcessRegistry.stopAll(projectPath);
+    }
+
+    /**
+     * 释放项目占用的编译资源和预热JVM池，项目窗口关闭时调用
+     * @param projectPath 项目根目录
+     */
+    public static void releaseProject(String projectPath){
+        InProcessCompiler.release(projectPath);
+        MemoryClassStore.release(projectPath);
+        RunHistory.release(projectPath);
+        JvmWorkerPool.release(projectPath);
+    }
+
     /**
      * 反编译项目，并返回反编译结果
      * @param classFilePath .class文件路径
      * @return 反编译结果
      */
     public static String decompileCode(String classFilePath){
-        Process process = runCommand("javap -c " + classFilePath);
+        Process process = launch(new CommandLine("javap", "-c", classFilePath));
         if(process == null) return "";
-        return streamToString(process.getInputStream());
+        Runnable unregister = TaskExecutor.cancelWith(process::destroyForcibly);
+        StringBuilder error = new StringBuilder();
+        Thread errorReader = StreamDrainer.collectAsync(process.getErrorStream(), error, 64 * 1024);
+        String code = streamToString(process.getInputStream());
+        try {
+            errorReader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            unregister.run();
+        }
+        return code.isEmpty() ? error.toString() : code;
     }
 
     /**
-     * 使用git命令从远程仓库下载代码
+     * 使用git命令从远程仓库下载代码，git输出的进度（比如 Receiving objects:  45%）会实时汇报给当前任务
      * @param url 远程地址
      * @param branch 分支
      * @param dir 保存位置
      * @return 下载结果
      */
     public static ProcessResult fetchFromGit(String url, String branch, String dir){
-        Process process = runCommand("git clone "+url+" -b "+branch + " " +dir);
+        Process process = launch(new CommandLine("git", "clone", "--progress", url, "-b", branch, dir));
         if(process == null) return new ProcessResult(-1, "未知错误");
+        Runnable unregister = TaskExecutor.cancelWith(process::destroyForcibly);
         try {
+            StreamDrainer.collectAsync(process.getInputStream(), new StringBuilder(), 0);
+            String output = readGitProgress(process.getErrorStream(), TaskExecutor.currentProgress());
             int exitCode = process.waitFor();
+            if(Thread.currentThread().isInterrupted()) return new ProcessResult(-1, "已取消");
             return exitCode == 0 ? new ProcessResult(0, "")
-                    : new ProcessResult(exitCode, streamToString(process.getErrorStream()));
+                    : new ProcessResult(exitCode, output);
         } catch (InterruptedException e) {
-            e.printStackTrace();
-            return new ProcessResult(-1, "未知错误");
+            process.destroyForcibly();
+            return new ProcessResult(-1, "已取消");
+        } finally {
+            unregister.run();
         }
     }
 
+    private static final Pattern GIT_PROGRESS = Pattern.compile("^(?:remote: )?([A-Za-z ]+):\\s+(\\d+)%");
+
     /**
-     * 将输入的字符串重定向给当前正在运行的进程
-     * @param input 输入
+     * 读取git的错误输出，git使用\r刷新同一行的进度，这里每读到一行（或者一次刷新）就解析一次进度
+     * @return 除进度以外的其他输出内容
      */
-    public static void redirectToProcess(String input){
-        synchronized (ProcessExecuteEngine.class) {   //多线程控制，防止并发修改
-            if(currentProcess != null) {
-                OutputStream stream = currentProcess.getOutputStream();
-                try {
-                    stream.write(input.getBytes());
-                    stream.flush();
-                } catch (IOException e) {
-                    e.printStackTrace();
+    private static String readGitProgress(InputStream stream, TaskProgress progress){
+        InputStreamReader reader = new InputStreamReader(stream);
+        StringBuilder output = new StringBuilder();
+        StringBuilder line = new StringBuilder();
+        try {
+            int c;
+            while ((c = reader.read()) >= 0) {
+                if(c != '\r' && c != '\n') {
+                    line.append((char) c);
+                    continue;
+                }
+                Matcher matcher = GIT_PROGRESS.matcher(line);
+                if(matcher.find()) {
+                    progress.report(Integer.parseInt(matcher.group(2)) / 100.0, matcher.group(1).trim());
+                } else if(line.length() > 0) {
+                    output.append(line).append('\n');
                 }
+                line.setLength(0);
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+        return output.append(line).toString();
+    }
+
+    /**
+     * 将输入的字符串重定向给会话中正在运行的进程，输入按行缓冲，由会话的标准输入通道在后台写入
+     * @param session 运行会话
+     * @param input 输入
+     * @param flush 是否立即flush，比如一次粘贴结束的时候
+     */
+    public static void redirectToProcess(RunSession session, String input, boolean flush){
+        session.getStdin().send(input, flush);
+    }
+
+    /**
+     * 结束会话中正在运行的进程的输入，进程会读到EOF
+     * @param session 运行会话
+     */
+    public static void endProcessInput(RunSession session){
+        session.getStdin().end();
     }
 
     /**
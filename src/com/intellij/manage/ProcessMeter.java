@@ -0,0 +1,82 @@
+package com.intellij.manage;
+
+import com.intellij.entity.RunRecord;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程资源计量，记录一次运行的墙钟时间、CPU时间和峰值常驻内存。
+ * 进程结束之后操作系统就不再保留它的信息了，所以运行期间会定时采样（CPU时间来自ProcessHandle，
+ * 峰值内存来自Linux的/proc/[pid]/status中的VmHWM），以最后一次采样结果为准，
+ * 最后一个采样间隔内消耗的CPU时间可能统计不到。其他系统上拿不到峰值内存，记为-1。
+ */
+public class ProcessMeter {
+    private static final long SAMPLE_MILLIS = 100;
+    private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "process-meter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ProcessHandle handle;
+    private final long startTime = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final ScheduledFuture<?> sampling;
+    private volatile long cpuMillis = -1;
+    private volatile long peakRssKb = -1;
+
+    private ProcessMeter(ProcessHandle handle) {
+        this.handle = handle;
+        this.sampling = SAMPLER.scheduleAtFixedRate(this::sample, 0, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 开始计量一个刚刚启动的进程
+     * @param process 进程
+     * @return 计量
+     */
+    static ProcessMeter start(Process process){
+        return new ProcessMeter(process.toHandle());
+    }
+
+    private void sample(){
+        if(!handle.isAlive()) return;
+        handle.info().totalCpuDuration().map(Duration::toMillis).ifPresent(cpu -> cpuMillis = cpu);
+        long rss = readPeakRss(handle.pid());
+        if(rss > 0) peakRssKb = rss;
+    }
+
+    /**
+     * 读取进程的峰值常驻内存（只支持Linux）
+     * @param pid 进程号
+     * @return 峰值常驻内存（KB），读取失败时返回-1
+     */
+    private static long readPeakRss(long pid){
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/" + pid + "/status")))
+                if(line.startsWith("VmHWM:"))
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim());
+        } catch (IOException | NumberFormatException ignored) {}
+        return -1;
+    }
+
+    /**
+     * 进程已经结束，停止计量并生成运行记录
+     * @param profileName 运行配置名称
+     * @param mainClass 主类
+     * @param exitCode 退出代码
+     * @return 运行记录
+     */
+    RunRecord stop(String profileName, String mainClass, int exitCode){
+        long wallMillis = (System.nanoTime() - startNanos) / 1000000;
+        sampling.cancel(false);
+        return new RunRecord(profileName, mainClass, startTime, wallMillis, cpuMillis, peakRssKb, exitCode);
+    }
+}
@@ -0,0 +1,157 @@
+package com.intellij.manage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 运行中程序的资源监控，每秒采样一次，采样结果保存在固定容量的时间序列中：
+ * - CPU占用（相对于单个核心的百分比）和线程数来自ProcessHandle以及/proc（只读取操作系统的进程信息）
+ * - 常驻内存来自/proc/[pid]/status
+ * - GC次数、GC耗时和堆内存使用量来自HotSpot自己维护的性能计数器（见PerfData）
+ * 所有数据都是从外部读取的，不会连接目标JVM，也不会在里面加载任何东西，采样本身只需要几次文件读取，
+ * 不会干扰被监控的程序。拿不到的数据（比如非Linux系统上的内存）不会出现在时间序列中。
+ */
+public class ProcessMonitor {
+    private static final int CAPACITY = 120;          //保留最近两分钟的数据
+    private static final long SAMPLE_SECONDS = 1;
+    private static final Pattern HEAP_USED = Pattern.compile("sun\\.gc\\.generation\\.\\d+\\.space\\.\\d+\\.used");
+    private static final Pattern GC_COUNT = Pattern.compile("sun\\.gc\\.collector\\.\\d+\\.invocations");
+    private static final Pattern GC_TIME = Pattern.compile("sun\\.gc\\.collector\\.\\d+\\.time");
+    private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "process-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ProcessHandle handle;
+    private final TimeSeries cpu = new TimeSeries(CAPACITY);        //CPU占用百分比
+    private final TimeSeries rss = new TimeSeries(CAPACITY);        //常驻内存（KB）
+    private final TimeSeries threads = new TimeSeries(CAPACITY);    //线程数
+    private final TimeSeries heap = new TimeSeries(CAPACITY);       //堆内存使用量（KB）
+    private final TimeSeries gc = new TimeSeries(CAPACITY);         //每秒的GC耗时（毫秒）
+    private final ScheduledFuture<?> sampling;
+    private PerfData perfData;
+    private long lastCpuNanos = -1;
+    private long lastSampleNanos;
+    private long lastGcMillis = 0;
+    private volatile long gcCount = 0;
+    private volatile long gcMillis = 0;
+
+    private ProcessMonitor(ProcessHandle handle) {
+        this.handle = handle;
+        this.sampling = SAMPLER.scheduleAtFixedRate(this::sample, 0, SAMPLE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 开始监控一个进程
+     * @param process 进程
+     * @return 资源监控
+     */
+    static ProcessMonitor start(Process process){
+        return new ProcessMonitor(process.toHandle());
+    }
+
+    /**
+     * 停止监控，进程结束时调用，已经采集的数据依然可以读取
+     */
+    void stop(){
+        sampling.cancel(false);
+    }
+
+    private void sample(){
+        if(!handle.isAlive()) return;
+        long now = System.nanoTime();
+        handle.info().totalCpuDuration().map(Duration::toNanos).ifPresent(cpuNanos -> {
+            if(lastCpuNanos >= 0) cpu.add(100.0 * (cpuNanos - lastCpuNanos) / (now - lastSampleNanos));
+            lastCpuNanos = cpuNanos;
+        });
+        lastSampleNanos = now;
+        List<String> status = readStatus(handle.pid());
+        long rssKb = statusValue(status, "VmRSS:");
+        if(rssKb > 0) rss.add(rssKb);
+        long threadCount = statusValue(status, "Threads:");
+        //JVM启动之后才会创建性能计数器文件，前几次采样可能还打不开
+        if(perfData == null) perfData = PerfData.open(handle.pid());
+        if(perfData != null) {
+            if(threadCount < 0) threadCount = perfData.get("java.threads.live");
+            long heapUsed = perfData.sum(HEAP_USED);
+            if(heapUsed >= 0) heap.add(heapUsed / 1024.0);
+            long frequency = perfData.get("sun.os.hrt.frequency");
+            long ticks = perfData.sum(GC_TIME);
+            if(frequency > 0 && ticks >= 0) {
+                long millis = ticks * 1000 / frequency;
+                gc.add(millis - lastGcMillis);
+                lastGcMillis = millis;
+                gcMillis = millis;
+            }
+            gcCount = Math.max(0, perfData.sum(GC_COUNT));
+        }
+        if(threadCount >= 0) threads.add(threadCount);
+    }
+
+    /**
+     * 读取进程的状态信息（只支持Linux），包括常驻内存和线程数（包括JVM自己的GC、JIT等线程）
+     */
+    private static List<String> readStatus(long pid){
+        try {
+            return Files.readAllLines(Paths.get("/proc/" + pid + "/status"));
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static long statusValue(List<String> status, String key){
+        for (String line : status) {
+            if(!line.startsWith(key)) continue;
+            try {
+                return Long.parseLong(line.substring(key.length()).replace("kB", "").trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    public TimeSeries getCpu() {
+        return cpu;
+    }
+
+    public TimeSeries getRss() {
+        return rss;
+    }
+
+    public TimeSeries getThreads() {
+        return threads;
+    }
+
+    public TimeSeries getHeap() {
+        return heap;
+    }
+
+    public TimeSeries getGc() {
+        return gc;
+    }
+
+    /**
+     * 累计GC次数
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * 累计GC耗时（毫秒）
+     */
+    public long getGcMillis() {
+        return gcMillis;
+    }
+}
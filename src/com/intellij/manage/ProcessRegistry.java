@@ -0,0 +1,63 @@
+package com.intellij.manage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 运行会话注册表，记录IDE中所有正在运行的程序，支持同时运行任意多个程序。
+ * 注册表本身不加锁，每个会话只对自己加锁，停止一个项目的程序不会影响其他项目。
+ */
+public class ProcessRegistry {
+    private static final AtomicInteger ID_COUNTER = new AtomicInteger();
+    private static final Map<Integer, RunSession> SESSIONS = new ConcurrentHashMap<>();
+
+    private ProcessRegistry(){}
+
+    /**
+     * 创建一个新的运行会话
+     * @param projectPath 项目根目录
+     * @param name 会话名称，一般是主类名称
+     * @return 运行会话
+     */
+    public static RunSession create(String projectPath, String name){
+        RunSession session = new RunSession(ID_COUNTER.incrementAndGet(), projectPath, name);
+        SESSIONS.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * 根据编号获取正在运行的会话
+     * @param id 会话编号
+     * @return 运行会话，如果已经结束了返回null
+     */
+    public static RunSession get(int id){
+        return SESSIONS.get(id);
+    }
+
+    /**
+     * 获取项目中所有正在运行的会话
+     * @param projectPath 项目根目录
+     * @return 会话列表，按编号排序
+     */
+    public static List<RunSession> sessions(String projectPath){
+        return SESSIONS.values().stream()
+                .filter(session -> session.getProjectPath().equals(projectPath))
+                .sorted((a, b) -> Integer.compare(a.getId(), b.getId()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 停止项目中所有正在运行的会话，项目窗口关闭时调用
+     * @param projectPath 项目根目录
+     */
+    public static void stopAll(String projectPath){
+        sessions(projectPath).forEach(RunSession::stop);
+    }
+
+    static void remove(RunSession session){
+        SESSIONS.remove(session.getId(), session);
+    }
+}
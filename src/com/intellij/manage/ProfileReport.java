@@ -0,0 +1,161 @@
+package com.intellij.manage;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 性能分析报告，由JDK Flight Recorder的记录文件生成。JFR会定时对所有正在执行Java代码的线程采样调用栈
+ * （jdk.ExecutionSample事件，profile配置下每10毫秒一次），这里把所有样本汇总成：
+ * - 热点方法：每个方法自身（位于栈顶）的样本数和总（出现在栈中任意位置）的样本数
+ * - 调用树：把所有调用栈从入口方法开始合并成一棵树，每个结点记录经过它的样本数
+ * 样本数占总样本数的比例，就近似于这个方法占用的CPU时间比例。
+ * 调用栈超过记录深度时JFR只保留栈顶的部分，这些样本在调用树中单独放在一个结点下面，不和完整的调用栈混在一起。
+ */
+public class ProfileReport {
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final String TRUNCATED = "<调用栈过深，已截断>";
+
+    private final Map<String, MethodStat> methods = new HashMap<>();
+    private final CallNode root = new CallNode("全部");
+    private int sampleCount = 0;
+
+    private ProfileReport(){}
+
+    /**
+     * 解析JFR记录文件，逐个读取事件，不需要把整个文件读进内存
+     * @param recording 记录文件
+     * @return 性能分析报告
+     */
+    public static ProfileReport parse(Path recording) throws IOException {
+        ProfileReport report = new ProfileReport();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                if(!event.getEventType().getName().equals(EXECUTION_SAMPLE)) continue;
+                RecordedStackTrace stackTrace = event.getStackTrace();
+                if(stackTrace != null && !stackTrace.getFrames().isEmpty())
+                    report.addSample(stackTrace.getFrames(), stackTrace.isTruncated());
+            }
+        }
+        return report;
+    }
+
+    /**
+     * 添加一个样本，JFR中的调用栈是从栈顶（正在执行的方法）到栈底排列的
+     * @param truncated 调用栈是否被截断了，截断时最底下的帧并不是真正的入口方法
+     */
+    private void addSample(List<RecordedFrame> frames, boolean truncated){
+        sampleCount++;
+        root.samples++;
+        Set<String> counted = new HashSet<>();     //递归调用时同一个方法只算一次
+        CallNode node = root;
+        if(truncated) {
+            node = node.child(TRUNCATED);
+            node.samples++;
+        }
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            String method = methodName(frames.get(i));
+            MethodStat stat = methods.computeIfAbsent(method, MethodStat::new);
+            if(counted.add(method)) stat.totalSamples++;
+            if(i == 0) stat.selfSamples++;
+            node = node.child(method);
+            node.samples++;
+        }
+    }
+
+    private static String methodName(RecordedFrame frame){
+        RecordedMethod method = frame.getMethod();
+        if(method == null) return "<未知方法>";
+        return method.getType().getName() + "." + method.getName();
+    }
+
+    /**
+     * 按自身样本数从多到少排列的热点方法
+     * @return 热点方法
+     */
+    public List<MethodStat> getHotMethods(){
+        List<MethodStat> list = new ArrayList<>(methods.values());
+        list.sort(Comparator.comparingInt(MethodStat::getSelfSamples).reversed()
+                .thenComparing(Comparator.comparingInt(MethodStat::getTotalSamples).reversed()));
+        return list;
+    }
+
+    public CallNode getCallTree(){
+        return root;
+    }
+
+    public int getSampleCount(){
+        return sampleCount;
+    }
+
+    /**
+     * 一个方法的样本统计
+     */
+    public static class MethodStat {
+        private final String method;
+        private int selfSamples = 0;
+        private int totalSamples = 0;
+
+        MethodStat(String method) {
+            this.method = method;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public int getSelfSamples() {
+            return selfSamples;
+        }
+
+        public int getTotalSamples() {
+            return totalSamples;
+        }
+    }
+
+    /**
+     * 调用树中的一个结点
+     */
+    public static class CallNode {
+        private final String method;
+        private final Map<String, CallNode> children = new HashMap<>();
+        private int samples = 0;
+
+        CallNode(String method) {
+            this.method = method;
+        }
+
+        private CallNode child(String method){
+            return children.computeIfAbsent(method, CallNode::new);
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public int getSamples() {
+            return samples;
+        }
+
+        public boolean isLeaf() {
+            return children.isEmpty();
+        }
+
+        /**
+         * 按样本数从多到少排列的子结点
+         * @return 子结点
+         */
+        public List<CallNode> getChildren() {
+            List<CallNode> list = new ArrayList<>(children.values());
+            list.sort(Comparator.comparingInt(CallNode::getSamples).reversed());
+            return list;
+        }
+    }
+}
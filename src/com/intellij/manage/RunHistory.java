@@ -0,0 +1,55 @@
+package com.intellij.manage;
+
+import com.intellij.entity.RunRecord;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 运行记录，保存每个项目最近若干次运行的资源消耗，用于对比不同运行配置的效果。
+ * 记录只保存在内存中，项目关闭之后就清除了。
+ */
+public class RunHistory {
+    private static final int MAX_RECORDS = 100;     //每个项目最多保留的记录数量
+    private static final Map<String, Deque<RunRecord>> HISTORY = new ConcurrentHashMap<>();
+
+    private RunHistory(){}
+
+    /**
+     * 添加一条运行记录，超过上限时移除最早的记录
+     * @param projectPath 项目根目录
+     * @param record 运行记录
+     */
+    static void add(String projectPath, RunRecord record){
+        Deque<RunRecord> records = HISTORY.computeIfAbsent(projectPath, path -> new ArrayDeque<>());
+        synchronized (records) {
+            records.addLast(record);
+            if(records.size() > MAX_RECORDS) records.removeFirst();
+        }
+    }
+
+    /**
+     * 获取项目最近的运行记录
+     * @param projectPath 项目根目录
+     * @return 运行记录，从早到晚排列
+     */
+    public static List<RunRecord> records(String projectPath){
+        Deque<RunRecord> records = HISTORY.get(projectPath);
+        if(records == null) return new ArrayList<>();
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    /**
+     * 清除项目的运行记录，项目窗口关闭时调用
+     * @param projectPath 项目根目录
+     */
+    static void release(String projectPath){
+        HISTORY.remove(projectPath);
+    }
+}
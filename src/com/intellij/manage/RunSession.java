@@ -0,0 +1,182 @@
+package com.intellij.manage;
+
+import com.intellij.entity.RunRecord;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次程序运行（运行会话），每个会话有自己的编号、进程（或者内存运行）、输入通道和生命周期，
+ * 多个会话之间互不影响，可以同时运行多个程序（比如同时运行服务端和客户端）。
+ * 会话由ProcessRegistry统一管理，只对自己加锁，不会和其他会话抢锁。
+ */
+public class RunSession {
+    private final int id;
+    private final String projectPath;
+    private final String name;
+    private final long createTime = System.currentTimeMillis();
+    //程序读取标准输入时使用默认字符集，这里保持一致
+    private final StdinChannel stdin = new StdinChannel(Charset.defaultCharset());
+
+    private Process process;             //外部进程运行时的进程
+    private InMemoryRunner memoryRun;    //内存模式运行时的运行器
+    private volatile boolean stopped = false;
+    private volatile boolean finished = false;
+    private volatile ProcessMonitor monitor;   //外部进程运行时的资源监控
+    private volatile RunRecord record;   //运行结束后的资源消耗记录，只有启动新JVM运行时才有
+    private volatile GcLog gcLog;        //运行配置开启了GC日志时的日志跟踪
+    private volatile long stopGraceMillis = 0;   //停止时先正常结束进程，等待多久之后再强制结束，0表示直接强制结束
+
+    RunSession(int id, String projectPath, String name) {
+        this.id = id;
+        this.projectPath = projectPath;
+        this.name = name;
+    }
+
+    /**
+     * 会话开始运行外部进程，如果在此之前会话已经被停止了，进程会被立即结束
+     */
+    synchronized void attach(Process process){
+        this.process = process;
+        if(stopped) this.destroy(process);
+        this.monitor = ProcessMonitor.start(process);
+        stdin.connect(process.getOutputStream());
+    }
+
+    /**
+     * 会话开始以内存模式运行，如果在此之前会话已经被停止了，运行会被立即结束
+     */
+    synchronized void attach(InMemoryRunner memoryRun){
+        this.memoryRun = memoryRun;
+        if(stopped) memoryRun.stop();
+        stdin.connect(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                memoryRun.writeInput(new byte[]{(byte) b});
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                memoryRun.writeInput(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                memoryRun.endInput();
+            }
+        });
+    }
+
+    /**
+     * 获取这次运行的资源监控
+     * @return 资源监控，还没有启动外部进程或者是以内存模式运行时为null
+     */
+    public ProcessMonitor getMonitor(){
+        return monitor;
+    }
+
+    void setRecord(RunRecord record){
+        this.record = record;
+    }
+
+    /**
+     * 获取这次运行的资源消耗记录
+     * @return 运行记录，还没有运行结束或者不是以新JVM运行时为null
+     */
+    public RunRecord getRecord(){
+        return record;
+    }
+
+    void setGcLog(GcLog gcLog){
+        this.gcLog = gcLog;
+    }
+
+    /**
+     * 获取这次运行的GC日志
+     * @return GC日志，运行配置没有开启GC日志或者不是以新JVM运行时为null
+     */
+    public GcLog getGcLog(){
+        return gcLog;
+    }
+
+    synchronized Process getProcess(){
+        return process;
+    }
+
+    /**
+     * 会话运行结束，从注册表中移除
+     */
+    void finish(){
+        finished = true;
+        stdin.close();
+        if(monitor != null) monitor.stop();
+        if(gcLog != null) gcLog.stop();
+        ProcessRegistry.remove(this);
+    }
+
+    /**
+     * 停止会话，结束正在运行的进程。会话还没有开始运行时也可以停止（比如编译失败了），
+     * 这时会话直接结束，之后即使再启动进程也会被立即结束
+     */
+    public synchronized void stop(){
+        stopped = true;
+        if(process != null) this.destroy(process);
+        if(memoryRun != null) memoryRun.stop();
+        if(process == null && memoryRun == null) finish();
+    }
+
+    /**
+     * 设定停止时的宽限时间：停止时先正常结束进程（让JVM执行退出时的操作，比如JFR写出记录），
+     * 超过宽限时间还没有退出再强制结束
+     * @param graceMillis 宽限时间（毫秒），0表示直接强制结束
+     */
+    void setStopGracePeriod(long graceMillis){
+        this.stopGraceMillis = graceMillis;
+    }
+
+    private void destroy(Process process){
+        long grace = stopGraceMillis;
+        if(grace <= 0) {
+            process.destroyForcibly();
+            return;
+        }
+        process.destroy();
+        process.onExit().completeOnTimeout(process, grace, TimeUnit.MILLISECONDS).thenAccept(exited -> {
+            if(exited.isAlive()) exited.destroyForcibly();
+        });
+    }
+
+    /**
+     * 会话的标准输入通道，可以在任意线程中使用，不会阻塞
+     * @return 标准输入通道
+     */
+    public StdinChannel getStdin() {
+        return stdin;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getProjectPath() {
+        return projectPath;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+}
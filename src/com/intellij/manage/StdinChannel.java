@@ -0,0 +1,103 @@
+package com.intellij.manage;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 运行会话的标准输入通道，界面线程只负责把输入放进队列，由专门的写入线程写给程序：
+ * - 输入按行缓冲，遇到换行或者一次粘贴结束时才会flush，而不是每个字符flush一次
+ * - 一次粘贴的大量内容会整块写入，程序可以按照管道的速度读取
+ * - 统一使用指定的字符集编码，和程序读取标准输入时使用的字符集保持一致
+ * 会话还没有开始运行（比如还在编译）时输入的内容会先保存在队列中，开始运行之后再写入。
+ */
+public class StdinChannel {
+    private static final Packet END = new Packet(new byte[0], true);
+
+    private final BlockingQueue<Packet> queue = new LinkedBlockingQueue<>();
+    private final Charset charset;
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private volatile boolean closed = false;
+    private Thread writer;
+
+    StdinChannel(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * 发送输入内容，不会阻塞
+     * @param text 输入内容
+     * @param flush 是否立即flush（比如一次粘贴结束），内容中包含换行符时总是会flush
+     */
+    public void send(String text, boolean flush){
+        if(closed || text.isEmpty()) return;
+        byte[] bytes = text.getBytes(charset);
+        queuedBytes.addAndGet(bytes.length);
+        queue.add(new Packet(bytes, flush || text.indexOf('\n') >= 0));
+    }
+
+    /**
+     * 结束输入，之前的内容全部写完之后关闭程序的标准输入，程序会读到EOF
+     */
+    public void end(){
+        if(closed) return;
+        closed = true;
+        queue.add(END);
+    }
+
+    /**
+     * 连接到程序的标准输入，并启动写入线程
+     * @param target 程序的标准输入
+     */
+    synchronized void connect(OutputStream target){
+        if(writer != null) return;
+        writer = new Thread(() -> this.writeLoop(target), "stdin-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 会话结束时调用，丢弃还没有写入的内容并停止写入线程
+     */
+    synchronized void close(){
+        closed = true;
+        queue.clear();
+        queuedBytes.set(0);
+        if(writer != null) writer.interrupt();
+    }
+
+    private void writeLoop(OutputStream target){
+        try (OutputStream output = new BufferedOutputStream(target, 64 * 1024)) {
+            while (true) {
+                Packet packet = queue.take();
+                if(packet == END) break;
+                output.write(packet.bytes);
+                queuedBytes.addAndGet(-packet.bytes.length);
+                if(packet.flush) output.flush();
+            }
+        } catch (IOException | InterruptedException ignored) {
+            //程序已经结束了，剩下的输入也没有意义了
+        }
+    }
+
+    /**
+     * 还在队列中、尚未写给程序的字节数
+     */
+    public long getQueuedBytes(){
+        return queuedBytes.get();
+    }
+
+    private static class Packet {
+        private final byte[] bytes;
+        private final boolean flush;
+
+        Packet(byte[] bytes, boolean flush) {
+            this.bytes = bytes;
+            this.flush = flush;
+        }
+    }
+}
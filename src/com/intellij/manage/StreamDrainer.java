@@ -0,0 +1,71 @@
+package com.intellij.manage;
+
+import com.intellij.entity.OutputChunk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.function.Consumer;
+
+/**
+ * 进程输出读取工具，标准输出和错误输出各自由一个专门的线程读取，
+ * 这样任何一个流的输出再多，也不会因为操作系统的管道缓冲区写满而把进程卡住。
+ */
+public class StreamDrainer {
+
+    private StreamDrainer(){}
+
+    /**
+     * 同时读取进程的标准输出和错误输出，直到两个流都结束，每读到一段内容就立即转发出去
+     * 错误输出在后台线程中读取，标准输出在当前线程中读取
+     * @param process 进程
+     * @param consumer 输出片段接收者，会在两个不同的线程中调用
+     */
+    public static void drain(Process process, Consumer<OutputChunk> consumer) throws InterruptedException {
+        Thread error = drainAsync(process.getErrorStream(), OutputChunk.Kind.ERROR, consumer);
+        try {
+            read(process.getInputStream(), OutputChunk.Kind.OUTPUT, consumer);
+        } finally {
+            error.join();
+        }
+    }
+
+    /**
+     * 在后台线程中持续读取一个流，直到流结束
+     * @param stream 输入流
+     * @param kind 输出片段的来源
+     * @param consumer 输出片段接收者
+     * @return 读取线程
+     */
+    public static Thread drainAsync(InputStream stream, OutputChunk.Kind kind, Consumer<OutputChunk> consumer){
+        Thread thread = new Thread(() -> read(stream, kind, consumer), "stream-drainer-" + kind.name().toLowerCase());
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * 在后台线程中读取一个流的全部内容，最多保留limit个字符，超出部分直接丢弃（但还是会继续读取）
+     * @param stream 输入流
+     * @param builder 保存内容的位置，读取线程结束之前不要访问
+     * @param limit 最多保留的字符数量
+     * @return 读取线程
+     */
+    public static Thread collectAsync(InputStream stream, StringBuilder builder, int limit){
+        return drainAsync(stream, OutputChunk.Kind.OUTPUT, chunk -> {
+            if(builder.length() < limit)
+                builder.append(chunk.getText(), 0, Math.min(chunk.getText().length(), limit - builder.length()));
+        });
+    }
+
+    private static void read(InputStream stream, OutputChunk.Kind kind, Consumer<OutputChunk> consumer){
+        try (InputStreamReader reader = new InputStreamReader(stream)) {
+            char[] chars = new char[8192];    //输出很多的时候，大一点的缓冲区可以减少读取和转发的次数
+            int len;
+            while ((len = reader.read(chars)) > 0)
+                consumer.accept(new OutputChunk(kind, new String(chars, 0, len)));
+        } catch (IOException ignored) {
+            //进程被强制结束时流会被关闭，直接结束读取就行
+        }
+    }
+}
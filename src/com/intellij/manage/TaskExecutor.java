@@ -0,0 +1,96 @@
+package com.intellij.manage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 执行引擎的统一任务执行器，编译、运行、反编译、拉取代码等耗时操作都通过它在后台线程中执行，
+ * 这样界面线程（事件分发线程）就永远不会被阻塞。所有的任务都支持取消和进度汇报，
+ * 界面可以注册监听器，在任务状态变化时更新状态栏等。
+ * 注意：任务和监听器的回调都在后台线程中执行，更新界面时需要使用SwingUtilities.invokeLater。
+ */
+public class TaskExecutor {
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService POOL = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "engine-task-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    //当前线程正在执行的任务，引擎内部通过它汇报进度，不需要层层传递参数
+    private static final ThreadLocal<EngineTask<?>> CURRENT = new ThreadLocal<>();
+    private static final List<EngineTask<?>> ACTIVE = new CopyOnWriteArrayList<>();
+    private static final List<Consumer<EngineTask<?>>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private TaskExecutor(){}
+
+    /**
+     * 提交一个后台任务
+     * @param name 任务名称，会展示在状态栏中
+     * @param work 任务内容
+     * @return 任务
+     */
+    public static <T> EngineTask<T> submit(String name, EngineTask.Work<T> work){
+        EngineTask<?>[] holder = new EngineTask<?>[1];
+        EngineTask<T> task = new EngineTask<>(name, work, () -> notifyListeners(holder[0]));
+        holder[0] = task;
+        ACTIVE.add(task);
+        task.whenComplete((result, error) -> ACTIVE.remove(task));
+        POOL.execute(() -> {
+            CURRENT.set(task);
+            try {
+                task.future().run();
+            } finally {
+                CURRENT.remove();
+            }
+        });
+        notifyListeners(task);
+        return task;
+    }
+
+    /**
+     * 获取当前线程正在执行的任务的进度汇报接口，不在任务中时返回一个空实现
+     * @return 进度汇报接口
+     */
+    public static TaskProgress currentProgress(){
+        EngineTask<?> task = CURRENT.get();
+        return task == null ? TaskProgress.NONE : task;
+    }
+
+    /**
+     * 为当前线程正在执行的任务设定取消操作，比如任务启动了外部进程，取消任务时需要把进程也结束掉
+     * （进程的输出流读取是无法通过中断线程来打断的）。不在任务中时什么都不做。
+     * 同一个任务可以注册多个取消操作，不会覆盖之前注册的（比如运行任务中的编译不会覆盖结束程序的操作）。
+     * @param cancelHandler 取消操作
+     * @return 撤销这次注册的操作，注册的步骤完成之后调用
+     */
+    public static Runnable cancelWith(Runnable cancelHandler){
+        EngineTask<?> task = CURRENT.get();
+        return task == null ? () -> {} : task.onCancel(cancelHandler);
+    }
+
+    /**
+     * 获取所有正在执行的任务
+     * @return 任务列表
+     */
+    public static List<EngineTask<?>> activeTasks(){
+        return new ArrayList<>(ACTIVE);
+    }
+
+    public static void addListener(Consumer<EngineTask<?>> listener){
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Consumer<EngineTask<?>> listener){
+        LISTENERS.remove(listener);
+    }
+
+    private static void notifyListeners(EngineTask<?> task){
+        for (Consumer<EngineTask<?>> listener : LISTENERS)
+            listener.accept(task);
+    }
+}
@@ -0,0 +1,16 @@
+package com.intellij.manage;
+
+/**
+ * 任务进度汇报接口，执行引擎中耗时的操作通过它汇报当前进度
+ */
+public interface TaskProgress {
+    //不在任务中执行时使用的空实现
+    TaskProgress NONE = (fraction, message) -> {};
+
+    /**
+     * 汇报当前进度
+     * @param fraction 进度（0~1），小于0表示无法确定进度
+     * @param message 当前进度的描述
+     */
+    void report(double fraction, String message);
+}
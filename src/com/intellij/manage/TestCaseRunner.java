@@ -0,0 +1,247 @@
+package com.intellij.manage;
+
+import com.intellij.entity.TestCaseResult;
+import com.intellij.entity.enums.TestCaseStatus;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 测试用例批量运行器，用于算法练习：同一个主类需要针对很多组输入运行，并和期望输出进行比较。
+ * - 用例目录中的每一个.in文件都是一个用例，同名的.out或者.ans文件是它的期望输出
+ * - 输入文件直接重定向为进程的标准输入，输出也直接重定向到临时文件，都不经过IDE转发
+ * - 多个用例同时运行（每个CPU核心一个），每个用例都有时间限制（超时直接结束进程）和内存限制（JVM最大堆）
+ * - 比较输出时忽略每一行末尾的空白字符以及末尾的空行，和常见的评测系统保持一致
+ */
+public class TestCaseRunner {
+    private static final int MAX_DETAIL = 80;           //差异信息中每一段内容最多展示的字符数
+    private static final int MAX_ERROR_BYTES = 4096;    //运行错误时最多读取的错误输出字节数
+
+    private final Supplier<CommandLine> command;
+    private final long timeLimitMillis;
+
+    /**
+     * 创建一个测试用例运行器
+     * @param command 每次调用都返回一个新的运行命令（包括类路径、主类和内存限制），标准输入输出由运行器重定向
+     * @param timeLimitMillis 每个用例的时间限制
+     */
+    TestCaseRunner(Supplier<CommandLine> command, long timeLimitMillis) {
+        this.command = command;
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * 扫描用例目录，找出所有的用例，按名称排序
+     * @param directory 用例目录
+     * @return 用例列表，目录不存在时为空
+     */
+    public static List<TestCase> findCases(File directory){
+        List<TestCase> cases = new ArrayList<>();
+        File[] inputs = directory.listFiles((dir, name) -> name.endsWith(".in"));
+        if(inputs == null) return cases;
+        for (File input : inputs) {
+            String name = input.getName().substring(0, input.getName().length() - 3);
+            File expected = new File(directory, name + ".out");
+            if(!expected.isFile()) expected = new File(directory, name + ".ans");
+            cases.add(new TestCase(name, input, expected.isFile() ? expected : null));
+        }
+        cases.sort((a, b) -> compareNames(a.name, b.name));
+        return cases;
+    }
+
+    /**
+     * 用例名称按自然顺序排序，这样2会排在10前面
+     */
+    private static int compareNames(String a, String b){
+        String digitsA = a.replaceAll("\\D", ""), digitsB = b.replaceAll("\\D", "");
+        if(!digitsA.isEmpty() && !digitsB.isEmpty() && digitsA.length() <= 18 && digitsB.length() <= 18) {
+            int result = Long.compare(Long.parseLong(digitsA), Long.parseLong(digitsB));
+            if(result != 0) return result;
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * 并行运行所有用例，阻塞直到全部完成，在任务中调用时会汇报进度，任务被取消时会结束所有正在运行的进程
+     * @param cases 用例列表
+     * @param listener 每完成一个用例就通知一次，会在不同的工作线程中调用
+     * @return 所有用例的结果，顺序和用例列表一致
+     */
+    List<TestCaseResult> run(List<TestCase> cases, Consumer<TestCaseResult> listener) throws InterruptedException {
+        TaskProgress progress = TaskExecutor.currentProgress();
+        int threads = Math.max(1, Math.min(cases.size(), Runtime.getRuntime().availableProcessors()));
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "test-case-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            AtomicInteger finished = new AtomicInteger();
+            List<Future<TestCaseResult>> futures = new ArrayList<>();
+            for (TestCase testCase : cases) {
+                futures.add(executor.submit(() -> {
+                    TestCaseResult result;
+                    try {
+                        result = this.runCase(testCase);
+                    } catch (IOException e) {
+                        result = new TestCaseResult(testCase.name, TestCaseStatus.RUNTIME_ERROR, 0, -1, "无法运行：" + e.getMessage());
+                    }
+                    listener.accept(result);
+                    int done = finished.incrementAndGet();
+                    progress.report((double) done / cases.size(), "已完成 " + done + "/" + cases.size());
+                    return result;
+                }));
+            }
+            List<TestCaseResult> results = new ArrayList<>();
+            for (Future<TestCaseResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();    //被取消时中断所有工作线程，工作线程会结束自己的进程
+        }
+    }
+
+    /**
+     * 运行单个用例
+     */
+    private TestCaseResult runCase(TestCase testCase) throws IOException, InterruptedException {
+        File output = File.createTempFile("case-", ".out");
+        File error = File.createTempFile("case-", ".err");
+        CommandLine line = command.get()
+                .redirectInput(ProcessBuilder.Redirect.from(testCase.input))
+                .redirectOutput(ProcessBuilder.Redirect.to(output))
+                .redirectError(ProcessBuilder.Redirect.to(error));
+        try {
+            long start = System.nanoTime();
+            Process process = line.start();
+            boolean exited;
+            try {
+                exited = process.waitFor(timeLimitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+            long wallMillis = (System.nanoTime() - start) / 1000000;
+            if(!exited) {
+                process.destroyForcibly().waitFor();
+                return new TestCaseResult(testCase.name, TestCaseStatus.TIME_LIMIT_EXCEEDED, wallMillis, -1,
+                        "超过时间限制 " + timeLimitMillis + "ms");
+            }
+            int exitCode = process.exitValue();
+            String errorText = readHead(error);
+            //内存限制通过JVM最大堆实现，堆内存不足时JVM会打印OutOfMemoryError并退出
+            if(errorText.contains("java.lang.OutOfMemoryError"))
+                return new TestCaseResult(testCase.name, TestCaseStatus.MEMORY_LIMIT_EXCEEDED, wallMillis, exitCode,
+                        firstLine(errorText.substring(errorText.indexOf("java.lang.OutOfMemoryError"))));
+            if(exitCode != 0)
+                return new TestCaseResult(testCase.name, TestCaseStatus.RUNTIME_ERROR, wallMillis, exitCode,
+                        firstLine(errorText));
+            if(testCase.expected == null)
+                return new TestCaseResult(testCase.name, TestCaseStatus.NO_ANSWER, wallMillis, exitCode, "");
+            String difference = compare(testCase.expected, output);
+            return new TestCaseResult(testCase.name, difference == null ? TestCaseStatus.PASSED : TestCaseStatus.WRONG_ANSWER,
+                    wallMillis, exitCode, difference == null ? "" : difference);
+        } finally {
+            line.cleanup();
+            Files.deleteIfExists(output.toPath());
+            Files.deleteIfExists(error.toPath());
+        }
+    }
+
+    /**
+     * 逐行比较期望输出和实际输出，忽略行末空白和末尾的空行
+     * @return 第一处差异的描述，完全一致时返回null
+     */
+    private static String compare(File expected, File actual) throws IOException {
+        Charset charset = Charset.defaultCharset();    //用户程序使用平台默认编码输出，无法解码的字节按替换字符比较
+        try (BufferedReader expectedReader = new BufferedReader(new InputStreamReader(Files.newInputStream(expected.toPath()), charset));
+             BufferedReader actualReader = new BufferedReader(new InputStreamReader(Files.newInputStream(actual.toPath()), charset))) {
+            int line = 0;
+            while (true) {
+                line++;
+                String e = expectedReader.readLine(), a = actualReader.readLine();
+                if(e == null && a == null) return null;
+                if(e == null && a.trim().isEmpty() && restIsBlank(actualReader)) return null;
+                if(a == null && e.trim().isEmpty() && restIsBlank(expectedReader)) return null;
+                if(e == null) return "第 " + line + " 行：期望输出已结束，实际输出 " + abbreviate(a);
+                if(a == null) return "第 " + line + " 行：期望 " + abbreviate(e) + "，实际输出已结束";
+                if(!stripTrailing(e).equals(stripTrailing(a)))
+                    return "第 " + line + " 行：期望 " + abbreviate(e) + "，实际 " + abbreviate(a);
+            }
+        }
+    }
+
+    private static boolean restIsBlank(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null)
+            if(!line.trim().isEmpty()) return false;
+        return true;
+    }
+
+    private static String stripTrailing(String line){
+        int end = line.length();
+        while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) end--;
+        return line.substring(0, end);
+    }
+
+    private static String abbreviate(String text){
+        text = stripTrailing(text);
+        return "\"" + (text.length() > MAX_DETAIL ? text.substring(0, MAX_DETAIL) + "..." : text) + "\"";
+    }
+
+    private static String readHead(File file) throws IOException {
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            byte[] bytes = new byte[MAX_ERROR_BYTES];
+            int length = 0, read;
+            while (length < bytes.length && (read = stream.read(bytes, length, bytes.length - length)) > 0)
+                length += read;
+            return new String(bytes, 0, length, Charset.defaultCharset());
+        }
+    }
+
+    private static String firstLine(String text){
+        text = text.trim();
+        int end = text.indexOf('\n');
+        return end < 0 ? text : text.substring(0, end).trim();
+    }
+
+    /**
+     * 一个测试用例，由输入文件和（可选的）期望输出文件组成
+     */
+    public static class TestCase {
+        private final String name;
+        private final File input;
+        private final File expected;
+
+        TestCase(String name, File input, File expected) {
+            this.name = name;
+            this.input = input;
+            this.expected = expected;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public File getInput() {
+            return input;
+        }
+
+        public File getExpected() {
+            return expected;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.intellij.manage;
+
+/**
+ * 固定容量的时间序列（环形缓冲区），只保留最近的若干个采样值，容量满了之后新的值会覆盖最早的值，
+ * 程序运行多久内存占用都不会增长。采样线程写入、界面线程读取，所以所有方法都是同步的。
+ */
+public class TimeSeries {
+    private final double[] values;
+    private int start = 0;       //最早的值所在的位置
+    private int size = 0;
+
+    /**
+     * 创建一个时间序列
+     * @param capacity 最多保留的采样数量
+     */
+    public TimeSeries(int capacity) {
+        this.values = new double[capacity];
+    }
+
+    /**
+     * 追加一个采样值
+     * @param value 采样值
+     */
+    public synchronized void add(double value){
+        if(size < values.length) {
+            values[(start + size++) % values.length] = value;
+        } else {
+            values[start] = value;
+            start = (start + 1) % values.length;
+        }
+    }
+
+    /**
+     * 按从早到晚的顺序复制所有采样值
+     * @return 采样值
+     */
+    public synchronized double[] snapshot(){
+        double[] copy = new double[size];
+        for (int i = 0; i < size; i++) copy[i] = values[(start + i) % values.length];
+        return copy;
+    }
+
+    /**
+     * 最新的采样值
+     * @return 采样值，还没有采样时返回NaN
+     */
+    public synchronized double latest(){
+        return size == 0 ? Double.NaN : values[(start + size - 1) % values.length];
+    }
+
+    public int capacity(){
+        return values.length;
+    }
+}
@@ -0,0 +1,239 @@
+package com.intellij.manage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 编辑框的延迟写入（write-behind）：
+ * - 每次编辑只是把文件标记为未保存，不会复制文档内容，连续的编辑在停顿下来之后合并成一次写入，
+ *   一直不停地输入时，最多等待一段时间也会写入一次
+ * - 文档的快照在修改文档的线程（事件分发线程）中获取，保证快照和文件是对应的；写入在后台线程中进行，
+ *   先写到同目录下的临时文件，再整体替换原文件，写到一半出错也不会留下残缺的源文件
+ * - 切换文件、编辑框失去焦点、构建和关闭项目时立即写入
+ * 同时记录写入次数、合并的编辑数量和写入耗时等指标，方便在界面上展示。
+ */
+public class WriteBehindSaver {
+    private static final long DEBOUNCE_MILLIS = 500;
+    private static final long MAX_DELAY_MILLIS = 5000;       //持续输入时最多延迟这么久就写入一次
+    private static final long SHUTDOWN_WAIT_SECONDS = 5;
+    private static final int WRITE_CHUNK = 8192;
+
+    private final Executor snapshotExecutor;
+    private final Runnable listener;
+    private final ScheduledExecutorService executor;
+    //已经获取了快照、但是还没有写入磁盘的内容，重新打开文件时要以这里的为准
+    private final Map<File, CharSequence> unwritten = new ConcurrentHashMap<>();
+
+    private File dirtyFile;                  //有未保存编辑的文件，以及获取它最新内容的方式
+    private Supplier<? extends CharSequence> dirtyContent;
+    private int dirtyEdits = 0;              //自上次写入以来合并的编辑次数
+    private long dirtySince = 0;             //第一次未保存的编辑发生的时间
+    private ScheduledFuture<?> pending;
+
+    private final AtomicInteger saveCount = new AtomicInteger();
+    private final AtomicInteger supersededCount = new AtomicInteger();
+    private final AtomicInteger failureCount = new AtomicInteger();
+    private final AtomicLong coalescedEdits = new AtomicLong();
+    private final AtomicLong lastLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private volatile String lastError = null;
+
+    /**
+     * 创建一个延迟写入器
+     * @param snapshotExecutor 获取文档快照的线程，必须是修改文档的线程（一般是SwingUtilities::invokeLater）
+     * @param listener 每次写入完成（或者失败）时调用，会在后台线程中调用
+     */
+    public WriteBehindSaver(Executor snapshotExecutor, Runnable listener) {
+        this.snapshotExecutor = snapshotExecutor;
+        this.listener = listener;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 文件有新的编辑，安排一次延迟写入，需要在修改文档的线程中调用
+     * @param file 被编辑的文件
+     * @param content 获取文件最新的内容，写入时才会在修改文档的线程中调用，返回null表示内容已经不属于这个文件了。
+     *                返回的内容在写入过程中不能再被修改，一般是文档的快照
+     */
+    public synchronized void markDirty(File file, Supplier<? extends CharSequence> content){
+        if(dirtyFile != null && !dirtyFile.equals(file)) this.flush();
+        long now = System.currentTimeMillis();
+        if(dirtyFile == null) dirtySince = now;
+        dirtyFile = file;
+        dirtyContent = content;
+        dirtyEdits++;
+        if(pending != null) pending.cancel(false);
+        long delay = Math.max(0, Math.min(DEBOUNCE_MILLIS, dirtySince + MAX_DELAY_MILLIS - now));
+        pending = executor.schedule(() -> snapshotExecutor.execute(this::flush), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 立即获取未保存文件的快照并安排写入，需要在修改文档的线程中调用（切换文件之前、失去焦点、构建之前）
+     * @return 写入完成的Future，没有需要写入的内容时直接返回已经完成的
+     */
+    public synchronized Future<?> flush(){
+        if(pending != null) pending.cancel(false);
+        pending = null;
+        File file = dirtyFile;
+        Supplier<? extends CharSequence> content = dirtyContent;
+        int edits = dirtyEdits;
+        dirtyFile = null;
+        dirtyContent = null;
+        dirtyEdits = 0;
+        CharSequence text = file == null ? null : content.get();
+        if(text == null) return CompletableFuture.completedFuture(null);
+        long snapshotTime = System.nanoTime();
+        unwritten.put(file, text);
+        return executor.submit(() -> this.write(file, text, edits, snapshotTime));
+    }
+
+    /**
+     * 等待已经安排的写入全部完成，构建之前在后台线程中调用，保证编译器读到的是最新的内容
+     */
+    public void awaitWrites(){
+        try {
+            executor.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 获取文件已经获取了快照、但是还没有写入磁盘的内容，打开文件时优先使用
+     * @param file 文件
+     * @return 内容，没有等待写入的内容时返回null
+     */
+    public CharSequence unsavedContent(File file){
+        return unwritten.get(file);
+    }
+
+    /**
+     * 写入剩下的内容并关闭写入器，项目关闭时在修改文档的线程中调用。
+     * 等待超时的时候，还没有写完的文件会作为最近一次的错误通知出去
+     * @return 是否全部写入完成
+     */
+    public boolean shutdown(){
+        this.flush();
+        executor.shutdown();
+        try {
+            if(executor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if(unwritten.isEmpty()) return true;
+        StringBuilder names = new StringBuilder();
+        for (File file : unwritten.keySet()) names.append(names.length() == 0 ? "" : "、").append(file.getName());
+        lastError = "仍有文件没有写入完成：" + names;
+        listener.run();
+        return false;
+    }
+
+    private void write(File file, CharSequence text, int edits, long snapshotTime){
+        //同一个文件后面又有了更新的快照，这次就不用写了，直接写最新的
+        if(unwritten.get(file) != text) {
+            supersededCount.incrementAndGet();
+            coalescedEdits.addAndGet(edits);
+            return;
+        }
+        Path target = file.toPath();
+        Path temp = target.resolveSibling("." + file.getName() + ".saving");    //以.开头，不会出现在文件树中
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, Charset.defaultCharset())) {
+                //分段写入，快照不需要先转换成一个完整的字符串
+                for (int i = 0; i < text.length(); i += WRITE_CHUNK)
+                    writer.append(text, i, Math.min(text.length(), i + WRITE_CHUNK));
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            unwritten.remove(file, text);
+            long latency = (System.nanoTime() - snapshotTime) / 1000000;
+            saveCount.incrementAndGet();
+            coalescedEdits.addAndGet(edits);
+            lastLatency.set(latency);
+            totalLatency.addAndGet(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+            lastError = null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            failureCount.incrementAndGet();
+            lastError = file.getName() + "：" + e.getMessage();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {}
+        }
+        listener.run();
+    }
+
+    /**
+     * 是否有还没有写入磁盘的编辑
+     */
+    public synchronized boolean isDirty() {
+        return dirtyFile != null || !unwritten.isEmpty();
+    }
+
+    public int getSaveCount() {
+        return saveCount.get();
+    }
+
+    /**
+     * 因为后面已经有了更新的快照而跳过的写入次数
+     */
+    public int getSupersededCount() {
+        return supersededCount.get();
+    }
+
+    public int getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * 写入的编辑总数，除以写入次数就是平均每次写入合并了多少次编辑
+     */
+    public long getCoalescedEdits() {
+        return coalescedEdits.get();
+    }
+
+    /**
+     * 最近一次写入的耗时（从获取快照到文件替换完成）
+     */
+    public long getLastLatencyMillis() {
+        return lastLatency.get();
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatency.get();
+    }
+
+    public long getAverageLatencyMillis() {
+        int count = saveCount.get();
+        return count == 0 ? 0 : totalLatency.get() / count;
+    }
+
+    /**
+     * 最近一次写入失败的原因，最近一次写入成功时为null
+     */
+    public String getLastError() {
+        return lastError;
+    }
+}
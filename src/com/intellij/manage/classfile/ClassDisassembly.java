@@ -0,0 +1,435 @@
+package com.intellij.manage.classfile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * .class文件的反汇编结果，输出格式和javap -c -p一致（泛型签名按擦除之后的类型展示）。
+ * 类的声明和各个成员在创建时就能展示出来，方法体只有在第一次展开时才会反汇编，反汇编的结果会保留下来，
+ * 这样浏览一个很大的类时不需要一次性反汇编全部方法。
+ */
+public class ClassDisassembly {
+    /** 类声明所在的行，双击时展开或者折叠全部方法 */
+    public static final int CLASS_HEADER = -2;
+    private static final int COMMENT_COLUMN = 44;    //指令后面常量注释的起始列，和javap对齐
+    private static final String[] ARRAY_TYPES = {null, null, null, null, "boolean", "char", "float", "double", "byte", "short", "int", "long"};
+    private static final String[] REFERENCE_KINDS = {null, "REF_getField", "REF_getStatic", "REF_putField", "REF_putStatic",
+            "REF_invokeVirtual", "REF_invokeStatic", "REF_invokeSpecial", "REF_newInvokeSpecial", "REF_invokeInterface"};
+
+    private final ClassFile classFile;
+    private final ConstantPool pool;
+    private final String[][] bodies;    //每个方法反汇编之后的各行，还没有反汇编时为null
+    private final int[][] bodyBcis;     //每一行对应的字节码位置，不是指令的行（switch的分支、异常表）为-1
+
+    public ClassDisassembly(ClassFile classFile) {
+        this.classFile = classFile;
+        this.pool = classFile.getConstantPool();
+        this.bodies = new String[classFile.getMethods().size()][];
+        this.bodyBcis = new int[bodies.length][];
+    }
+
+    public ClassFile getClassFile() {
+        return classFile;
+    }
+
+    /**
+     * 生成反汇编文本，只有展开的方法会输出字节码，折叠的方法只输出一行提示
+     * @param expanded 展开的方法（在类文件中的位置）
+     * @param annotator 额外的标注，比如JIT分析的结果，不需要时为null
+     * @return 反汇编文本以及每一行所属的方法
+     */
+    public Listing render(Set<Integer> expanded, Annotator annotator) {
+        StringBuilder text = new StringBuilder();
+        List<Integer> owners = new ArrayList<>();
+        if(classFile.getSourceFile() != null)
+            line(text, owners, "Compiled from \"" + classFile.getSourceFile() + "\"", CLASS_HEADER);
+        line(text, owners, this.classDeclaration() + " {", CLASS_HEADER);
+        boolean first = true;
+        for (FieldInfo field : classFile.getFields()) {
+            if(!first) line(text, owners, "", -1);
+            first = false;
+            line(text, owners, "  " + modifiers(field.getAccessFlags(), FIELD_MODIFIERS)
+                    + typeName(field.getDescriptor()) + " " + field.getName() + ";", -1);
+        }
+        List<MethodInfo> methods = classFile.getMethods();
+        for (int i = 0; i < methods.size(); i++) {
+            MethodInfo method = methods.get(i);
+            if(!first) line(text, owners, "", -1);
+            first = false;
+            line(text, owners, "  " + this.methodDeclaration(method), i);
+            if(annotator != null)
+                for (String note : annotator.methodNotes(method))
+                    line(text, owners, "    // " + note, i);
+            if(method.getCode() == null) continue;
+            if(!expanded.contains(i)) {
+                line(text, owners, "    Code: ▶ " + method.getCodeLength() + "字节（双击展开）", i);
+                continue;
+            }
+            line(text, owners, "    Code:", i);
+            String[] body = this.body(i);
+            int[] bcis = bodyBcis[i];
+            for (int j = 0; j < body.length; j++) {
+                StringBuilder instruction = new StringBuilder(body[j]);
+                if(annotator != null && bcis[j] >= 0)
+                    for (String note : annotator.instructionNotes(method, bcis[j]))
+                        instruction.append("    // ").append(note);
+                line(text, owners, instruction.toString(), -1);
+            }
+        }
+        text.append('}');
+        owners.add(-1);
+        return new Listing(text.toString(), owners.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static void line(StringBuilder text, List<Integer> owners, String line, int owner) {
+        text.append(line).append('\n');
+        owners.add(owner);
+    }
+
+    /**
+     * 某个方法是否已经反汇编过了
+     * @param method 方法在类文件中的位置
+     */
+    public synchronized boolean isDisassembled(int method) {
+        return bodies[method] != null;
+    }
+
+    private synchronized String[] body(int index) {
+        if(bodies[index] != null) return bodies[index];
+        List<String> lines = new ArrayList<>();
+        List<Integer> bcis = new ArrayList<>();
+        MethodInfo method = classFile.getMethods().get(index);
+        this.disassemble(method.getCode(), lines, bcis);
+        int[] table = method.getExceptionTable();
+        if(table.length > 0) {
+            lines.add("    Exception table:");
+            lines.add("       from    to  target type");
+            for (int i = 0; i < table.length; i += 4)
+                lines.add(String.format("%12d%6d%6d   %s", table[i], table[i + 1], table[i + 2],
+                        table[i + 3] == 0 ? "any" : "Class " + pool.className(table[i + 3])));
+            while (bcis.size() < lines.size()) bcis.add(-1);
+        }
+        bodyBcis[index] = bcis.stream().mapToInt(Integer::intValue).toArray();
+        return bodies[index] = lines.toArray(new String[0]);
+    }
+
+    private void disassemble(byte[] code, List<String> lines, List<Integer> bcis) {
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = u1(code, pc);
+            String name = Opcodes.name(opcode);
+            StringBuilder line = new StringBuilder(String.format("%8d: ", pc));
+            List<String> rows = new ArrayList<>();    //switch指令的各个分支，每个分支单独一行
+            bcis.add(pc);
+            if(name == null) {    //无法识别的指令，后面的内容已经没法正确解析了
+                lines.add(line.append("<无法识别的指令 ").append(opcode).append('>').toString());
+                return;
+            }
+            switch (Opcodes.operand(opcode)) {
+                case Opcodes.NONE:
+                    line.append(name);
+                    pc += 1;
+                    break;
+                case Opcodes.BYTE:
+                    mnemonic(line, name).append(code[pc + 1]);
+                    pc += 2;
+                    break;
+                case Opcodes.SHORT:
+                    mnemonic(line, name).append(s2(code, pc + 1));
+                    pc += 3;
+                    break;
+                case Opcodes.CONSTANT_BYTE:
+                    this.constant(mnemonic(line, name), "#" + u1(code, pc + 1), u1(code, pc + 1));
+                    pc += 2;
+                    break;
+                case Opcodes.CONSTANT:
+                    this.constant(mnemonic(line, name), "#" + u2(code, pc + 1), u2(code, pc + 1));
+                    pc += 3;
+                    break;
+                case Opcodes.LOCAL:
+                    mnemonic(line, name).append(u1(code, pc + 1));
+                    pc += 2;
+                    break;
+                case Opcodes.IINC:
+                    mnemonic(line, name).append(u1(code, pc + 1)).append(", ").append(code[pc + 2]);
+                    pc += 3;
+                    break;
+                case Opcodes.BRANCH:
+                    mnemonic(line, name).append(pc + s2(code, pc + 1));
+                    pc += 3;
+                    break;
+                case Opcodes.BRANCH_WIDE:
+                    mnemonic(line, name).append(pc + s4(code, pc + 1));
+                    pc += 5;
+                    break;
+                case Opcodes.INVOKE_INTERFACE:
+                    this.constant(mnemonic(line, name), "#" + u2(code, pc + 1) + ",  " + u1(code, pc + 3), u2(code, pc + 1));
+                    pc += 5;
+                    break;
+                case Opcodes.INVOKE_DYNAMIC:
+                    this.constant(mnemonic(line, name), "#" + u2(code, pc + 1) + ",  0", u2(code, pc + 1));
+                    pc += 5;
+                    break;
+                case Opcodes.NEW_ARRAY:
+                    int type = u1(code, pc + 1);
+                    mnemonic(line, name).append(' ').append(type < ARRAY_TYPES.length && ARRAY_TYPES[type] != null ? ARRAY_TYPES[type] : type);
+                    pc += 2;
+                    break;
+                case Opcodes.MULTI_NEW_ARRAY:
+                    this.constant(mnemonic(line, name), "#" + u2(code, pc + 1) + ",  " + u1(code, pc + 3), u2(code, pc + 1));
+                    pc += 4;
+                    break;
+                case Opcodes.WIDE:
+                    int modified = u1(code, pc + 1);
+                    mnemonic(line, Opcodes.name(modified) + "_w").append(u2(code, pc + 2));
+                    if(modified == 132) line.append(", ").append(s2(code, pc + 4));    //iinc_w
+                    pc += modified == 132 ? 6 : 4;
+                    break;
+                case Opcodes.TABLE_SWITCH:
+                    pc = tableSwitch(code, pc, mnemonic(line, name), rows);
+                    break;
+                case Opcodes.LOOKUP_SWITCH:
+                    pc = lookupSwitch(code, pc, mnemonic(line, name), rows);
+                    break;
+            }
+            lines.add(line.toString());
+            for (String row : rows) {
+                lines.add(row);
+                bcis.add(-1);
+            }
+        }
+    }
+
+    private static int tableSwitch(byte[] code, int pc, StringBuilder header, List<String> rows) {
+        int base = (pc + 4) & ~3;    //操作数按4字节对齐
+        int low = s4(code, base + 4), high = s4(code, base + 8);
+        header.append("{ // ").append(low).append(" to ").append(high);
+        for (int i = 0; i <= high - low; i++)
+            rows.add(String.format("%22d: %d", low + i, pc + s4(code, base + 12 + i * 4)));
+        switchEnd(code, pc, base, rows);
+        return base + 12 + (high - low + 1) * 4;
+    }
+
+    private static int lookupSwitch(byte[] code, int pc, StringBuilder header, List<String> rows) {
+        int base = (pc + 4) & ~3;
+        int pairs = s4(code, base + 4);
+        header.append("{ // ").append(pairs);
+        for (int i = 0; i < pairs; i++)
+            rows.add(String.format("%22d: %d", s4(code, base + 8 + i * 8), pc + s4(code, base + 12 + i * 8)));
+        switchEnd(code, pc, base, rows);
+        return base + 8 + pairs * 8;
+    }
+
+    private static void switchEnd(byte[] code, int pc, int base, List<String> rows) {
+        rows.add(String.format("%22s: %d", "default", pc + s4(code, base)));
+        rows.add("          }");
+    }
+
+    private static StringBuilder mnemonic(StringBuilder line, String name) {
+        return line.append(String.format("%-13s ", name));
+    }
+
+    /**
+     * 输出引用常量池的操作数，后面跟上常量的内容作为注释
+     */
+    private void constant(StringBuilder line, String operand, int index) {
+        line.append(operand);
+        do line.append(' ');
+        while (line.length() < COMMENT_COLUMN);
+        line.append("// ").append(this.constantText(index));
+        while (line.charAt(line.length() - 1) == ' ') line.setLength(line.length() - 1);    //javap会去掉行尾的空白
+    }
+
+    private String constantText(int index) {
+        if(index <= 0 || index >= pool.size()) return "#" + index;
+        long value = pool.value(index);
+        switch (pool.tag(index)) {
+            case ConstantPool.CLASS: return "class " + quoteClass(pool.className(index));
+            case ConstantPool.STRING: return "String " + escape(pool.utf8((int) value));
+            case ConstantPool.INTEGER: return "int " + (int) value;
+            case ConstantPool.FLOAT: return "float " + Float.intBitsToFloat((int) value) + "f";
+            case ConstantPool.LONG: return "long " + value + "l";
+            case ConstantPool.DOUBLE: return "double " + Double.longBitsToDouble(value) + "d";
+            case ConstantPool.FIELD_REF: return "Field " + this.member(index);
+            case ConstantPool.METHOD_REF: return "Method " + this.member(index);
+            case ConstantPool.INTERFACE_METHOD_REF: return "InterfaceMethod " + this.member(index);
+            case ConstantPool.METHOD_TYPE: return "MethodType " + pool.utf8((int) value);
+            case ConstantPool.METHOD_HANDLE:
+                int kind = pool.first(index);
+                return "MethodHandle " + (kind < REFERENCE_KINDS.length ? REFERENCE_KINDS[kind] : kind) + " " + this.member(pool.second(index));
+            case ConstantPool.DYNAMIC: return "Dynamic #" + pool.first(index) + ":" + this.nameAndType(pool.second(index));
+            case ConstantPool.INVOKE_DYNAMIC: return "InvokeDynamic #" + pool.first(index) + ":" + this.nameAndType(pool.second(index));
+            default: return "#" + index;
+        }
+    }
+
+    /**
+     * 字段或者方法引用，如 java/lang/Object."<init>":()V，当前类自己的成员省略类名
+     */
+    private String member(int index) {
+        String owner = pool.className(pool.first(index));
+        return (owner.equals(classFile.getThisClass()) ? "" : quoteClass(owner) + ".") + this.nameAndType(pool.second(index));
+    }
+
+    private String nameAndType(int index) {
+        String name = pool.utf8(pool.first(index));
+        return (isIdentifier(name) ? name : "\"" + name + "\"") + ":" + pool.utf8(pool.second(index));
+    }
+
+    private static String quoteClass(String name) {
+        return name.startsWith("[") ? "\"" + name + "\"" : name;
+    }
+
+    private static boolean isIdentifier(String name) {
+        if(name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) return false;
+        for (int i = 1; i < name.length(); i++)
+            if(!Character.isJavaIdentifierPart(name.charAt(i))) return false;
+        return true;
+    }
+
+    private static String escape(String text) {
+        StringBuilder builder = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '\t': builder.append("\\t"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\b': builder.append("\\b"); break;
+                case '\f': builder.append("\\f"); break;
+                case '"': builder.append("\\\""); break;
+                case '\'': builder.append("\\'"); break;
+                case '\\': builder.append("\\\\"); break;
+                default:
+                    if(c < 0x20) builder.append(String.format("\\u%04x", (int) c));
+                    else builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private String classDeclaration() {
+        int flags = classFile.getAccessFlags();
+        boolean isInterface = (flags & 0x0200) != 0;
+        StringBuilder builder = new StringBuilder();
+        if((flags & 0x0001) != 0) builder.append("public ");
+        if((flags & 0x0010) != 0 && !isInterface) builder.append("final ");
+        if((flags & 0x0400) != 0 && !isInterface) builder.append("abstract ");
+        builder.append(isInterface ? "interface " : "class ").append(javaName(classFile.getThisClass()));
+        String superClass = classFile.getSuperClass();
+        if(!isInterface && superClass != null && !superClass.equals("java/lang/Object"))
+            builder.append(" extends ").append(javaName(superClass));
+        String[] interfaces = classFile.getInterfaces();
+        for (int i = 0; i < interfaces.length; i++)
+            builder.append(i == 0 ? (isInterface ? " extends " : " implements ") : ", ").append(javaName(interfaces[i]));
+        return builder.toString();
+    }
+
+    private String methodDeclaration(MethodInfo method) {
+        if(method.getName().equals("<clinit>")) return "static {};";
+        int flags = method.getAccessFlags();
+        StringBuilder builder = new StringBuilder(modifiers(flags, METHOD_MODIFIERS));
+        //接口中有方法体的实例方法是默认方法
+        if((classFile.getAccessFlags() & 0x0200) != 0 && (flags & (0x0400 | 0x0008 | 0x0002)) == 0)
+            builder.append("default ");
+        String descriptor = method.getDescriptor();
+        if(method.getName().equals("<init>")) builder.append(javaName(classFile.getThisClass()));
+        else builder.append(typeName(descriptor.substring(descriptor.indexOf(')') + 1))).append(' ').append(method.getName());
+        String parameters = String.join(", ", MethodInfo.parameterTypes(descriptor));
+        if((flags & 0x0080) != 0 && parameters.endsWith("[]"))    //可变参数
+            parameters = parameters.substring(0, parameters.length() - 2) + "...";
+        builder.append('(').append(parameters).append(')');
+        String[] exceptions = method.getExceptions();
+        for (int i = 0; i < exceptions.length; i++)
+            builder.append(i == 0 ? " throws " : ", ").append(javaName(exceptions[i]));
+        return builder.append(';').toString();
+    }
+
+    private static final int[] FIELD_MODIFIERS = {0x0001, 0x0002, 0x0004, 0x0008, 0x0010, 0x0040, 0x0080};
+    private static final int[] METHOD_MODIFIERS = {0x0001, 0x0002, 0x0004, 0x0008, 0x0010, 0x0020, 0x0100, 0x0400};
+
+    private static String modifiers(int flags, int[] order) {
+        StringBuilder builder = new StringBuilder();
+        for (int flag : order) {
+            if((flags & flag) == 0) continue;
+            switch (flag) {
+                case 0x0001: builder.append("public "); break;
+                case 0x0002: builder.append("private "); break;
+                case 0x0004: builder.append("protected "); break;
+                case 0x0008: builder.append("static "); break;
+                case 0x0010: builder.append("final "); break;
+                case 0x0020: builder.append("synchronized "); break;
+                case 0x0040: builder.append(order == FIELD_MODIFIERS ? "volatile " : ""); break;
+                case 0x0080: builder.append(order == FIELD_MODIFIERS ? "transient " : ""); break;
+                case 0x0100: builder.append("native "); break;
+                case 0x0400: builder.append("abstract "); break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String typeName(String descriptor) {
+        return MethodInfo.parameterTypes("(" + descriptor + ")").get(0);
+    }
+
+    private static String javaName(String internalName) {
+        return internalName.replace('/', '.');
+    }
+
+    private static int u1(byte[] code, int i) {
+        return code[i] & 0xFF;
+    }
+
+    private static int u2(byte[] code, int i) {
+        return (code[i] & 0xFF) << 8 | (code[i + 1] & 0xFF);
+    }
+
+    private static int s2(byte[] code, int i) {
+        return (short) u2(code, i);
+    }
+
+    private static int s4(byte[] code, int i) {
+        return u2(code, i) << 16 | u2(code, i + 2);
+    }
+
+    /**
+     * 反汇编时插入的额外标注，每条标注单独作为一个注释
+     */
+    public interface Annotator {
+        /**
+         * 方法声明下面的标注
+         */
+        List<String> methodNotes(MethodInfo method);
+
+        /**
+         * 某条指令后面的标注
+         */
+        List<String> instructionNotes(MethodInfo method, int bci);
+    }
+
+    /**
+     * 反汇编文本，以及每一行所属的方法，用于双击时展开或者折叠对应的方法
+     */
+    public static class Listing {
+        private final String text;
+        private final int[] owners;
+
+        Listing(String text, int[] owners) {
+            this.text = text;
+            this.owners = owners;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * 某一行属于哪个方法，只有方法的声明、标注和Code这几行属于方法
+         * @param line 行号（从0开始）
+         * @return 方法在类文件中的位置，类声明的几行返回CLASS_HEADER，其他行返回-1
+         */
+        public int methodAt(int line) {
+            return line >= 0 && line < owners.length ? owners[line] : -1;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.intellij.manage.classfile;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 解析后的.class文件
+ */
+public class ClassFile {
+    //描述符和泛型签名中出现的类名，如 (Lcom/test/Foo;)V 或者 Ljava/util/List<Lcom/test/Bar;>;
+    private static final Pattern DESCRIPTOR_CLASS = Pattern.compile("L([^;<>()\\[\\s]+)[;<]");
+
+    private final int minorVersion;
+    private final int majorVersion;
+    private final ConstantPool constantPool;
+    private final int accessFlags;
+    private final String thisClass;
+    private final String superClass;
+    private final String[] interfaces;
+    private final List<FieldInfo> fields;
+    private final List<MethodInfo> methods;
+    private final String sourceFile;    //SourceFile属性，编译时使用了-g:none则为null
+
+    ClassFile(int minorVersion, int majorVersion, ConstantPool constantPool, int accessFlags, String thisClass,
+              String superClass, String[] interfaces, List<FieldInfo> fields, List<MethodInfo> methods, String sourceFile) {
+        this.minorVersion = minorVersion;
+        this.majorVersion = majorVersion;
+        this.constantPool = constantPool;
+        this.accessFlags = accessFlags;
+        this.thisClass = thisClass;
+        this.superClass = superClass;
+        this.interfaces = interfaces;
+        this.fields = fields;
+        this.methods = methods;
+        this.sourceFile = sourceFile;
+    }
+
+    /**
+     * 统计当前类引用到的全部其他类（内部形式的类名），包括类常量以及所有描述符、签名中出现的类型，
+     * 用于增量编译时计算类与类之间的依赖关系。
+     * @return 被引用的类名集合
+     */
+    public Set<String> referencedClasses() {
+        Set<String> result = new TreeSet<>();
+        for (int i = 1; i < constantPool.size(); i++) {
+            switch (constantPool.tag(i)) {
+                case ConstantPool.CLASS:
+                    String name = constantPool.className(i);
+                    if(name.startsWith("[")) collectDescriptor(name, result);   //数组类型的类常量是描述符形式
+                    else result.add(name);
+                    break;
+                case ConstantPool.UTF8:
+                    collectDescriptor(constantPool.utf8(i), result);
+                    break;
+            }
+        }
+        result.remove(thisClass);
+        return result;
+    }
+
+    private static void collectDescriptor(String descriptor, Set<String> result) {
+        if(descriptor.indexOf('L') < 0 || descriptor.indexOf(';') < 0) return;
+        Matcher matcher = DESCRIPTOR_CLASS.matcher(descriptor);
+        while (matcher.find())
+            result.add(matcher.group(1));
+    }
+
+    public int getMinorVersion() {
+        return minorVersion;
+    }
+
+    public int getMajorVersion() {
+        return majorVersion;
+    }
+
+    public ConstantPool getConstantPool() {
+        return constantPool;
+    }
+
+    public int getAccessFlags() {
+        return accessFlags;
+    }
+
+    public String getThisClass() {
+        return thisClass;
+    }
+
+    public String getSuperClass() {
+        return superClass;
+    }
+
+    public String[] getInterfaces() {
+        return interfaces;
+    }
+
+    public List<FieldInfo> getFields() {
+        return fields;
+    }
+
+    public List<MethodInfo> getMethods() {
+        return methods;
+    }
+
+    public String getSourceFile() {
+        return sourceFile;
+    }
+}
@@ -0,0 +1,128 @@
+package com.intellij.manage.classfile;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * .class文件读取器，直接在IDE进程内解析字节码文件，不需要借助javap等外部工具
+ */
+public class ClassFileReader {
+
+    private ClassFileReader(){}
+
+    public static ClassFile read(Path path) throws IOException {
+        return read(Files.readAllBytes(path));
+    }
+
+    public static ClassFile read(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if(in.readInt() != 0xCAFEBABE) throw new IOException("不是有效的.class文件！");
+        int minor = in.readUnsignedShort();
+        int major = in.readUnsignedShort();
+        ConstantPool pool = new ConstantPool(in);
+        int accessFlags = in.readUnsignedShort();
+        String thisClass = pool.className(in.readUnsignedShort());
+        String superClass = pool.className(in.readUnsignedShort());
+        String[] interfaces = new String[in.readUnsignedShort()];
+        for (int i = 0; i < interfaces.length; i++)
+            interfaces[i] = pool.className(in.readUnsignedShort());
+        int fieldCount = in.readUnsignedShort();
+        List<FieldInfo> fields = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++)
+            fields.add(readField(in, pool));
+        int methodCount = in.readUnsignedShort();
+        List<MethodInfo> methods = new ArrayList<>(methodCount);
+        for (int i = 0; i < methodCount; i++)
+            methods.add(readMethod(in, pool));
+        String sourceFile = null;
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String name = pool.utf8(in.readUnsignedShort());
+            int length = in.readInt();
+            if(name.equals("SourceFile")) sourceFile = pool.utf8(in.readUnsignedShort());
+            else in.skipBytes(length);
+        }
+        return new ClassFile(minor, major, pool, accessFlags, thisClass, superClass, interfaces, fields, methods, sourceFile);
+    }
+
+    /**
+     * 读取一个字段，只解析ConstantValue属性，其他属性直接跳过
+     */
+    private static FieldInfo readField(DataInputStream in, ConstantPool pool) throws IOException {
+        int accessFlags = in.readUnsignedShort();
+        String name = pool.utf8(in.readUnsignedShort());
+        String descriptor = pool.utf8(in.readUnsignedShort());
+        String constantValue = null;
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attribute = pool.utf8(in.readUnsignedShort());
+            int length = in.readInt();
+            if(!attribute.equals("ConstantValue")) {
+                in.skipBytes(length);
+                continue;
+            }
+            int index = in.readUnsignedShort();
+            int tag = pool.tag(index);
+            constantValue = tag == ConstantPool.STRING ? "\"" + pool.utf8((int) pool.value(index)) + "\""
+                    : tag + ":" + pool.value(index);
+        }
+        return new FieldInfo(accessFlags, name, descriptor, constantValue);
+    }
+
+    /**
+     * 读取一个方法，解析Code属性中的字节码、异常表和行号表，以及方法声明的异常（Exceptions属性），其他属性直接跳过
+     */
+    private static MethodInfo readMethod(DataInputStream in, ConstantPool pool) throws IOException {
+        int accessFlags = in.readUnsignedShort();
+        String name = pool.utf8(in.readUnsignedShort());
+        String descriptor = pool.utf8(in.readUnsignedShort());
+        byte[] code = null;
+        int[] exceptionTable = new int[0];
+        String[] exceptions = new String[0];
+        List<int[]> lineNumbers = new ArrayList<>();
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attribute = pool.utf8(in.readUnsignedShort());
+            int length = in.readInt();
+            if(attribute.equals("Exceptions")) {
+                exceptions = new String[in.readUnsignedShort()];
+                for (int j = 0; j < exceptions.length; j++)
+                    exceptions[j] = pool.className(in.readUnsignedShort());
+                continue;
+            }
+            if(!attribute.equals("Code")) {
+                in.skipBytes(length);
+                continue;
+            }
+            in.skipBytes(4);    //max_stack、max_locals
+            code = new byte[in.readInt()];
+            in.readFully(code);
+            exceptionTable = new int[in.readUnsignedShort() * 4];    //起始位置、结束位置、处理位置、捕获的类型
+            for (int j = 0; j < exceptionTable.length; j++)
+                exceptionTable[j] = in.readUnsignedShort();
+            int codeAttributeCount = in.readUnsignedShort();
+            for (int j = 0; j < codeAttributeCount; j++) {
+                String codeAttribute = pool.utf8(in.readUnsignedShort());
+                int codeAttributeLength = in.readInt();
+                if(!codeAttribute.equals("LineNumberTable")) {
+                    in.skipBytes(codeAttributeLength);
+                    continue;
+                }
+                int count = in.readUnsignedShort();
+                for (int k = 0; k < count; k++)
+                    lineNumbers.add(new int[]{in.readUnsignedShort(), in.readUnsignedShort()});
+            }
+        }
+        int[] startPcs = new int[lineNumbers.size()], lines = new int[lineNumbers.size()];
+        for (int i = 0; i < lineNumbers.size(); i++) {
+            startPcs[i] = lineNumbers.get(i)[0];
+            lines[i] = lineNumbers.get(i)[1];
+        }
+        return new MethodInfo(accessFlags, name, descriptor, code, exceptionTable, exceptions, startPcs, lines);
+    }
+}
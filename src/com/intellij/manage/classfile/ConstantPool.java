@@ -0,0 +1,119 @@
+package com.intellij.manage.classfile;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * .class文件中的常量池，按照JVM规范（第4.4节）进行解析。
+ * 为了节省内存，所有常量都放在几个平行数组中，不为每个常量单独创建对象。
+ */
+public class ConstantPool {
+    public static final int UTF8 = 1;
+    public static final int INTEGER = 3;
+    public static final int FLOAT = 4;
+    public static final int LONG = 5;
+    public static final int DOUBLE = 6;
+    public static final int CLASS = 7;
+    public static final int STRING = 8;
+    public static final int FIELD_REF = 9;
+    public static final int METHOD_REF = 10;
+    public static final int INTERFACE_METHOD_REF = 11;
+    public static final int NAME_AND_TYPE = 12;
+    public static final int METHOD_HANDLE = 15;
+    public static final int METHOD_TYPE = 16;
+    public static final int DYNAMIC = 17;
+    public static final int INVOKE_DYNAMIC = 18;
+    public static final int MODULE = 19;
+    public static final int PACKAGE = 20;
+
+    private final byte[] tags;
+    private final String[] strings;   //UTF8常量的内容
+    private final long[] values;      //数值常量的原始值，或者是引用类常量的两个索引（高32位、低32位）
+
+    ConstantPool(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        tags = new byte[count];
+        strings = new String[count];
+        values = new long[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            tags[i] = (byte) tag;
+            switch (tag) {
+                case UTF8:
+                    strings[i] = in.readUTF();
+                    break;
+                case INTEGER:
+                case FLOAT:
+                    values[i] = in.readInt();
+                    break;
+                case LONG:
+                case DOUBLE:
+                    values[i] = in.readLong();
+                    i++;    //long和double占用两个常量池位置
+                    break;
+                case CLASS:
+                case STRING:
+                case METHOD_TYPE:
+                case MODULE:
+                case PACKAGE:
+                    values[i] = in.readUnsignedShort();
+                    break;
+                case METHOD_HANDLE:
+                    values[i] = ((long) in.readUnsignedByte() << 32) | in.readUnsignedShort();
+                    break;
+                case FIELD_REF:
+                case METHOD_REF:
+                case INTERFACE_METHOD_REF:
+                case NAME_AND_TYPE:
+                case DYNAMIC:
+                case INVOKE_DYNAMIC:
+                    values[i] = ((long) in.readUnsignedShort() << 32) | in.readUnsignedShort();
+                    break;
+                default:
+                    throw new IOException("无法识别的常量池类型：" + tag + "（位置 #" + i + "）");
+            }
+        }
+    }
+
+    public int size() {
+        return tags.length;
+    }
+
+    public int tag(int index) {
+        return tags[index];
+    }
+
+    public String utf8(int index) {
+        return strings[index];
+    }
+
+    /**
+     * 获取类常量对应的类名（内部形式，如java/lang/String）
+     * @param index 常量池索引
+     * @return 类名
+     */
+    public String className(int index) {
+        return index == 0 ? null : strings[(int) values[index]];
+    }
+
+    /**
+     * 对于只有一个引用的常量（Class、String、MethodType等），获取其引用的索引；对于数值常量，获取其原始值
+     */
+    public long value(int index) {
+        return values[index];
+    }
+
+    /**
+     * 对于包含两个引用的常量（Fieldref、NameAndType等），获取第一个索引
+     */
+    public int first(int index) {
+        return (int) (values[index] >>> 32);
+    }
+
+    /**
+     * 对于包含两个引用的常量（Fieldref、NameAndType等），获取第二个索引
+     */
+    public int second(int index) {
+        return (int) (values[index] & 0xFFFF);
+    }
+}
@@ -0,0 +1,39 @@
+package com.intellij.manage.classfile;
+
+/**
+ * .class文件中的一个字段，只保留访问标志、名称、描述符和常量值
+ */
+public class FieldInfo {
+    private final int accessFlags;
+    private final String name;
+    private final String descriptor;
+    private final String constantValue;     //ConstantValue属性，编译期常量才有，否则为null
+
+    FieldInfo(int accessFlags, String name, String descriptor, String constantValue) {
+        this.accessFlags = accessFlags;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.constantValue = constantValue;
+    }
+
+    public int getAccessFlags() {
+        return accessFlags;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * 字段的常量值（static final的基本类型或字符串常量），编译器会把它直接内联到使用它的类中。
+     * 数值常量以常量池类型加原始值的形式表示，只用于比较常量值是否发生了变化。
+     * @return 常量值，不是编译期常量时返回null
+     */
+    public String getConstantValue() {
+        return constantValue;
+    }
+}
@@ -0,0 +1,131 @@
+package com.intellij.manage.classfile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * .class文件中的一个方法，保留了字节码、异常表和行号表（LineNumberTable），
+ * 行号表用于把字节码位置（bci）对应回源代码中的行，字节码在需要展示时才会被反汇编。
+ */
+public class MethodInfo {
+    private final int accessFlags;
+    private final String name;
+    private final String descriptor;
+    private final byte[] code;        //没有Code属性（抽象方法、本地方法）时为null
+    private final int[] exceptionTable;   //每四个数为一项：起始位置、结束位置、处理位置、捕获类型的常量池索引（0表示any）
+    private final String[] exceptions;    //方法声明抛出的异常（内部形式的类名）
+    private final int[] startPcs;     //行号表中每一项的起始位置和对应的行号
+    private final int[] lines;
+
+    MethodInfo(int accessFlags, String name, String descriptor, byte[] code, int[] exceptionTable,
+               String[] exceptions, int[] startPcs, int[] lines) {
+        this.accessFlags = accessFlags;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.code = code;
+        this.exceptionTable = exceptionTable;
+        this.exceptions = exceptions;
+        this.startPcs = startPcs;
+        this.lines = lines;
+    }
+
+    /**
+     * 获取某个字节码位置对应的源代码行号
+     * @param bci 字节码位置
+     * @return 行号，没有行号信息时返回-1
+     */
+    public int lineOf(int bci) {
+        int line = -1, start = -1;
+        for (int i = 0; i < startPcs.length; i++) {
+            //行号表不保证有序，取起始位置不超过bci的最后一个条目
+            if(startPcs[i] <= bci && startPcs[i] >= start) {
+                start = startPcs[i];
+                line = lines[i];
+            }
+        }
+        return line;
+    }
+
+    /**
+     * 方法体的第一行（第一条语句所在的行，不是方法声明所在的行）
+     * @return 行号，没有行号信息时返回-1
+     */
+    public int firstLine() {
+        int first = -1;
+        for (int line : lines)
+            if(first < 0 || line < first) first = line;
+        return first;
+    }
+
+    /**
+     * 把方法描述符中的参数转换为Java语法的类型名称，如 ([Ljava/lang/String;I)V 转换为 [java.lang.String[], int]
+     * @param descriptor 方法描述符
+     * @return 参数类型列表
+     */
+    public static List<String> parameterTypes(String descriptor) {
+        List<String> types = new ArrayList<>();
+        int i = descriptor.indexOf('(') + 1;
+        while (i > 0 && i < descriptor.length() && descriptor.charAt(i) != ')') {
+            int dimensions = 0;
+            while (descriptor.charAt(i) == '[') {
+                dimensions++;
+                i++;
+            }
+            String type;
+            if(descriptor.charAt(i) == 'L') {
+                int end = descriptor.indexOf(';', i);
+                type = descriptor.substring(i + 1, end).replace('/', '.');
+                i = end + 1;
+            } else {
+                type = primitiveName(descriptor.charAt(i++));
+            }
+            types.add(type + "[]".repeat(dimensions));
+        }
+        return types;
+    }
+
+    private static String primitiveName(char c) {
+        switch (c) {
+            case 'B': return "byte";
+            case 'C': return "char";
+            case 'D': return "double";
+            case 'F': return "float";
+            case 'I': return "int";
+            case 'J': return "long";
+            case 'S': return "short";
+            case 'Z': return "boolean";
+            default: return "void";
+        }
+    }
+
+    public int getAccessFlags() {
+        return accessFlags;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * 字节码长度，没有Code属性（抽象方法、本地方法）时为-1
+     */
+    public int getCodeLength() {
+        return code == null ? -1 : code.length;
+    }
+
+    public byte[] getCode() {
+        return code;
+    }
+
+    public int[] getExceptionTable() {
+        return exceptionTable;
+    }
+
+    public String[] getExceptions() {
+        return exceptions;
+    }
+}
@@ -0,0 +1,85 @@
+package com.intellij.manage.classfile;
+
+/**
+ * JVM指令表（JVM规范第6.5节），记录每条指令的助记符以及操作数的格式，供反汇编使用
+ */
+final class Opcodes {
+    static final int NONE = 0;              //没有操作数
+    static final int BYTE = 1;              //一个有符号字节（bipush）
+    static final int SHORT = 2;             //一个有符号短整数（sipush）
+    static final int CONSTANT_BYTE = 3;     //一个字节的常量池索引（ldc）
+    static final int CONSTANT = 4;          //两个字节的常量池索引
+    static final int LOCAL = 5;             //一个字节的局部变量位置
+    static final int IINC = 6;              //局部变量位置和增量
+    static final int BRANCH = 7;            //两个字节的跳转偏移
+    static final int BRANCH_WIDE = 8;       //四个字节的跳转偏移（goto_w、jsr_w）
+    static final int INVOKE_INTERFACE = 9;  //常量池索引、参数个数和一个0
+    static final int INVOKE_DYNAMIC = 10;   //常量池索引和两个0
+    static final int NEW_ARRAY = 11;        //基本类型数组的类型编号
+    static final int MULTI_NEW_ARRAY = 12;  //常量池索引和数组维数
+    static final int TABLE_SWITCH = 13;
+    static final int LOOKUP_SWITCH = 14;
+    static final int WIDE = 15;             //扩展下一条指令的局部变量位置为两个字节
+
+    private static final String[] NAMES = ("nop aconst_null iconst_m1 iconst_0 iconst_1 iconst_2 iconst_3 iconst_4 iconst_5 " +
+            "lconst_0 lconst_1 fconst_0 fconst_1 fconst_2 dconst_0 dconst_1 bipush sipush ldc ldc_w ldc2_w " +
+            "iload lload fload dload aload iload_0 iload_1 iload_2 iload_3 lload_0 lload_1 lload_2 lload_3 " +
+            "fload_0 fload_1 fload_2 fload_3 dload_0 dload_1 dload_2 dload_3 aload_0 aload_1 aload_2 aload_3 " +
+            "iaload laload faload daload aaload baload caload saload istore lstore fstore dstore astore " +
+            "istore_0 istore_1 istore_2 istore_3 lstore_0 lstore_1 lstore_2 lstore_3 fstore_0 fstore_1 fstore_2 fstore_3 " +
+            "dstore_0 dstore_1 dstore_2 dstore_3 astore_0 astore_1 astore_2 astore_3 " +
+            "iastore lastore fastore dastore aastore bastore castore sastore pop pop2 dup dup_x1 dup_x2 dup2 dup2_x1 dup2_x2 swap " +
+            "iadd ladd fadd dadd isub lsub fsub dsub imul lmul fmul dmul idiv ldiv fdiv ddiv irem lrem frem drem " +
+            "ineg lneg fneg dneg ishl lshl ishr lshr iushr lushr iand land ior lor ixor lxor iinc " +
+            "i2l i2f i2d l2i l2f l2d f2i f2l f2d d2i d2l d2f i2b i2c i2s lcmp fcmpl fcmpg dcmpl dcmpg " +
+            "ifeq ifne iflt ifge ifgt ifle if_icmpeq if_icmpne if_icmplt if_icmpge if_icmpgt if_icmple if_acmpeq if_acmpne " +
+            "goto jsr ret tableswitch lookupswitch ireturn lreturn freturn dreturn areturn return " +
+            "getstatic putstatic getfield putfield invokevirtual invokespecial invokestatic invokeinterface invokedynamic " +
+            "new newarray anewarray arraylength athrow checkcast instanceof monitorenter monitorexit wide multianewarray " +
+            "ifnull ifnonnull goto_w jsr_w").split(" ");
+
+    private Opcodes(){}
+
+    /**
+     * 指令的助记符
+     * @param opcode 操作码
+     * @return 助记符，不是有效的指令时返回null
+     */
+    static String name(int opcode) {
+        return opcode < NAMES.length ? NAMES[opcode] : null;
+    }
+
+    /**
+     * 指令操作数的格式
+     * @param opcode 操作码
+     * @return 格式，见本类中的常量
+     */
+    static int operand(int opcode) {
+        switch (opcode) {
+            case 16: return BYTE;
+            case 17: return SHORT;
+            case 18: return CONSTANT_BYTE;
+            case 19: case 20:                   //ldc_w、ldc2_w
+            case 178: case 179: case 180: case 181:
+            case 182: case 183: case 184:
+            case 187: case 189: case 192: case 193:
+                return CONSTANT;
+            case 21: case 22: case 23: case 24: case 25:
+            case 54: case 55: case 56: case 57: case 58:
+            case 169:                           //ret
+                return LOCAL;
+            case 132: return IINC;
+            case 198: case 199: return BRANCH;
+            case 200: case 201: return BRANCH_WIDE;
+            case 170: return TABLE_SWITCH;
+            case 171: return LOOKUP_SWITCH;
+            case 185: return INVOKE_INTERFACE;
+            case 186: return INVOKE_DYNAMIC;
+            case 188: return NEW_ARRAY;
+            case 196: return WIDE;
+            case 197: return MULTI_NEW_ARRAY;
+            default:
+                return opcode >= 153 && opcode <= 168 ? BRANCH : NONE;    //if系列指令、goto、jsr
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package com.intellij.window;
 
-import com.intellij.manage.ProcessExecuteEngine;
+import com.intellij.window.component.JCodeArea;
 import com.intellij.window.enums.CloseAction;
 import com.intellij.window.service.MainService;
 
 import javax.swing.*;
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeCellRenderer;
 import javax.swing.tree.TreePath;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.File;
 import java.util.LinkedList;
 import java.util.Objects;
@@ -56,6 +59,46 @@ public class MainWindow extends AbstractWindow <MainService>{
             centerPanel.setDividerLocation(200);   //中间的分割条默认在 x = 200 位置上
             panel.setTopComponent(centerPanel);
         });
+
+        //最底部是状态栏，展示后台检查等状态信息
+        this.addComponent("main.panel.status", new JPanel(), BorderLayout.SOUTH, this::initStatusBar);
+    }
+
+    /**
+     * 对最底部的状态栏进行初始化
+     * @param panel 状态栏面板
+     */
+    private void initStatusBar(JPanel panel){
+        panel.setPreferredSize(new Dimension(0, 22));
+        panel.setLayout(new BorderLayout());
+        //左侧是后台检查和文件保存的状态
+        JPanel statePanel = new JPanel(new BorderLayout());
+        panel.add(statePanel, BorderLayout.WEST);
+        this.addComponent(statePanel, "main.label.check", new JLabel(" "), BorderLayout.WEST, label -> {
+            label.setBorder(BorderFactory.createEmptyBorder(0, 8, 0, 8));
+            label.setToolTipText("后台编译检查状态");
+        });
+        this.addComponent(statePanel, "main.label.save", new JLabel("已保存"), BorderLayout.EAST, label -> {
+            label.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 8));
+            label.setForeground(Color.GRAY);
+            label.setToolTipText("编辑的内容会在停顿下来之后自动保存");
+        });
+        //中间是当前控制台标签页的输出指标
+        this.addComponent(panel, "main.label.console", new JLabel(" "), BorderLayout.CENTER, label -> {
+            label.setForeground(Color.GRAY);
+            label.setToolTipText("控制台输出速率和缓冲区状态，阻塞表示程序输出太快，界面来不及展示");
+        });
+        //右侧是后台任务的进度，没有任务时隐藏
+        JPanel taskPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 1));
+        this.addComponent(panel, "main.panel.task", taskPanel, BorderLayout.EAST, task -> task.setVisible(false));
+        this.addComponent(taskPanel, "main.label.task", new JLabel(" "), label -> {});
+        this.addComponent(taskPanel, "main.progress.task", new JProgressBar(0, 100), bar -> bar.setPreferredSize(new Dimension(120, 14)));
+        this.addComponent(taskPanel, "main.button.cancel", new JButton("取消"), button -> {
+            button.setPreferredSize(new Dimension(60, 18));
+            button.setToolTipText("取消当前的后台任务");
+            button.addActionListener(e -> service.cancelCurrentTask());
+        });
+        service.setupTaskIndicator();
     }
 
     /**
@@ -81,11 +124,40 @@ public class MainWindow extends AbstractWindow <MainService>{
             }
             button.addActionListener(e -> service.runButtonAction());
         });
+        //分析按钮和运行按钮一样会编译运行项目，点击之后选择分析方式：
+        //性能分析在JDK Flight Recorder下运行，程序结束之后展示热点方法和调用树；JIT分析记录编译日志，展示编译层级和内联决策
+        JPopupMenu analyzeMenu = new JPopupMenu();
+        JMenuItem profileItem = new JMenuItem("性能分析（热点方法和调用树）");
+        profileItem.addActionListener(e -> service.profileButtonAction());
+        JMenuItem jitItem = new JMenuItem("JIT分析（编译层级和内联）");
+        jitItem.addActionListener(e -> service.jitButtonAction());
+        analyzeMenu.add(profileItem);
+        analyzeMenu.add(jitItem);
+        this.addComponent(panel, "main.button.profile", new JButton("分析"), button -> {
+            button.setPreferredSize(new Dimension(60, 25));
+            button.setEnabled(!service.getConfigure().getMainClass().isEmpty());
+            button.setToolTipText("运行项目并进行性能分析或者JIT分析");
+            button.addActionListener(e -> analyzeMenu.show(button, 0, button.getHeight()));
+        });
+        //停止按钮用于停止控制台中当前选中的那个运行会话，其他同时运行的程序不受影响
+        this.addComponent(panel, "main.button.stop", new JButton("停止"), button -> {
+            button.setPreferredSize(new Dimension(60, 25));
+            button.setEnabled(false);
+            button.setToolTipText("停止当前控制台标签页中运行的程序");
+            button.addActionListener(e -> service.stopButtonAction());
+        });
         //第二个按钮是构建按钮，通过它就可以快速对项目进行构建了
         this.addComponent(panel, "main.button.build", new JButton("构建"), button -> {
             button.setPreferredSize(new Dimension(60, 25));
             button.addActionListener(e -> service.buildButtonAction());
         });
+        //测试按钮使用测试用例目录中的所有用例批量运行项目，同样需要先配置主类
+        this.addComponent(panel, "main.button.test", new JButton("测试"), button -> {
+            button.setPreferredSize(new Dimension(60, 25));
+            button.setEnabled(!service.getConfigure().getMainClass().isEmpty());
+            button.setToolTipText("使用测试用例目录中的输入文件批量运行，并和期望输出进行比较");
+            button.addActionListener(e -> service.testButtonAction());
+        });
         //第三个是设置按钮，这个按钮也比较简单，直接打开对应的配置对话框就可以了
         this.addComponent(panel, "main.button.settings", new JButton("设置"), button -> {
             button.setPreferredSize(new Dimension(60, 25));
@@ -103,6 +175,18 @@ public class MainWindow extends AbstractWindow <MainService>{
         buildTreeNode(root);
         JTree fileTree = new JTree(root);
         this.mapComponent("main.tree.files", fileTree);
+        //后台检查发现错误的文件（以及包含它们的目录）在文件树中标红
+        fileTree.setCellRenderer(new DefaultTreeCellRenderer() {
+            @Override
+            public Component getTreeCellRendererComponent(JTree tree, Object value, boolean sel, boolean expanded,
+                                                          boolean leaf, int row, boolean hasFocus) {
+                super.getTreeCellRendererComponent(tree, value, sel, expanded, leaf, row, hasFocus);
+                Object data = ((DefaultMutableTreeNode) value).getUserObject();
+                if(data instanceof NodeData && service.hasErrors(((NodeData) data).getFile()))
+                    this.setForeground(new Color(255, 100, 100));
+                return this;
+            }
+        });
         fileTree.addTreeSelectionListener(e -> {
             TreePath treePath = e.getPath();
             StringBuilder filePath = new StringBuilder(this.path);
@@ -118,19 +202,22 @@ public class MainWindow extends AbstractWindow <MainService>{
         createItem.addActionListener(e -> service.createNewFile());
         JMenuItem deleteItem = new JMenuItem("删除");
         deleteItem.addActionListener(e -> service.deleteProjectFile());
+        JMenuItem flushItem = new JMenuItem("写出内存编译结果");
+        flushItem.addActionListener(e -> service.flushMemoryOutput());
         treePopupMenu.add(createItem);
         treePopupMenu.add(deleteItem);
+        treePopupMenu.add(flushItem);
         fileTree.addMouseListener(service.fileTreeRightClick());
         //文件树构造完成后，直接放进滚动面板返回就行了
         return new JScrollPane(fileTree);
     }
 
     /**
-     * 创建右侧编辑板块，用于对项目代码进行编辑操作
+     * 创建右侧编辑板块，用于对项目代码进行编辑操作，打开很大的文件时会切换成只读的大文件查看器
      * @return 编辑板块
      */
-    private JScrollPane createRightPanel(){
-        JTextArea editArea = new JTextArea();
+    private JPanel createRightPanel(){
+        JCodeArea editArea = new JCodeArea();
         this.mapComponent("main.textarea.edit", editArea);
         //快速配置编辑文本域的各项功能
         this.service.setupEditArea();
@@ -143,19 +230,50 @@ public class MainWindow extends AbstractWindow <MainService>{
         }
         //默认情况下无法进行编辑，必须选中文件之后才可以
         editArea.setEditable(false);
-        return new JScrollPane(editArea);
+        JPanel editorPanel = new JPanel(new CardLayout());
+        this.mapComponent("main.panel.editor", editorPanel);
+        editorPanel.add(new JScrollPane(editArea), "editor");
+        return editorPanel;
     }
 
     /**
-     * 创建底部控制台板块，用于展示控制台输出信息
+     * 创建底部控制台板块，每次运行都会在这里打开一个新的标签页，展示对应程序的输出
      * @return 底部板块
      */
-    private JScrollPane createConsole(){
-        JTextArea consoleArea = new JTextArea("控制台中尚未启动任何进程");
-        this.mapComponent("main.textarea.console", consoleArea);
-        consoleArea.setEditable(false);
-        consoleArea.addKeyListener(service.inputRedirect());
-        return new JScrollPane(consoleArea);
+    private JTabbedPane createConsole(){
+        JTabbedPane consoleTabs = new JTabbedPane();
+        this.mapComponent("main.tabs.console", consoleTabs);
+        JTextArea placeholder = new JTextArea("控制台中尚未启动任何进程");
+        placeholder.setEditable(false);
+        consoleTabs.addTab("控制台", new JScrollPane(placeholder));
+        consoleTabs.addChangeListener(e -> service.updateStopButton());
+        //右键标签页可以停止或者关闭对应的运行会话，也可以查看完整的输出历史
+        JPopupMenu consolePopupMenu = new JPopupMenu();
+        JMenuItem stopItem = new JMenuItem("停止");
+        stopItem.addActionListener(e -> service.stopButtonAction());
+        JMenuItem historyItem = new JMenuItem("查看完整输出");
+        historyItem.addActionListener(e -> service.openConsoleHistory());
+        JMenuItem gcItem = new JMenuItem("GC日志分析");
+        gcItem.addActionListener(e -> service.openGcLog());
+        JMenuItem recordItem = new JMenuItem("运行记录对比");
+        recordItem.addActionListener(e -> service.openRunHistory());
+        JMenuItem closeItem = new JMenuItem("关闭标签页");
+        closeItem.addActionListener(e -> service.closeConsoleTab());
+        consolePopupMenu.add(stopItem);
+        consolePopupMenu.add(historyItem);
+        consolePopupMenu.add(gcItem);
+        consolePopupMenu.add(recordItem);
+        consolePopupMenu.add(closeItem);
+        consoleTabs.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = consoleTabs.indexAtLocation(e.getX(), e.getY());
+                if(index < 0 || e.getButton() != MouseEvent.BUTTON3) return;
+                consoleTabs.setSelectedIndex(index);
+                consolePopupMenu.show(consoleTabs, e.getX(), e.getY());
+            }
+        });
+        return consoleTabs;
     }
 
     /**
@@ -188,8 +306,8 @@ public class MainWindow extends AbstractWindow <MainService>{
 
     @Override
     protected boolean onClose() {
-        //关闭之前如果还有运行的项目没有结束，一定要结束掉
-        ProcessExecuteEngine.stopProcess();
+        //关闭之前如果当前项目还有运行的程序没有结束，一定要结束掉，顺便释放编译器占用的资源
+        service.closeProject();
         //然后回到初始界面
         WelcomeWindow window = new WelcomeWindow();
         window.openWindow();
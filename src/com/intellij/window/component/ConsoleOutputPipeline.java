@@ -0,0 +1,322 @@
+package com.intellij.window.component;
+
+import com.intellij.entity.OutputChunk;
+import com.intellij.manage.ConsoleLog;
+
+import javax.swing.*;
+import javax.swing.text.*;
+import java.awt.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 控制台输出管道，程序输出非常快的时候（比如在循环里疯狂打印），如果每读到一块输出就更新一次界面，
+ * 事件分发线程会被大量的小更新淹没，整个IDE都会卡死。所以这里：
+ * - 读取线程只负责把输出片段写入一个有上限的缓冲区，缓冲区满了就阻塞读取线程（背压），
+ *   这样程序自己也会因为输出管道写满而放慢速度，而不是让IDE无限制地堆积内存
+ * - 界面线程以固定的帧率（约30帧每秒）把缓冲区中的片段按序号排好序，批量追加到控制台，每一帧追加的内容也有上限，
+ *   标准输出和错误输出由不同的线程读取，排序之后才能保证它们的交错顺序正确，错误输出会标成红色
+ * - 控制台中只保留最近的MAX_LINES行，全部输出都会写入控制台日志（见ConsoleLog），更早的内容可以在历史记录中查看，
+ *   这样不管程序运行多久、输出多少，控制台占用的内存都是固定的
+ * 同时统计输出速率、缓冲区占用和阻塞次数等指标，方便在状态栏中展示。
+ */
+public class ConsoleOutputPipeline {
+    private static final int FRAME_MILLIS = 33;               //刷新间隔，约30帧每秒
+    private static final int MAX_BUFFER = 1024 * 1024;         //缓冲区最多容纳的字符数量，超过时阻塞写入
+    private static final int MAX_BATCH = 64 * 1024;            //每一帧最多追加到控制台的字符数量
+    private static final int MAX_LINES = 10000;                //控制台中最多保留的行数
+    //不同来源的输出在控制台中的样式
+    private static final Map<OutputChunk.Kind, AttributeSet> STYLES = new EnumMap<>(OutputChunk.Kind.class);
+
+    static {
+        STYLES.put(OutputChunk.Kind.OUTPUT, SimpleAttributeSet.EMPTY);
+        STYLES.put(OutputChunk.Kind.ERROR, style(new Color(230, 80, 80)));
+        STYLES.put(OutputChunk.Kind.INPUT, style(new Color(90, 170, 90)));
+        STYLES.put(OutputChunk.Kind.SYSTEM, style(Color.GRAY));
+    }
+
+    private final JTextPane pane;
+    private final ConsoleLog log;
+    private final Timer timer;
+    private final List<OutputChunk> pending = new ArrayList<>();
+    private int pendingChars = 0;
+    private boolean finished = false;     //输出已经全部写入，缓冲区清空之后就可以停止刷新了
+    private boolean closed = false;       //控制台已经关闭，之后的输出全部丢弃
+
+    //以下是统计指标，读写都在缓冲区的锁中进行
+    private long totalChars = 0;
+    private long blockedCount = 0;
+    private long blockedNanos = 0;
+    private long rateWindowStart = System.nanoTime();
+    private long rateWindowChars = 0;
+    private long charsPerSecond = 0;
+    private long trimmedLines = 0;        //已经从控制台中移除的行数，只在事件分发线程中访问
+    private Runnable metricsListener;
+
+    /**
+     * 创建一个控制台输出管道，并立即开始定时刷新
+     * @param pane 控制台
+     * @param log 控制台日志，所有输出都会完整地写入日志
+     */
+    public ConsoleOutputPipeline(JTextPane pane, ConsoleLog log) {
+        this.pane = pane;
+        this.log = log;
+        this.timer = new Timer(FRAME_MILLIS, e -> this.flush());
+        this.timer.start();
+    }
+
+    private static AttributeSet style(Color color){
+        SimpleAttributeSet set = new SimpleAttributeSet();
+        StyleConstants.setForeground(set, color);
+        return set;
+    }
+
+    /**
+     * 写入一段普通输出
+     * @param text 输出内容
+     */
+    public void write(String text){
+        this.write(new OutputChunk(OutputChunk.Kind.SYSTEM, text));
+    }
+
+    /**
+     * 写入一个输出片段，可以在任意线程中调用，缓冲区满了的时候会阻塞，直到界面线程取走一部分内容
+     * （在事件分发线程中调用时不会阻塞，否则就再也没有线程能取走内容了）
+     * @param chunk 输出片段
+     */
+    public void write(OutputChunk chunk){
+        try {
+            log.append(chunk.getText());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        synchronized (pending) {
+            if(pendingChars >= MAX_BUFFER && !closed && !SwingUtilities.isEventDispatchThread()) {
+                blockedCount++;
+                long start = System.nanoTime();
+                try {
+                    while (pendingChars >= MAX_BUFFER && !closed)
+                        pending.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    blockedNanos += System.nanoTime() - start;
+                }
+            }
+            if(closed) return;
+            pending.add(chunk);
+            int length = chunk.getText().length();
+            pendingChars += length;
+            totalChars += length;
+            rateWindowChars += length;
+        }
+    }
+
+    /**
+     * 所有输出都已经写入了，剩余的内容刷新完之后就停止定时刷新
+     */
+    public void finish(){
+        synchronized (pending) {
+            finished = true;
+        }
+    }
+
+    /**
+     * 关闭管道，丢弃所有尚未展示的输出，唤醒被阻塞的写入线程，并删除控制台日志，控制台标签页关闭时调用
+     */
+    public void close(){
+        synchronized (pending) {
+            closed = true;
+            pending.clear();
+            pendingChars = 0;
+            pending.notifyAll();
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        SwingUtilities.invokeLater(timer::stop);
+    }
+
+    /**
+     * 设定指标监听器，指标每秒更新一次，监听器在事件分发线程中调用
+     * @param metricsListener 监听器
+     */
+    public void setMetricsListener(Runnable metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * 每一帧把缓冲区中的片段按序号排序后批量追加到控制台，只在事件分发线程中执行
+     */
+    private void flush(){
+        List<OutputChunk> batch = null;
+        boolean reset = false, done, metricsUpdated = false;
+        synchronized (pending) {
+            if(!pending.isEmpty()) {
+                pending.sort(Comparator.comparingLong(OutputChunk::getSequence));
+                reset = this.skipToTail();
+                int length = 0, count = 0;
+                while (count < pending.size() && (count == 0 || length + pending.get(count).getText().length() <= MAX_BATCH))
+                    length += pending.get(count++).getText().length();
+                batch = new ArrayList<>(pending.subList(0, count));
+                pending.subList(0, count).clear();
+                pendingChars -= length;
+                pending.notifyAll();
+            }
+            long now = System.nanoTime();
+            if(now - rateWindowStart >= 1000000000L) {
+                charsPerSecond = rateWindowChars * 1000000000L / (now - rateWindowStart);
+                rateWindowChars = 0;
+                rateWindowStart = now;
+                metricsUpdated = true;
+            }
+            done = closed || (finished && pending.isEmpty());
+        }
+        if(batch != null) {
+            try {
+                this.append(batch, reset);
+                this.trimConsole();
+            } catch (BadLocationException e) {
+                e.printStackTrace();
+            }
+        }
+        if(done) {
+            timer.stop();
+            synchronized (pending) {
+                charsPerSecond = 0;
+            }
+            metricsUpdated = true;
+        }
+        if(metricsUpdated && metricsListener != null) metricsListener.run();
+    }
+
+    /**
+     * 控制台最多只保留MAX_LINES行，如果缓冲区中的内容已经超过了这么多行，前面的部分追加进去也会马上被移除，
+     * 所以直接跳过（日志中已经有了），控制台中原有的内容也全部过期了
+     * @return 是否跳过了一部分内容
+     */
+    private boolean skipToTail(){
+        int lines = 0;
+        for (int c = pending.size() - 1; c >= 0; c--) {
+            String text = pending.get(c).getText();
+            for (int i = text.length() - (c == pending.size() - 1 ? 2 : 1); i >= 0; i--) {
+                if(text.charAt(i) != '\n' || ++lines < MAX_LINES) continue;
+                for (OutputChunk chunk : pending.subList(0, c)) {
+                    trimmedLines += countLines(chunk.getText(), chunk.getText().length());
+                    pendingChars -= chunk.getText().length();
+                }
+                trimmedLines += countLines(text, i + 1);
+                pendingChars -= i + 1;
+                pending.set(c, pending.get(c).substring(i + 1));
+                pending.subList(0, c).clear();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countLines(String text, int end){
+        int count = 0;
+        for (int i = 0; i < end; i++)
+            if(text.charAt(i) == '\n') count++;
+        return count;
+    }
+
+    /**
+     * 将一批片段追加到控制台，相邻的同一来源的片段合并之后一起插入
+     */
+    private void append(List<OutputChunk> batch, boolean reset) throws BadLocationException {
+        StyledDocument document = pane.getStyledDocument();
+        if(reset) {
+            trimmedLines += lineCount() - 1;
+            document.remove(0, document.getLength());
+        }
+        StringBuilder run = new StringBuilder();
+        OutputChunk.Kind kind = null;
+        for (OutputChunk chunk : batch) {
+            if(chunk.getKind() != kind && run.length() > 0) {
+                document.insertString(document.getLength(), run.toString(), STYLES.get(kind));
+                run.setLength(0);
+            }
+            kind = chunk.getKind();
+            run.append(chunk.getText());
+        }
+        if(run.length() > 0)
+            document.insertString(document.getLength(), run.toString(), STYLES.get(kind));
+    }
+
+    private int lineCount(){
+        return pane.getDocument().getDefaultRootElement().getElementCount();
+    }
+
+    /**
+     * 控制台超过最大行数时，移除最前面的内容（这些内容在日志中依然可以找到）
+     */
+    private void trimConsole() throws BadLocationException {
+        int excess = lineCount() - MAX_LINES;
+        if(excess <= 0) return;
+        Element root = pane.getDocument().getDefaultRootElement();
+        pane.getDocument().remove(0, root.getElement(excess).getStartOffset());
+        trimmedLines += excess;
+    }
+
+    public ConsoleLog getLog() {
+        return log;
+    }
+
+    /**
+     * 已经从控制台中移除、只能在历史记录中查看的行数
+     */
+    public long getTrimmedLines() {
+        return trimmedLines;
+    }
+
+    /**
+     * 最近一秒的输出速率（字符每秒）
+     */
+    public long getCharsPerSecond() {
+        synchronized (pending) {
+            return charsPerSecond;
+        }
+    }
+
+    public long getTotalChars() {
+        synchronized (pending) {
+            return totalChars;
+        }
+    }
+
+    /**
+     * 缓冲区的占用比例（0~1），长时间接近1说明界面跟不上程序的输出速度
+     */
+    public double getBufferUsage() {
+        synchronized (pending) {
+            return (double) pendingChars / MAX_BUFFER;
+        }
+    }
+
+    /**
+     * 写入线程因为缓冲区满而被阻塞的次数
+     */
+    public long getBlockedCount() {
+        synchronized (pending) {
+            return blockedCount;
+        }
+    }
+
+    /**
+     * 写入线程被阻塞的总时长（毫秒）
+     */
+    public long getBlockedMillis() {
+        synchronized (pending) {
+            return blockedNanos / 1000000;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.intellij.window.component;
+
+import com.intellij.entity.GcEvent;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GC图表，横轴是JVM运行时间，上半部分是堆使用量的锯齿图（每次GC从GC前的使用量降到GC后的使用量，
+ * 两次GC之间的上升就是程序分配的内存）以及堆容量，下半部分是每次停顿的时长。
+ */
+public class GcChartPanel extends JPanel {
+    private static final Color HEAP = new Color(80, 140, 220);
+    private static final Color CAPACITY = new Color(160, 160, 160);
+    private static final Color PAUSE = new Color(230, 120, 40);
+    private static final int PADDING = 8;
+
+    private List<GcEvent> events = new ArrayList<>();
+
+    /**
+     * 设定要展示的GC事件并重新绘制
+     * @param events GC事件，按时间排列
+     */
+    public void update(List<GcEvent> events){
+        this.events = events;
+        this.repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setFont(this.getFont().deriveFont(11.0F));
+        if(events.isEmpty()) {
+            g2.setColor(this.getForeground());
+            g2.drawString("还没有GC事件", PADDING, 20);
+            g2.dispose();
+            return;
+        }
+        double first = events.get(0).getUptimeSeconds(), last = events.get(events.size() - 1).getUptimeSeconds();
+        double span = Math.max(last - first, 0.001);
+        long maxHeap = 1;
+        double maxPause = 0.001;
+        for (GcEvent event : events) {
+            maxHeap = Math.max(maxHeap, Math.max(event.getHeapCapacityKb(), event.getHeapBeforeKb()));
+            maxPause = Math.max(maxPause, event.getPauseMillis());
+        }
+        int width = this.getWidth() - PADDING * 2;
+        int heapTop = 20, heapHeight = (this.getHeight() - 40) * 2 / 3;
+        int pauseTop = heapTop + heapHeight + 20, pauseHeight = this.getHeight() - pauseTop - PADDING;
+        //堆使用量和堆容量
+        int lastX = -1, lastY = -1, lastCapacityY = -1;
+        for (GcEvent event : events) {
+            if(event.getHeapBeforeKb() < 0) continue;
+            int x = PADDING + (int) ((event.getUptimeSeconds() - first) / span * width);
+            int before = heapTop + heapHeight - (int) ((double) event.getHeapBeforeKb() / maxHeap * heapHeight);
+            int after = heapTop + heapHeight - (int) ((double) event.getHeapAfterKb() / maxHeap * heapHeight);
+            int capacity = heapTop + heapHeight - (int) ((double) event.getHeapCapacityKb() / maxHeap * heapHeight);
+            if(lastX >= 0) {
+                g2.setColor(CAPACITY);
+                g2.drawLine(lastX, lastCapacityY, x, lastCapacityY);
+                g2.drawLine(x, lastCapacityY, x, capacity);
+                g2.setColor(HEAP);
+                g2.drawLine(lastX, lastY, x, before);
+            }
+            g2.setColor(HEAP);
+            g2.drawLine(x, before, x, after);
+            lastX = x;
+            lastY = after;
+            lastCapacityY = capacity;
+        }
+        //停顿时长
+        g2.setColor(PAUSE);
+        for (GcEvent event : events) {
+            int x = PADDING + (int) ((event.getUptimeSeconds() - first) / span * width);
+            int height = Math.max(1, (int) (event.getPauseMillis() / maxPause * pauseHeight));
+            g2.fillRect(x, pauseTop + pauseHeight - height, 2, height);
+        }
+        g2.setColor(this.getForeground());
+        g2.drawString(String.format("堆使用量（蓝）和堆容量（灰），最大 %.1fMB", maxHeap / 1024.0), PADDING, 14);
+        g2.drawString(String.format("停顿时长，最长 %.2fms（%.1fs ~ %.1fs）", maxPause, first, last), PADDING, pauseTop - 6);
+        g2.dispose();
+    }
+}
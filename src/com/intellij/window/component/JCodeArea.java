@@ -0,0 +1,100 @@
+package com.intellij.window.component;
+
+import com.formdev.flatlaf.ui.FlatTextAreaUI;
+import com.intellij.window.enums.TokenType;
+
+import javax.swing.*;
+import javax.swing.text.*;
+import java.awt.*;
+
+/**
+ * 带有Java语法高亮的编辑框，其它行为和JTextArea一样。
+ * 高亮的结果由SyntaxHighlighter增量维护，绘制由PlainView完成，PlainView本来就只绘制可见的行，
+ * 这里只是在绘制每一段未选中的文字时，按照记号把它切开，分别用对应的颜色绘制。
+ */
+public class JCodeArea extends JTextArea {
+    private final SyntaxHighlighter syntaxHighlighter = new SyntaxHighlighter(this);
+
+    public JCodeArea() {
+        syntaxHighlighter.setDocument(this.getDocument());
+        //每个文件使用单独的文档，换文档的时候高亮器也跟着换
+        this.addPropertyChangeListener("document", e -> syntaxHighlighter.setDocument(this.getDocument()));
+    }
+
+    /**
+     * 开启或者关闭语法高亮
+     * @param enabled 是否开启
+     */
+    public void setSyntaxHighlighting(boolean enabled) {
+        syntaxHighlighter.setEnabled(enabled);
+    }
+
+    public SyntaxHighlighter getSyntaxHighlighter() {
+        return syntaxHighlighter;
+    }
+
+    /**
+     * 切换主题（比如刷新文件树时调用的updateComponentTreeUI）时，依然使用带高亮的UI
+     */
+    @Override
+    public void updateUI() {
+        this.setUI(new CodeAreaUI());
+    }
+
+    private static class CodeAreaUI extends FlatTextAreaUI {
+        @Override
+        public View create(Element elem) {
+            JTextComponent component = this.getComponent();
+            if(component instanceof JTextArea && !((JTextArea) component).getLineWrap()) return new SyntaxView(elem);
+            return super.create(elem);
+        }
+    }
+
+    /**
+     * 按照记号着色的PlainView
+     */
+    private static class SyntaxView extends PlainView {
+        private final Segment segment = new Segment();   //绘制时重复使用，允许部分返回，不需要复制文档内容
+
+        SyntaxView(Element elem) {
+            super(elem);
+            segment.setPartialReturn(true);
+        }
+
+        @Override
+        protected float drawUnselectedText(Graphics2D g, float x, float y, int p0, int p1) throws BadLocationException {
+            JCodeArea area = (JCodeArea) this.getContainer();
+            Color plain = area.isEnabled() ? area.getForeground() : area.getDisabledTextColor();
+            SyntaxHighlighter highlighter = area.getSyntaxHighlighter();
+            if(highlighter == null || !highlighter.ensureLexed()) return this.drawRun(g, x, y, p0, p1, plain);
+            //p0和p1一定在同一行中，按照这一行的记号把[p0, p1)切成若干段
+            int line = this.getElement().getElementIndex(p0);
+            int lineStart = this.getElement().getElement(line).getStartOffset();
+            int position = p0;
+            for (int i = 0, count = highlighter.tokenCount(line); i < count && position < p1; i++) {
+                int start = lineStart + highlighter.tokenStart(line, i);
+                int end = start + highlighter.tokenLength(line, i);
+                if(end <= position) continue;
+                if(start >= p1) break;
+                if(start > position) x = this.drawRun(g, x, y, position, start, plain);
+                position = Math.max(start, position);
+                x = this.drawRun(g, x, y, position, Math.min(end, p1), highlighter.tokenType(line, i).getColor());
+                position = Math.min(end, p1);
+            }
+            return position < p1 ? this.drawRun(g, x, y, position, p1, plain) : x;
+        }
+
+        /**
+         * 用同一种颜色绘制一段文字，文字在文档中不连续存放时分段绘制
+         */
+        private float drawRun(Graphics2D g, float x, float y, int p0, int p1, Color color) throws BadLocationException {
+            g.setColor(color);
+            Document document = this.getDocument();
+            for (int position = p0; position < p1; position += segment.count) {
+                document.getText(position, p1 - position, segment);
+                x = Utilities.drawTabbedText(segment, x, y, g, this, position);
+            }
+            return x;
+        }
+    }
+}
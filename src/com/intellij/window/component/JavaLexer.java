@@ -0,0 +1,205 @@
+package com.intellij.window.component;
+
+import com.intellij.window.enums.TokenType;
+
+import java.util.Arrays;
+
+/**
+ * 可以从任意一行重新开始的Java词法分析器，用于编辑框的语法高亮。
+ * 每次只分析一行，分析前需要给出这一行开始时的状态（是否处在多行注释或者文本块中间），
+ * 分析结束时返回下一行开始时的状态，所以修改某一行之后，只要从这一行开始重新分析，
+ * 直到某一行结束时的状态和修改之前一样，后面的行就都不需要再分析了。
+ * 分析直接在字符数组上进行，识别出的记号通过回调交给调用者，整个过程不会分配任何对象。
+ */
+public final class JavaLexer {
+    //行开始时的状态
+    public static final int NORMAL = 0;
+    public static final int BLOCK_COMMENT = 1;
+    public static final int DOC_COMMENT = 2;
+    public static final int TEXT_BLOCK = 3;
+
+    private static final char[][] KEYWORDS;
+    static {
+        String[] words = {"abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+                "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float", "for",
+                "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native", "new",
+                "package", "private", "protected", "public", "return", "short", "static", "strictfp", "super",
+                "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while",
+                "true", "false", "null", "var", "record", "yield", "sealed", "permits"};
+        Arrays.sort(words);
+        KEYWORDS = new char[words.length][];
+        for (int i = 0; i < words.length; i++) KEYWORDS[i] = words[i].toCharArray();
+    }
+
+    /**
+     * 识别出的记号的接收者，普通代码（标识符、运算符、空白）不会回调
+     */
+    public interface TokenSink {
+        void token(int start, int length, TokenType type);
+    }
+
+    private JavaLexer() {}
+
+    /**
+     * 分析一行代码
+     * @param text 这一行的内容（不包含换行符）
+     * @param length 内容的长度
+     * @param state 这一行开始时的状态
+     * @param sink 记号的接收者，记号按位置顺序回调
+     * @return 下一行开始时的状态
+     */
+    public static int lexLine(char[] text, int length, int state, TokenSink sink) {
+        int i = 0;
+        if(state == BLOCK_COMMENT || state == DOC_COMMENT) {
+            TokenType type = state == DOC_COMMENT ? TokenType.DOC_COMMENT : TokenType.COMMENT;
+            int end = commentEnd(text, length, 0);
+            if(end < 0) {
+                if(length > 0) sink.token(0, length, type);
+                return state;
+            }
+            sink.token(0, end, type);
+            i = end;
+        } else if(state == TEXT_BLOCK) {
+            int end = textBlockEnd(text, length, 0);
+            if(end < 0) {
+                if(length > 0) sink.token(0, length, TokenType.STRING);
+                return TEXT_BLOCK;
+            }
+            sink.token(0, end, TokenType.STRING);
+            i = end;
+        }
+        while (i < length) {
+            char c = text[i];
+            if(c == '/' && i + 1 < length && text[i + 1] == '/') {
+                sink.token(i, length - i, TokenType.COMMENT);
+                return NORMAL;
+            }
+            if(c == '/' && i + 1 < length && text[i + 1] == '*') {
+                //"/**/"是一个空的普通注释，不是文档注释
+                boolean doc = i + 2 < length && text[i + 2] == '*' && !(i + 3 < length && text[i + 3] == '/');
+                TokenType type = doc ? TokenType.DOC_COMMENT : TokenType.COMMENT;
+                int end = commentEnd(text, length, i + 2);
+                if(end < 0) {
+                    sink.token(i, length - i, type);
+                    return doc ? DOC_COMMENT : BLOCK_COMMENT;
+                }
+                sink.token(i, end - i, type);
+                i = end;
+            } else if(c == '"' && i + 2 < length && text[i + 1] == '"' && text[i + 2] == '"') {
+                int end = textBlockEnd(text, length, i + 3);
+                if(end < 0) {
+                    sink.token(i, length - i, TokenType.STRING);
+                    return TEXT_BLOCK;
+                }
+                sink.token(i, end - i, TokenType.STRING);
+                i = end;
+            } else if(c == '"' || c == '\'') {
+                int end = quoteEnd(text, length, i + 1, c);
+                sink.token(i, end - i, TokenType.STRING);
+                i = end;
+            } else if(c == '@' && i + 1 < length && Character.isJavaIdentifierStart(text[i + 1])) {
+                int end = identifierEnd(text, length, i + 1);
+                //@interface里的interface是关键字
+                sink.token(i, end - i, isKeyword(text, i + 1, end - i - 1) ? TokenType.KEYWORD : TokenType.ANNOTATION);
+                i = end;
+            } else if(Character.isJavaIdentifierStart(c)) {
+                int end = identifierEnd(text, length, i);
+                if(isKeyword(text, i, end - i)) sink.token(i, end - i, TokenType.KEYWORD);
+                i = end;
+            } else if(isDigit(c) || (c == '.' && i + 1 < length && isDigit(text[i + 1]))) {
+                int end = numberEnd(text, length, i);
+                sink.token(i, end - i, TokenType.NUMBER);
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        return NORMAL;
+    }
+
+    /**
+     * 从from开始查找多行注释的结束位置
+     * @return 注释结束之后的位置，这一行中没有结束时返回-1
+     */
+    private static int commentEnd(char[] text, int length, int from) {
+        for (int i = from; i + 1 < length; i++)
+            if(text[i] == '*' && text[i + 1] == '/') return i + 2;
+        return -1;
+    }
+
+    /**
+     * 从from开始查找文本块的结束位置
+     * @return 结束的三个引号之后的位置，这一行中没有结束时返回-1
+     */
+    private static int textBlockEnd(char[] text, int length, int from) {
+        for (int i = from; i < length; i++) {
+            if(text[i] == '\\') i++;
+            else if(text[i] == '"' && i + 2 < length && text[i + 1] == '"' && text[i + 2] == '"') return i + 3;
+        }
+        return -1;
+    }
+
+    /**
+     * 字符串和字符字面量的结束位置，没有结束的字面量到行尾为止
+     */
+    private static int quoteEnd(char[] text, int length, int from, char quote) {
+        for (int i = from; i < length; i++) {
+            if(text[i] == '\\') i++;
+            else if(text[i] == quote) return i + 1;
+        }
+        return length;
+    }
+
+    private static int identifierEnd(char[] text, int length, int from) {
+        int i = from;
+        while (i < length && Character.isJavaIdentifierPart(text[i])) i++;
+        return i;
+    }
+
+    /**
+     * 数字字面量的结束位置，包括十六进制、二进制、下划线分隔、小数、指数和类型后缀
+     */
+    private static int numberEnd(char[] text, int length, int from) {
+        boolean hex = text[from] == '0' && from + 1 < length && (text[from + 1] == 'x' || text[from + 1] == 'X');
+        int i = from;
+        while (i < length) {
+            char c = text[i];
+            if(Character.isLetterOrDigit(c) || c == '_' || c == '.') {
+                i++;
+            } else if((c == '+' || c == '-') && i > from) {
+                char exponent = text[i - 1];
+                if(hex ? exponent != 'p' && exponent != 'P' : exponent != 'e' && exponent != 'E') break;
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * 在排好序的关键字表中二分查找，直接和字符数组中的一段比较，不需要先创建字符串
+     */
+    private static boolean isKeyword(char[] text, int offset, int length) {
+        int low = 0, high = KEYWORDS.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(KEYWORDS[mid], text, offset, length);
+            if(cmp == 0) return true;
+            if(cmp < 0) low = mid + 1;
+            else high = mid - 1;
+        }
+        return false;
+    }
+
+    private static int compare(char[] keyword, char[] text, int offset, int length) {
+        int n = Math.min(keyword.length, length);
+        for (int i = 0; i < n; i++)
+            if(keyword[i] != text[offset + i]) return keyword[i] - text[offset + i];
+        return keyword.length - length;
+    }
+}
@@ -0,0 +1,244 @@
+package com.intellij.window.component;
+
+import com.intellij.manage.EngineTask;
+import com.intellij.manage.MappedTextFile;
+import com.intellij.manage.TaskExecutor;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 大文件的只读查看器，代替编辑框展示超过一定大小的文件。
+ * 文件通过内存映射访问，行索引在后台建立，每次绘制只读取并解码可见的那几行，
+ * 所以不管文件有多大，打开都是瞬间完成的，内存占用也只和窗口大小有关。支持跳转到行和搜索。
+ */
+public class LargeFileViewer extends JPanel {
+    private static final int REFRESH_MILLIS = 300;
+    private static final int GUTTER_PADDING = 8;
+
+    private final MappedTextFile file;
+    private final TextCanvas canvas = new TextCanvas();
+    private final JScrollBar verticalBar = new JScrollBar(JScrollBar.VERTICAL);
+    private final JScrollBar horizontalBar = new JScrollBar(JScrollBar.HORIZONTAL);
+    private final JLabel status = new JLabel();
+    private final JTextField lineField = new JTextField(8);
+    private final JTextField searchField = new JTextField(20);
+    private final JButton searchButton = new JButton("查找下一个");
+    private final Timer timer;
+    private EngineTask<Void> indexTask;
+    private EngineTask<Long> searchTask;
+    private long markedLine = -1;      //跳转或者搜索到的行，绘制时高亮
+    private String highlight = "";     //搜索的内容，可见的行中所有匹配的地方都会高亮
+    private int maxLineWidth = 0;      //目前见过的最长的行的宽度，决定横向滚动的范围
+    private boolean closed = false;
+
+    /**
+     * 创建一个查看器，并开始在后台建立行索引
+     * @param file 映射的文件，关闭查看器时一起关闭
+     * @param font 展示使用的字体（一般和编辑框一样）
+     */
+    public LargeFileViewer(MappedTextFile file, Font font) {
+        this.file = file;
+        this.setLayout(new BorderLayout());
+        canvas.setFont(font);
+        //上面一排是文件信息、跳转和搜索
+        JPanel tools = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 2));
+        tools.add(status);
+        tools.add(new JLabel("    跳转到行："));
+        tools.add(lineField);
+        lineField.addActionListener(e -> this.gotoLine());
+        tools.add(new JLabel("搜索："));
+        tools.add(searchField);
+        searchField.addActionListener(e -> this.findNext());
+        tools.add(searchButton);
+        searchButton.addActionListener(e -> this.findNext());
+        this.add(tools, BorderLayout.NORTH);
+        this.add(canvas, BorderLayout.CENTER);
+        this.add(verticalBar, BorderLayout.EAST);
+        this.add(horizontalBar, BorderLayout.SOUTH);
+        verticalBar.addAdjustmentListener(e -> canvas.repaint());
+        horizontalBar.addAdjustmentListener(e -> canvas.repaint());
+        canvas.addMouseWheelListener(e -> verticalBar.setValue(verticalBar.getValue() + e.getUnitsToScroll()));
+        canvas.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                LargeFileViewer.this.updateScrollBars();
+            }
+        });
+        //索引建立的过程中定时刷新行数，已经扫描过的部分马上就可以查看了
+        this.timer = new Timer(REFRESH_MILLIS, e -> this.refresh());
+        this.timer.start();
+        this.indexTask = TaskExecutor.submit("索引 " + file.getFile().getName(), task -> {
+            file.buildIndex();
+            return null;
+        });
+        this.refresh();
+    }
+
+    /**
+     * 关闭查看器，取消还在进行的索引和搜索任务并关闭文件，切换到别的文件时调用
+     */
+    public void close(){
+        closed = true;
+        timer.stop();
+        indexTask.cancel();
+        if(searchTask != null) searchTask.cancel();
+        try {
+            file.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void refresh(){
+        if(file.isIndexed()) timer.stop();
+        status.setText(String.format(" %s（%.1fMB，%s %d 行，只读）", file.getFile().getName(), file.getSize() / 1048576.0,
+                file.isIndexed() ? "共" : String.format("已索引 %d%%，", (int) (file.getIndexProgress() * 100)), file.getLineCount()));
+        this.updateScrollBars();
+        canvas.repaint();
+    }
+
+    private void updateScrollBars(){
+        int visible = canvas.visibleLines();
+        long lines = Math.min(file.getLineCount(), Integer.MAX_VALUE - visible);
+        verticalBar.setValues(Math.min(verticalBar.getValue(), (int) Math.max(0, lines - 1)), visible, 0, (int) lines + visible - 1);
+        verticalBar.setBlockIncrement(Math.max(1, visible - 1));
+        int width = Math.max(1, canvas.getWidth() - canvas.gutterWidth());
+        horizontalBar.setValues(Math.min(horizontalBar.getValue(), Math.max(0, maxLineWidth - width)), width, 0, Math.max(width, maxLineWidth));
+        horizontalBar.setUnitIncrement(canvas.getFontMetrics(canvas.getFont()).charWidth('m'));
+        horizontalBar.setBlockIncrement(width);
+    }
+
+    /**
+     * 滚动到指定的行，并高亮这一行（放在可见区域靠上的位置）
+     * @param line 行号（从0开始）
+     */
+    private void scrollToLine(long line){
+        markedLine = line;
+        verticalBar.setValue((int) Math.max(0, Math.min(Integer.MAX_VALUE, line - canvas.visibleLines() / 3)));
+        canvas.repaint();
+    }
+
+    private void gotoLine(){
+        try {
+            long line = Long.parseLong(lineField.getText().trim()) - 1;
+            if(line < 0 || line >= file.getLineCount()) {
+                JOptionPane.showMessageDialog(this, file.isIndexed() ? "行号超出范围，文件共 " + file.getLineCount() + " 行"
+                        : "这一行还没有完成索引，请稍后再试");
+                return;
+            }
+            this.scrollToLine(line);
+        } catch (NumberFormatException ignored) {}
+    }
+
+    /**
+     * 从上一次匹配的下一行（或者当前可见区域的开头）开始向后查找，到末尾之后从头开始。
+     * 搜索在后台任务中进行，再次点击可以取消。
+     */
+    private void findNext(){
+        if(searchTask != null) {
+            searchTask.cancel();
+            return;
+        }
+        String query = searchField.getText();
+        if(query.isEmpty()) return;
+        highlight = query;
+        long first = verticalBar.getValue();
+        long from = markedLine >= first && markedLine < first + canvas.visibleLines() ? markedLine + 1 : first;
+        searchButton.setText("取消");
+        EngineTask<Long> task = searchTask = TaskExecutor.submit("搜索 " + file.getFile().getName(), current -> {
+            long line = file.find(query, from);
+            return line < 0 && from > 0 ? file.find(query, 0) : line;
+        });
+        task.whenComplete((line, error) -> SwingUtilities.invokeLater(() -> {
+            searchTask = null;
+            searchButton.setText("查找下一个");
+            if(line == null || closed) return;    //已经取消了
+            if(line < 0) {
+                JOptionPane.showMessageDialog(this, "没有找到：" + query);
+                return;
+            }
+            //匹配所在的行可能还没有完成索引，等索引追上来再滚动过去
+            if(line < file.getLineCount()) this.scrollToLine(line);
+            else this.waitForIndex(line);
+        }));
+    }
+
+    private void waitForIndex(long line){
+        Timer wait = new Timer(REFRESH_MILLIS, null);
+        wait.addActionListener(e -> {
+            if(!closed && line >= file.getLineCount() && !file.isIndexed()) return;
+            wait.stop();
+            if(closed) return;
+            this.refresh();
+            this.scrollToLine(line);
+        });
+        wait.start();
+    }
+
+    /**
+     * 实际绘制文字的区域，只读取可见的行
+     */
+    private class TextCanvas extends JComponent {
+        TextCanvas() {
+            this.setOpaque(true);
+            this.setBackground(Color.WHITE);
+        }
+
+        int visibleLines(){
+            return Math.max(1, this.getHeight() / this.getFontMetrics(this.getFont()).getHeight());
+        }
+
+        int gutterWidth(){
+            FontMetrics metrics = this.getFontMetrics(this.getFont());
+            return metrics.charWidth('0') * Long.toString(Math.max(1, file.getLineCount())).length() + GUTTER_PADDING * 2;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2.setColor(this.getBackground());
+            g2.fillRect(0, 0, this.getWidth(), this.getHeight());
+            g2.setFont(this.getFont());
+            FontMetrics metrics = g2.getFontMetrics();
+            int lineHeight = metrics.getHeight(), gutter = this.gutterWidth(), scrollX = horizontalBar.getValue();
+            long first = verticalBar.getValue();
+            List<String> lines = file.readLines(first, this.visibleLines() + 1);
+            int widest = maxLineWidth;
+            for (int i = 0; i < lines.size(); i++) {
+                String text = lines.get(i).replace("\t", "    ");
+                int y = i * lineHeight;
+                if(first + i == markedLine) {
+                    g2.setColor(new Color(255, 200, 0, 120));
+                    g2.fillRect(gutter, y, this.getWidth() - gutter, lineHeight);
+                }
+                Shape clip = g2.getClip();
+                g2.clipRect(gutter, 0, this.getWidth() - gutter, this.getHeight());
+                if(!highlight.isEmpty()) {
+                    g2.setColor(new Color(120, 180, 255, 120));
+                    for (int index = text.indexOf(highlight); index >= 0; index = text.indexOf(highlight, index + 1))
+                        g2.fillRect(gutter + GUTTER_PADDING - scrollX + metrics.stringWidth(text.substring(0, index)), y,
+                                metrics.stringWidth(highlight), lineHeight);
+                }
+                g2.setColor(Color.BLACK);
+                g2.drawString(text, gutter + GUTTER_PADDING - scrollX, y + metrics.getAscent());
+                g2.setClip(clip);
+                widest = Math.max(widest, metrics.stringWidth(text) + GUTTER_PADDING * 2);
+                g2.setColor(Color.GRAY);
+                String number = Long.toString(first + i + 1);
+                g2.drawString(number, gutter - GUTTER_PADDING - metrics.stringWidth(number), y + metrics.getAscent());
+            }
+            g2.setColor(Color.LIGHT_GRAY);
+            g2.drawLine(gutter - 1, 0, gutter - 1, this.getHeight());
+            if(widest > maxLineWidth) {
+                maxLineWidth = widest;
+                SwingUtilities.invokeLater(LargeFileViewer.this::updateScrollBars);
+            }
+        }
+    }
+}
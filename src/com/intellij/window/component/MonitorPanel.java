@@ -0,0 +1,65 @@
+package com.intellij.window.component;
+
+import com.intellij.manage.ProcessMonitor;
+import com.intellij.manage.RunSession;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * 运行中程序的资源监控面板，放在控制台旁边，每秒刷新一次CPU、内存、线程、堆和GC的迷你折线图。
+ * 采样由ProcessMonitor在后台完成，这里只负责定时读取采样结果并重新绘制，程序结束之后停止刷新。
+ */
+public class MonitorPanel extends JPanel {
+    private static final int REFRESH_MILLIS = 1000;
+
+    private final RunSession session;
+    private final Timer timer;
+    private final SparklinePanel cpu = new SparklinePanel("CPU", value -> String.format("%.0f%%", value), 100);
+    private final SparklinePanel rss = new SparklinePanel("内存", MonitorPanel::formatKb, 1024);
+    private final SparklinePanel heap = new SparklinePanel("堆", MonitorPanel::formatKb, 1024);
+    private final SparklinePanel gc = new SparklinePanel("GC", value -> String.format("%.0fms/s", value), 10);
+    private final SparklinePanel threads = new SparklinePanel("线程", value -> String.format("%.0f", value), 10);
+
+    /**
+     * 创建一个资源监控面板，并立即开始定时刷新
+     * @param session 运行会话
+     */
+    public MonitorPanel(RunSession session) {
+        this.session = session;
+        this.setLayout(new GridLayout(5, 1));
+        this.setPreferredSize(new Dimension(220, 0));
+        this.add(cpu);
+        this.add(rss);
+        this.add(heap);
+        this.add(gc);
+        this.add(threads);
+        this.timer = new Timer(REFRESH_MILLIS, e -> this.refresh());
+        this.timer.start();
+    }
+
+    private void refresh(){
+        ProcessMonitor monitor = session.getMonitor();
+        if(monitor != null) {
+            cpu.update(monitor.getCpu(), "");
+            rss.update(monitor.getRss(), "");
+            heap.update(monitor.getHeap(), "");
+            gc.update(monitor.getGc(), "（共 " + monitor.getGcCount() + " 次，" + monitor.getGcMillis() + "ms）");
+            threads.update(monitor.getThreads(), "");
+        }
+        if(session.isFinished()) timer.stop();
+    }
+
+    /**
+     * 停止刷新，控制台标签页关闭时调用
+     */
+    public void dispose(){
+        timer.stop();
+    }
+
+    private static String formatKb(double kb){
+        if(kb < 1024) return String.format("%.0fKB", kb);
+        if(kb < 1024 * 1024) return String.format("%.1fMB", kb / 1024);
+        return String.format("%.2fGB", kb / 1024 / 1024);
+    }
+}
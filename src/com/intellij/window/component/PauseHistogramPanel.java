@@ -0,0 +1,52 @@
+package com.intellij.window.component;
+
+import com.intellij.manage.GcLog;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * GC停顿时间分布的柱状图，每个区间一根柱子，柱子上方是停顿次数
+ */
+public class PauseHistogramPanel extends JPanel {
+    private static final Color BAR = new Color(230, 120, 40);
+    private static final int PADDING = 20;
+
+    private long[] histogram = new long[0];
+
+    /**
+     * 设定停顿时间分布并重新绘制
+     * @param histogram 每个区间的停顿次数，区间的划分见GcLog.BUCKETS
+     */
+    public void update(long[] histogram){
+        this.histogram = histogram;
+        this.repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if(histogram.length == 0) return;
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setFont(this.getFont().deriveFont(11.0F));
+        FontMetrics metrics = g2.getFontMetrics();
+        long max = 1;
+        for (long count : histogram) max = Math.max(max, count);
+        int slot = (this.getWidth() - PADDING * 2) / histogram.length;
+        int bottom = this.getHeight() - PADDING - metrics.getHeight(), height = bottom - PADDING - metrics.getHeight();
+        for (int i = 0; i < histogram.length; i++) {
+            int x = PADDING + i * slot;
+            int barHeight = (int) ((double) histogram[i] / max * height);
+            g2.setColor(BAR);
+            g2.fillRect(x + slot / 6, bottom - barHeight, slot * 2 / 3, barHeight);
+            g2.setColor(this.getForeground());
+            String count = String.valueOf(histogram[i]);
+            g2.drawString(count, x + (slot - metrics.stringWidth(count)) / 2, bottom - barHeight - 4);
+            String label = GcLog.bucketName(i);
+            g2.drawString(label, x + (slot - metrics.stringWidth(label)) / 2, bottom + metrics.getHeight());
+        }
+        g2.drawLine(PADDING, bottom, PADDING + slot * histogram.length, bottom);
+        g2.dispose();
+    }
+}
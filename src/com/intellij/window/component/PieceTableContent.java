@@ -0,0 +1,711 @@
+package com.intellij.window.component;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基于片段表（piece table）的文档内容，用来代替Swing默认的GapContent：
+ * - 打开文件时读入的内容作为只读的原始缓冲区，之后输入的文字只会追加到添加缓冲区的末尾，
+ *   文档就是一串指向这两个缓冲区的片段，编辑只是增加、切分或者删除片段，不会移动已有的文字
+ * - 片段保存在按位置排列的treap中，每个结点记录子树的总长度，插入、删除和按位置查找都是O(log n)
+ * - 结点创建之后不再修改（修改时复制路径上的结点），所以任意时刻的内容都可以O(1)地保存为快照，
+ *   保存文件、后台编译时直接读取快照，不需要复制整个文档；撤销和重做也只是引用被删除的片段，不需要复制文字
+ * 和GapContent一样，内容的末尾总是有一个隐含的换行符。
+ */
+public class PieceTableContent implements AbstractDocument.Content {
+    private static final char[] NEWLINE = {'\n'};
+    private static final int MIN_ADD_CAPACITY = 1024;
+
+    private Piece root;
+    private char[] addBuffer = new char[MIN_ADD_CAPACITY];   //扩容时换成新的数组，旧的片段仍然指向旧数组，内容是一样的
+    private int addLength = 0;
+    private int seed = 0x2545F491;                           //生成结点优先级的随机数种子
+    //文档中的位置（Position），同样保存在treap中，编辑时对受影响的部分整体打上偏移标记，不需要逐个修改
+    private Mark marks;
+    private final ReferenceQueue<StickyPosition> collected = new ReferenceQueue<>();
+    //位置0永远不会移动，所有偏移量为0的位置共用这一个，它不在位置树中，编辑和撤销都不会碰到它
+    private final StickyPosition zero = new StickyPosition(new Mark(0, 0));
+
+    /**
+     * 创建一个空的文档内容
+     */
+    public PieceTableContent() {
+        this(new char[0], 0, 0);
+    }
+
+    /**
+     * 以一段文字作为原始缓冲区创建文档内容，之后不会修改这个数组
+     * @param original 原始内容（比如读入的文件）
+     * @param offset 内容在数组中的起始位置
+     * @param length 内容的长度
+     */
+    public PieceTableContent(char[] original, int offset, int length) {
+        Piece newline = new Piece(NEWLINE, 0, 1, this.nextPriority(), null, null);
+        this.root = length == 0 ? newline : merge(new Piece(original, offset, length, this.nextPriority(), null, null), newline);
+    }
+
+    /**
+     * 直接以另一个文档的快照作为内容，片段是共享的，不会复制文字
+     * @param snapshot 快照
+     */
+    public PieceTableContent(Snapshot snapshot) {
+        Piece pieces = split(split(snapshot.root, snapshot.offset + snapshot.length)[0], snapshot.offset)[1];
+        this.root = merge(pieces, new Piece(NEWLINE, 0, 1, this.nextPriority(), null, null));
+    }
+
+    @Override
+    public int length() {
+        return size(root);
+    }
+
+    /**
+     * 当前文档的快照（不包括末尾隐含的换行符），之后的编辑不会影响快照
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(root, 0, length() - 1);
+    }
+
+    /**
+     * 片段的数量，连续的输入会合并成一个片段，片段数量大致等于编辑过的位置的数量
+     */
+    public int getPieceCount() {
+        return root.count;
+    }
+
+    /**
+     * 片段树的深度，正常情况下大约是片段数量的对数，可以用来检查树有没有退化
+     */
+    public int getDepth() {
+        return depth(root);
+    }
+
+    private static int depth(Piece piece) {
+        return piece == null ? 0 : 1 + Math.max(depth(piece.left), depth(piece.right));
+    }
+
+    @Override
+    public UndoableEdit insertString(int where, String str) throws BadLocationException {
+        if(where < 0 || where >= length()) throw new BadLocationException("Invalid insert", where);
+        if(str.isEmpty()) return null;
+        int start = this.append(str);
+        Piece[] parts = split(root, where);
+        Piece last = rightmost(parts[0]);
+        //紧接着上一次输入继续输入时，直接延长上一次的片段，连续输入不会产生大量的小片段
+        if(last != null && last.buffer == addBuffer && last.start + last.length == start) {
+            parts[0] = extendRightmost(parts[0], str.length());
+            root = merge(parts[0], parts[1]);
+            this.shiftMarksForInsert(where, str.length());
+        } else {
+            this.insertPieces(where, new Piece(addBuffer, start, str.length(), this.nextPriority(), null, null), parts);
+        }
+        return new InsertEdit(where, str.length());
+    }
+
+    @Override
+    public UndoableEdit remove(int where, int nitems) throws BadLocationException {
+        if(where < 0 || nitems < 0 || where + nitems >= length()) throw new BadLocationException("Invalid remove", length() + 1);
+        if(nitems == 0) return null;
+        List<UndoMark> saved = this.marksInRange(where, nitems);
+        return new RemoveEdit(where, this.removePieces(where, nitems), saved);
+    }
+
+    @Override
+    public String getString(int where, int len) throws BadLocationException {
+        Segment segment = new Segment();
+        this.getChars(where, len, segment);
+        return new String(segment.array, segment.offset, segment.count);
+    }
+
+    /**
+     * 获取一段内容，范围在同一个片段内时直接返回片段所在的缓冲区，不复制；
+     * 允许部分返回时只返回第一个片段中的部分，否则把跨越多个片段的内容复制到新的数组中
+     */
+    @Override
+    public void getChars(int where, int len, Segment txt) throws BadLocationException {
+        if(where < 0 || len < 0 || where + len > length()) throw new BadLocationException("Invalid location", length() + 1);
+        if(len == 0) {
+            txt.array = NEWLINE;
+            txt.offset = 0;
+            txt.count = 0;
+            return;
+        }
+        Piece piece = root;
+        int position = where;
+        while (true) {
+            int leftSize = size(piece.left);
+            if(position < leftSize) {
+                piece = piece.left;
+            } else if(position >= leftSize + piece.length) {
+                position -= leftSize + piece.length;
+                piece = piece.right;
+            } else {
+                position -= leftSize;
+                break;
+            }
+        }
+        if(position + len <= piece.length || txt.isPartialReturn()) {
+            txt.array = piece.buffer;
+            txt.offset = piece.start + position;
+            txt.count = Math.min(len, piece.length - position);
+            return;
+        }
+        char[] chars = new char[len];
+        copy(root, where, where + len, chars, 0);
+        txt.array = chars;
+        txt.offset = 0;
+        txt.count = len;
+    }
+
+    /**
+     * 创建位置，和GapContent一样，同一个偏移量上已经有位置时直接返回那个位置。
+     * 但是被撤销记录保存着的位置不能共用：撤销时它们会回到删除之前的地方，新位置不应该跟着它们走
+     */
+    @Override
+    public Position createPosition(int offset) {
+        if(offset == 0) return zero;
+        this.purgeMarks();
+        Mark[] parts = splitMarks(marks, offset);
+        Mark[] same = splitMarks(parts[1], offset + 1);
+        StickyPosition position = shareable(same[0]);
+        if(position == null) {
+            Mark mark = new Mark(offset, this.nextPriority());
+            position = new StickyPosition(mark);
+            mark.reference = new MarkReference(position, collected, mark);
+            same[0] = mergeMarks(same[0], mark);
+        }
+        marks = mergeMarks(mergeMarks(parts[0], same[0]), same[1]);
+        return position;
+    }
+
+    /**
+     * 从文档内容中找出所有的换行符（不包括末尾隐含的那个），按顺序回调它们的位置，用于建立行结构
+     * @param consumer 换行符位置
+     */
+    void forEachLineBreak(java.util.function.IntConsumer consumer) {
+        forEachLineBreak(root, 0, length() - 1, consumer);
+    }
+
+    private static void forEachLineBreak(Piece piece, int base, int limit, java.util.function.IntConsumer consumer) {
+        if(piece == null || base >= limit) return;
+        forEachLineBreak(piece.left, base, limit, consumer);
+        int start = base + size(piece.left);
+        int end = Math.min(start + piece.length, limit);
+        for (int i = start; i < end; i++)
+            if(piece.buffer[piece.start + i - start] == '\n') consumer.accept(i);
+        forEachLineBreak(piece.right, start + piece.length, limit, consumer);
+    }
+
+    private int append(String str) {
+        if(addLength + str.length() > addBuffer.length)
+            addBuffer = Arrays.copyOf(addBuffer, Math.max(addBuffer.length * 2, addLength + str.length()));
+        str.getChars(0, str.length(), addBuffer, addLength);
+        int start = addLength;
+        addLength += str.length();
+        return start;
+    }
+
+    private void insertPieces(int where, Piece pieces, Piece[] parts) {
+        root = merge(merge(parts[0], pieces), parts[1]);
+        this.shiftMarksForInsert(where, size(pieces));
+    }
+
+    /**
+     * 撤销删除或者重做插入时，把片段放回原处。原来在这个范围内的位置都记录在saved中，直接恢复；
+     * 正好在插入点上的其他位置是编辑之后才创建的，和重新插入的内容无关，留在原地不动
+     */
+    private void reinsertPieces(int where, Piece pieces, List<UndoMark> saved) {
+        Piece[] parts = split(root, where);
+        root = merge(merge(parts[0], pieces), parts[1]);
+        this.purgeMarks();
+        Mark[] after = splitMarks(marks, where + 1);
+        apply(after[1], false, 0, size(pieces));
+        marks = mergeMarks(after[0], after[1]);
+        this.restoreMarks(saved);
+    }
+
+    private Piece removePieces(int where, int length) {
+        Piece[] parts = split(root, where);
+        Piece[] rest = split(parts[1], length);
+        root = merge(parts[0], rest[1]);
+        this.purgeMarks();
+        //删除范围内的位置都移到删除的起点，后面的位置整体前移
+        Mark[] before = splitMarks(marks, where);
+        Mark[] removed = splitMarks(before[1], where + length);
+        apply(removed[0], true, where, 0);
+        apply(removed[1], false, 0, -length);
+        marks = mergeMarks(mergeMarks(before[0], removed[0]), removed[1]);
+        return rest[0];
+    }
+
+    /**
+     * 插入之后，插入位置及其后面的位置整体后移，和GapContent一样，位置0永远不会移动
+     */
+    private void shiftMarksForInsert(int where, int length) {
+        this.purgeMarks();
+        Mark[] parts = splitMarks(marks, where == 0 ? 1 : where);
+        apply(parts[1], false, 0, length);
+        marks = mergeMarks(parts[0], parts[1]);
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    //----------------------------- 片段treap，结点不可变 -----------------------------
+
+    private static int size(Piece piece) {
+        return piece == null ? 0 : piece.size;
+    }
+
+    /**
+     * 把片段树分成两部分，前一部分正好包含offset个字符，需要时把一个片段切成两个
+     */
+    private Piece[] split(Piece piece, int offset) {
+        if(piece == null) return new Piece[2];
+        int leftSize = size(piece.left);
+        if(offset <= leftSize) {
+            Piece[] parts = split(piece.left, offset);
+            parts[1] = piece.with(parts[1], piece.right);
+            return parts;
+        }
+        if(offset >= leftSize + piece.length) {
+            Piece[] parts = split(piece.right, offset - leftSize - piece.length);
+            parts[0] = piece.with(piece.left, parts[0]);
+            return parts;
+        }
+        //切开的两半各自使用新的优先级，再和原来的子树合并。如果沿用原来的优先级，同一个片段反复切开之后
+        //会出现大量优先级相同的结点，合并时它们会连成一条链，树就退化成了链表
+        int cut = offset - leftSize;
+        return new Piece[]{
+                merge(piece.left, new Piece(piece.buffer, piece.start, cut, this.nextPriority(), null, null)),
+                merge(new Piece(piece.buffer, piece.start + cut, piece.length - cut, this.nextPriority(), null, null), piece.right)
+        };
+    }
+
+    private static Piece merge(Piece left, Piece right) {
+        if(left == null) return right;
+        if(right == null) return left;
+        if(left.priority >= right.priority) return left.with(left.left, merge(left.right, right));
+        return right.with(merge(left, right.left), right.right);
+    }
+
+    private static Piece rightmost(Piece piece) {
+        if(piece == null) return null;
+        while (piece.right != null) piece = piece.right;
+        return piece;
+    }
+
+    private static Piece extendRightmost(Piece piece, int length) {
+        if(piece.right == null)
+            return new Piece(piece.buffer, piece.start, piece.length + length, piece.priority, piece.left, null);
+        return piece.with(piece.left, extendRightmost(piece.right, length));
+    }
+
+    private static char charAt(Piece piece, int index) {
+        while (true) {
+            int leftSize = size(piece.left);
+            if(index < leftSize) {
+                piece = piece.left;
+            } else if(index >= leftSize + piece.length) {
+                index -= leftSize + piece.length;
+                piece = piece.right;
+            } else {
+                return piece.buffer[piece.start + index - leftSize];
+            }
+        }
+    }
+
+    /**
+     * 把子树中[from, to)范围内的字符复制到dest中，只访问和范围有重叠的结点
+     */
+    private static void copy(Piece piece, int from, int to, char[] dest, int destPos) {
+        if(piece == null || from >= to) return;
+        int leftSize = size(piece.left), pieceEnd = leftSize + piece.length;
+        if(from < leftSize) copy(piece.left, from, Math.min(to, leftSize), dest, destPos);
+        int start = Math.max(from, leftSize), end = Math.min(to, pieceEnd);
+        if(start < end) System.arraycopy(piece.buffer, piece.start + start - leftSize, dest, destPos + start - from, end - start);
+        if(to > pieceEnd) {
+            int rightFrom = Math.max(from, pieceEnd);
+            copy(piece.right, rightFrom - pieceEnd, to - pieceEnd, dest, destPos + rightFrom - from);
+        }
+    }
+
+    /**
+     * 片段，指向某个缓冲区中的一段文字，同时也是treap的结点
+     */
+    private static final class Piece {
+        private final char[] buffer;
+        private final int start;
+        private final int length;
+        private final int priority;
+        private final Piece left;
+        private final Piece right;
+        private final int size;     //子树中的字符总数
+        private final int count;    //子树中的片段数量
+
+        Piece(char[] buffer, int start, int length, int priority, Piece left, Piece right) {
+            this.buffer = buffer;
+            this.start = start;
+            this.length = length;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = length + size(left) + size(right);
+            this.count = 1 + (left == null ? 0 : left.count) + (right == null ? 0 : right.count);
+        }
+
+        Piece with(Piece left, Piece right) {
+            return left == this.left && right == this.right ? this : new Piece(buffer, start, length, priority, left, right);
+        }
+    }
+
+    //----------------------------- 位置treap，带有延迟的偏移标记 -----------------------------
+
+    /**
+     * 回收已经没有人引用的位置，和GapContent一样通过弱引用发现它们
+     */
+    private void purgeMarks() {
+        Reference<? extends StickyPosition> reference;
+        while ((reference = collected.poll()) != null) {
+            Mark mark = ((MarkReference) reference).mark;
+            this.removeMark(mark);
+            mark.reference = null;
+        }
+    }
+
+    /**
+     * 记下[offset, offset + length]范围内的位置当前的偏移量。删除之后这些位置都会挤到删除的起点，
+     * 撤销时重新插入的内容要让它们回到原来的地方，否则行结构之类依赖位置的东西就对不上了（和GapContent的做法一样）
+     */
+    private List<UndoMark> marksInRange(int offset, int length) {
+        this.purgeMarks();
+        List<UndoMark> saved = new ArrayList<>();
+        Mark[] before = splitMarks(marks, offset);
+        Mark[] range = splitMarks(before[1], offset + length + 1);
+        collectMarks(range[0], saved);
+        marks = mergeMarks(mergeMarks(before[0], range[0]), range[1]);
+        return saved;
+    }
+
+    private static void collectMarks(Mark mark, List<UndoMark> saved) {
+        if(mark == null) return;
+        pushDown(mark);
+        collectMarks(mark.left, saved);
+        saved.add(new UndoMark(mark, mark.offset));
+        mark.undoSaved++;
+        collectMarks(mark.right, saved);
+    }
+
+    /**
+     * 把记下的位置恢复到原来的偏移量，已经被回收的位置直接跳过
+     */
+    private void restoreMarks(List<UndoMark> saved) {
+        this.purgeMarks();
+        releaseMarks(saved);
+        for (UndoMark undoMark : saved) {
+            Mark mark = undoMark.mark;
+            if(mark.reference == null) continue;
+            this.removeMark(mark);
+            mark.offset = undoMark.offset;
+            Mark[] parts = splitMarks(marks, mark.offset);
+            marks = mergeMarks(mergeMarks(parts[0], mark), parts[1]);
+        }
+    }
+
+    /**
+     * 撤销记录不再需要这些位置了（已经恢复，或者撤销记录被丢弃），之后它们又可以被新位置共用了
+     */
+    private static void releaseMarks(List<UndoMark> saved) {
+        for (UndoMark undoMark : saved) undoMark.mark.undoSaved--;
+    }
+
+    /**
+     * 在偏移量相同的一组位置中找一个可以共用的：还有人引用，并且没有被撤销记录保存着
+     */
+    private static StickyPosition shareable(Mark mark) {
+        if(mark == null) return null;
+        StickyPosition position = mark.reference == null ? null : mark.reference.get();
+        if(position != null && mark.undoSaved == 0) return position;
+        position = shareable(mark.left);
+        return position != null ? position : shareable(mark.right);
+    }
+
+    private void removeMark(Mark mark) {
+        List<Mark> path = new ArrayList<>();
+        for (Mark node = mark; node != null; node = node.parent) path.add(node);
+        for (int i = path.size() - 1; i >= 0; i--) pushDown(path.get(i));
+        Mark replacement = mergeMarks(mark.left, mark.right);
+        Mark parent = mark.parent;
+        if(parent == null) marks = link(replacement, null);
+        else if(parent.left == mark) parent.left = link(replacement, parent);
+        else parent.right = link(replacement, parent);
+        mark.parent = mark.left = mark.right = null;
+    }
+
+    /**
+     * 计算位置当前的偏移量：祖先结点上还没有下放的标记都要作用在它上面，越靠近根的标记越新
+     */
+    private static int offsetOf(Mark mark) {
+        int offset = mark.offset;
+        for (Mark node = mark.parent; node != null; node = node.parent)
+            offset = (node.assign ? node.assignValue : offset) + node.add;
+        return offset;
+    }
+
+    /**
+     * 对整个子树做一次修改：先（可选地）设置为assignValue，再加上add。结点自身立即修改，子结点的部分先记在结点上
+     */
+    private static void apply(Mark mark, boolean assign, int assignValue, int add) {
+        if(mark == null) return;
+        mark.offset = (assign ? assignValue : mark.offset) + add;
+        if(assign) {
+            mark.assign = true;
+            mark.assignValue = assignValue;
+            mark.add = add;
+        } else {
+            mark.add += add;
+        }
+    }
+
+    private static void pushDown(Mark mark) {
+        if(!mark.assign && mark.add == 0) return;
+        apply(mark.left, mark.assign, mark.assignValue, mark.add);
+        apply(mark.right, mark.assign, mark.assignValue, mark.add);
+        mark.assign = false;
+        mark.add = 0;
+    }
+
+    /**
+     * 把位置树分成两部分：偏移量小于bound的，以及大于等于bound的
+     */
+    private static Mark[] splitMarks(Mark mark, int bound) {
+        if(mark == null) return new Mark[2];
+        pushDown(mark);
+        Mark[] parts;
+        if(mark.offset < bound) {
+            parts = splitMarks(mark.right, bound);
+            mark.right = link(parts[0], mark);
+            parts[0] = mark;
+        } else {
+            parts = splitMarks(mark.left, bound);
+            mark.left = link(parts[1], mark);
+            parts[1] = mark;
+        }
+        mark.parent = null;
+        return parts;
+    }
+
+    private static Mark mergeMarks(Mark left, Mark right) {
+        if(left == null) return right;
+        if(right == null) return left;
+        if(left.priority >= right.priority) {
+            pushDown(left);
+            left.right = link(mergeMarks(left.right, right), left);
+            left.parent = null;
+            return left;
+        }
+        pushDown(right);
+        right.left = link(mergeMarks(left, right.left), right);
+        right.parent = null;
+        return right;
+    }
+
+    private static Mark link(Mark child, Mark parent) {
+        if(child != null) child.parent = parent;
+        return child;
+    }
+
+    private static final class Mark {
+        private int offset;             //已经应用了自身标记之后的偏移量
+        private final int priority;
+        private Mark left, right, parent;
+        private boolean assign;         //还没有下放给子结点的修改：先设置为assignValue（如果assign），再加上add
+        private int assignValue;
+        private int add;
+        private MarkReference reference;
+        private int undoSaved;          //保存着这个位置的撤销记录的数量，不为0时不能和新位置共用
+
+        Mark(int offset, int priority) {
+            this.offset = offset;
+            this.priority = priority;
+        }
+    }
+
+    private static final class UndoMark {
+        private final Mark mark;
+        private final int offset;
+
+        UndoMark(Mark mark, int offset) {
+            this.mark = mark;
+            this.offset = offset;
+        }
+    }
+
+    private static final class MarkReference extends WeakReference<StickyPosition> {
+        private final Mark mark;
+
+        MarkReference(StickyPosition position, ReferenceQueue<StickyPosition> queue, Mark mark) {
+            super(position, queue);
+            this.mark = mark;
+        }
+    }
+
+    private static final class StickyPosition implements Position {
+        private final Mark mark;
+
+        StickyPosition(Mark mark) {
+            this.mark = mark;
+        }
+
+        @Override
+        public int getOffset() {
+            return offsetOf(mark);
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(getOffset());
+        }
+    }
+
+    //----------------------------- 撤销和重做 -----------------------------
+
+    /**
+     * 插入的撤销，撤销时把插入的片段整体取下来保存，重做时再原样放回去
+     */
+    private class InsertEdit extends AbstractUndoableEdit {
+        private final int offset;
+        private final int length;
+        private Piece pieces;
+        private List<UndoMark> marks;
+
+        InsertEdit(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            marks = PieceTableContent.this.marksInRange(offset, length);
+            pieces = PieceTableContent.this.removePieces(offset, length);
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            PieceTableContent.this.reinsertPieces(offset, pieces, marks);
+            pieces = null;
+            marks = null;
+        }
+
+        @Override
+        public void die() {
+            super.die();
+            if(marks != null) releaseMarks(marks);
+            marks = null;
+        }
+    }
+
+    /**
+     * 删除的撤销，保存的是被删除的片段而不是文字
+     */
+    private class RemoveEdit extends AbstractUndoableEdit {
+        private final int offset;
+        private final Piece pieces;
+        private List<UndoMark> marks;
+
+        RemoveEdit(int offset, Piece pieces, List<UndoMark> marks) {
+            this.offset = offset;
+            this.pieces = pieces;
+            this.marks = marks;
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            PieceTableContent.this.reinsertPieces(offset, pieces, marks);
+            marks = null;
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            marks = PieceTableContent.this.marksInRange(offset, size(pieces));
+            PieceTableContent.this.removePieces(offset, size(pieces));
+        }
+
+        @Override
+        public void die() {
+            super.die();
+            if(marks != null) releaseMarks(marks);
+            marks = null;
+        }
+    }
+
+    /**
+     * 文档某一时刻的只读快照，之后的编辑不会影响它，可以在任意线程中读取
+     */
+    public static final class Snapshot implements CharSequence {
+        private final Piece root;
+        private final int offset;
+        private final int length;
+
+        private Snapshot(Piece root, int offset, int length) {
+            this.root = root;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if(index < 0 || index >= length) throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+            return PieceTableContent.charAt(root, offset + index);
+        }
+
+        /**
+         * 子序列同样是快照，不会复制内容
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if(start < 0 || end > length || start > end) throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+            return new Snapshot(root, offset + start, end - start);
+        }
+
+        /**
+         * 把[srcBegin, srcEnd)范围内的字符复制到dst中，和String.getChars一样
+         */
+        public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+            if(srcBegin < 0 || srcEnd > length || srcBegin > srcEnd) throw new IndexOutOfBoundsException("begin " + srcBegin + ", end " + srcEnd + ", length " + length);
+            copy(root, offset + srcBegin, offset + srcEnd, dst, dstBegin);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[length];
+            copy(root, offset, offset + length, chars, 0);
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.intellij.window.component;
+
+import javax.swing.text.Element;
+import javax.swing.text.PlainDocument;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 编辑框使用的文档，内容保存在片段表中，其它行为和PlainDocument基本一样。
+ * 区别在于撤销删除（或者重做插入）时，在插入点上、编辑之后才创建的位置会留在原地，不会像GapContent那样被推到插入内容的后面。
+ * 可以随时获取内容的快照，交给后台线程保存文件或者编译，不需要复制整个文档。
+ */
+public class PieceTableDocument extends PlainDocument {
+    private final PieceTableContent content;
+
+    /**
+     * 创建一个空文档
+     */
+    public PieceTableDocument() {
+        this(new PieceTableContent());
+    }
+
+    /**
+     * 以已有的内容创建文档，比如刚读入的文件，或者还没有写入磁盘的快照
+     * @param content 文档内容
+     */
+    public PieceTableDocument(PieceTableContent content) {
+        super(content);
+        this.content = content;
+        this.buildLines();
+    }
+
+    /**
+     * 当前内容的快照（不包括末尾隐含的换行符）
+     * @return 快照
+     */
+    public PieceTableContent.Snapshot snapshot() {
+        this.readLock();
+        try {
+            return content.snapshot();
+        } finally {
+            this.readUnlock();
+        }
+    }
+
+    /**
+     * PlainDocument以已有的内容创建时只会建立一行，这里按照换行符把行结构补齐
+     */
+    private void buildLines() {
+        if(content.length() <= 1) return;
+        List<Element> lines = new ArrayList<>();
+        BranchElement root = (BranchElement) this.getDefaultRootElement();
+        int[] lineStart = {0};
+        content.forEachLineBreak(offset -> {
+            lines.add(this.createLeafElement(root, null, lineStart[0], offset + 1));
+            lineStart[0] = offset + 1;
+        });
+        lines.add(this.createLeafElement(root, null, lineStart[0], content.length()));
+        this.writeLock();
+        try {
+            root.replace(0, root.getElementCount(), lines.toArray(new Element[0]));
+        } finally {
+            this.writeUnlock();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.intellij.window.component;
+
+import com.intellij.manage.TimeSeries;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.function.DoubleFunction;
+
+/**
+ * 迷你折线图，用于展示一个时间序列最近的变化趋势，左上角是名称和最新的值。
+ * 纵轴从0开始，按序列中的最大值自动缩放，横轴固定为序列的容量，新数据从右边进入。
+ */
+public class SparklinePanel extends JPanel {
+    private static final Color LINE = new Color(80, 140, 220);
+    private static final Color FILL = new Color(80, 140, 220, 50);
+
+    private final String title;
+    private final DoubleFunction<String> formatter;
+    private final double minimumScale;       //纵轴的最小范围，防止数值很小时的抖动被放大
+    private TimeSeries series;
+    private String extra = "";
+
+    /**
+     * 创建一个迷你折线图
+     * @param title 名称
+     * @param formatter 数值的格式化方式
+     * @param minimumScale 纵轴的最小范围
+     */
+    public SparklinePanel(String title, DoubleFunction<String> formatter, double minimumScale) {
+        this.title = title;
+        this.formatter = formatter;
+        this.minimumScale = minimumScale;
+        this.setPreferredSize(new Dimension(200, 48));
+    }
+
+    /**
+     * 设定要展示的时间序列并重新绘制
+     * @param series 时间序列，为null时只展示名称
+     * @param extra 附加在最新值后面的说明文字
+     */
+    public void update(TimeSeries series, String extra){
+        this.series = series;
+        this.extra = extra;
+        this.repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        double[] values = series == null ? new double[0] : series.snapshot();
+        String latest = values.length == 0 ? "--" : formatter.apply(values[values.length - 1]);
+        g2.setColor(this.getForeground());
+        g2.setFont(this.getFont().deriveFont(11.0F));
+        g2.drawString(title + "：" + latest + extra, 4, 13);
+        if(values.length < 2) {
+            g2.dispose();
+            return;
+        }
+        double max = minimumScale;
+        for (double value : values) max = Math.max(max, value);
+        int top = 18, height = this.getHeight() - top - 3, width = this.getWidth() - 8;
+        double step = (double) width / (series.capacity() - 1);
+        int offset = 4 + (int) ((series.capacity() - values.length) * step);
+        int[] xs = new int[values.length + 2], ys = new int[values.length + 2];
+        for (int i = 0; i < values.length; i++) {
+            xs[i] = offset + (int) (i * step);
+            ys[i] = top + height - (int) (Math.max(0, values[i]) / max * height);
+        }
+        xs[values.length] = xs[values.length - 1];
+        ys[values.length] = top + height;
+        xs[values.length + 1] = xs[0];
+        ys[values.length + 1] = top + height;
+        g2.setColor(FILL);
+        g2.fillPolygon(xs, ys, values.length + 2);
+        g2.setColor(LINE);
+        g2.drawPolyline(xs, ys, values.length);
+        g2.dispose();
+    }
+}
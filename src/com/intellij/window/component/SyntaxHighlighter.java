@@ -0,0 +1,228 @@
+package com.intellij.window.component;
+
+import com.intellij.window.enums.TokenType;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.Segment;
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * 增量的语法高亮：记录每一行开始时的词法状态和这一行中的记号，文档修改之后，
+ * 只从被修改的那一行开始重新分析，直到某一行结束时的状态和原来一样为止（后面的行不受影响）。
+ * 记号全部保存在基本类型数组中：每一行一个int数组，每个记号占两个int（起始位置，长度和类型），
+ * 数组在重新分析时重复使用，连续输入时不会产生大量的小对象。
+ * 整个文档的第一次分析推迟到第一次绘制时进行，切换文件时不会重复分析。
+ */
+public class SyntaxHighlighter implements DocumentListener, JavaLexer.TokenSink {
+    private static final int TYPE_BITS = 3;     //记号类型占用的位数，TokenType不超过8种
+    private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+    private final JTextComponent component;
+    private Document document;
+    private boolean enabled = false;
+    private boolean valid = false;              //是否已经分析过当前文档
+    private int lineCount = 0;
+    private byte[] states = new byte[1024];     //states[i]是第i行开始时的状态，states[lineCount]是文档结束时的状态
+    private int[][] tokens = new int[1024][];
+    private int[] tokenCounts = new int[1024];
+    private char[] lineChars = new char[256];   //正在分析的这一行的内容，重复使用
+    private final Segment segment = new Segment();
+    private int currentLine;                    //正在分析的行，记号回调时写入这一行
+    private long lexedLines = 0;                //累计分析过的行数（包括第一次分析）
+
+    /**
+     * @param component 使用高亮的编辑框，重新分析的范围超出修改的行时由这里安排重绘
+     */
+    public SyntaxHighlighter(JTextComponent component) {
+        this.component = component;
+        this.segment.setPartialReturn(true);
+    }
+
+    /**
+     * 切换到新的文档，之前的分析结果作废，下次绘制时重新分析
+     * @param document 文档
+     */
+    public void setDocument(Document document) {
+        if(this.document != null) this.document.removeDocumentListener(this);
+        this.document = document;
+        if(document != null) document.addDocumentListener(this);
+        this.valid = false;
+    }
+
+    /**
+     * 开启或者关闭高亮，只有Java源文件需要高亮
+     * @param enabled 是否开启
+     */
+    public void setEnabled(boolean enabled) {
+        if(this.enabled == enabled) return;
+        this.enabled = enabled;
+        this.valid = false;
+        component.repaint();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 确保整个文档都已经分析过了，绘制之前调用（绘制时已经持有文档的读锁）
+     * @return 是否有可用的高亮结果
+     */
+    boolean ensureLexed() {
+        if(!enabled || document == null) return false;
+        if(!valid) {
+            lineCount = 0;
+            int lines = document.getDefaultRootElement().getElementCount();
+            this.insertLines(0, lines);
+            states[0] = JavaLexer.NORMAL;
+            this.relex(0, lines - 1);
+            valid = true;
+        }
+        return true;
+    }
+
+    /**
+     * 某一行中记号的数量
+     */
+    int tokenCount(int line) {
+        return tokenCounts[line];
+    }
+
+    /**
+     * 某一行中第index个记号的起始位置（相对于行首）
+     */
+    int tokenStart(int line, int index) {
+        return tokens[line][index * 2];
+    }
+
+    int tokenLength(int line, int index) {
+        return tokens[line][index * 2 + 1] >>> TYPE_BITS;
+    }
+
+    TokenType tokenType(int line, int index) {
+        return TokenType.of(tokens[line][index * 2 + 1] & TYPE_MASK);
+    }
+
+    /**
+     * 累计分析过的行数，可以用来观察增量分析的效果
+     */
+    public long getLexedLines() {
+        return lexedLines;
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        if(!enabled || !valid) return;
+        Element root = document.getDefaultRootElement();
+        int first = root.getElementIndex(e.getOffset());
+        int added = root.getElementCount() - lineCount;
+        this.insertLines(first + 1, added);
+        this.relex(first, first + added);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        if(!enabled || !valid) return;
+        Element root = document.getDefaultRootElement();
+        int first = root.getElementIndex(e.getOffset());
+        this.removeLines(first + 1, lineCount - root.getElementCount());
+        this.relex(first, first);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {}
+
+    /**
+     * 在at处插入count个空行，后面的行（包括它们开始时的状态）整体后移
+     */
+    private void insertLines(int at, int count) {
+        if(count <= 0) return;
+        int required = lineCount + count + 1;
+        if(required > states.length) {
+            int capacity = Math.max(required, states.length * 2);
+            states = Arrays.copyOf(states, capacity);
+            tokens = Arrays.copyOf(tokens, capacity);
+            tokenCounts = Arrays.copyOf(tokenCounts, capacity);
+        }
+        System.arraycopy(states, at, states, at + count, lineCount + 1 - at);
+        System.arraycopy(tokens, at, tokens, at + count, lineCount - at);
+        System.arraycopy(tokenCounts, at, tokenCounts, at + count, lineCount - at);
+        for (int i = at; i < at + count; i++) {
+            tokens[i] = null;
+            tokenCounts[i] = 0;
+        }
+        lineCount += count;
+    }
+
+    /**
+     * 删除从at开始的count行，后面的行整体前移
+     */
+    private void removeLines(int at, int count) {
+        if(count <= 0) return;
+        System.arraycopy(states, at + count, states, at, lineCount + 1 - at - count);
+        System.arraycopy(tokens, at + count, tokens, at, lineCount - at - count);
+        System.arraycopy(tokenCounts, at + count, tokenCounts, at, lineCount - at - count);
+        lineCount -= count;
+        Arrays.fill(tokens, lineCount, lineCount + count, null);
+    }
+
+    /**
+     * 从first行开始重新分析，至少分析到last行，之后一旦某一行结束时的状态和原来一样就停止
+     */
+    private void relex(int first, int last) {
+        Element root = document.getDefaultRootElement();
+        int line = first;
+        while (line < lineCount) {
+            Element element = root.getElement(line);
+            int start = element.getStartOffset();
+            int length = Math.max(0, Math.min(element.getEndOffset(), document.getLength() + 1) - start - 1);
+            this.loadLine(start, length);
+            tokenCounts[line] = 0;
+            currentLine = line;
+            int end = JavaLexer.lexLine(lineChars, length, states[line], this);
+            boolean converged = line >= last && states[line + 1] == end;
+            states[line + 1] = (byte) end;
+            line++;
+            if(converged) break;
+        }
+        lexedLines += line - first;
+        //编辑框只会重绘被修改的行，比如输入了"/*"，后面受影响的行需要在这里安排重绘
+        if(line - 1 > last) {
+            FontMetrics metrics = component.getFontMetrics(component.getFont());
+            Insets insets = component.getInsets();
+            component.repaint(0, insets.top + first * metrics.getHeight(), component.getWidth(), (line - first) * metrics.getHeight());
+        }
+    }
+
+    /**
+     * 把一行的内容读到lineChars中，文档内容分散在多个片段中时逐段复制，不会创建新的数组
+     */
+    private void loadLine(int start, int length) {
+        if(length > lineChars.length) lineChars = new char[Math.max(length, lineChars.length * 2)];
+        try {
+            for (int copied = 0; copied < length; copied += segment.count) {
+                document.getText(start + copied, length - copied, segment);
+                System.arraycopy(segment.array, segment.offset, lineChars, copied, segment.count);
+            }
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void token(int start, int length, TokenType type) {
+        int[] lineTokens = tokens[currentLine];
+        int count = tokenCounts[currentLine];
+        if(lineTokens == null) lineTokens = tokens[currentLine] = new int[8];
+        else if(count * 2 + 2 > lineTokens.length) lineTokens = tokens[currentLine] = Arrays.copyOf(lineTokens, lineTokens.length * 2);
+        lineTokens[count * 2] = start;
+        lineTokens[count * 2 + 1] = length << TYPE_BITS | type.ordinal();
+        tokenCounts[currentLine] = count + 1;
+    }
+}
@@ -1,20 +1,80 @@
 package com.intellij.window.dialog;
 
+import com.intellij.entity.CompileDiagnostic;
 import com.intellij.window.AbstractWindow;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.io.File;
 
 /**
- * 编译失败对话框
+ * 编译失败对话框，诊断信息以表格的形式展示，可以在编译过程中逐条追加，
+ * 超过上限的诊断信息只计数不展示，防止错误特别多的时候界面卡死。
  */
 public class CompileErrorDialog extends AbstractDialog {
+    private static final int MAX_ROWS = 500;   //最多展示的诊断信息数量
+
+    private DefaultTableModel model;
+    private JLabel summary;
+    private int errorCount = 0;
+    private int omittedCount = 0;
+
+    /**
+     * 创建一个空的编译失败对话框，诊断信息通过addDiagnostic逐条添加
+     * @param parent 父窗口
+     */
+    public CompileErrorDialog(AbstractWindow parent) {
+        super(parent, "编译失败", new Dimension(700, 320));
+        this.setLayout(new BorderLayout());
+        JTable table = new JTable(model = new DefaultTableModel(new String[]{"类型", "文件", "行", "列", "信息"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        });
+        table.getColumnModel().getColumn(0).setPreferredWidth(50);
+        table.getColumnModel().getColumn(1).setPreferredWidth(120);
+        table.getColumnModel().getColumn(2).setPreferredWidth(40);
+        table.getColumnModel().getColumn(3).setPreferredWidth(40);
+        table.getColumnModel().getColumn(4).setPreferredWidth(450);
+        this.addComponent(new JScrollPane(table), pane -> {});
+        this.add(summary = new JLabel(" "), BorderLayout.SOUTH);
+    }
+
+    /**
+     * 创建一个编译失败对话框，直接展示一段文本（没有结构化诊断信息时使用）
+     * @param parent 父窗口
+     * @param text 文本
+     */
     public CompileErrorDialog(AbstractWindow parent, String text) {
         super(parent, "编译失败", new Dimension(600, 300));
         this.setLayout(new BorderLayout());
         JTextArea area = new JTextArea(text);
         this.addComponent(new JScrollPane(area), pane -> area.setEditable(false));
+    }
 
+    /**
+     * 追加一条诊断信息，只能在事件分发线程中调用
+     * @param diagnostic 诊断信息
+     */
+    public void addDiagnostic(CompileDiagnostic diagnostic){
+        if(model == null) return;
+        if(diagnostic.getKind() == CompileDiagnostic.Kind.ERROR) errorCount++;
+        if(model.getRowCount() >= MAX_ROWS) {
+            omittedCount++;
+        } else {
+            String file = diagnostic.getFile() == null ? "" : new File(diagnostic.getFile()).getName();
+            model.addRow(new Object[]{
+                    diagnostic.getKind() == CompileDiagnostic.Kind.ERROR ? "错误" :
+                            (diagnostic.getKind() == CompileDiagnostic.Kind.WARNING ? "警告" : "提示"),
+                    file,
+                    diagnostic.getLine() < 0 ? "" : diagnostic.getLine(),
+                    diagnostic.getColumn() < 0 ? "" : diagnostic.getColumn(),
+                    diagnostic.getMessage().replace('\n', ' ')
+            });
+        }
+        summary.setText(" 共 " + errorCount + " 个错误" + (omittedCount > 0 ? "，另有 " + omittedCount + " 条未展示" : ""));
     }
 
     @Override
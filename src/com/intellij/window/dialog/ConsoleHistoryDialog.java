@@ -0,0 +1,168 @@
+package com.intellij.window.dialog;
+
+import com.intellij.manage.ConsoleLog;
+import com.intellij.manage.EngineTask;
+import com.intellij.manage.TaskExecutor;
+import com.intellij.window.AbstractWindow;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * 控制台历史记录对话框，按页查看一次运行的完整输出（包括已经从控制台中移除的部分），支持搜索和跳转到指定行。
+ * 每次只从控制台日志中读取一页的内容，不管输出有多少都不会占用太多内存。
+ */
+public class ConsoleHistoryDialog extends AbstractDialog {
+    private static final int PAGE_SIZE = 500;   //每一页的行数
+
+    private ConsoleLog log;
+    private long page = 0;
+    private long lastMatch = -1;
+    private JTextArea content;
+    private JLabel pageLabel;
+    private JTextField searchField;
+    private JTextField lineField;
+    private JButton searchButton;
+    private EngineTask<List<String>> pageTask;
+    private EngineTask<Long> searchTask;
+
+    public ConsoleHistoryDialog(AbstractWindow parent, ConsoleLog log) {
+        super(parent, "控制台历史记录", new Dimension(720, 480));
+        this.log = log;
+        this.showPage(0, -1);
+    }
+
+    @Override
+    protected void initDialogContent() {
+        content = new JTextArea();
+        content.setEditable(false);
+        this.addComponent(new JScrollPane(content), pane -> pane.setBounds(10, 10, 690, 360));
+        //第一排是翻页
+        this.addComponent(new JButton("上一页"), button -> {
+            button.setBounds(10, 380, 80, 25);
+            button.addActionListener(e -> this.showPage(page - 1, -1));
+        });
+        this.addComponent(new JButton("下一页"), button -> {
+            button.setBounds(95, 380, 80, 25);
+            button.addActionListener(e -> this.showPage(page + 1, -1));
+        });
+        this.addComponent((pageLabel = new JLabel()), label -> label.setBounds(185, 380, 250, 25));
+        this.addComponent(new JLabel("跳转到行："), label -> label.setBounds(450, 380, 70, 25));
+        this.addComponent((lineField = new JTextField()), field -> {
+            field.setBounds(520, 380, 100, 25);
+            field.addActionListener(e -> this.gotoLine());
+        });
+        this.addComponent(new JButton("跳转"), button -> {
+            button.setBounds(625, 380, 75, 25);
+            button.addActionListener(e -> this.gotoLine());
+        });
+        //第二排是搜索
+        this.addComponent(new JLabel("搜索："), label -> label.setBounds(10, 412, 50, 25));
+        this.addComponent((searchField = new JTextField()), field -> {
+            field.setBounds(55, 412, 520, 25);
+            field.addActionListener(e -> this.findNext());
+        });
+        this.addComponent((searchButton = new JButton("查找下一个")), button -> {
+            button.setBounds(580, 412, 120, 25);
+            button.addActionListener(e -> this.findNext());
+        });
+    }
+
+    private long pageCount(){
+        return (log.getLineCount() + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    /**
+     * 展示指定的页，并标记出其中的某一行。页的内容在后台任务中读取，读取完成之后再更新界面，
+     * 很长的行也不会卡住界面，翻页太快时之前还没读完的页会被取消
+     * @param target 页码（从0开始）
+     * @param markLine 需要标记的行号，小于0表示不标记
+     */
+    private void showPage(long target, long markLine){
+        if(log == null) return;
+        if(pageTask != null) pageTask.cancel();
+        page = Math.max(0, Math.min(target, pageCount() - 1));
+        long first = page * PAGE_SIZE;
+        EngineTask<List<String>> task = pageTask = TaskExecutor.submit("读取控制台历史记录", current -> log.readLines(first, PAGE_SIZE));
+        task.whenComplete((lines, error) -> SwingUtilities.invokeLater(() -> {
+            if(task != pageTask) return;    //已经换到别的页了
+            pageTask = null;
+            if(error != null && !task.isCancelled()) {
+                content.setText("无法读取控制台日志：" + error.getMessage());
+                return;
+            }
+            if(lines != null) this.renderPage(first, lines, markLine);
+        }));
+    }
+
+    private void renderPage(long first, List<String> lines, long markLine){
+        content.setText(String.join("\n", lines));
+        content.setCaretPosition(0);
+        pageLabel.setText("第 " + (page + 1) + " / " + pageCount() + " 页，共 " + log.getLineCount() + " 行");
+        if(markLine < 0) return;
+        try {
+            int line = (int) (markLine - first);
+            int start = content.getLineStartOffset(line);
+            content.getHighlighter().addHighlight(start, content.getLineEndOffset(line),
+                    new DefaultHighlighter.DefaultHighlightPainter(new Color(255, 200, 0, 120)));
+            content.setCaretPosition(start);
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void gotoLine(){
+        try {
+            long line = Long.parseLong(lineField.getText().trim()) - 1;
+            if(line < 0 || line >= log.getLineCount()) return;
+            this.showPage(line / PAGE_SIZE, line);
+        } catch (NumberFormatException ignored) {}
+    }
+
+    /**
+     * 从上一次匹配的位置（或者当前页的开头）开始向后查找。
+     * 搜索在后台任务中进行，不会卡住界面，也不会阻塞程序输出的写入，再次点击可以取消。
+     */
+    private void findNext(){
+        if(searchTask != null) {
+            searchTask.cancel();
+            return;
+        }
+        String query = searchField.getText();
+        if(query.isEmpty()) return;
+        long from = lastMatch >= page * PAGE_SIZE && lastMatch < (page + 1) * PAGE_SIZE ? lastMatch + 1 : page * PAGE_SIZE;
+        searchButton.setText("取消");
+        EngineTask<Long> task = searchTask = TaskExecutor.submit("搜索控制台历史记录", current -> {
+            long line = log.find(query, from);
+            return line < 0 && from > 0 ? log.find(query, 0) : line;    //到末尾了，从头开始找
+        });
+        task.whenComplete((line, error) -> SwingUtilities.invokeLater(() -> {
+            searchTask = null;
+            searchButton.setText("查找下一个");
+            if(error != null && !task.isCancelled()) {
+                JOptionPane.showMessageDialog(this, "无法搜索控制台日志：" + error.getMessage());
+                return;
+            }
+            if(line == null || !this.isDisplayable()) return;    //已经取消了
+            if(line < 0) {
+                JOptionPane.showMessageDialog(this, "没有找到：" + query);
+                return;
+            }
+            lastMatch = line;
+            this.showPage(line / PAGE_SIZE, line);
+        }));
+    }
+
+    /**
+     * 关闭对话框时取消还在进行的读取和搜索
+     */
+    @Override
+    public void closeDialog() {
+        if(pageTask != null) pageTask.cancel();
+        if(searchTask != null) searchTask.cancel();
+        super.closeDialog();
+    }
+}
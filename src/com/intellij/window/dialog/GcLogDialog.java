@@ -0,0 +1,107 @@
+package com.intellij.window.dialog;
+
+import com.intellij.entity.GcEvent;
+import com.intellij.manage.GcLog;
+import com.intellij.manage.RunSession;
+import com.intellij.window.AbstractWindow;
+import com.intellij.window.component.GcChartPanel;
+import com.intellij.window.component.PauseHistogramPanel;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GC日志分析对话框，包括堆变化和停顿时长图表、停顿时间分布以及每次GC的明细。
+ * 程序还在运行时每秒增量刷新一次，只追加新解析出来的GC事件。
+ */
+public class GcLogDialog extends AbstractDialog {
+    private static final int REFRESH_MILLIS = 1000;
+    private static final int MAX_ROWS = 5000;
+
+    private final RunSession session;
+    private final GcLog gcLog;
+    private final List<GcEvent> events = new ArrayList<>();
+    private final JLabel summary = new JLabel();
+    private final GcChartPanel chart = new GcChartPanel();
+    private final PauseHistogramPanel histogram = new PauseHistogramPanel();
+    private final DefaultTableModel model = new DefaultTableModel(
+            new String[]{"时间", "GC编号", "类型", "停顿", "GC前", "GC后", "堆容量", "分配速率"}, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final Timer timer;
+    private long loaded = 0;      //已经加载的事件数量
+    private boolean finishSeen = false;
+
+    /**
+     * 创建一个GC日志分析对话框，程序还在运行时会定时刷新
+     * @param parent 父窗口
+     * @param session 运行会话，必须开启了GC日志
+     */
+    public GcLogDialog(AbstractWindow parent, RunSession session) {
+        super(parent, "GC日志分析 - " + session.getName() + " #" + session.getId(), new Dimension(820, 520));
+        this.session = session;
+        this.gcLog = session.getGcLog();
+        this.setLayout(new BorderLayout());
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("堆和停顿", chart);
+        tabs.addTab("停顿分布", histogram);
+        JTable table = new JTable(model);
+        table.getColumnModel().getColumn(2).setPreferredWidth(260);
+        tabs.addTab("GC事件", new JScrollPane(table));
+        this.add(summary, BorderLayout.NORTH);
+        this.addComponent(tabs, pane -> {});
+        this.add(new JLabel(" 日志文件：" + gcLog.getFile()), BorderLayout.SOUTH);
+        this.refresh();
+        this.timer = new Timer(REFRESH_MILLIS, e -> this.refresh());
+        if(!session.isFinished()) this.timer.start();
+    }
+
+    private void refresh(){
+        boolean finished = session.isFinished();    //先记下状态，保证结束之后还会把最后的内容刷新一次
+        List<GcEvent> added;
+        synchronized (gcLog) {    //GcLog的方法都以自身为锁，这样取出新事件和记下数量之间不会漏掉事件
+            added = gcLog.events((int) loaded);
+            loaded = gcLog.getPauseCount();
+        }
+        for (GcEvent event : added) {
+            events.add(event);
+            model.addRow(new Object[]{
+                    String.format("%.3fs", event.getUptimeSeconds()), event.getGcId(), event.getName(),
+                    String.format("%.3fms", event.getPauseMillis()), RunHistoryDialog.formatMemory(event.getHeapBeforeKb()),
+                    RunHistoryDialog.formatMemory(event.getHeapAfterKb()), RunHistoryDialog.formatMemory(event.getHeapCapacityKb()),
+                    event.getAllocationRate() < 0 ? "未知" : String.format("%.1fMB/s", event.getAllocationRate())
+            });
+        }
+        if(events.size() > MAX_ROWS) {
+            int remove = events.size() - MAX_ROWS;
+            events.subList(0, remove).clear();
+            for (int i = 0; i < remove; i++) model.removeRow(0);
+        }
+        chart.update(new ArrayList<>(events));
+        histogram.update(gcLog.histogram());
+        long count = gcLog.getPauseCount();
+        double rate = gcLog.getAverageAllocationRate();
+        summary.setText(String.format(" 收集器：%s    停顿 %d 次，共 %.1fms，平均 %.2fms，最长 %.2fms    平均分配速率：%s%s",
+                gcLog.getCollector().isEmpty() ? "未知" : gcLog.getCollector(), count, gcLog.getTotalPauseMillis(),
+                count == 0 ? 0 : gcLog.getTotalPauseMillis() / count, gcLog.getMaxPauseMillis(),
+                rate < 0 ? "未知" : String.format("%.1fMB/s", rate), finished ? "" : "    （运行中）"));
+        //会话结束之后GcLog还会把日志的最后一部分读完，所以再多刷新一次才停止
+        if(finishSeen && timer != null) timer.stop();
+        finishSeen = finished;
+    }
+
+    @Override
+    public void closeDialog() {
+        timer.stop();
+        super.closeDialog();
+    }
+
+    @Override
+    protected void initDialogContent() {}
+}
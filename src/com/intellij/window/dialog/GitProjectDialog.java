@@ -1,8 +1,10 @@
 package com.intellij.window.dialog;
 
 import com.intellij.entity.ProcessResult;
+import com.intellij.manage.EngineTask;
 import com.intellij.manage.ProcessExecuteEngine;
 import com.intellij.manage.ProjectManager;
+import com.intellij.manage.TaskExecutor;
 import com.intellij.window.MainWindow;
 import com.intellij.window.WelcomeWindow;
 
@@ -11,6 +13,7 @@ import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.io.File;
+import java.util.function.Consumer;
 
 /**
  * Git项目拉取对话框
@@ -20,10 +23,12 @@ public class GitProjectDialog extends AbstractDialog{
     private JTextField branch;
     private JTextField dir;
     private JButton startFetch;
+    private JProgressBar progressBar;
+    private EngineTask<ProcessResult> fetchTask;
     private final WelcomeWindow parent;
 
     public GitProjectDialog(WelcomeWindow parent) {
-        super(parent, "从Git获取项目", new Dimension(400, 250));
+        super(parent, "从Git获取项目", new Dimension(400, 280));
         this.parent = parent;
     }
 
@@ -64,22 +69,66 @@ public class GitProjectDialog extends AbstractDialog{
             button.setBounds(160, 180, 100, 25);
             button.setEnabled(false);
             button.addActionListener(e -> {
-                startFetch.setEnabled(false);
-                ProcessResult result = ProcessExecuteEngine.fetchFromGit(location.getText(), branch.getText(), dir.getText());
-                if (result.getExitCode() == 0) {
-                    this.closeDialog();
-                    this.parent.dispose();
-                    String[] split = dir.getText().split("/");
-                    String name = split[split.length - 1];
-                    ProjectManager.createProject(name, dir.getText().substring(0, dir.getText().length() - name.length()));
-                    MainWindow window = new MainWindow(name, dir.getText());
-                    window.openWindow();
-                } else {
-                    JOptionPane.showMessageDialog(this, result.getOutput(), "错误", JOptionPane.ERROR_MESSAGE);
-                    startFetch.setEnabled(true);
+                if(fetchTask != null) {    //正在获取时，按钮的作用是取消
+                    fetchTask.cancel();
+                    return;
                 }
+                this.startFetch();
             });
         });
+        //获取进度，git汇报的进度会实时展示在这里
+        this.addComponent((progressBar = new JProgressBar(0, 100)), bar -> {
+            bar.setBounds(20, 215, 360, 18);
+            bar.setStringPainted(true);
+            bar.setVisible(false);
+        });
+    }
+
+    /**
+     * 在后台任务中拉取代码，拉取过程中对话框依然可以响应操作
+     */
+    private void startFetch(){
+        String target = dir.getText();
+        String url = location.getText(), ref = branch.getText();    //文本框只能在事件分派线程中读取
+        startFetch.setText("取消");
+        progressBar.setVisible(true);
+        progressBar.setIndeterminate(true);
+        progressBar.setString("正在连接远程仓库...");
+        fetchTask = TaskExecutor.submit("获取Git项目", task -> {
+            task.report(-1, "正在连接远程仓库...");
+            return ProcessExecuteEngine.fetchFromGit(url, ref, target);
+        });
+        EngineTask<ProcessResult> task = fetchTask;
+        Consumer<EngineTask<?>> listener = changed -> {
+            if(changed == task) SwingUtilities.invokeLater(() -> this.updateProgress(task));
+        };
+        TaskExecutor.addListener(listener);
+        task.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            TaskExecutor.removeListener(listener);
+            fetchTask = null;
+            startFetch.setText("开始获取");
+            progressBar.setVisible(false);
+            if(result == null) return;     //已经取消了
+            if (result.getExitCode() == 0) {
+                this.closeDialog();
+                this.parent.dispose();
+                String[] split = target.split("/");
+                String name = split[split.length - 1];
+                ProjectManager.createProject(name, target.substring(0, target.length() - name.length()));
+                MainWindow window = new MainWindow(name, target);
+                window.openWindow();
+            } else {
+                JOptionPane.showMessageDialog(this, result.getOutput(), "错误", JOptionPane.ERROR_MESSAGE);
+            }
+        }));
+    }
+
+    private void updateProgress(EngineTask<ProcessResult> task){
+        if(task.isDone()) return;
+        double progress = task.getProgress();
+        progressBar.setIndeterminate(progress < 0);
+        if(progress >= 0) progressBar.setValue((int) (progress * 100));
+        progressBar.setString(task.getMessage() + (progress >= 0 ? " " + (int) (progress * 100) + "%" : ""));
     }
 
     private void selectDirectory(){
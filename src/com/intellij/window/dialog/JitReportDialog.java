@@ -0,0 +1,82 @@
+package com.intellij.window.dialog;
+
+import com.intellij.manage.JitInsight;
+import com.intellij.window.AbstractWindow;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+
+/**
+ * JIT分析结果对话框，包括项目中每个方法的编译情况和每个调用点的内联决策两个标签页。
+ * 同样的信息也会直接标注在源代码（鼠标悬停在标记的行上查看）和反编译的字节码中。
+ */
+public class JitReportDialog extends AbstractDialog {
+
+    /**
+     * 创建一个JIT分析结果对话框
+     * @param parent 父窗口
+     * @param insight JIT分析结果
+     */
+    public JitReportDialog(AbstractWindow parent, JitInsight insight) {
+        super(parent, "JIT分析", new Dimension(860, 480));
+        this.setLayout(new BorderLayout());
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("方法", new JScrollPane(this.createMethodTable(insight)));
+        tabs.addTab("调用点", new JScrollPane(this.createCallTable(insight)));
+        this.addComponent(tabs, pane -> {});
+        String summary = " 本次运行共编译了 " + insight.getReport().getCompiledMethodCount() + " 个方法（包括JDK中的方法），"
+                + "源代码和字节码中已经标注出了编译层级、没有内联的调用和去优化的位置";
+        if(!insight.getReport().isComplete()) summary = " 程序被强制停止，编译日志不完整，结果可能缺少一部分编译信息；" + summary;
+        this.add(new JLabel(summary), BorderLayout.SOUTH);
+    }
+
+    private JTable createMethodTable(JitInsight insight){
+        DefaultTableModel model = createModel(new String[]{"方法", "行", "字节码大小", "编译层级", "内联失败", "去优化", "提示"}, 1, 2, 4, 5);
+        insight.getMethodNotes().forEach(note -> model.addRow(new Object[]{
+                note.getMethod(), note.getLine(), note.getCodeLength(), note.getTierText(),
+                note.getInlineFailures(), note.getDeoptimizations(), note.getSizeNote() == null ? "" : note.getSizeNote()
+        }));
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(260);
+        table.getColumnModel().getColumn(3).setPreferredWidth(140);
+        table.getColumnModel().getColumn(6).setPreferredWidth(320);
+        return table;
+    }
+
+    private JTable createCallTable(JitInsight insight){
+        DefaultTableModel model = createModel(new String[]{"调用位置", "被调用方法", "结果", "编译器", "原因"});
+        insight.getCallNotes().forEach(note -> model.addRow(new Object[]{
+                note.getLocation(), note.getCallee(), note.isInlined() ? "已内联" : "未内联", note.getTier(), note.getReasonText()
+        }));
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(220);
+        table.getColumnModel().getColumn(1).setPreferredWidth(220);
+        table.getColumnModel().getColumn(4).setPreferredWidth(320);
+        return table;
+    }
+
+    /**
+     * 创建只读的表格模型，指定的列按数字排序
+     */
+    private static DefaultTableModel createModel(String[] columns, int... numberColumns){
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                for (int numberColumn : numberColumns)
+                    if(numberColumn == column) return Integer.class;
+                return String.class;
+            }
+        };
+    }
+
+    @Override
+    protected void initDialogContent() {}
+}
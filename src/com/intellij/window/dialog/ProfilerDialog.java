@@ -0,0 +1,114 @@
+package com.intellij.window.dialog;
+
+import com.intellij.manage.ProfileReport;
+import com.intellij.window.AbstractWindow;
+
+import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+
+/**
+ * 性能分析结果对话框，包括热点方法表格和调用树两个标签页。
+ * 调用树中的结点在展开时才创建子结点，调用栈很深、分支很多的时候也不会一次性创建太多结点。
+ */
+public class ProfilerDialog extends AbstractDialog {
+    private final int sampleCount;
+
+    /**
+     * 创建一个性能分析结果对话框
+     * @param parent 父窗口
+     * @param report 性能分析报告
+     */
+    public ProfilerDialog(AbstractWindow parent, ProfileReport report) {
+        super(parent, "性能分析", new Dimension(760, 480));
+        this.sampleCount = report.getSampleCount();
+        this.setLayout(new BorderLayout());
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("热点方法", new JScrollPane(this.createMethodTable(report)));
+        tabs.addTab("调用树", new JScrollPane(this.createCallTree(report)));
+        this.addComponent(tabs, pane -> {});
+        this.add(new JLabel(" 共 " + sampleCount + " 个样本（每10毫秒对正在执行Java代码的线程采样一次，"
+                + "等待锁、IO和休眠中的线程不会被采样）"), BorderLayout.SOUTH);
+    }
+
+    private JTable createMethodTable(ProfileReport report){
+        DefaultTableModel model = new DefaultTableModel(new String[]{"方法", "自身样本", "自身占比", "总样本", "总占比"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column == 1 || column == 3 ? Integer.class : String.class;
+            }
+        };
+        report.getHotMethods().forEach(stat -> model.addRow(new Object[]{
+                stat.getMethod(), stat.getSelfSamples(), this.percent(stat.getSelfSamples()),
+                stat.getTotalSamples(), this.percent(stat.getTotalSamples())
+        }));
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(420);
+        return table;
+    }
+
+    private JTree createCallTree(ProfileReport report){
+        DefaultMutableTreeNode root = new CallTreeNode(report.getCallTree());
+        JTree tree = new JTree(new DefaultTreeModel(root));
+        tree.addTreeWillExpandListener(new TreeWillExpandListener() {
+            @Override
+            public void treeWillExpand(TreeExpansionEvent event) {
+                Object node = event.getPath().getLastPathComponent();
+                if(node instanceof CallTreeNode) ((CallTreeNode) node).loadChildren();
+            }
+
+            @Override
+            public void treeWillCollapse(TreeExpansionEvent event) {}
+        });
+        //默认沿着样本最多的路径展开几层，直接就能看到最耗时的调用链
+        CallTreeNode node = (CallTreeNode) root;
+        for (int depth = 0; depth < 8 && !node.call.isLeaf(); depth++) {
+            node.loadChildren();
+            tree.expandPath(new TreePath(node.getPath()));
+            node = (CallTreeNode) node.getChildAt(0);
+        }
+        return tree;
+    }
+
+    private String percent(int samples){
+        return sampleCount == 0 ? "0%" : String.format("%.1f%%", samples * 100.0 / sampleCount);
+    }
+
+    /**
+     * 调用树结点，展开时才加载子结点
+     */
+    private class CallTreeNode extends DefaultMutableTreeNode {
+        private final ProfileReport.CallNode call;
+        private boolean loaded = false;
+
+        CallTreeNode(ProfileReport.CallNode call) {
+            super(percent(call.getSamples()) + "  " + call.getMethod() + "（" + call.getSamples() + "）");
+            this.call = call;
+        }
+
+        void loadChildren(){
+            if(loaded) return;
+            loaded = true;
+            call.getChildren().forEach(child -> this.add(new CallTreeNode(child)));
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return call.isLeaf();
+        }
+    }
+
+    @Override
+    protected void initDialogContent() {}
+}
@@ -1,11 +1,15 @@
 package com.intellij.window.dialog;
 
+import com.intellij.entity.RunProfile;
 import com.intellij.entity.config.ProjectConfigure;
+import com.intellij.entity.enums.CompileMode;
+import com.intellij.entity.enums.RunMode;
 import com.intellij.window.MainWindow;
 import com.intellij.window.service.MainService;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.List;
 
 /**
  * 项目配置对话框
@@ -16,8 +20,17 @@ public class ProjectConfigDialog extends AbstractDialog{
     private final MainService service;
     private JTextField mainClass;
     private JTextField javaCommand;
+    private JComboBox<CompileMode> compileMode;
+    private JComboBox<RunMode> runMode;
+    private JSpinner workerPoolSize;
+    private JSpinner workerMaxIdle;
+    private JTextField testCaseDirectory;
+    private JSpinner testTimeLimit;
+    private JSpinner testMemoryLimit;
+    private JComboBox<RunProfile> runProfile;
+    private List<RunProfile> profiles;
     public ProjectConfigDialog(MainWindow parent, MainService service, ProjectConfigure configure) {
-        super(parent, "项目配置", new Dimension(400, 220));
+        super(parent, "项目配置", new Dimension(400, 445));
         this.configure = configure;
         this.service = service;
         this.initComponentContent();
@@ -28,9 +41,47 @@ public class ProjectConfigDialog extends AbstractDialog{
         //首先是所有的名称
         this.addComponent(new JLabel("主类："), label -> label.setBounds(20, 20, 100, 20));
         this.addComponent(new JLabel("Java位置："), label -> label.setBounds(20, 80, 100, 20));
+        this.addComponent(new JLabel("编译方式："), label -> label.setBounds(20, 150, 100, 20));
+        this.addComponent(new JLabel("运行方式："), label -> label.setBounds(20, 185, 100, 20));
+        this.addComponent(new JLabel("JVM池："), label -> label.setBounds(20, 220, 100, 20));
+        this.addComponent(new JLabel("测试用例："), label -> label.setBounds(20, 255, 100, 20));
+        this.addComponent(new JLabel("用例限制："), label -> label.setBounds(20, 290, 100, 20));
+        this.addComponent(new JLabel("运行配置："), label -> label.setBounds(20, 325, 100, 20));
         //接着是两个配置框
         this.addComponent((mainClass = new JTextField()), field -> field.setBounds(100, 20, 280, 20));
         this.addComponent((javaCommand = new JTextField()), field -> field.setBounds(100, 80, 280, 20));
+        this.addComponent((compileMode = new JComboBox<>(CompileMode.values())), box -> box.setBounds(100, 150, 280, 22));
+        this.addComponent((runMode = new JComboBox<>(RunMode.values())), box -> {
+            box.setBounds(100, 185, 280, 22);
+            box.addActionListener(e -> this.updateWorkerPoolState());
+        });
+        //预热JVM池的大小和空闲回收时间，只有选择了预热JVM池运行方式时才能修改
+        this.addComponent((workerPoolSize = new JSpinner(new SpinnerNumberModel(2, 1, 16, 1))),
+                spinner -> spinner.setBounds(100, 220, 60, 22));
+        this.addComponent(new JLabel("个，空闲"), label -> label.setBounds(165, 220, 60, 20));
+        this.addComponent((workerMaxIdle = new JSpinner(new SpinnerNumberModel(600, 10, 86400, 10))),
+                spinner -> spinner.setBounds(220, 220, 80, 22));
+        this.addComponent(new JLabel("秒后回收"), label -> label.setBounds(305, 220, 80, 20));
+        //测试用例目录中的每个.in文件和同名的.out/.ans文件组成一个用例，每个用例都有时间和内存限制
+        this.addComponent((testCaseDirectory = new JTextField()), field -> {
+            field.setBounds(100, 255, 280, 20);
+            field.setToolTipText("相对于项目根目录，目录中的xxx.in与xxx.out（或xxx.ans）组成一个用例");
+        });
+        this.addComponent((testTimeLimit = new JSpinner(new SpinnerNumberModel(2000, 100, 600000, 100))),
+                spinner -> spinner.setBounds(100, 290, 80, 22));
+        this.addComponent(new JLabel("毫秒，"), label -> label.setBounds(185, 290, 50, 20));
+        this.addComponent((testMemoryLimit = new JSpinner(new SpinnerNumberModel(256, 16, 65536, 16))),
+                spinner -> spinner.setBounds(230, 290, 80, 22));
+        this.addComponent(new JLabel("MB"), label -> label.setBounds(315, 290, 50, 20));
+        //运行配置包括JVM参数、程序参数、环境变量和工作目录，可以有多个，运行时使用这里选中的那个
+        this.addComponent((runProfile = new JComboBox<>()), box -> {
+            box.setBounds(100, 325, 200, 22);
+            box.setToolTipText("运行配置只在“每次启动新的JVM”运行方式下生效");
+        });
+        this.addComponent(new JButton("管理"), button -> {
+            button.setBounds(305, 325, 75, 22);
+            button.addActionListener(e -> this.editProfiles());
+        });
         //然后是对应的描述
         this.addComponent(new JLabel("主类请使用包名.类名，如com.test.Main"),
                 label -> label.setBounds(100, 45, 300, 20));
@@ -40,7 +91,7 @@ public class ProjectConfigDialog extends AbstractDialog{
                 label -> label.setBounds(100, 120, 300, 20));
         //最后是确认按钮
         this.addComponent(new JButton("确定"), button -> {
-            button.setBounds(160, 155, 80, 25);
+            button.setBounds(160, 375, 80, 25);
             button.addActionListener(e -> {
                 this.updateConfigure();
                 this.closeDialog();
@@ -51,10 +102,50 @@ public class ProjectConfigDialog extends AbstractDialog{
     private void initComponentContent(){
         mainClass.setText(configure.getMainClass());
         javaCommand.setText(configure.getJavaCommand());
+        compileMode.setSelectedItem(configure.getCompileMode());
+        runMode.setSelectedItem(configure.getRunMode());
+        workerPoolSize.setValue(configure.getWorkerPoolSize());
+        workerMaxIdle.setValue(configure.getWorkerMaxIdleSeconds());
+        testCaseDirectory.setText(configure.getTestCaseDirectory());
+        testTimeLimit.setValue(configure.getTestTimeLimitMillis());
+        testMemoryLimit.setValue(configure.getTestMemoryLimitMb());
+        profiles = configure.getRunProfiles();
+        this.updateProfileBox(configure.getActiveProfile().getName());
+        this.updateWorkerPoolState();
+    }
+
+    private void editProfiles(){
+        RunProfileDialog dialog = new RunProfileDialog(this, profiles);
+        dialog.openDialog();
+        if(dialog.getProfiles() == null) return;
+        profiles = dialog.getProfiles();
+        this.updateProfileBox(((RunProfile) runProfile.getSelectedItem()).getName());
+    }
+
+    private void updateProfileBox(String selected){
+        runProfile.removeAllItems();
+        profiles.forEach(runProfile::addItem);
+        profiles.stream().filter(profile -> profile.getName().equals(selected)).findFirst()
+                .ifPresent(runProfile::setSelectedItem);
+    }
+
+    private void updateWorkerPoolState(){
+        boolean enabled = runMode.getSelectedItem() == RunMode.WORKER_POOL;
+        workerPoolSize.setEnabled(enabled);
+        workerMaxIdle.setEnabled(enabled);
     }
 
     private void updateConfigure(){
-        ProjectConfigure config = new ProjectConfigure(mainClass.getText(), javaCommand.getText());
+        ProjectConfigure config = new ProjectConfigure(mainClass.getText(), javaCommand.getText(),
+                (CompileMode) compileMode.getSelectedItem());
+        config.setRunMode((RunMode) runMode.getSelectedItem());
+        config.setWorkerPoolSize((Integer) workerPoolSize.getValue());
+        config.setWorkerMaxIdleSeconds((Integer) workerMaxIdle.getValue());
+        config.setTestCaseDirectory(testCaseDirectory.getText().trim());
+        config.setTestTimeLimitMillis((Integer) testTimeLimit.getValue());
+        config.setTestMemoryLimitMb((Integer) testMemoryLimit.getValue());
+        config.setRunProfiles(profiles);
+        config.setActiveProfile(((RunProfile) runProfile.getSelectedItem()).getName());
         service.updateAndSaveConfigure(config);
     }
 }
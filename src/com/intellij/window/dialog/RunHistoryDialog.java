@@ -0,0 +1,124 @@
+package com.intellij.window.dialog;
+
+import com.intellij.entity.RunRecord;
+import com.intellij.window.AbstractWindow;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * 运行记录对话框，上面按运行配置汇总（平均值和最好成绩），下面是最近每一次运行的明细，
+ * 调整堆大小、GC等参数之后多运行几次，就能直接看出效果。
+ */
+public class RunHistoryDialog extends AbstractDialog {
+
+    /**
+     * 创建一个运行记录对话框
+     * @param parent 父窗口
+     * @param records 运行记录，从早到晚排列
+     */
+    public RunHistoryDialog(AbstractWindow parent, List<RunRecord> records) {
+        super(parent, "运行记录", new Dimension(760, 440));
+        this.setLayout(new BorderLayout());
+        JTable summary = createTable(new String[]{"运行配置", "次数", "平均耗时", "最短耗时", "平均CPU时间", "平均峰值内存", "最低峰值内存"});
+        JTable detail = createTable(new String[]{"开始时间", "运行配置", "主类", "耗时", "CPU时间", "峰值内存", "退出代码"});
+        //按运行配置分组汇总，只统计正常退出的运行，被停止或者出错的运行数据没有参考价值
+        Map<String, List<RunRecord>> groups = new LinkedHashMap<>();
+        records.forEach(record -> groups.computeIfAbsent(record.getProfileName(), name -> new ArrayList<>()).add(record));
+        DefaultTableModel summaryModel = (DefaultTableModel) summary.getModel();
+        groups.forEach((name, list) -> {
+            List<RunRecord> valid = new ArrayList<>();
+            list.forEach(record -> { if(record.getExitCode() == 0) valid.add(record); });
+            if(valid.isEmpty()) {
+                summaryModel.addRow(new Object[]{name, list.size() + "（无正常退出）", "", "", "", "", ""});
+                return;
+            }
+            summaryModel.addRow(new Object[]{
+                    name, valid.size(),
+                    formatMillis(average(valid, RunRecord::getWallMillis)),
+                    formatMillis(minimum(valid, RunRecord::getWallMillis)),
+                    formatMillis(average(valid, RunRecord::getCpuMillis)),
+                    formatMemory(average(valid, RunRecord::getPeakRssKb)),
+                    formatMemory(minimum(valid, RunRecord::getPeakRssKb))
+            });
+        });
+        //明细中最近的运行排在最前面
+        DefaultTableModel detailModel = (DefaultTableModel) detail.getModel();
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd HH:mm:ss");
+        for (int i = records.size() - 1; i >= 0; i--) {
+            RunRecord record = records.get(i);
+            detailModel.addRow(new Object[]{
+                    format.format(new Date(record.getStartTime())), record.getProfileName(),
+                    record.getMainClass(), formatMillis(record.getWallMillis()),
+                    formatMillis(record.getCpuMillis()), formatMemory(record.getPeakRssKb()), record.getExitCode()
+            });
+        }
+        JScrollPane summaryPane = new JScrollPane(summary);
+        summaryPane.setPreferredSize(new Dimension(0, 130));
+        this.add(summaryPane, BorderLayout.NORTH);
+        this.addComponent(new JScrollPane(detail), pane -> {});
+        if(records.isEmpty()) this.add(new JLabel(" 还没有运行记录，使用“每次启动新的JVM”方式运行项目之后会自动记录"), BorderLayout.SOUTH);
+    }
+
+    private static JTable createTable(String[] columns){
+        return new JTable(new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * 计算平均值，忽略无法获取（-1）的数据
+     */
+    private static long average(List<RunRecord> records, ToLongFunction<RunRecord> getter){
+        long total = 0, count = 0;
+        for (RunRecord record : records) {
+            long value = getter.applyAsLong(record);
+            if(value < 0) continue;
+            total += value;
+            count++;
+        }
+        return count == 0 ? -1 : total / count;
+    }
+
+    private static long minimum(List<RunRecord> records, ToLongFunction<RunRecord> getter){
+        long min = -1;
+        for (RunRecord record : records) {
+            long value = getter.applyAsLong(record);
+            if(value >= 0 && (min < 0 || value < min)) min = value;
+        }
+        return min;
+    }
+
+    /**
+     * 格式化时长
+     * @param millis 毫秒，小于0表示未知
+     * @return 格式化后的文本
+     */
+    public static String formatMillis(long millis){
+        if(millis < 0) return "未知";
+        if(millis < 1000) return millis + "ms";
+        return String.format("%.2fs", millis / 1000.0);
+    }
+
+    /**
+     * 格式化内存大小
+     * @param kb 千字节，小于0表示未知
+     * @return 格式化后的文本
+     */
+    public static String formatMemory(long kb){
+        if(kb < 0) return "未知";
+        if(kb < 1024) return kb + "KB";
+        return String.format("%.1fMB", kb / 1024.0);
+    }
+
+    @Override
+    protected void initDialogContent() {}
+}
@@ -0,0 +1,152 @@
+package com.intellij.window.dialog;
+
+import com.intellij.entity.RunProfile;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行配置管理对话框，可以新建、删除和修改运行配置（JVM参数、程序参数、环境变量和工作目录）
+ */
+public class RunProfileDialog extends AbstractDialog {
+    private DefaultListModel<RunProfile> model;
+    private JList<RunProfile> list;
+    private JTextField name;
+    private JTextField jvmOptions;
+    private JTextField programArguments;
+    private JTextField workingDirectory;
+    private JTextArea environment;
+    private JCheckBox gcLogging;
+    private int editingIndex = -1;       //正在编辑的配置在列表中的位置
+    private boolean confirmed = false;
+
+    /**
+     * 创建一个运行配置管理对话框
+     * @param parent 父对话框
+     * @param profiles 现有的运行配置，对话框中修改的是它的副本
+     */
+    public RunProfileDialog(AbstractDialog parent, List<RunProfile> profiles) {
+        super(parent, "运行配置", new Dimension(540, 380));
+        profiles.forEach(model::addElement);
+        list.setSelectedIndex(0);
+    }
+
+    @Override
+    protected void initDialogContent() {
+        //左侧是运行配置列表
+        this.addComponent(new JScrollPane(list = new JList<>(model = new DefaultListModel<>())),
+                pane -> pane.setBounds(20, 20, 150, 250));
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.addListSelectionListener(e -> {
+            if(e.getValueIsAdjusting()) return;
+            this.saveEditing();
+            this.loadEditing(list.getSelectedIndex());
+        });
+        this.addComponent(new JButton("新建"), button -> {
+            button.setBounds(20, 280, 70, 25);
+            button.addActionListener(e -> {
+                this.saveEditing();
+                model.addElement(RunProfile.empty(this.uniqueName("配置" + (model.size() + 1))));
+                list.setSelectedIndex(model.size() - 1);
+            });
+        });
+        this.addComponent(new JButton("删除"), button -> {
+            button.setBounds(100, 280, 70, 25);
+            button.addActionListener(e -> {
+                int index = list.getSelectedIndex();
+                if(index < 0 || model.size() <= 1) return;    //至少保留一个配置
+                editingIndex = -1;
+                model.remove(index);
+                list.setSelectedIndex(Math.min(index, model.size() - 1));
+            });
+        });
+        //右侧是选中配置的各项参数
+        this.addComponent(new JLabel("名称："), label -> label.setBounds(190, 20, 80, 20));
+        this.addComponent(new JLabel("JVM参数："), label -> label.setBounds(190, 55, 80, 20));
+        this.addComponent(new JLabel("程序参数："), label -> label.setBounds(190, 90, 80, 20));
+        this.addComponent(new JLabel("工作目录："), label -> label.setBounds(190, 125, 80, 20));
+        this.addComponent(new JLabel("环境变量："), label -> label.setBounds(190, 160, 80, 20));
+        this.addComponent((name = new JTextField()), field -> field.setBounds(270, 20, 240, 20));
+        this.addComponent((jvmOptions = new JTextField()), field -> {
+            field.setBounds(270, 55, 240, 20);
+            field.setToolTipText("比如：-Xmx512m -XX:+UseG1GC，包含空格的参数请用引号包裹");
+        });
+        this.addComponent((programArguments = new JTextField()), field -> field.setBounds(270, 90, 240, 20));
+        this.addComponent((workingDirectory = new JTextField()), field -> {
+            field.setBounds(270, 125, 240, 20);
+            field.setToolTipText("为空时使用项目根目录，相对路径也是相对于项目根目录");
+        });
+        this.addComponent(new JScrollPane(environment = new JTextArea()), pane -> pane.setBounds(270, 160, 240, 85));
+        this.addComponent(new JLabel("每行一个，格式为：名称=值"), label -> label.setBounds(270, 250, 240, 20));
+        this.addComponent((gcLogging = new JCheckBox("记录GC日志（保存在项目的.gclogs目录中）")), box -> {
+            box.setBounds(186, 275, 330, 20);
+            box.setToolTipText("使用-Xlog:gc*记录GC日志，运行时右键控制台标签页可以查看停顿时间、分配速率和堆变化");
+        });
+        this.addComponent(new JButton("确定"), button -> {
+            button.setBounds(230, 310, 80, 25);
+            button.addActionListener(e -> {
+                this.saveEditing();
+                confirmed = true;
+                this.closeDialog();
+            });
+        });
+    }
+
+    /**
+     * 将编辑框中的内容保存到正在编辑的配置中
+     */
+    private void saveEditing(){
+        if(editingIndex < 0 || editingIndex >= model.size()) return;
+        Map<String, String> env = new LinkedHashMap<>();
+        for (String line : environment.getText().split("\n")) {
+            int split = line.indexOf('=');
+            if(split > 0) env.put(line.substring(0, split).trim(), line.substring(split + 1).trim());
+        }
+        String profileName = name.getText().trim();
+        if(profileName.isEmpty() || (!profileName.equals(model.get(editingIndex).getName()) && this.nameExists(profileName)))
+            profileName = model.get(editingIndex).getName();    //名称为空或者重复时保留原来的名称
+        model.set(editingIndex, new RunProfile(profileName, jvmOptions.getText().trim(),
+                programArguments.getText().trim(), env, workingDirectory.getText().trim(), gcLogging.isSelected()));
+    }
+
+    private void loadEditing(int index){
+        editingIndex = index;
+        if(index < 0) return;
+        RunProfile profile = model.get(index);
+        name.setText(profile.getName());
+        jvmOptions.setText(profile.getJvmOptions());
+        programArguments.setText(profile.getProgramArguments());
+        workingDirectory.setText(profile.getWorkingDirectory());
+        gcLogging.setSelected(profile.isGcLogging());
+        StringBuilder env = new StringBuilder();
+        profile.getEnvironment().forEach((key, value) -> env.append(key).append('=').append(value).append('\n'));
+        environment.setText(env.toString());
+    }
+
+    private boolean nameExists(String profileName){
+        for (int i = 0; i < model.size(); i++)
+            if(model.get(i).getName().equals(profileName)) return true;
+        return false;
+    }
+
+    private String uniqueName(String base){
+        String profileName = base;
+        for (int i = 2; this.nameExists(profileName); i++) profileName = base + "-" + i;
+        return profileName;
+    }
+
+    /**
+     * 获取修改之后的运行配置
+     * @return 运行配置列表，取消时返回null
+     */
+    public List<RunProfile> getProfiles(){
+        if(!confirmed) return null;
+        List<RunProfile> profiles = new ArrayList<>();
+        for (int i = 0; i < model.size(); i++) profiles.add(model.get(i));
+        return profiles;
+    }
+}
@@ -0,0 +1,104 @@
+package com.intellij.window.dialog;
+
+import com.intellij.entity.TestCaseResult;
+import com.intellij.entity.enums.TestCaseStatus;
+import com.intellij.window.AbstractWindow;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 测试用例结果对话框，以表格的形式展示每个用例的结果、耗时和差异，用例运行完一个就更新一个，
+ * 不需要等所有用例都结束。
+ */
+public class TestCaseDialog extends AbstractDialog {
+    private static final Color PASSED = new Color(90, 170, 90);
+    private static final Color FAILED = new Color(230, 80, 80);
+
+    private final DefaultTableModel model;
+    private final JLabel summary;
+    private final Map<String, Integer> rows = new HashMap<>();     //用例名称对应的行号
+    private final Map<TestCaseStatus, Integer> counts = new EnumMap<>(TestCaseStatus.class);
+    private int finished = 0;
+    private long totalMillis = 0;
+
+    /**
+     * 创建一个测试用例结果对话框，所有用例一开始都是等待状态
+     * @param parent 父窗口
+     * @param names 所有用例的名称
+     */
+    public TestCaseDialog(AbstractWindow parent, List<String> names) {
+        super(parent, "测试用例", new Dimension(720, 360));
+        this.setLayout(new BorderLayout());
+        JTable table = new JTable(model = new DefaultTableModel(new String[]{"用例", "结果", "耗时(ms)", "退出代码", "差异"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        });
+        table.getColumnModel().getColumn(0).setPreferredWidth(80);
+        table.getColumnModel().getColumn(1).setPreferredWidth(80);
+        table.getColumnModel().getColumn(2).setPreferredWidth(60);
+        table.getColumnModel().getColumn(3).setPreferredWidth(60);
+        table.getColumnModel().getColumn(4).setPreferredWidth(420);
+        table.getColumnModel().getColumn(1).setCellRenderer(new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                           boolean hasFocus, int row, int column) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                if(value instanceof TestCaseStatus)
+                    this.setForeground(value == TestCaseStatus.PASSED ? PASSED :
+                            (value == TestCaseStatus.NO_ANSWER ? table.getForeground() : FAILED));
+                else
+                    this.setForeground(Color.GRAY);
+                return this;
+            }
+        });
+        for (String name : names) {
+            rows.put(name, model.getRowCount());
+            model.addRow(new Object[]{name, "等待中", "", "", ""});
+        }
+        this.addComponent(new JScrollPane(table), pane -> {});
+        this.add(summary = new JLabel(" 共 " + names.size() + " 个用例，正在运行..."), BorderLayout.SOUTH);
+    }
+
+    /**
+     * 更新一个用例的结果，只能在事件分发线程中调用
+     * @param result 用例结果
+     */
+    public void addResult(TestCaseResult result){
+        Integer row = rows.get(result.getName());
+        if(row == null) return;
+        model.setValueAt(result.getStatus(), row, 1);
+        model.setValueAt(result.getWallMillis(), row, 2);
+        model.setValueAt(result.getExitCode(), row, 3);
+        model.setValueAt(result.getDetail(), row, 4);
+        counts.merge(result.getStatus(), 1, Integer::sum);
+        finished++;
+        totalMillis += result.getWallMillis();
+        summary.setText(" " + this.summaryText() + "，正在运行...");
+    }
+
+    /**
+     * 所有用例都运行结束（或者被取消）了，只能在事件分发线程中调用
+     * @param cancelled 是否被取消
+     */
+    public void finish(boolean cancelled){
+        summary.setText(" " + this.summaryText() + (cancelled ? "，已取消" : "，用例耗时合计 " + totalMillis + "ms"));
+    }
+
+    private String summaryText(){
+        StringBuilder builder = new StringBuilder("已完成 " + finished + "/" + rows.size());
+        counts.forEach((status, count) -> builder.append("，").append(status).append(" ").append(count));
+        return builder.toString();
+    }
+
+    @Override
+    protected void initDialogContent() {}
+}
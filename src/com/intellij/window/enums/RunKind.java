@@ -0,0 +1,22 @@
+package com.intellij.window.enums;
+
+/**
+ * 运行按钮和分析菜单启动的运行方式，决定程序以什么附加选项运行、结束之后展示什么
+ */
+public enum RunKind {
+    NORMAL(""),                    //普通运行
+    PROFILE(" (性能分析)"),         //在JDK Flight Recorder下运行，结束之后展示热点方法和调用树
+    JIT(" (JIT分析)");              //记录JIT编译日志，结束之后展示编译层级和内联决策
+
+    private final String titleSuffix;
+    RunKind(String titleSuffix){
+        this.titleSuffix = titleSuffix;
+    }
+
+    /**
+     * 控制台标签页标题的后缀
+     */
+    public String getTitleSuffix() {
+        return titleSuffix;
+    }
+}
@@ -0,0 +1,35 @@
+package com.intellij.window.enums;
+
+import java.awt.*;
+
+/**
+ * 语法高亮的记号类型，以及它们在编辑框中的颜色（配合FlatDarkLaf的深色主题）。
+ * 记号在高亮器中以序号（ordinal）保存在基本类型数组里，不会为每个记号创建对象。
+ */
+public enum TokenType {
+    PLAIN(null),                             //普通代码，使用编辑框的前景色，不单独记录
+    KEYWORD(new Color(204, 120, 50)),        //关键字和true、false、null
+    STRING(new Color(106, 135, 89)),         //字符串、字符和文本块
+    NUMBER(new Color(104, 151, 187)),        //数字字面量
+    COMMENT(new Color(128, 128, 128)),       //单行和多行注释
+    DOC_COMMENT(new Color(98, 151, 85)),     //文档注释
+    ANNOTATION(new Color(187, 181, 41));     //注解
+
+    private static final TokenType[] VALUES = values();
+
+    private final Color color;
+    TokenType(Color color){
+        this.color = color;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    /**
+     * 根据序号获取记号类型，values()每次都会复制数组，绘制时频繁调用就不合适了
+     */
+    public static TokenType of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
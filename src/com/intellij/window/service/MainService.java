@@ -1,23 +1,76 @@
 package com.intellij.window.service;
 
+import com.intellij.entity.CompileDiagnostic;
+import com.intellij.entity.OutputChunk;
 import com.intellij.entity.ProcessResult;
+import com.intellij.entity.RunProfile;
+import com.intellij.entity.RunRecord;
+import com.intellij.entity.TestCaseResult;
 import com.intellij.entity.config.ProjectConfigure;
+import com.intellij.entity.enums.CompileMode;
+import com.intellij.entity.enums.RunMode;
+import com.intellij.manage.ClassFileCache;
+import com.intellij.manage.EngineTask;
+import com.intellij.manage.JitInsight;
+import com.intellij.manage.MappedTextFile;
 import com.intellij.manage.ProcessExecuteEngine;
+import com.intellij.manage.ProfileReport;
+import com.intellij.manage.CompileScheduler;
+import com.intellij.manage.ConsoleLog;
 import com.intellij.manage.FileManager;
+import com.intellij.manage.RunSession;
+import com.intellij.manage.TaskExecutor;
+import com.intellij.manage.TestCaseRunner;
+import com.intellij.manage.WriteBehindSaver;
+import com.intellij.manage.classfile.ClassDisassembly;
 import com.intellij.window.MainWindow;
+import com.intellij.window.component.ConsoleOutputPipeline;
+import com.intellij.window.component.JCodeArea;
+import com.intellij.window.component.LargeFileViewer;
+import com.intellij.window.component.MonitorPanel;
+import com.intellij.window.component.PieceTableContent;
+import com.intellij.window.component.PieceTableDocument;
+import com.intellij.window.enums.RunKind;
 import com.intellij.window.dialog.CompileErrorDialog;
+import com.intellij.window.dialog.ConsoleHistoryDialog;
+import com.intellij.window.dialog.GcLogDialog;
+import com.intellij.window.dialog.JitReportDialog;
+import com.intellij.window.dialog.ProfilerDialog;
 import com.intellij.window.dialog.ProjectConfigDialog;
+import com.intellij.window.dialog.RunHistoryDialog;
+import com.intellij.window.dialog.TestCaseDialog;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Document;
+import javax.swing.text.Highlighter;
 import javax.swing.undo.UndoManager;
+import java.awt.*;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.event.*;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class MainService extends AbstractService {
+    //超过这个大小的文件不再读进编辑框，而是使用只读的大文件查看器打开
+    private static final long LARGE_FILE_THRESHOLD = 8L * 1024 * 1024;
     //当前项目的路径和项目名称
     private String path;
     //当前项目的配置文件，包括主类、java可执行文件位置等。
@@ -26,8 +79,31 @@ public class MainService extends AbstractService {
     private File currentFile;
     //重做管理器，用于编辑框支持撤销和重做操作的
     private UndoManager undoManager;
-    //用于记录当前项目是否处于运行状态
-    private boolean isProjectRunning = false;
+    //编辑框文档的监听器，每个文件使用单独的文档，切换文件时要转移到新的文档上
+    private DocumentListener documentListener;
+    //当前打开的大文件查看器，没有打开大文件时为null
+    private LargeFileViewer largeFileViewer;
+    //控制台中每个标签页对应的运行会话（只在事件分发线程中访问）
+    private final Map<Component, RunConsole> runConsoles = new HashMap<>();
+    //后台编译调度器，编辑代码时自动在后台编译检查错误
+    private CompileScheduler compileScheduler;
+    //编辑框的延迟写入，编辑停顿下来之后才在后台把内容写入文件
+    private WriteBehindSaver saver;
+    //最近一次后台检查的诊断信息，以及存在错误的文件（绝对路径）
+    private List<CompileDiagnostic> checkDiagnostics = Collections.emptyList();
+    private Set<String> errorFiles = Collections.emptySet();
+    //状态栏中正在展示的后台任务
+    private EngineTask<?> displayedTask;
+    private Consumer<EngineTask<?>> taskListener;
+    //正在进行的测试用例任务
+    private EngineTask<List<TestCaseResult>> testTask;
+    //最近一次JIT分析的结果，以及它在当前编辑的源文件中的标注
+    private JitInsight jitInsight;
+    private Map<Integer, JitInsight.LineNote> jitNotes = Collections.emptyMap();
+    //当前打开的.class文件的反汇编结果、展开了的方法，以及编辑框中正在展示的反汇编文本
+    private ClassDisassembly classView;
+    private final Set<Integer> expandedMethods = new HashSet<>();
+    private ClassDisassembly.Listing classListing;
 
     /**
      * 设定当前项目的名称和路径
@@ -59,6 +135,18 @@ public class MainService extends AbstractService {
         } else {
             this.updateAndSaveConfigure(new ProjectConfigure("", "java"));
         }
+        this.prepareWorkerPool();
+        this.compileScheduler = new CompileScheduler(path, result -> SwingUtilities.invokeLater(() -> this.publishCheckResult(result)));
+        this.saver = new WriteBehindSaver(SwingUtilities::invokeLater, () -> SwingUtilities.invokeLater(this::updateSaveStatus));
+    }
+
+    /**
+     * 如果项目使用预热JVM池运行，提前把池子准备好
+     */
+    private void prepareWorkerPool(){
+        if(configure != null && configure.getRunMode() == RunMode.WORKER_POOL)
+            ProcessExecuteEngine.prepareWorkerPool(configure.getJavaCommand(), path,
+                    configure.getWorkerPoolSize(), configure.getWorkerMaxIdleSeconds());
     }
 
     /**
@@ -71,6 +159,7 @@ public class MainService extends AbstractService {
         try (ObjectOutputStream stream = new ObjectOutputStream(Files.newOutputStream(Paths.get(path+"/.idea")))){
             stream.writeObject(configure);
             stream.flush();
+            this.prepareWorkerPool();
             if(button != null) {
                 if(configure.getMainClass().isEmpty()) {
                     button.setEnabled(false);
@@ -80,69 +169,444 @@ public class MainService extends AbstractService {
                     button.setToolTipText("点击编译运行项目");
                 }
             }
+            JButton profileButton = this.getComponent("main.button.profile");
+            if(profileButton != null) profileButton.setEnabled(!configure.getMainClass().isEmpty());
+            JButton testButton = this.getComponent("main.button.test");
+            if(testButton != null && (testTask == null || testTask.isDone()))
+                testButton.setEnabled(!configure.getMainClass().isEmpty());
         }catch (Exception e){
             e.printStackTrace();
         }
     }
 
     /**
-     * 运行按钮的行为，包括以下两种行为：
-     * - 如果项目处于运行状态，那么点击就会停止项目。
-     * - 如果项目没有处于运行状态，那么就会启动项目。
+     * 关闭项目，结束正在运行的进程并释放编译资源
+     */
+    public void closeProject(){
+        if(taskListener != null) TaskExecutor.removeListener(taskListener);
+        if(testTask != null) testTask.cancel();
+        compileScheduler.shutdown();
+        //窗口马上就要关掉了，状态栏里的保存状态看不到了，没写完的文件直接提示出来
+        if(!saver.shutdown())
+            JOptionPane.showMessageDialog(this.getWindow(), saver.getLastError(), "保存失败", JOptionPane.WARNING_MESSAGE);
+        this.closeLargeFileViewer();
+        runConsoles.values().forEach(RunConsole::close);
+        ProcessExecuteEngine.stopProject(path);
+        ProcessExecuteEngine.releaseProject(path);
+    }
+
+    /**
+     * 运行按钮的行为，每次点击都会编译并启动一个新的运行会话，在控制台中打开一个新的标签页展示它的输出，
+     * 之前启动的程序不会受影响，可以同时运行多个程序（比如服务端和客户端）。
      */
     public void runButtonAction(){
+        this.startRun(RunKind.NORMAL);
+    }
+
+    /**
+     * 性能分析按钮的行为，和运行按钮一样编译并运行项目，但是会开启JDK Flight Recorder采样，
+     * 程序结束之后打开性能分析对话框，展示热点方法和调用树。性能分析总是启动新的JVM来运行。
+     */
+    public void profileButtonAction(){
+        this.startRun(RunKind.PROFILE);
+    }
+
+    /**
+     * JIT分析的行为，和运行按钮一样编译并运行项目，但是会记录JIT编译日志，程序结束之后打开JIT分析对话框，
+     * 并在源代码和反编译的字节码中标注每个方法的编译层级、没有内联的调用以及原因。JIT分析总是启动新的JVM来运行。
+     */
+    public void jitButtonAction(){
+        this.startRun(RunKind.JIT);
+    }
+
+    /**
+     * 编译并运行项目
+     * @param kind 运行方式
+     */
+    private void startRun(RunKind kind){
         MainWindow window = (MainWindow) this.getWindow();
-        JButton button = this.getComponent("main.button.run");
-        JTextArea consoleArea = this.getComponent("main.textarea.console");
-        //判断当前项目是否已经开始运行了，分别进行操作
-        if(!this.isProjectRunning) {
-            //如果项目没有运行，那么需要先编译项目源代码，如果编译成功，那么就可以开始运行项目了
-            button.setEnabled(false);
-            consoleArea.setText("正在编译项目源代码...");
-            ProcessResult result = ProcessExecuteEngine.buildProject(path);
-            if(result.getExitCode() != 0) {
-                CompileErrorDialog dialog = new CompileErrorDialog(this.getWindow(), result.getOutput());
-                dialog.openDialog();
-                button.setEnabled(true);
-                return;
-            }
-            //项目编译完成之后，可能会新增文件，所以需要刷新一下文件树
-            window.refreshFileTree();
-            //新开一个线程实时对项目的运行进行监控，并实时将项目的输出内容更新到控制台
-            new Thread(() -> {
-                this.isProjectRunning = true;
-                consoleArea.setText("正在编译项目源代码...编译完成，程序已启动：\n");
-                button.setText("停止");
-                button.setEnabled(true);
+        JTabbedPane consoleTabs = this.getComponent("main.tabs.console");
+        //首先为这次运行创建会话和对应的控制台标签页
+        String mainClass = configure.getMainClass();
+        RunProfile profile = configure.getActiveProfile();
+        ConsoleLog consoleLog;
+        try {
+            consoleLog = ConsoleLog.create();
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(window, "无法创建控制台日志：" + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        RunSession session = ProcessExecuteEngine.newSession(path, mainClass);
+        JTextPane consolePane = new JTextPane();
+        consolePane.setText("正在编译项目源代码...");
+        consolePane.setEditable(false);
+        consolePane.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        //启动新JVM运行时，控制台旁边会展示程序的资源监控面板（内存模式下程序在IDE进程内运行，没法单独监控）
+        MonitorPanel monitor = configure.getCompileMode() == CompileMode.MEMORY && kind == RunKind.NORMAL ? null : new MonitorPanel(session);
+        JScrollPane consoleScroll = new JScrollPane(consolePane);
+        JComponent tab = monitor == null ? consoleScroll : new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, consoleScroll, monitor);
+        if(tab instanceof JSplitPane) ((JSplitPane) tab).setResizeWeight(1);    //窗口缩放时只改变控制台的宽度
+        if(runConsoles.isEmpty() && consoleTabs.getTabCount() == 1 && consoleTabs.getTitleAt(0).equals("控制台"))
+            consoleTabs.removeTabAt(0);    //第一次运行时，移除掉占位用的标签页
+        String title = mainClass.substring(mainClass.lastIndexOf('.') + 1) + " #" + session.getId()
+                + (configure.getRunProfiles().size() > 1 ? " [" + profile.getName() + "]" : "")
+                + kind.getTitleSuffix();
+        consoleTabs.addTab(title, tab);
+        consoleTabs.setSelectedComponent(tab);
+        //在后台任务中完成编译，然后实时对项目的运行进行监控，并实时将项目的输出内容更新到控制台
+        //取消任务（状态栏的取消按钮或者停止按钮）时直接结束这个会话中正在运行的进程
+        //输出先进入输出管道，再由界面线程定时批量刷新到控制台，程序输出再快也不会卡住界面
+        //标准输出和错误输出由两个线程同时读取，管道会按读取顺序把它们交错展示出来，错误输出标红
+        ConsoleOutputPipeline pipeline = new ConsoleOutputPipeline(consolePane, consoleLog);
+        pipeline.setMetricsListener(this::updateConsoleStatus);
+        this.setupConsoleInput(session, pipeline, consolePane);
+        Consumer<OutputChunk> console = pipeline::write;
+        saver.flush();
+        EngineTask<ProcessResult> task = TaskExecutor.submit("运行 " + title, runTask -> {
+            runTask.onCancel(session::stop);
+            try {
+                ProcessResult result = this.buildWithErrorDialog();
+                if(result.getExitCode() != 0 || Thread.currentThread().isInterrupted()) {
+                    session.stop();
+                    pipeline.write(Thread.currentThread().isInterrupted() ? "\n已取消" : "\n编译失败，程序没有启动");
+                    return result;
+                }
+                //项目编译完成之后，可能会新增文件，所以需要刷新一下文件树（内存编译不会写入磁盘，就不用刷新了）
+                boolean inMemory = configure.getCompileMode() == CompileMode.MEMORY;
+                if(!inMemory) SwingUtilities.invokeLater(window::refreshFileTree);
+                pipeline.write("编译完成，程序已启动：\n");
+                runTask.report(-1, "程序运行中");
+                boolean newJvm = kind != RunKind.NORMAL || (!inMemory && configure.getRunMode() == RunMode.PROCESS);
+                if(newJvm && profile.isGcLogging())
+                    pipeline.write("（已开启GC日志，右键控制台标签页选择“GC日志分析”可以实时查看）\n");
                 //准备工作完成之后，就可以正式启动进程了，这里最后会返回执行结果
-                ProcessResult res = ProcessExecuteEngine.startProcess(
-                                path, configure.getJavaCommand(), configure.getMainClass(), consoleArea::append);
-                if(res.getExitCode() != 0)
-                    consoleArea.append(res.getOutput());
-                consoleArea.append("\n进程已结束，退出代码 "+res.getExitCode());
-                button.setText("运行");
-                this.isProjectRunning = false;
-            }).start();
-        } else {
-            //如果项目正在运行，那么点击按钮就相当于是结束项目运行
-            ProcessExecuteEngine.stopProcess();
-            this.isProjectRunning = false;
+                ProcessResult res;
+                if(kind == RunKind.PROFILE) {
+                    res = this.runProfiled(session, profile, pipeline);
+                } else if(kind == RunKind.JIT) {
+                    res = this.runJitLogged(session, profile, pipeline);
+                } else if(inMemory && !ProcessExecuteEngine.isInMemoryRunAvailable()) {
+                    //在IDE进程内运行时没法拦截System.exit，程序一退出IDE也跟着退出了，只能把编译结果写出来，改用新的JVM运行
+                    pipeline.write("（当前JDK不允许拦截System.exit，程序改为在新的JVM中运行，编译结果已写出到out目录）\n");
+                    ProcessExecuteEngine.flushMemoryOutput(path);
+                    res = ProcessExecuteEngine.startProcess(session, configure.getJavaCommand(), mainClass, profile, console);
+                } else if(inMemory) {
+                    if(!isEmptyProfile(profile))
+                        pipeline.write("（内存编译模式下程序在IDE进程内运行，不支持运行配置，JVM参数、程序参数等不会生效）\n");
+                    res = ProcessExecuteEngine.startInMemory(session, mainClass, console);
+                } else if(configure.getRunMode() == RunMode.WORKER_POOL) {
+                    if(!isEmptyProfile(profile))
+                        pipeline.write("（预热JVM池运行方式不支持运行配置，JVM参数、程序参数等不会生效）\n");
+                    res = ProcessExecuteEngine.startPooledProcess(session, configure.getJavaCommand(), mainClass,
+                            configure.getWorkerPoolSize(), configure.getWorkerMaxIdleSeconds(), console);
+                } else {
+                    res = ProcessExecuteEngine.startProcess(session, configure.getJavaCommand(), mainClass, profile, console);
+                }
+                if(!res.getOutput().isEmpty())
+                    console.accept(new OutputChunk(OutputChunk.Kind.ERROR, res.getOutput()));
+                RunRecord record = session.getRecord();
+                pipeline.write("\n进程已结束，退出代码 " + res.getExitCode() + (record == null ? "" :
+                        "（耗时 " + RunHistoryDialog.formatMillis(record.getWallMillis())
+                        + "，CPU时间 " + RunHistoryDialog.formatMillis(record.getCpuMillis())
+                        + "，峰值内存 " + RunHistoryDialog.formatMemory(record.getPeakRssKb()) + "）"));
+                return res;
+            } finally {
+                pipeline.finish();
+                SwingUtilities.invokeLater(() -> {
+                    int index = consoleTabs.indexOfComponent(tab);
+                    if(index >= 0) consoleTabs.setTitleAt(index, title + "（已结束）");
+                    this.updateStopButton();
+                });
+            }
+        });
+        runConsoles.put(tab, new RunConsole(session, task, pipeline, monitor));
+        this.updateStopButton();
+    }
+
+    /**
+     * 在JDK Flight Recorder下运行项目，程序结束之后解析记录并打开性能分析对话框
+     * @return 运行结果
+     */
+    private ProcessResult runProfiled(RunSession session, RunProfile profile, ConsoleOutputPipeline pipeline) throws IOException {
+        //内存编译的结果需要先写出到out目录，新的JVM才能加载
+        if(configure.getCompileMode() == CompileMode.MEMORY) ProcessExecuteEngine.flushMemoryOutput(path);
+        File recording = File.createTempFile("profile-", ".jfr");
+        try {
+            Files.deleteIfExists(recording.toPath());    //JFR需要自己创建记录文件
+            ProcessResult result = ProcessExecuteEngine.startProfiledProcess(session, configure.getJavaCommand(),
+                    configure.getMainClass(), profile, recording, pipeline::write);
+            if(!recording.isFile() || recording.length() == 0) {
+                pipeline.write("\n没有生成性能记录（程序被强制停止，或者当前的java不支持JDK Flight Recorder）");
+                return result;
+            }
+            pipeline.write("\n正在分析性能记录...");
+            ProfileReport report = ProcessExecuteEngine.analyzeRecording(recording);
+            SwingUtilities.invokeLater(() -> new ProfilerDialog(this.getWindow(), report).openDialog());
+            return result;
+        } finally {
+            Files.deleteIfExists(recording.toPath());
+        }
+    }
+
+    /**
+     * 记录JIT编译日志运行项目，程序结束之后解析日志，打开JIT分析对话框并更新编辑框中的标注
+     * @return 运行结果
+     */
+    private ProcessResult runJitLogged(RunSession session, RunProfile profile, ConsoleOutputPipeline pipeline) throws IOException {
+        if(configure.getCompileMode() == CompileMode.MEMORY) ProcessExecuteEngine.flushMemoryOutput(path);
+        File log = File.createTempFile("jit-", ".log");
+        try {
+            ProcessResult result = ProcessExecuteEngine.startJitLoggedProcess(session, configure.getJavaCommand(),
+                    configure.getMainClass(), profile, log, pipeline::write);
+            if(log.length() == 0) {
+                pipeline.write("\n没有生成JIT编译日志（当前的java可能不是HotSpot虚拟机）");
+                return result;
+            }
+            pipeline.write("\n正在分析JIT编译日志...");
+            JitInsight insight = ProcessExecuteEngine.analyzeJitLog(path, log);
+            SwingUtilities.invokeLater(() -> {
+                jitInsight = insight;
+                this.updateJitNotes();
+                this.highlightErrors();
+                if(classView != null) this.renderClassView(-1, true);
+                new JitReportDialog(this.getWindow(), insight).openDialog();
+            });
+            return result;
+        } finally {
+            Files.deleteIfExists(log.toPath());
         }
     }
 
     /**
-     * 构建按钮的行为，很明显，直接构建就完事了
+     * 停止按钮的行为，停止控制台中当前选中的标签页对应的运行会话（如果还在编译，编译也会被取消）
+     */
+    public void stopButtonAction(){
+        RunConsole console = this.selectedConsole();
+        if(console != null) console.task.cancel();
+    }
+
+    /**
+     * 关闭控制台中当前选中的标签页，如果对应的程序还在运行，会先停止它
+     */
+    public void closeConsoleTab(){
+        JTabbedPane consoleTabs = this.getComponent("main.tabs.console");
+        Component tab = consoleTabs.getSelectedComponent();
+        if(tab == null) return;
+        RunConsole console = runConsoles.remove(tab);
+        if(console != null) console.close();
+        consoleTabs.remove(tab);
+    }
+
+    /**
+     * 打开当前选中的标签页的完整输出历史记录
+     */
+    public void openConsoleHistory(){
+        RunConsole console = this.selectedConsole();
+        if(console == null) return;
+        new ConsoleHistoryDialog(this.getWindow(), console.pipeline.getLog()).openDialog();
+    }
+
+    /**
+     * 打开运行记录对话框，按运行配置对比最近几次运行的耗时和内存
+     */
+    public void openRunHistory(){
+        new RunHistoryDialog(this.getWindow(), ProcessExecuteEngine.runHistory(path)).openDialog();
+    }
+
+    /**
+     * 打开控制台中当前选中的运行会话的GC日志分析对话框
+     */
+    public void openGcLog(){
+        RunConsole console = this.selectedConsole();
+        if(console == null) return;
+        if(console.session.getGcLog() == null) {
+            JOptionPane.showMessageDialog(this.getWindow(), "这次运行没有记录GC日志，请在运行配置中勾选“记录GC日志”之后重新运行！",
+                    "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        new GcLogDialog(this.getWindow(), console.session).openDialog();
+    }
+
+    private static boolean isEmptyProfile(RunProfile profile){
+        return profile.getJvmOptions().isEmpty() && profile.getProgramArguments().isEmpty()
+                && profile.getEnvironment().isEmpty() && profile.getWorkingDirectory().isEmpty() && !profile.isGcLogging();
+    }
+
+    /**
+     * 根据当前选中的标签页是否还在运行，更新停止按钮的状态，以及状态栏中的控制台输出指标
+     */
+    public void updateStopButton(){
+        JButton button = this.getComponent("main.button.stop");
+        RunConsole console = this.selectedConsole();
+        if(button != null) button.setEnabled(console != null && !console.task.isDone());
+        this.updateConsoleStatus();
+    }
+
+    /**
+     * 在状态栏中展示当前选中的标签页的输出指标，包括输出速率、缓冲区占用和背压（阻塞）情况
+     */
+    private void updateConsoleStatus(){
+        JLabel label = this.getComponent("main.label.console");
+        if(label == null) return;
+        RunConsole console = this.selectedConsole();
+        if(console == null) {
+            label.setText(" ");
+            return;
+        }
+        ConsoleOutputPipeline pipeline = console.pipeline;
+        label.setText(String.format("输出：%s字符/秒，共 %s 字符，缓冲 %d%%，阻塞 %d 次（%dms）%s",
+                formatCount(pipeline.getCharsPerSecond()), formatCount(pipeline.getTotalChars()),
+                (int) (pipeline.getBufferUsage() * 100), pipeline.getBlockedCount(), pipeline.getBlockedMillis(),
+                pipeline.getTrimmedLines() > 0 ? "，较早的 " + formatCount(pipeline.getTrimmedLines()) + " 行已移入历史记录" : ""));
+    }
+
+    private static String formatCount(long count){
+        if(count < 10000) return String.valueOf(count);
+        if(count < 10000000) return String.format("%.1fK", count / 1000.0);
+        return String.format("%.1fM", count / 1000000.0);
+    }
+
+    private RunConsole selectedConsole(){
+        JTabbedPane consoleTabs = this.getComponent("main.tabs.console");
+        Component tab = consoleTabs == null ? null : consoleTabs.getSelectedComponent();
+        return tab == null ? null : runConsoles.get(tab);
+    }
+
+    /**
+     * 构建按钮的行为，很明显，直接构建就完事了（在后台任务中进行，编译错误会实时展示出来）
      */
     public void buildButtonAction(){
         MainWindow window = (MainWindow) this.getWindow();
-        ProcessResult result = ProcessExecuteEngine.buildProject(path);
-        if(result.getExitCode() == 0) {
-            JOptionPane.showMessageDialog(window, "编译成功！");
-        } else {
-            CompileErrorDialog dialog = new CompileErrorDialog(window, result.getOutput());
-            dialog.openDialog();
+        JButton button = this.getComponent("main.button.build");
+        button.setEnabled(false);
+        saver.flush();
+        TaskExecutor.<ProcessResult>submit("构建项目", task -> this.buildWithErrorDialog())
+                .whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                    button.setEnabled(true);
+                    if(result == null) return;    //任务被取消了
+                    if(result.getExitCode() == 0)
+                        JOptionPane.showMessageDialog(window, "编译成功！");
+                    if(configure.getCompileMode() != CompileMode.MEMORY)
+                        window.refreshFileTree();
+                }));
+    }
+
+    /**
+     * 测试按钮的行为，先构建项目，然后使用用例目录中的所有测试用例并行运行主类，结果实时展示在测试用例对话框中
+     */
+    public void testButtonAction(){
+        MainWindow window = (MainWindow) this.getWindow();
+        JButton button = this.getComponent("main.button.test");
+        File caseDirectory = new File(path, configure.getTestCaseDirectory());
+        List<TestCaseRunner.TestCase> cases = ProcessExecuteEngine.findTestCases(caseDirectory);
+        if(cases.isEmpty()) {
+            JOptionPane.showMessageDialog(window, "测试用例目录 " + caseDirectory.getPath()
+                    + " 中没有找到用例！\n请在其中放入xxx.in以及对应的xxx.out（或xxx.ans）文件，也可以在项目配置中修改用例目录。");
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        cases.forEach(testCase -> names.add(testCase.getName()));
+        TestCaseDialog dialog = new TestCaseDialog(window, names);
+        button.setEnabled(false);
+        saver.flush();
+        testTask = TaskExecutor.<List<TestCaseResult>>submit("测试用例", task -> {
+            ProcessResult result = this.buildWithErrorDialog();
+            if(result.getExitCode() != 0 || Thread.currentThread().isInterrupted()) return null;
+            //测试用例总是启动新的JVM来运行，内存编译的结果需要先写出到out目录
+            if(configure.getCompileMode() == CompileMode.MEMORY) ProcessExecuteEngine.flushMemoryOutput(path);
+            task.report(0, "已完成 0/" + cases.size());
+            return ProcessExecuteEngine.runTestCases(path, configure.getJavaCommand(), configure.getMainClass(), cases,
+                    configure.getTestTimeLimitMillis(), configure.getTestMemoryLimitMb(),
+                    testCase -> SwingUtilities.invokeLater(() -> dialog.addResult(testCase)));
+        });
+        testTask.whenComplete((results, error) -> SwingUtilities.invokeLater(() -> {
+            button.setEnabled(true);
+            dialog.finish(results == null);
+        }));
+        dialog.openDialog();
+    }
+
+    /**
+     * 配置状态栏中的后台任务进度展示，任务状态变化时在事件分发线程中刷新
+     */
+    public void setupTaskIndicator(){
+        taskListener = task -> SwingUtilities.invokeLater(this::updateTaskIndicator);
+        TaskExecutor.addListener(taskListener);
+    }
+
+    /**
+     * 取消状态栏中正在展示的后台任务
+     */
+    public void cancelCurrentTask(){
+        if(displayedTask != null) displayedTask.cancel();
+    }
+
+    /**
+     * 刷新状态栏中的后台任务进度，同时有多个任务时展示最新提交的那个
+     */
+    private void updateTaskIndicator(){
+        JPanel panel = this.getComponent("main.panel.task");
+        JLabel label = this.getComponent("main.label.task");
+        JProgressBar bar = this.getComponent("main.progress.task");
+        List<EngineTask<?>> tasks = TaskExecutor.activeTasks();
+        displayedTask = tasks.isEmpty() ? null : tasks.get(tasks.size() - 1);
+        panel.setVisible(displayedTask != null);
+        if(displayedTask == null) return;
+        String message = displayedTask.getMessage();
+        label.setText(displayedTask.getName() + (message.isEmpty() ? "" : "：" + message)
+                + (tasks.size() > 1 ? "（共 " + tasks.size() + " 个任务）" : ""));
+        double progress = displayedTask.getProgress();
+        bar.setIndeterminate(progress < 0);
+        if(progress >= 0) bar.setValue((int) (progress * 100));
+    }
+
+    /**
+     * 构建项目，编译器每产生一条错误，就立即追加到编译失败对话框中（第一条错误出现时打开对话框），
+     * 不需要等整个编译过程结束。此方法会阻塞直到编译完成，不能在事件分发线程中调用。
+     * 调用之前需要先在事件分发线程中执行saver.flush()，把编辑框中还没有保存的内容交给延迟写入器。
+     * @return 构建结果
+     */
+    private ProcessResult buildWithErrorDialog(){
+        saver.awaitWrites();    //编辑框中的内容已经在提交任务之前获取了快照，等它们写入磁盘之后再编译
+        AtomicReference<CompileErrorDialog> dialog = new AtomicReference<>();
+        ProcessResult result = ProcessExecuteEngine.buildProject(path, configure.getCompileMode(),
+                diagnostic -> SwingUtilities.invokeLater(() -> {
+                    if(dialog.get() != null) {
+                        dialog.get().addDiagnostic(diagnostic);
+                    } else if(diagnostic.getKind() == CompileDiagnostic.Kind.ERROR) {
+                        CompileErrorDialog errorDialog = new CompileErrorDialog(this.getWindow());
+                        dialog.set(errorDialog);
+                        errorDialog.addDiagnostic(diagnostic);
+                        errorDialog.openDialog();
+                    }
+                }));
+        //编译失败了，但是没有任何结构化的错误信息（比如编译器自身出错），那就直接展示输出的文本（主动取消的除外）
+        if(result.getExitCode() != 0 && !Thread.currentThread().isInterrupted())
+            SwingUtilities.invokeLater(() -> {
+                if(dialog.get() == null)
+                    new CompileErrorDialog(this.getWindow(), result.getOutput()).openDialog();
+            });
+        return result;
+    }
+
+    /**
+     * 将内存编译模式下的编译结果写出到out目录中
+     */
+    public void flushMemoryOutput(){
+        MainWindow window = (MainWindow) this.getWindow();
+        try {
+            int count = ProcessExecuteEngine.flushMemoryOutput(path);
+            if(count < 0) {
+                JOptionPane.showMessageDialog(window, "内存中没有编译结果，请先使用内存编译模式构建项目！");
+                return;
+            }
+            JOptionPane.showMessageDialog(window, "已写出 " + count + " 个类文件到out目录！");
+            window.refreshFileTree();
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(window, "写出失败：" + e.getMessage());
         }
-        window.refreshFileTree();
     }
 
     /**
@@ -190,22 +654,53 @@ public class MainService extends AbstractService {
      */
     public void setupEditArea(){
         JTextArea editArea = this.getComponent("main.textarea.edit");
-        //当文本内容发生变化时，自动写入到文件中
-        editArea.getDocument().addDocumentListener(new DocumentListener() {
+        //当文本内容发生变化时，安排一次延迟写入和一次后台编译检查
+        documentListener = new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
                 MainService.this.saveFile();
+                MainService.this.scheduleCheck();
+                jitNotes = Collections.emptyMap();    //JIT标注是按行号对应的，修改之后就对不上了
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
                 MainService.this.saveFile();
+                MainService.this.scheduleCheck();
+                jitNotes = Collections.emptyMap();
             }
 
             @Override
             public void changedUpdate(DocumentEvent e) {
                 MainService.this.saveFile();
             }
+        };
+        this.setEditorDocument(new PieceTableDocument());
+        //鼠标悬停在有错误的行上时，展示错误信息（没有错误时展示JIT分析的标注）
+        editArea.addMouseMotionListener(new MouseMotionAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                editArea.setToolTipText(MainService.this.diagnosticMessageAt(editArea, e.getPoint()));
+            }
+        });
+        //编辑框失去焦点时（比如切换到别的窗口），立即写入未保存的内容
+        editArea.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                saver.flush();
+            }
+        });
+        //查看.class文件时，双击方法展开或者折叠它的字节码
+        editArea.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if(e.getClickCount() != 2 || classView == null || classListing == null) return;
+                try {
+                    MainService.this.toggleClassView(editArea.getLineOfOffset(editArea.viewToModel2D(e.getPoint())));
+                } catch (BadLocationException ex) {
+                    ex.printStackTrace();
+                }
+            }
         });
         //按下Tab键时，应该输入四个空格，而不是一个Tab缩进（不然太丑）
         editArea.addKeyListener(new KeyAdapter() {
@@ -235,21 +730,48 @@ public class MainService extends AbstractService {
     }
 
     /**
-     * 让控制台输入重定向到进程的系统输入中
-     * @return KeyAdapter
+     * 让控制台输入重定向到会话中运行的进程的系统输入中，输入的内容也会回显到控制台：
+     * - 键入的字符按行缓冲，按下回车时才会真正写给程序
+     * - Ctrl+V 粘贴的内容整块发送，粘贴结束后立即写给程序
+     * - Ctrl+D 结束输入，程序会读到EOF
+     * @param session 运行会话
+     * @param pipeline 控制台输出管道
+     * @param consolePane 控制台
      */
-    public KeyAdapter inputRedirect(){
-        JTextArea consoleArea = this.getComponent("main.textarea.console");
-        return new KeyAdapter() {
+    private void setupConsoleInput(RunSession session, ConsoleOutputPipeline pipeline, JTextPane consolePane){
+        consolePane.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyTyped(KeyEvent e) {
+                char c = e.getKeyChar();
+                if(session.isFinished() || e.isControlDown() || c == KeyEvent.CHAR_UNDEFINED || c == '\b') return;
+                String str = c == '\r' ? "\n" : String.valueOf(c);
+                ProcessExecuteEngine.redirectToProcess(session, str, false);
+                pipeline.write(new OutputChunk(OutputChunk.Kind.INPUT, str));
+            }
+        });
+        consolePane.getInputMap().put(KeyStroke.getKeyStroke("control V"), "PasteInput");
+        consolePane.getActionMap().put("PasteInput", new AbstractAction() {
             @Override
-            public void keyReleased(KeyEvent e) {
-                if(isProjectRunning) {
-                    String str = String.valueOf(e.getKeyChar());
-                    ProcessExecuteEngine.redirectToProcess(str);
-                    consoleArea.append(str);
+            public void actionPerformed(ActionEvent e) {
+                if(session.isFinished()) return;
+                try {
+                    String text = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+                    ProcessExecuteEngine.redirectToProcess(session, text, true);
+                    pipeline.write(new OutputChunk(OutputChunk.Kind.INPUT, text));
+                } catch (UnsupportedFlavorException | IOException ex) {
+                    ex.printStackTrace();
                 }
             }
-        };
+        });
+        consolePane.getInputMap().put(KeyStroke.getKeyStroke("control D"), "EndInput");
+        consolePane.getActionMap().put("EndInput", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if(session.isFinished()) return;
+                ProcessExecuteEngine.endProcessInput(session);
+                pipeline.write("^D\n");
+            }
+        });
     }
 
     /**
@@ -257,29 +779,272 @@ public class MainService extends AbstractService {
      * @param path 文件路径
      */
     public void switchEditFile(String path) {
-        JTextArea editArea = this.getComponent("main.textarea.edit");
+        JCodeArea editArea = this.getComponent("main.textarea.edit");
+        saver.flush();    //编辑框马上要换成别的文件的内容了，先把当前文件的快照交给延迟写入器
         currentFile = null;
         File file = new File(path);
         if(file.isDirectory()) return;
-        editArea.getDocument().removeUndoableEditListener(undoManager);
+        this.closeLargeFileViewer();
+        //只有Java源文件需要语法高亮，新文档在第一次绘制时才会整体分析一遍
+        editArea.setSyntaxHighlighting(file.getName().endsWith(".java"));
+        classView = null;
         if(file.getName().endsWith(".class")) {
-            editArea.setText(ProcessExecuteEngine.decompileCode(file.getAbsolutePath()));
+            this.setEditorDocument(new PieceTableDocument());
+            editArea.setEditable(false);
+            try {
+                //在IDE进程内解析，解析结果有缓存，方法体在展开时才反汇编，不需要每次都启动javap
+                classView = ClassFileCache.get(file);
+                expandedMethods.clear();
+                this.renderClassView(0, false);
+            } catch (IOException e) {
+                this.decompileWithJavap(file);
+            }
+        } else if(file.length() > LARGE_FILE_THRESHOLD && saver.unsavedContent(file) == null) {
+            this.setEditorDocument(new PieceTableDocument());
             editArea.setEditable(false);
+            this.openLargeFileViewer(file);
+        } else if(saver.unsavedContent(file) instanceof PieceTableContent.Snapshot) {
+            //刚刚切换走的文件可能还没有写入磁盘，以等待写入的快照为准，快照可以直接作为新文档的内容
+            this.setEditorDocument(new PieceTableDocument(new PieceTableContent((PieceTableContent.Snapshot) saver.unsavedContent(file))));
+            editArea.setEditable(true);
         } else {
-            try(FileReader reader = new FileReader(file)) {
-                StringBuilder builder = new StringBuilder();
-                int len;
-                char[] chars = new char[1024];
-                while ((len = reader.read(chars)) > 0)
-                    builder.append(chars, 0, len);
-                editArea.setText(builder.toString());
+            try {
+                //解码出来的字符数组直接作为片段表的原始缓冲区，不再复制
+                CharBuffer chars = Charset.defaultCharset().decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+                this.setEditorDocument(new PieceTableDocument(new PieceTableContent(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining())));
                 editArea.setEditable(true);
             } catch (IOException e) {
                 e.printStackTrace();
+                this.setEditorDocument(new PieceTableDocument());
             }
         }
         editArea.getDocument().addUndoableEditListener((undoManager = new UndoManager()));
         currentFile = file;
+        this.updateJitNotes();
+        this.highlightErrors();
+    }
+
+    /**
+     * 使用大文件查看器打开文件，文件通过内存映射访问，只解码可见的行，映射失败时编辑框保持为空
+     * @param file 文件
+     */
+    private void openLargeFileViewer(File file){
+        JTextArea editArea = this.getComponent("main.textarea.edit");
+        JPanel editorPanel = this.getComponent("main.panel.editor");
+        try {
+            largeFileViewer = new LargeFileViewer(MappedTextFile.open(file), editArea.getFont());
+            editorPanel.add(largeFileViewer, "viewer");
+            ((CardLayout) editorPanel.getLayout()).show(editorPanel, "viewer");
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(editorPanel, "无法打开文件：" + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * 关闭当前的大文件查看器（如果有的话），切换回编辑框
+     */
+    private void closeLargeFileViewer(){
+        if(largeFileViewer == null) return;
+        JPanel editorPanel = this.getComponent("main.panel.editor");
+        largeFileViewer.close();
+        editorPanel.remove(largeFileViewer);
+        ((CardLayout) editorPanel.getLayout()).show(editorPanel, "editor");
+        largeFileViewer = null;
+    }
+
+    /**
+     * 把编辑框换成新的文档，文档监听器随之转移，撤销记录是属于原来的文档的，由调用者重新创建
+     * @param document 新的文档
+     */
+    private void setEditorDocument(PieceTableDocument document){
+        JTextArea editArea = this.getComponent("main.textarea.edit");
+        Document old = editArea.getDocument();
+        old.removeDocumentListener(documentListener);
+        if(undoManager != null) old.removeUndoableEditListener(undoManager);
+        editArea.setDocument(document);
+        document.addDocumentListener(documentListener);
+    }
+
+    /**
+     * 内置的解析器无法解析的.class文件（比如更新版本的JDK编译的）交给javap反编译，
+     * javap需要启动外部进程，放到后台任务中进行，完成时如果用户已经切换到别的文件了就直接丢弃
+     * @param file .class文件
+     */
+    private void decompileWithJavap(File file){
+        JTextArea editArea = this.getComponent("main.textarea.edit");
+        editArea.setText("正在反编译...");
+        TaskExecutor.<String>submit("反编译 " + file.getName(), task -> ProcessExecuteEngine.decompileCode(file.getAbsolutePath()))
+                .whenComplete((code, error) -> SwingUtilities.invokeLater(() -> {
+                    if(code == null || !file.equals(currentFile)) return;
+                    currentFile = null;    //防止设置文本时触发保存，把反编译结果写进.class文件里
+                    editArea.setText(code);
+                    currentFile = file;
+                    undoManager.discardAllEdits();
+                }));
+    }
+
+    /**
+     * 重新生成当前.class文件的反汇编文本，打开文件、展开或者折叠方法之后调用
+     * @param anchorLine 重新生成之后光标所在的行（双击的那一行），-1表示保持原来的光标位置
+     * @param keepScroll 是否保持原来的滚动位置
+     */
+    private void renderClassView(int anchorLine, boolean keepScroll){
+        JTextArea editArea = this.getComponent("main.textarea.edit");
+        JViewport viewport = (JViewport) editArea.getParent();
+        Point position = viewport.getViewPosition();
+        int caret = editArea.getCaretPosition();
+        classListing = classView.render(expandedMethods, jitInsight == null ? null : jitInsight.bytecodeAnnotator(classView.getClassFile()));
+        File file = currentFile;
+        currentFile = null;    //防止设置文本时触发保存，把反汇编结果写进.class文件里
+        editArea.setText(classListing.getText());
+        currentFile = file;
+        try {
+            editArea.setCaretPosition(anchorLine >= 0 ? editArea.getLineStartOffset(Math.min(anchorLine, editArea.getLineCount() - 1))
+                    : Math.min(caret, editArea.getDocument().getLength()));
+        } catch (BadLocationException e) {
+            editArea.setCaretPosition(0);
+        }
+        //展开和折叠只影响双击位置下面的内容，恢复原来的滚动位置，被双击的那一行就不会移动
+        if(keepScroll) SwingUtilities.invokeLater(() -> viewport.setViewPosition(position));
+        if(undoManager != null) undoManager.discardAllEdits();
+    }
+
+    /**
+     * 双击反汇编文本中的方法时展开或者折叠这个方法，双击类声明时展开或者折叠全部方法
+     * @param line 双击的行
+     */
+    private void toggleClassView(int line){
+        int method = classListing.methodAt(line);
+        if(method == -1) return;
+        if(method == ClassDisassembly.CLASS_HEADER) {
+            int count = classView.getClassFile().getMethods().size();
+            if(expandedMethods.size() < count) {
+                for (int i = 0; i < count; i++) expandedMethods.add(i);
+            } else {
+                expandedMethods.clear();
+            }
+        } else if(!expandedMethods.remove(method)) {
+            expandedMethods.add(method);
+        }
+        this.renderClassView(line, true);
+    }
+
+    /**
+     * 安排一次后台编译检查，编译器直接读取文档的快照，获取快照不需要复制内容
+     */
+    private void scheduleCheck(){
+        JTextArea editArea = this.getComponent("main.textarea.edit");
+        if(currentFile == null || !currentFile.getName().endsWith(".java")) return;
+        PieceTableContent.Snapshot snapshot = ((PieceTableDocument) editArea.getDocument()).snapshot();
+        compileScheduler.schedule(currentFile, () -> snapshot);
+        this.updateCheckStatus("检查中...");
+    }
+
+    /**
+     * 发布后台编译检查的结果，更新编辑框中的错误标记、文件树和状态栏
+     * @param result 检查结果
+     */
+    private void publishCheckResult(CompileScheduler.CheckResult result){
+        checkDiagnostics = result.getDiagnostics();
+        Set<String> files = new HashSet<>();
+        for (CompileDiagnostic diagnostic : checkDiagnostics)
+            if(diagnostic.getKind() == CompileDiagnostic.Kind.ERROR && diagnostic.getFile() != null)
+                files.add(new File(diagnostic.getFile()).getAbsolutePath());
+        errorFiles = files;
+        this.highlightErrors();
+        JTree fileTree = this.getComponent("main.tree.files");
+        fileTree.repaint();
+        long errors = result.getErrorCount();
+        this.updateCheckStatus((errors == 0 ? "没有发现错误" : "发现 " + errors + " 个错误") + "，耗时 " + result.getLatencyMillis() + "ms");
+    }
+
+    private void updateCheckStatus(String state){
+        JLabel label = this.getComponent("main.label.check");
+        label.setText("后台检查：" + state + "（平均耗时 " + compileScheduler.getAverageLatencyMillis()
+                + "ms，排队 " + compileScheduler.getQueueDepth() + "，已取消 " + compileScheduler.getCancelledCount() + "）");
+    }
+
+    /**
+     * 判断文件（或者目录下的文件）在最近一次后台检查中是否存在错误
+     * @param file 文件或目录
+     * @return 是否存在错误
+     */
+    public boolean hasErrors(File file){
+        String path = file.getAbsolutePath();
+        for (String errorFile : errorFiles)
+            if(errorFile.equals(path) || errorFile.startsWith(path + File.separator)) return true;
+        return false;
+    }
+
+    /**
+     * 重新生成当前编辑的源文件的JIT标注
+     */
+    private void updateJitNotes(){
+        if(jitInsight == null || currentFile == null || !currentFile.getName().endsWith(".java")) {
+            jitNotes = Collections.emptyMap();
+            return;
+        }
+        jitNotes = jitInsight.sourceNotes(currentFile);
+    }
+
+    /**
+     * 在编辑框中标记出当前文件中存在错误的行，以及JIT分析标注的行（有问题的行标黄，只有编译信息的行标绿）
+     */
+    private void highlightErrors(){
+        JTextArea editArea = this.getComponent("main.textarea.edit");
+        Highlighter highlighter = editArea.getHighlighter();
+        highlighter.removeAllHighlights();
+        if(currentFile == null) return;
+        Highlighter.HighlightPainter warningPainter = new DefaultHighlighter.DefaultHighlightPainter(new Color(255, 200, 0, 70));
+        Highlighter.HighlightPainter infoPainter = new DefaultHighlighter.DefaultHighlightPainter(new Color(0, 180, 0, 35));
+        jitNotes.forEach((line, note) -> {
+            try {
+                if(line < 1 || line > editArea.getLineCount()) return;
+                highlighter.addHighlight(editArea.getLineStartOffset(line - 1), editArea.getLineEndOffset(line - 1),
+                        note.isWarning() ? warningPainter : infoPainter);
+            } catch (BadLocationException e) {
+                e.printStackTrace();
+            }
+        });
+        String path = currentFile.getAbsolutePath();
+        Highlighter.HighlightPainter painter = new DefaultHighlighter.DefaultHighlightPainter(new Color(255, 0, 0, 60));
+        for (CompileDiagnostic diagnostic : checkDiagnostics) {
+            if(diagnostic.getKind() != CompileDiagnostic.Kind.ERROR || diagnostic.getFile() == null) continue;
+            if(!new File(diagnostic.getFile()).getAbsolutePath().equals(path)) continue;
+            try {
+                int line = (int) diagnostic.getLine() - 1;
+                if(line < 0 || line >= editArea.getLineCount()) continue;
+                highlighter.addHighlight(editArea.getLineStartOffset(line), editArea.getLineEndOffset(line), painter);
+            } catch (BadLocationException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 获取编辑框中某个位置所在行的错误信息，没有错误时获取这一行的JIT分析标注
+     * @return 错误信息或者标注，都没有时返回null
+     */
+    private String diagnosticMessageAt(JTextArea editArea, Point point){
+        if(currentFile == null || (checkDiagnostics.isEmpty() && jitNotes.isEmpty())) return null;
+        try {
+            int line = editArea.getLineOfOffset(editArea.viewToModel2D(point)) + 1;
+            String path = currentFile.getAbsolutePath();
+            for (CompileDiagnostic diagnostic : checkDiagnostics)
+                if(diagnostic.getLine() == line && diagnostic.getFile() != null
+                        && new File(diagnostic.getFile()).getAbsolutePath().equals(path))
+                    return diagnostic.getMessage();
+            JitInsight.LineNote note = jitNotes.get(line);
+            if(note == null) return null;
+            StringBuilder html = new StringBuilder("<html>");
+            for (String message : note.getMessages())
+                html.append(message.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")).append("<br>");
+            return html.append("</html>").toString();
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        }
+        return null;
     }
 
     private void deleteFile(String name){
@@ -289,6 +1054,8 @@ public class MainService extends AbstractService {
         String packageName = name.substring(0, name.length() - className.length() - 1);
 
         File file = new File(path+"/src/"+packageName.replace(".", "/")+"/"+className+".java");
+        saver.flush();
+        saver.awaitWrites();    //等延迟写入完成，不然删掉之后又会被写回来
         if(file.exists() && file.delete()) {
             JOptionPane.showMessageDialog(this.getWindow(), "文件删除成功！");
         }else {
@@ -331,16 +1098,58 @@ public class MainService extends AbstractService {
     }
 
     /**
-     * 保存当前编辑框中的内容到当前文件中
+     * 把当前文件标记为未保存，交给延迟写入器，编辑停顿下来之后才会获取编辑框的内容并在后台写入
      */
     private void saveFile(){
         JTextArea editArea = this.getComponent("main.textarea.edit");
-        if(currentFile == null) return;
-        try (FileWriter writer = new FileWriter(currentFile)){
-            writer.write(editArea.getText());
-            writer.flush();
-        } catch (IOException e) {
-            e.printStackTrace();
+        File file = currentFile;
+        if(file == null || classView != null) return;    //反汇编的内容是只读的
+        //每个文件有自己的文档，写入时获取这个文档的快照即可，即使编辑框已经换成了别的文件
+        saver.markDirty(file, ((PieceTableDocument) editArea.getDocument())::snapshot);
+        JLabel label = this.getComponent("main.label.save");
+        if(label != null && !label.getText().equals("未保存")) this.updateSaveStatus();    //每次按键都刷新提示就太浪费了
+    }
+
+    /**
+     * 刷新状态栏中的保存状态，提示中展示写入次数、合并的编辑数量和写入耗时
+     */
+    private void updateSaveStatus(){
+        JLabel label = this.getComponent("main.label.save");
+        if(label == null) return;
+        String error = saver.getLastError();
+        label.setText(error != null ? "保存失败" : saver.isDirty() ? "未保存" : "已保存");
+        label.setForeground(error != null ? Color.RED : Color.GRAY);
+        int count = saver.getSaveCount();
+        label.setToolTipText(String.format("<html>已写入 %d 次，合并了 %d 次编辑（平均每次 %.1f 次），跳过过期的快照 %d 次，失败 %d 次<br>"
+                        + "写入耗时：最近 %dms，平均 %dms，最长 %dms%s</html>", count, saver.getCoalescedEdits(),
+                count == 0 ? 0.0 : (double) saver.getCoalescedEdits() / count, saver.getSupersededCount(), saver.getFailureCount(),
+                saver.getLastLatencyMillis(), saver.getAverageLatencyMillis(), saver.getMaxLatencyMillis(),
+                error == null ? "" : "<br>" + error));
+    }
+
+    /**
+     * 控制台中的一个运行标签页，记录它对应的运行会话和后台任务
+     */
+    private static class RunConsole {
+        private final RunSession session;
+        private final EngineTask<?> task;
+        private final ConsoleOutputPipeline pipeline;
+        private final MonitorPanel monitor;
+
+        RunConsole(RunSession session, EngineTask<?> task, ConsoleOutputPipeline pipeline, MonitorPanel monitor) {
+            this.session = session;
+            this.task = task;
+            this.pipeline = pipeline;
+            this.monitor = monitor;
+        }
+
+        /**
+         * 结束运行并释放控制台资源
+         */
+        void close(){
+            task.cancel();
+            pipeline.close();
+            if(monitor != null) monitor.dispose();
         }
     }
 }